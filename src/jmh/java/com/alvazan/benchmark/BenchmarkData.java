@@ -0,0 +1,79 @@
+package com.alvazan.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.LocalDateTime;
+
+import com.alvazan.orm.api.base.DbTypeEnum;
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.impl.meta.data.MetaClass;
+import com.alvazan.orm.impl.meta.data.MetaInfo;
+import com.alvazan.orm.layer0.base.BaseEntityManagerFactoryImpl;
+import com.alvazan.test.Config;
+import com.alvazan.test.FactorySingleton;
+import com.alvazan.test.db.Account;
+import com.alvazan.test.db.Activity;
+import com.google.inject.Injector;
+
+/**
+ * Setup shared by the benchmarks.  Everything runs on the in memory database against the entities of
+ * the test suite so the numbers are the cost of the orm itself and not of a cluster.
+ */
+public class BenchmarkData {
+
+	public static NoSqlEntityManagerFactory createFactory() {
+		return createFactory(new HashMap<String, Object>());
+	}
+
+	public static NoSqlEntityManagerFactory createFactory(Map<String, Object> props) {
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		return FactorySingleton.createFactory(config, props);
+	}
+
+	public static <T> T getInstance(NoSqlEntityManagerFactory factory, Class<T> type) {
+		Injector injector = (Injector) ((BaseEntityManagerFactoryImpl) factory).getInjector();
+		return injector.getInstance(type);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> MetaClass<T> getMetaClass(NoSqlEntityManagerFactory factory, Class<T> type) {
+		return getInstance(factory, MetaInfo.class).getMetaClass(type);
+	}
+
+	/**
+	 * Writes numAccounts accounts, half active, each with activitiesPerAccount activities.  Activity
+	 * names cycle through 10 values and numTimes through 100 so the AND, OR and JOIN queries hit a
+	 * known share of the rows.
+	 */
+	public static void fill(NoSqlEntityManagerFactory factory, int numAccounts, int activitiesPerAccount) {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		int n = 0;
+		for(int i = 0; i < numAccounts; i++) {
+			Account acc = new Account("acc"+i);
+			acc.setName("account"+(i % 10));
+			acc.setIsActive(i % 2 == 0);
+			acc.setUsers((float) i);
+			mgr.put(acc);
+			for(int j = 0; j < activitiesPerAccount; j++) {
+				mgr.put(newActivity("act"+n, acc, n));
+				n++;
+			}
+			mgr.flush();
+		}
+	}
+
+	public static Activity newActivity(String id, Account account, int n) {
+		Activity act = new Activity(id);
+		act.setAccount(account);
+		act.setName("name"+(n % 10));
+		act.setUniqueColumn("unique"+n);
+		act.setNumTimes(n % 100);
+		act.setMyFloat(n * 1.5f);
+		act.setIsCool(n % 3 == 0);
+		act.setDate(new LocalDateTime(2013, 1, 1, 0, 0).plusMinutes(n));
+		act.setSomethingElse("something else "+n);
+		return act;
+	}
+}
@@ -0,0 +1,147 @@
+package com.alvazan.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.conv.ByteArrayMap;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+
+/**
+ * The old ByteArray hash(sum of the bytes / 2) against the current murmur3 hash on the kinds of keys
+ * we see as row keys and primary keys.  The map benchmarks put every key and then look every key up in
+ * a HashMap with the old hash, a HashMap with the new hash and a ByteArrayMap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ByteArrayHashBenchmark {
+
+	@Param({"longs", "strings", "uuids"})
+	public String keyType;
+
+	@Param({"20000"})
+	public int numKeys;
+
+	private List<byte[]> keys = new ArrayList<byte[]>();
+
+	@Setup
+	public void setup() {
+		for(int i = 0; i < numKeys; i++) {
+			if("longs".equals(keyType))
+				keys.add(StandardConverters.convertToBytes((long) i));
+			else if("strings".equals(keyType))
+				keys.add(StandardConverters.convertToBytes("user"+i));
+			else if("uuids".equals(keyType))
+				keys.add(StandardConverters.convertToBytes(new UUID(i*31L, i).toString()));
+			else
+				throw new IllegalArgumentException("unknown keyType="+keyType);
+		}
+	}
+
+	@Benchmark
+	public int oldHash() {
+		int sum = 0;
+		for(byte[] key : keys)
+			sum += OldKey.oldHash(key);
+		return sum;
+	}
+
+	@Benchmark
+	public int murmurHash() {
+		int sum = 0;
+		for(byte[] key : keys)
+			sum += ByteArray.hashOf(key);
+		return sum;
+	}
+
+	@Benchmark
+	public int hashMapOldHash() {
+		Map<OldKey, byte[]> map = new HashMap<OldKey, byte[]>();
+		for(byte[] key : keys)
+			map.put(new OldKey(key), key);
+		int found = 0;
+		for(byte[] key : keys) {
+			if(map.get(new OldKey(key)) != null)
+				found++;
+		}
+		return verify(found);
+	}
+
+	@Benchmark
+	public int hashMapNewHash() {
+		Map<ByteArray, byte[]> map = new HashMap<ByteArray, byte[]>();
+		for(byte[] key : keys)
+			map.put(new ByteArray(key), key);
+		int found = 0;
+		for(byte[] key : keys) {
+			if(map.get(new ByteArray(key)) != null)
+				found++;
+		}
+		return verify(found);
+	}
+
+	@Benchmark
+	public int byteArrayMap() {
+		ByteArrayMap<byte[]> map = new ByteArrayMap<byte[]>();
+		for(byte[] key : keys)
+			map.put(key, key);
+		int found = 0;
+		for(byte[] key : keys) {
+			if(map.get(key) != null)
+				found++;
+		}
+		return verify(found);
+	}
+
+	private int verify(int found) {
+		if(found != keys.size())
+			throw new IllegalStateException("bug, only found "+found+" of "+keys.size()+" keys");
+		return found;
+	}
+
+	/**
+	 * ByteArray as it was before we switched to murmur3
+	 */
+	private static class OldKey {
+		private byte[] key;
+
+		public OldKey(byte[] key) {
+			this.key = key;
+		}
+
+		static int oldHash(byte[] key) {
+			long hash = 0;
+			for(int i = 0; i < key.length;i++) {
+				hash += key[i];
+			}
+			return (int) (hash / 2);
+		}
+
+		@Override
+		public int hashCode() {
+			return oldHash(key);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof OldKey))
+				return false;
+			return Arrays.equals(key, ((OldKey) obj).key);
+		}
+	}
+}
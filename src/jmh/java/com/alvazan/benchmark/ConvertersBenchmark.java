@@ -0,0 +1,149 @@
+package com.alvazan.benchmark;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+
+/**
+ * Object to byte[] and back through StandardConverters, the conversion every column of every row goes
+ * through on the way in and out.  The legacy benchmarks run the BigInteger/BigDecimal/String encoding
+ * the converters used before PrimitiveCodec as a baseline, they write and read the same bytes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConvertersBenchmark {
+
+	@Param({"long", "string", "double", "boolean", "bigdecimal", "biginteger", "localdatetime"})
+	public String type;
+
+	private Object value;
+	private Class<?> clazz;
+	private byte[] bytes;
+
+	@Setup
+	public void setup() {
+		if("long".equals(type))
+			value = 1234567890123L;
+		else if("string".equals(type))
+			value = "some column value of a typical length";
+		else if("double".equals(type))
+			value = 12345.678d;
+		else if("boolean".equals(type))
+			value = Boolean.TRUE;
+		else if("bigdecimal".equals(type))
+			value = new BigDecimal("12345678901234567890.123456789");
+		else if("biginteger".equals(type))
+			value = new BigInteger("12345678901234567890");
+		else if("localdatetime".equals(type))
+			value = new LocalDateTime(2013, 6, 1, 12, 30);
+		else
+			throw new IllegalArgumentException("unknown type="+type);
+		clazz = value.getClass();
+		bytes = StandardConverters.convertToBytes(value);
+	}
+
+	@Benchmark
+	public byte[] toBytes() {
+		return StandardConverters.convertToBytes(value);
+	}
+
+	@Benchmark
+	public Object fromBytes() {
+		return StandardConverters.convertFromBytes(clazz, bytes);
+	}
+
+	@Benchmark
+	public Object roundTrip() {
+		return StandardConverters.convertFromBytes(clazz, StandardConverters.convertToBytes(value));
+	}
+
+	@Benchmark
+	public byte[] legacyToBytes() {
+		return LegacyCodec.toBytes(value);
+	}
+
+	@Benchmark
+	public Object legacyFromBytes() {
+		return LegacyCodec.fromBytes(clazz, bytes);
+	}
+
+	@Benchmark
+	public Object legacyRoundTrip() {
+		return LegacyCodec.fromBytes(clazz, LegacyCodec.toBytes(value));
+	}
+
+	/**
+	 * The Converters encoding before PrimitiveCodec, integers went through BigInteger, decimals through
+	 * a String and BigDecimal
+	 */
+	private static class LegacyCodec {
+		private static final Charset UTF8 = Charset.forName("UTF8");
+
+		static byte[] toBytes(Object value) {
+			if(value instanceof Long)
+				return BigInteger.valueOf((Long) value).toByteArray();
+			else if(value instanceof String)
+				return ((String) value).getBytes(UTF8);
+			else if(value instanceof Double)
+				return decimalToBytes(new BigDecimal(""+((Double) value).doubleValue()));
+			else if(value instanceof Boolean)
+				return BigInteger.valueOf((Boolean) value ? 1 : 0).toByteArray();
+			else if(value instanceof BigDecimal)
+				return decimalToBytes((BigDecimal) value);
+			else if(value instanceof BigInteger)
+				return ((BigInteger) value).toByteArray();
+			else if(value instanceof LocalDateTime)
+				return BigInteger.valueOf(((LocalDateTime) value).toDate().getTime()).toByteArray();
+			throw new IllegalArgumentException("unknown type="+value.getClass());
+		}
+
+		static Object fromBytes(Class<?> clazz, byte[] data) {
+			if(clazz == Long.class)
+				return new BigInteger(data).longValue();
+			else if(clazz == String.class)
+				return new String(data, UTF8);
+			else if(clazz == Double.class)
+				return decimalFromBytes(data).doubleValue();
+			else if(clazz == Boolean.class)
+				return new BigInteger(data).intValue() == 1;
+			else if(clazz == BigDecimal.class)
+				return decimalFromBytes(data);
+			else if(clazz == BigInteger.class)
+				return new BigInteger(data);
+			else if(clazz == LocalDateTime.class)
+				return new LocalDateTime(new BigInteger(data).longValue());
+			throw new IllegalArgumentException("unknown type="+clazz);
+		}
+
+		private static byte[] decimalToBytes(BigDecimal value) {
+			byte[] bibytes = value.unscaledValue().toByteArray();
+			ByteBuffer buf = ByteBuffer.allocate(bibytes.length+4);
+			buf.putInt(value.scale());
+			buf.put(bibytes);
+			return buf.array();
+		}
+
+		private static BigDecimal decimalFromBytes(byte[] data) {
+			ByteBuffer buf = ByteBuffer.wrap(data);
+			int scale = buf.getInt();
+			byte[] bibytes = new byte[buf.remaining()];
+			buf.get(bibytes);
+			return new BigDecimal(new BigInteger(bibytes), scale);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.alvazan.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.alvazan.orm.api.base.spi.CompactKeyGenerator;
+import com.alvazan.orm.api.base.spi.UniqueKeyGenerator;
+
+/**
+ * Many threads generating keys at the same time with the old synchronized UniqueKeyGenerator, the
+ * current compareAndSet one and CompactKeyGenerator.  Change the contention with -t.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class KeyGeneratorBenchmark {
+
+	@Benchmark
+	public String oldSynchronized() {
+		return OldGenerator.generateKey();
+	}
+
+	@Benchmark
+	public String uniqueKeyGenerator() {
+		return UniqueKeyGenerator.generateKey();
+	}
+
+	@Benchmark
+	public long compactKeyGenerator() {
+		return CompactKeyGenerator.generateKey();
+	}
+
+	/**
+	 * UniqueKeyGenerator as it was before we took the lock out
+	 */
+	private static class OldGenerator {
+		private static long lastTimeStamp;
+
+		static String generateKey() {
+			LocalDateTime dateTime = new LocalDateTime(2012, 6, 1, 0, 0);
+			long baseTime = dateTime.toDate().getTime();
+			long current = System.currentTimeMillis() - baseTime;
+			current = (current * 10000);
+			long time = generateKeyImpl(current);
+			String encodedTime = Long.toString(time, 36).toUpperCase();
+			return encodedTime+"."+UniqueKeyGenerator.getHostname();
+		}
+
+		private static synchronized long generateKeyImpl(long timeMillis) {
+			if(timeMillis > lastTimeStamp) {
+				lastTimeStamp = timeMillis;
+			} else
+				lastTimeStamp++;
+
+			return lastTimeStamp;
+		}
+	}
+}
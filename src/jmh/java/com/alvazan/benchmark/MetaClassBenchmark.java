@@ -0,0 +1,76 @@
+package com.alvazan.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z5api.NoSqlSession;
+import com.alvazan.orm.api.z8spi.KeyValue;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.meta.DboColumnIdMeta;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.api.z8spi.meta.RowToPersist;
+import com.alvazan.orm.impl.meta.data.MetaClass;
+import com.alvazan.test.db.Account;
+import com.alvazan.test.db.Activity;
+
+/**
+ * MetaClassSingle.translateToRow(entity to columns plus index entries) and translateFromRow(columns to
+ * a filled in proxy) for an Activity which has a dozen fields of different types and a ManyToOne.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetaClassBenchmark {
+
+	private NoSqlEntityManagerFactory factory;
+	private MetaClass<Activity> meta;
+	private Activity activity;
+	private NoSqlSession session;
+	private Row row;
+
+	@Setup
+	public void setup() {
+		factory = BenchmarkData.createFactory();
+		meta = BenchmarkData.getMetaClass(factory, Activity.class);
+		Account account = new Account("acc0");
+		activity = BenchmarkData.newActivity("act0", account, 7);
+
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		mgr.put(account);
+		mgr.put(activity);
+		mgr.flush();
+
+		session = factory.createEntityManager().getSession();
+		DboTableMeta dbo = meta.getMetaDbo();
+		DboColumnIdMeta idMeta = dbo.getIdColumnMeta();
+		byte[] rowKey = idMeta.formVirtRowKey(idMeta.convertToStorage2("act0"));
+		row = session.find(dbo, rowKey);
+		if(row == null)
+			throw new IllegalStateException("bug, the row we just wrote is not there");
+	}
+
+	@TearDown
+	public void tearDown() {
+		factory.close();
+	}
+
+	@Benchmark
+	public RowToPersist translateToRow() {
+		return meta.translateToRow(activity);
+	}
+
+	@Benchmark
+	public KeyValue<Activity> translateFromRow() {
+		return meta.translateFromRow(row, session);
+	}
+}
@@ -0,0 +1,88 @@
+package com.alvazan.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.impl.meta.data.NoSqlProxy;
+import com.alvazan.test.db.Account;
+import com.alvazan.test.db.Activity;
+
+/**
+ * Method calls on an entity read from the database, ie. through the proxy and its NoSqlProxyImpl.
+ * Run with both Bootstrap.PROXY_MODE values to compare the compiled proxies to the ProxyFactory ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProxyBenchmark {
+
+	@Param({"compiled", "reflective"})
+	public String proxyMode;
+
+	private NoSqlEntityManagerFactory factory;
+	private Activity loaded;
+	private Activity reference;
+
+	@Setup
+	public void setup() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.PROXY_MODE, proxyMode);
+		factory = BenchmarkData.createFactory(props);
+
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Account account = new Account("acc0");
+		mgr.put(account);
+		mgr.put(BenchmarkData.newActivity("act0", account, 7));
+		mgr.flush();
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		loaded = mgr2.find(Activity.class, "act0");
+		if(!(loaded instanceof NoSqlProxy))
+			throw new IllegalStateException("bug, find should hand back a proxy");
+		//fill it in so we measure the dispatch and not the load
+		loaded.getName();
+		reference = mgr2.getReference(Activity.class, "act0");
+	}
+
+	@TearDown
+	public void tearDown() {
+		factory.close();
+	}
+
+	@Benchmark
+	public String getter() {
+		return loaded.getName();
+	}
+
+	@Benchmark
+	public long primitiveGetter() {
+		return loaded.getNumTimes();
+	}
+
+	@Benchmark
+	public void setter() {
+		loaded.setMyFloat(2.5f);
+	}
+
+	/**
+	 * The id getter of a reference that was never loaded does not go to the database
+	 */
+	@Benchmark
+	public String idOfReference() {
+		return reference.getId();
+	}
+}
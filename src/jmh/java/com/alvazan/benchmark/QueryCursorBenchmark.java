@@ -0,0 +1,86 @@
+package com.alvazan.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.base.Query;
+import com.alvazan.orm.api.z8spi.KeyValue;
+import com.alvazan.orm.api.z8spi.iter.Cursor;
+import com.alvazan.test.db.Activity;
+
+/**
+ * Runs the named queries of Activity that end up in CursorForAnd, CursorForOr and CursorForJoin over
+ * 1000 activities of 100 accounts and reads all the results.  Each run uses a new NoSqlEntityManager so
+ * rows are not already in the session cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryCursorBenchmark {
+
+	private NoSqlEntityManagerFactory factory;
+
+	@Setup
+	public void setup() {
+		factory = BenchmarkData.createFactory();
+		BenchmarkData.fill(factory, 100, 10);
+	}
+
+	@TearDown
+	public void tearDown() {
+		factory.close();
+	}
+
+	/**
+	 * name is one of 10 values and numTimes one of 100 so this intersects 100 and 10 index entries
+	 */
+	@Benchmark
+	public int and(Blackhole hole) {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Query<Activity> query = mgr.createNamedQuery(Activity.class, "findWithAnd");
+		query.setParameter("name", "name3");
+		query.setParameter("numTimes", 3L);
+		return consume(query.getResults(), hole);
+	}
+
+	@Benchmark
+	public int or(Blackhole hole) {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Query<Activity> query = mgr.createNamedQuery(Activity.class, "findWithOr");
+		query.setParameter("name", "name3");
+		query.setParameter("numTimes", 4L);
+		return consume(query.getResults(), hole);
+	}
+
+	/**
+	 * half the accounts are active so this joins 150 activities to 100 accounts
+	 */
+	@Benchmark
+	public int join(Blackhole hole) {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Query<Activity> query = mgr.createNamedQuery(Activity.class, "findJoinOnAccount");
+		query.setParameter("max", 15L);
+		query.setParameter("active", true);
+		return consume(query.getResults(), hole);
+	}
+
+	private int consume(Cursor<KeyValue<Activity>> cursor, Blackhole hole) {
+		int count = 0;
+		while(cursor.next()) {
+			hole.consume(cursor.getCurrent().getValue());
+			count++;
+		}
+		return count;
+	}
+}
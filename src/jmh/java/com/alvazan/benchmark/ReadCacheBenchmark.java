@@ -0,0 +1,92 @@
+package com.alvazan.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z5api.NoSqlSession;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.meta.DboColumnIdMeta;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.test.db.Account;
+import com.alvazan.test.db.Activity;
+import com.alvazan.test.db.Currency;
+
+/**
+ * Lookups in the read cache layer(NoSqlReadCacheImpl) for a row the session already read and for a
+ * row of a NoSqlCacheable entity only in the second level cache.  A second level hit needs a session
+ * that has not seen the row yet so sharedCacheHit includes creating a NoSqlEntityManager, newManager
+ * is that cost alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReadCacheBenchmark {
+
+	private NoSqlEntityManagerFactory factory;
+	private NoSqlSession session;
+	private DboTableMeta activityDbo;
+	private byte[] activityKey;
+	private DboTableMeta currencyDbo;
+	private byte[] currencyKey;
+
+	@Setup
+	public void setup() {
+		factory = BenchmarkData.createFactory();
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Account account = new Account("acc0");
+		mgr.put(account);
+		mgr.put(BenchmarkData.newActivity("act0", account, 7));
+		Currency currency = new Currency();
+		currency.setCode("USD");
+		currency.setName("US Dollar");
+		currency.setRate(1.0);
+		mgr.put(currency);
+		mgr.flush();
+
+		activityDbo = BenchmarkData.getMetaClass(factory, Activity.class).getMetaDbo();
+		activityKey = rowKey(activityDbo, "act0");
+		currencyDbo = BenchmarkData.getMetaClass(factory, Currency.class).getMetaDbo();
+		currencyKey = rowKey(currencyDbo, "USD");
+
+		session = factory.createEntityManager().getSession();
+		if(session.find(activityDbo, activityKey) == null)
+			throw new IllegalStateException("bug, the row we just wrote is not there");
+		//read once from the database so it lands in the second level cache
+		factory.createEntityManager().getSession().find(currencyDbo, currencyKey);
+	}
+
+	private static byte[] rowKey(DboTableMeta dbo, String id) {
+		DboColumnIdMeta idMeta = dbo.getIdColumnMeta();
+		return idMeta.formVirtRowKey(idMeta.convertToStorage2(id));
+	}
+
+	@TearDown
+	public void tearDown() {
+		factory.close();
+	}
+
+	@Benchmark
+	public Row sessionCacheHit() {
+		return session.find(activityDbo, activityKey);
+	}
+
+	@Benchmark
+	public Row sharedCacheHit() {
+		return factory.createEntityManager().getSession().find(currencyDbo, currencyKey);
+	}
+
+	@Benchmark
+	public NoSqlSession newManager() {
+		return factory.createEntityManager().getSession();
+	}
+}
@@ -0,0 +1,68 @@
+package com.alvazan.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z5api.QueryParser;
+import com.alvazan.orm.api.z5api.SpiMetaQuery;
+import com.alvazan.orm.api.z8spi.MetaLoader;
+
+/**
+ * Compiling ad-hoc S-SQL(antlr parse plus ScannerSql walking the tree and wiring it to the meta data).
+ * queryPlanCacheSize 0 compiles every time, with the cache on the literals are pulled out and the
+ * compiled plan is reused so it shows what the cache saves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScannerSqlBenchmark {
+
+	@Param({"0", "500"})
+	public int queryPlanCacheSize;
+
+	private NoSqlEntityManagerFactory factory;
+	private QueryParser parser;
+	private MetaLoader mgr;
+
+	@Setup
+	public void setup() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.QUERY_PLAN_CACHE_SIZE, queryPlanCacheSize);
+		factory = BenchmarkData.createFactory(props);
+		parser = BenchmarkData.getInstance(factory, QueryParser.class);
+		mgr = (MetaLoader) factory.createEntityManager();
+	}
+
+	@TearDown
+	public void tearDown() {
+		factory.close();
+	}
+
+	@Benchmark
+	public SpiMetaQuery simple() {
+		return parser.parseQueryForAdHoc("select * from Activity as e where e.name = 'name3'", mgr);
+	}
+
+	@Benchmark
+	public SpiMetaQuery andOr() {
+		return parser.parseQueryForAdHoc("select * from Activity as e where (e.name = 'name3' or e.numTimes > 10) and e.myFloat < 5.5", mgr);
+	}
+
+	@Benchmark
+	public SpiMetaQuery join() {
+		return parser.parseQueryForAdHoc("select * FROM Activity as e INNER JOIN e.account as a WHERE e.numTimes < 15 and a.isActive = false", mgr);
+	}
+}
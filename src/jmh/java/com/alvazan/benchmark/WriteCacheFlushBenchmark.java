@@ -0,0 +1,63 @@
+package com.alvazan.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.test.db.Account;
+import com.alvazan.test.db.Activity;
+
+/**
+ * put of numRows activities followed by flush, ie. translateToRow, the write cache collecting the
+ * actions and sending them to the in memory database.  Puts are inserts so there is no read of the old
+ * row and the same rows are written every time so the database does not grow.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WriteCacheFlushBenchmark {
+
+	@Param({"1", "100", "1000"})
+	public int numRows;
+
+	private NoSqlEntityManagerFactory factory;
+	private List<Activity> activities = new ArrayList<Activity>();
+
+	@Setup
+	public void setup() {
+		factory = BenchmarkData.createFactory();
+		Account account = new Account("acc0");
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		mgr.put(account);
+		mgr.flush();
+		for(int i = 0; i < numRows; i++) {
+			activities.add(BenchmarkData.newActivity("act"+i, account, i));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		factory.close();
+	}
+
+	@Benchmark
+	public void putAndFlush() {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		for(Activity act : activities) {
+			mgr.put(act, true);
+		}
+		mgr.flush();
+	}
+}
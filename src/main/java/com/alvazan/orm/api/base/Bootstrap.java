@@ -11,6 +11,89 @@ public abstract class Bootstrap {
 	public static final String TYPE = "nosql.nosqltype";
 	public static final String AUTO_CREATE_KEY = "nosql.autoCreateKey";
 	public static final String LIST_OF_EXTRA_CLASSES_TO_SCAN_KEY = "nosql.listOfClassesToScan";
+	/**
+	 * "compiled"(the default) generates proxies that call entity methods directly, "reflective" uses the
+	 * older javassist ProxyFactory proxies that dispatch every call through a MethodHandler
+	 */
+	public static final String PROXY_MODE = "nosql.proxyMode";
+	/**
+	 * A SecondLevelCache instance to use instead of the default one.  Pass the same instance to several
+	 * factories to share one process wide cache between them.
+	 */
+	public static final String SECOND_LEVEL_CACHE = "nosql.cache.secondLevel";
+	/**
+	 * Row and byte limits and "lru"(the default) or "lfu" eviction for the default second level cache
+	 * which only holds rows of entities annotated with NoSqlCacheable
+	 */
+	public static final String CACHE_MAX_ROWS = "nosql.cache.maxRows";
+	public static final String CACHE_MAX_BYTES = "nosql.cache.maxBytes";
+	public static final String CACHE_EVICTION = "nosql.cache.eviction";
+	/**
+	 * Limit on rows each NoSqlEntityManager keeps(no limit by default).  Past the limit the least
+	 * recently used rows are read from the database again so long running batch jobs don't need to
+	 * call clear() to keep memory down
+	 */
+	public static final String CACHE_SESSION_MAX_ROWS = "nosql.cache.sessionMaxRows";
+	/**
+	 * Number of compiled ad-hoc queries kept(500 by default, 0 turns it off).  Queries differing only in the
+	 * literals of their where clause share one compiled plan
+	 */
+	public static final String QUERY_PLAN_CACHE_SIZE = "nosql.queryPlanCache.size";
+	/**
+	 * Tuning of the queue behind NoSqlEntityManager.flushAsync.  Queued flushes are written together in
+	 * batches of up to batchSize actions(1000 by default) waiting at most maxDelayMillis(5 by default) for
+	 * more flushes to join a batch.  Once queueSize flushes(256 by default) are waiting flushAsync blocks.
+	 */
+	public static final String WRITE_BEHIND_BATCH_SIZE = "nosql.writeBehind.batchSize";
+	public static final String WRITE_BEHIND_MAX_DELAY_MILLIS = "nosql.writeBehind.maxDelayMillis";
+	public static final String WRITE_BEHIND_QUEUE_SIZE = "nosql.writeBehind.queueSize";
+	/**
+	 * Number of actions a NoSqlEntityManager holds before it writes them without waiting for flush(0, the
+	 * default, holds everything until flush).  Set it so UPDATE/DELETE statements and other bulk jobs over
+	 * large result sets run in bounded memory knowing the writes go out in chunks before flush is called.
+	 */
+	public static final String FLUSH_CHUNK_SIZE = "nosql.writeCache.flushChunkSize";
+	/**
+	 * "true" puts off the read put does for an entity that was not read in by the NoSqlEntityManager(so
+	 * we know the old index values) until flush where all of them are read with one find per column family
+	 * instead of one find per put.  A find or query of a column family with puts waiting writes them first so
+	 * it sees them and waiting puts count toward FLUSH_CHUNK_SIZE.  The fields of the entity are copied at put
+	 * so setting a field afterwards does not change what is written, but the copy is shallow so adding to or
+	 * removing from a collection of the entity after put still does.  Off by default.
+	 */
+	public static final String DEFER_PUT_READS = "nosql.put.deferReads";
+	/**
+	 * "true" records latency histograms of the calls into the nosql store per column family(see
+	 * NoSqlEntityManagerFactory.getMetrics).  Off by default in which case nothing is recorded at all.
+	 * METRICS_JMX "true" also registers them as MXBeans under com.alvazan.orm and METRICS_REPORTER takes a
+	 * MetricsReporter instance called every METRICS_REPORT_INTERVAL_MILLIS(60000 by default).  Setting
+	 * either of those turns metrics on as well.
+	 */
+	public static final String METRICS_ENABLED = "nosql.metrics.enabled";
+	public static final String METRICS_JMX = "nosql.metrics.jmx";
+	public static final String METRICS_REPORTER = "nosql.metrics.reporter";
+	public static final String METRICS_REPORT_INTERVAL_MILLIS = "nosql.metrics.reportIntervalMillis";
+	
+	/**
+	 * Number of batches a findAll or query result cursor loads ahead of the one being read(0, the
+	 * default, loads each batch when it is needed) and the limit on batches loading or waiting to be
+	 * read across all cursors of the factory.  Used by the cassandra, hbase and mongodb providers.
+	 */
+	public static final String READ_AHEAD_DEPTH = SpiConstants.READ_AHEAD_DEPTH;
+	public static final String READ_AHEAD_MAX_IN_FLIGHT = SpiConstants.READ_AHEAD_MAX_IN_FLIGHT;
+	/**
+	 * Number of splits(cassandra token ranges, hbase regions, mongodb _id ranges) of a table scanned at the
+	 * same time by a query with no where clause or by findAll.  1, the default, scans the table in order on
+	 * the caller's thread.
+	 */
+	public static final String SCAN_PARALLELISM = SpiConstants.SCAN_PARALLELISM;
+	/**
+	 * Directory(a String or File) the in memory database logs every change to and snapshots itself into
+	 * so it is loaded again on the next start.  Not set by default which keeps everything in memory only.
+	 * The log is rewritten as a snapshot once it grows past snapshotAfterBytes(64MB by default).
+	 */
+	public static final String IN_MEMORY_DATA_DIR = SpiConstants.IN_MEMORY_DATA_DIR;
+	public static final String IN_MEMORY_SNAPSHOT_AFTER_BYTES = SpiConstants.IN_MEMORY_SNAPSHOT_AFTER_BYTES;
 	
 	public static final String CASSANDRA_BUILDER = SpiConstants.CASSANDRA_BUILDER;
 	public static final String CASSANDRA_CLUSTERNAME = "nosql.cassandra.clusterName";
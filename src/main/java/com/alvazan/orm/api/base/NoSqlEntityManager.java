@@ -1,6 +1,7 @@
 package com.alvazan.orm.api.base;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 import com.alvazan.orm.api.z3api.NoSqlTypedSession;
 import com.alvazan.orm.api.z5api.NoSqlSession;
@@ -37,7 +38,9 @@ public interface NoSqlEntityManager {
 	/**
 	 * Creates a 'Persist' action in the write cache that will be sent to nosql store when flush is called.  This method
 	 * also creates PersistIndex and RemoveIndex actions if you have indexed fields and the index needs to be modified
-	 * and those are sent when flush is called as well.
+	 * and those are sent when flush is called as well.  An entity with a generated key that was not read in by
+	 * this NoSqlEntityManager is read first so the index can be fixed up.  With Bootstrap.DEFER_PUT_READS set
+	 * that read is put off until flush where all such entities of a column family are read in one find.
 	 * @param entity Entity to be added
 	 */
 	public void put(Object entity);
@@ -51,6 +54,15 @@ public interface NoSqlEntityManager {
 	 */
 	public void put(Object entity, boolean isInsert);
 	
+	/**
+	 * A blind write, the entity is written as is without reading the row from the database first even when
+	 * it has a generated key and was not read in by this NoSqlEntityManager.  Only entities without indexed
+	 * fields can be written this way since the old index entries are not known.
+	 * @param entity Entity to be added or updated
+	 * @throws IllegalArgumentException if the entity has indexed fields
+	 */
+	public void upsert(Object entity);
+	
 	//public void putAll(List<Object> entities);
 	
 	/**
@@ -109,6 +121,15 @@ public interface NoSqlEntityManager {
 	 * It is more likely to keep things more consistent
 	 */
 	public void flush();
+
+	/**
+	 * Like flush but the writes are handed to a write behind queue shared by all NoSqlEntityManagers of the
+	 * factory so this thread doesn't wait on the database.  Flushes made close together go out as one batch.
+	 * The future fails if the batch it went out in failed.  When Bootstrap.WRITE_BEHIND_QUEUE_SIZE flushes
+	 * are already waiting this blocks until there is room.
+	 * @return A Future that is done once the writes are in the database
+	 */
+	public Future<Void> flushAsync();
 	
 	/**
 	 * Clears the cache in situations where you just load way tooooooo much stuff and need to free up
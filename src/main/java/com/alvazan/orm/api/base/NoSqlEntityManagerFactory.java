@@ -2,6 +2,10 @@ package com.alvazan.orm.api.base;
 
 import java.util.List;
 
+import com.alvazan.orm.api.z5api.QueryPlanStats;
+import com.alvazan.orm.api.z8spi.CacheStats;
+import com.alvazan.orm.api.z8spi.metrics.NoSqlMetrics;
+
 public interface NoSqlEntityManagerFactory {
 	
 	public NoSqlEntityManager createEntityManager();
@@ -9,6 +13,23 @@ public interface NoSqlEntityManagerFactory {
 	@SuppressWarnings("rawtypes")
 	void rescan(List<Class> classes, ClassLoader cl);
 
+	/**
+	 * @return hit, miss and eviction counts of the second level cache shared by the entity managers of
+	 * this factory
+	 */
+	CacheStats getCacheStats();
+
+	/**
+	 * @return hit rate and compile time of the cache of compiled ad-hoc queries
+	 */
+	QueryPlanStats getQueryPlanStats();
+
+	/**
+	 * @return latency histograms of the calls into the nosql store per column family.  Nothing is recorded
+	 * unless Bootstrap.METRICS_ENABLED is set(isEnabled() tells you which)
+	 */
+	NoSqlMetrics getMetrics();
+
 	/**
 	 * Releases the entire pool of connections and disconnects from the nosql store.
 	 */
@@ -75,4 +75,24 @@ public interface Query<T> {
 	 * @param batchSize
 	 */
 	public void setBatchSize(int batchSize);
+
+	/**
+	 * The number of index rows a join in the where clause(ie. AND) may hold in memory.  The default is 10000.
+	 * Past that, joins switch to a merge join when both sides are in primary key order or spill rows to
+	 * a local temp file so we still only read each index once.
+	 * 
+	 * @param numRows
+	 */
+	public void setJoinMemoryBudget(int numRows);
+
+	/**
+	 * Eagerly reads the entities of a joined alias along with the results.  ie. for
+	 * "select * FROM Activity as e INNER JOIN e.account as a WHERE a.isActive = :active" calling prefetch("a")
+	 * reads the accounts of each batch of activities with one find so activity.getAccount() does not hit
+	 * the database for every activity.
+	 * 
+	 * @param alias The alias of a view joined to in the query
+	 * @return This query so calls can be chained
+	 */
+	public Query<T> prefetch(String alias);
 }
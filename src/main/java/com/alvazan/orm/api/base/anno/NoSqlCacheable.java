@@ -0,0 +1,23 @@
+package com.alvazan.orm.api.base.anno;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Rows of this entity are kept in the second level cache shared by all NoSqlEntityManagers of the
+ * factory so reference data read on every request only comes from the database once.  Writes and
+ * removes through this factory invalidate the cached row but writes from other processes are only
+ * seen once the row is evicted or its ttl runs out so only use this on data that rarely changes.
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface NoSqlCacheable {
+	/**
+	 * @return seconds a row may stay in the cache or 0 to keep it until it is evicted
+	 */
+	int ttlSeconds() default 0;
+}
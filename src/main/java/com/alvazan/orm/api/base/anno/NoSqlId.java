@@ -16,6 +16,9 @@ public @interface NoSqlId {
 //    @SuppressWarnings("rawtypes")
 //	Class targetEntity() default void.class;
 
+	/**
+	 * The default generates String keys.  Use CompactKeyGenerator on a Long id for 8 byte keys
+	 */
 	Class<? extends KeyGenerator> generation() default UniqueKeyGenerator.class;
 	
 	/**
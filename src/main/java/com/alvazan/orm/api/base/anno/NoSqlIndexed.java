@@ -9,5 +9,14 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface NoSqlIndexed {
     String indexName() default "";
+
+    /**
+     * The number of index rows the entries for this column are spread across.  The default of 1 keeps
+     * every entry(per partition) in one wide row which is fine for most columns, but a very busy column
+     * turns that row into a hotspot on a single replica set.  With shards=N, each entry goes to one of N
+     * rows picked from the primary key and range scans read all N rows in parallel merging them back
+     * into index order.  NOTE: changing this on existing data requires a re-index of the column.
+     */
+    int shards() default 1;
 }
 
@@ -9,5 +9,10 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface NoSqlOneToOne {
 	String columnName() default "";
+	/**
+	 * Number of these proxies from one query result or findAll that are loaded together in one read when
+	 * the first of them is used.  1(the default) loads each one on it's own.
+	 */
+	int batchSize() default 1;
 }
 
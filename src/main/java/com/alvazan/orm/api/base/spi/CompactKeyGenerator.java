@@ -0,0 +1,69 @@
+package com.alvazan.orm.api.base.spi;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.LocalDateTime;
+
+/**
+ * A smaller key than UniqueKeyGenerator's "timestamp.hostname" String.  The key is a Long that sorts by
+ * time which stores as 8 bytes instead of 14 or more bytes of String in the row and in every index that
+ * points at the row.  Use it on a Long id with NoSqlId(generation=CompactKeyGenerator.class).
+ *
+ * The 64 bits are 41 bits of millis since 2012-06-01(good for around 69 years), 10 bits of node id and 12
+ * bits of sequence.  Like UniqueKeyGenerator, when more than 4096 keys are asked for in the same milli
+ * we just move on to the next milli so there is never a non-unique key on one machine.  The time and
+ * sequence are one word swapped in with compareAndSet so there is no lock.
+ *
+ * The node id is from -Dnosql.keygen.nodeId=0-1023 and if that is not set, from a hash of the hostname.
+ * With many servers in a cluster set it since two hostnames can hash to the same node id.
+ */
+public class CompactKeyGenerator implements KeyGenerator {
+
+	public static final String NODE_ID_PROPERTY = "nosql.keygen.nodeId";
+
+	private static final int NODE_BITS = 10;
+	private static final int SEQUENCE_BITS = 12;
+	private static final long BASE_TIME = new LocalDateTime(2012, 6, 1, 0, 0).toDate().getTime();
+	private static final long NODE_ID = createNodeId();
+
+	//millis since BASE_TIME << SEQUENCE_BITS | sequence
+	private static final AtomicLong lastTimeAndSequence = new AtomicLong();
+
+	@Override
+	public Object generateNewKey(Object entity) {
+		return generateKey();
+	}
+
+	public static long generateKey() {
+		long current = (System.currentTimeMillis() - BASE_TIME) << SEQUENCE_BITS;
+		long timeAndSequence = generateKeyImpl(current);
+		long time = timeAndSequence >>> SEQUENCE_BITS;
+		long sequence = timeAndSequence & ((1L << SEQUENCE_BITS) - 1);
+		return (time << (NODE_BITS + SEQUENCE_BITS)) | (NODE_ID << SEQUENCE_BITS) | sequence;
+	}
+
+	private static long generateKeyImpl(long timeAndSequence) {
+		while(true) {
+			long last = lastTimeAndSequence.get();
+			long next = last + 1;
+			if(timeAndSequence > last)
+				next = timeAndSequence;
+			if(lastTimeAndSequence.compareAndSet(last, next))
+				return next;
+		}
+	}
+
+	private static long createNodeId() {
+		Integer nodeId = Integer.getInteger(NODE_ID_PROPERTY);
+		long max = (1L << NODE_BITS) - 1;
+		if(nodeId == null)
+			return UniqueKeyGenerator.getHostname().hashCode() & max;
+		else if(nodeId < 0 || nodeId > max)
+			throw new RuntimeException("-D"+NODE_ID_PROPERTY+"="+nodeId+" must be between 0 and "+max);
+		return nodeId;
+	}
+
+	public static long getNodeId() {
+		return NODE_ID;
+	}
+}
@@ -2,6 +2,7 @@ package com.alvazan.orm.api.base.spi;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.joda.time.LocalDateTime;
 
@@ -17,12 +18,17 @@ import org.joda.time.LocalDateTime;
  * millis BUT in the case where two people called this method on the same machine, the last
  * timestamp given was stored so we increment by one such that there will never be 
  * a non-unique key.  
+ *
+ * The last timestamp is swapped in with a compareAndSet so threads generating keys at the same
+ * time do not line up on a lock.  If you want smaller keys than the String this makes, see
+ * CompactKeyGenerator.
  */
 public class UniqueKeyGenerator implements KeyGenerator {
 
 	private static final String HOST_NAME;
+	private static final long BASE_TIME = new LocalDateTime(2012, 6, 1, 0, 0).toDate().getTime();
 
-	private static long lastTimeStamp;
+	private static final AtomicLong lastTimeStamp = new AtomicLong();
 	
 	static {
 		try {
@@ -43,22 +49,22 @@ public class UniqueKeyGenerator implements KeyGenerator {
 	}
 	
 	public static String generateKey() {
-		LocalDateTime dateTime = new LocalDateTime(2012, 6, 1, 0, 0);
-		long baseTime = dateTime.toDate().getTime();
-		long current = System.currentTimeMillis() - baseTime;
+		long current = System.currentTimeMillis() - BASE_TIME;
 		current = (current * 10000);
 		long time = generateKeyImpl(current);
 		String encodedTime = Long.toString(time, 36).toUpperCase();
 		return encodedTime+"."+HOST_NAME;		
 	}
 	
-	private static synchronized long generateKeyImpl(long timeMillis) {
-		if(timeMillis > lastTimeStamp) {
-			lastTimeStamp = timeMillis;
-		} else
-			lastTimeStamp++;
-
-		return lastTimeStamp;
+	private static long generateKeyImpl(long timeMillis) {
+		while(true) {
+			long last = lastTimeStamp.get();
+			long next = last + 1;
+			if(timeMillis > last)
+				next = timeMillis;
+			if(lastTimeStamp.compareAndSet(last, next))
+				return next;
+		}
 	}
 
 	private static String createHostName() throws UnknownHostException {
@@ -0,0 +1,96 @@
+package com.alvazan.orm.api.z5api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * What flushAsync hands back.  Done once the actions it flushed are written(or failed to be written along
+ * with the rest of the batch they went out in).  A write that already went out can't be taken back so
+ * cancel always returns false.
+ */
+public class FlushFuture implements Future<Void> {
+
+	private CountDownLatch latch = new CountDownLatch(1);
+	private volatile Throwable failure;
+	private List<Runnable> listeners = new ArrayList<Runnable>();
+
+	public static FlushFuture completed() {
+		FlushFuture future = new FlushFuture();
+		future.complete(null);
+		return future;
+	}
+
+	/**
+	 * @param e null if the write succeeded
+	 */
+	public void complete(Throwable e) {
+		List<Runnable> toRun;
+		synchronized(this) {
+			if(latch.getCount() == 0)
+				return;
+			failure = e;
+			latch.countDown();
+			toRun = listeners;
+			listeners = null;
+		}
+		for(Runnable r : toRun) {
+			r.run();
+		}
+	}
+
+	/**
+	 * Runs the listener once the write is done(on the writing thread) or right away if it already is
+	 */
+	public void addListener(Runnable listener) {
+		synchronized(this) {
+			if(listeners != null) {
+				listeners.add(listener);
+				return;
+			}
+		}
+		listener.run();
+	}
+
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+
+	@Override
+	public boolean isDone() {
+		return latch.getCount() == 0;
+	}
+
+	@Override
+	public Void get() throws InterruptedException, ExecutionException {
+		latch.await();
+		return result();
+	}
+
+	@Override
+	public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if(!latch.await(timeout, unit))
+			throw new TimeoutException("flush not written after "+timeout+" "+unit);
+		return result();
+	}
+
+	private Void result() throws ExecutionException {
+		if(failure != null)
+			throw new ExecutionException(failure);
+		return null;
+	}
+}
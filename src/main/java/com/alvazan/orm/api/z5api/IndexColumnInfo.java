@@ -1,8 +1,10 @@
 package com.alvazan.orm.api.z5api;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import com.alvazan.orm.api.z8spi.action.IndexColumn;
 import com.alvazan.orm.api.z8spi.conv.ByteArray;
@@ -28,6 +30,10 @@ public class IndexColumnInfo {
 		return colNameToValue.get(view);
 	}
 
+	public Set<ViewInfo> getViews() {
+		return Collections.unmodifiableSet(colNameToValue.keySet());
+	}
+
 	public ByteArray getPrimaryKey(ViewInfo leftView) {
 		return new ByteArray(getPrimaryKeyRaw(leftView));
 	}
@@ -62,6 +62,18 @@ public interface NoSqlSession {
 	
 	public void flush();
 
+	/**
+	 * True once so many actions are waiting that the session above should flush them now instead of
+	 * holding all of them until the caller flushes(see Bootstrap.FLUSH_CHUNK_SIZE)
+	 */
+	public boolean isFlushDue();
+
+	/**
+	 * Hands the actions to the factory's write behind queue instead of writing them on this thread.  Flushes
+	 * of one session are written in the order they were made and a later flush() waits for them first.
+	 */
+	public FlushFuture flushAsync();
+
 	public void clear();
 	
 	public void clearDb();
@@ -20,6 +20,18 @@ public interface QueryParser {
 	 */
 	public SpiMetaQuery parseQueryForOrm(String query, String targetTable, String errorMsg);
 	
+	/**
+	 * @return counters of the cache of compiled ad-hoc queries which is shared by everything created from
+	 * one NoSqlEntityManagerFactory
+	 */
+	public QueryPlanStats getPlanStats();
+
+	/**
+	 * Throws out the compiled ad-hoc queries that read from this column family, called when its DboTableMeta
+	 * is put since the schema may have changed
+	 */
+	public void invalidatePlans(String columnFamily);
+
 	public void close();
 	
 }
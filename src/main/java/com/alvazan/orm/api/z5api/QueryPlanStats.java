@@ -0,0 +1,84 @@
+package com.alvazan.orm.api.z5api;
+
+/**
+ * Snapshot of the counters of the cache of compiled ad-hoc queries
+ */
+public class QueryPlanStats {
+
+	private long hits;
+	private long misses;
+	private long compiles;
+	private long compileNanos;
+	private long evictions;
+	private long invalidations;
+	private int size;
+
+	public QueryPlanStats(long hits, long misses, long compiles, long compileNanos, long evictions, long invalidations, int size) {
+		this.hits = hits;
+		this.misses = misses;
+		this.compiles = compiles;
+		this.compileNanos = compileNanos;
+		this.evictions = evictions;
+		this.invalidations = invalidations;
+		this.size = size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return queries compiled into a cached plan
+	 */
+	public long getCompiles() {
+		return compiles;
+	}
+
+	/**
+	 * @return total time spent compiling those plans
+	 */
+	public long getCompileNanos() {
+		return compileNanos;
+	}
+
+	/**
+	 * @return plans thrown out to stay under the size limit
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return plans thrown out because a table they were compiled against changed
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public double getHitRatio() {
+		long total = hits + misses;
+		if(total == 0)
+			return 0;
+		return (double) hits / total;
+	}
+
+	public double getAverageCompileMillis() {
+		if(compiles == 0)
+			return 0;
+		return compileNanos / 1000000.0 / compiles;
+	}
+
+	@Override
+	public String toString() {
+		return "QueryPlanStats[hits="+hits+" misses="+misses+" compiles="+compiles+" avgCompileMs="+getAverageCompileMillis()
+				+" evictions="+evictions+" invalidations="+invalidations+" size="+size+"]";
+	}
+}
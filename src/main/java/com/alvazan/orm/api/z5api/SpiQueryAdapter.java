@@ -27,4 +27,11 @@ public interface SpiQueryAdapter {
 	 */
 	public void setBatchSize(int batchSize);
 
+	/**
+	 * The number of index rows an AND join may hold in memory before it spills to a local file instead.
+	 * 
+	 * @param numRows
+	 */
+	public void setJoinMemoryBudget(int numRows);
+
 }
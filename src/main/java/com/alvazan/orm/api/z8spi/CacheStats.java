@@ -0,0 +1,78 @@
+package com.alvazan.orm.api.z8spi;
+
+/**
+ * Snapshot of the counters of a SecondLevelCache
+ */
+public class CacheStats {
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+	private long invalidations;
+	private int size;
+	private long weight;
+
+	public CacheStats(long hits, long misses, long evictions, long expirations, long invalidations, int size, long weight) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+		this.invalidations = invalidations;
+		this.size = size;
+		this.weight = weight;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return rows thrown out to stay under the row or byte limit
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return rows thrown out because they were older than the column family's ttl
+	 */
+	public long getExpirations() {
+		return expirations;
+	}
+
+	/**
+	 * @return rows thrown out because they were written or removed
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return approximate number of bytes of keys, column names and column values held
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	public double getHitRatio() {
+		long total = hits + misses;
+		if(total == 0)
+			return 0;
+		return (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats[hits="+hits+" misses="+misses+" evictions="+evictions+" expirations="+expirations
+				+" invalidations="+invalidations+" size="+size+" weight="+weight+"]";
+	}
+}
@@ -0,0 +1,17 @@
+package com.alvazan.orm.api.z8spi;
+
+public interface ColumnFamilyListener<T> {
+
+	/**
+	 * Called when a column family is added to the ColumnFamilyRegistry.  Don't do much in here as it is
+	 * called on the thread that is writing.
+	 * 
+	 * @param virtualCf the virtual column family that needed it or null if the real one was just found
+	 * @param realCf
+	 * @param info the provider's info for the real column family
+	 * @param createdHere true if we created it, false if another server created it and we just loaded it
+	 * @param version the version of the registry that has this column family in it
+	 */
+	public void columnFamilyAdded(String virtualCf, String realCf, T info, boolean createdHere, long version);
+
+}
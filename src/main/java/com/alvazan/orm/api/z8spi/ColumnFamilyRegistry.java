@@ -0,0 +1,112 @@
+package com.alvazan.orm.api.z8spi;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The column families a provider knows about(virtual name to real name to the provider's Info) that
+ * every action looks up.  Lookups just read an immutable snapshot so there is no lock, no logging and no
+ * garbage on the write path.  Adding a column family is rare so it copies the snapshot and swaps in the
+ * copy with a new version number.
+ * 
+ * Add a ColumnFamilyListener to hear about column families as they come in, ie. when another server
+ * created one we are now loading.
+ */
+public class ColumnFamilyRegistry<T> {
+
+	private volatile Snapshot<T> snapshot = new Snapshot<T>();
+	private List<ColumnFamilyListener<T>> listeners = new CopyOnWriteArrayList<ColumnFamilyListener<T>>();
+
+	public T lookupVirtual(String virtualCf) {
+		return snapshot.virtualToInfo.get(virtualCf);
+	}
+
+	public T lookupReal(String realCf) {
+		return snapshot.realToInfo.get(realCf);
+	}
+
+	public String lookupRealName(String virtualCf) {
+		return snapshot.virtualToReal.get(virtualCf);
+	}
+
+	public Map<String, T> getRealColumnFamilies() {
+		return Collections.unmodifiableMap(snapshot.realToInfo);
+	}
+
+	public long getVersion() {
+		return snapshot.version;
+	}
+
+	/**
+	 * @param virtualCf null to just add the real column family
+	 */
+	public void add(String virtualCf, String realCf, T info, boolean createdHere) {
+		long version = addImpl(virtualCf, realCf, info);
+		for(ColumnFamilyListener<T> l : listeners) {
+			l.columnFamilyAdded(virtualCf, realCf, info, createdHere, version);
+		}
+	}
+
+	/**
+	 * Maps a virtual column family onto a real one that is already here so nothing new is created
+	 */
+	public synchronized void addVirtual(String virtualCf, String realCf) {
+		Snapshot<T> next = new Snapshot<T>(snapshot);
+		next.putVirtual(virtualCf, realCf);
+		snapshot = next;
+	}
+
+	private synchronized long addImpl(String virtualCf, String realCf, T info) {
+		Snapshot<T> next = new Snapshot<T>(snapshot);
+		next.realToInfo.put(realCf, info);
+		//virtual column families already pointing at this real one now resolve to the new info
+		for(Map.Entry<String, String> entry : next.virtualToReal.entrySet()) {
+			if(realCf.equals(entry.getValue()))
+				next.virtualToInfo.put(entry.getKey(), info);
+		}
+		if(virtualCf != null)
+			next.putVirtual(virtualCf, realCf);
+		snapshot = next;
+		return next.version;
+	}
+
+	public void addListener(ColumnFamilyListener<T> listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(ColumnFamilyListener<T> listener) {
+		listeners.remove(listener);
+	}
+
+	private static class Snapshot<T> {
+		private long version;
+		private Map<String, T> realToInfo;
+		private Map<String, String> virtualToReal;
+		private Map<String, T> virtualToInfo;
+
+		public Snapshot() {
+			realToInfo = new HashMap<String, T>();
+			virtualToReal = new HashMap<String, String>();
+			virtualToInfo = new HashMap<String, T>();
+		}
+
+		public Snapshot(Snapshot<T> previous) {
+			version = previous.version+1;
+			realToInfo = new HashMap<String, T>(previous.realToInfo);
+			virtualToReal = new HashMap<String, String>(previous.virtualToReal);
+			virtualToInfo = new HashMap<String, T>(previous.virtualToInfo);
+		}
+
+		private void putVirtual(String virtualCf, String realCf) {
+			virtualToReal.put(virtualCf, realCf);
+			T info = realToInfo.get(realCf);
+			if(info != null)
+				virtualToInfo.put(virtualCf, info);
+			else
+				virtualToInfo.remove(virtualCf);
+		}
+	}
+}
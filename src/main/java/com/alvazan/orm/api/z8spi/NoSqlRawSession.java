@@ -49,4 +49,10 @@ public interface NoSqlRawSession {
 	
 	public Object getDriverHelper();
 
+	/**
+	 * true if scanIndex hands back the entries of one indexed value in primary key order(unsigned bytes).  The
+	 * join planner only merges two sides of an AND without holding either one when both are in that order.
+	 */
+	public boolean isIndexPkOrdered();
+
 }
@@ -1,6 +1,8 @@
 package com.alvazan.orm.api.z8spi;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.alvazan.orm.api.z8spi.conv.StandardConverters;
 import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
@@ -13,6 +15,9 @@ public class ScanInfo {
 	
 	//optional but logging won't work without it
 	private DboColumnMeta columnName;
+	
+	//null unless the index is sharded in which case scans must merge all of these rows
+	private List<byte[]> shardRowKeys;
 
 	public static ScanInfo createScanInfo(DboColumnMeta colMeta, String partitionBy, String partitionId) {
 		DboTableMeta realColFamily = colMeta.getOwner();
@@ -20,6 +25,13 @@ public class ScanInfo {
 		String indexRowKey = colMeta.getIndexRowKey(partitionBy, partitionId);
 		byte[] rowKey = StandardConverters.convertToBytes(indexRowKey);
 		ScanInfo scanInfo = new ScanInfo(realColFamily, colMeta, columnFamily, rowKey);
+		if(colMeta.isIndexSharded()) {
+			List<byte[]> keys = new ArrayList<byte[]>();
+			for(String key : colMeta.getIndexShardRowKeys(partitionBy, partitionId)) {
+				keys.add(StandardConverters.convertToBytes(key));
+			}
+			scanInfo.shardRowKeys = keys;
+		}
 		return scanInfo;
 	}
 	
@@ -50,6 +62,21 @@ public class ScanInfo {
 		return columnName;
 	}
 
+	public boolean isSharded() {
+		return shardRowKeys != null;
+	}
+
+	public List<byte[]> getShardRowKeys() {
+		return shardRowKeys;
+	}
+
+	/**
+	 * A non-sharded copy of this ScanInfo pointing at just the one index row given
+	 */
+	public ScanInfo forShard(byte[] shardRowKey) {
+		return new ScanInfo(entityColFamily, columnName, indexColFamily, shardRowKey);
+	}
+
 	@Override
 	public String toString() {
 		return "CF="+indexColFamily+"(for cf="+entityColFamily+") rowKey="+toUTF8(rowKey);
@@ -0,0 +1,39 @@
+package com.alvazan.orm.api.z8spi;
+
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+
+/**
+ * Rows shared by every entity manager of a factory(or of several factories if the same instance is
+ * passed to each of them with Bootstrap.SECOND_LEVEL_CACHE).  Only column families whose
+ * DboTableMeta.isCacheable() is true are put in here.  Rows handed to put are not touched by the caller
+ * afterwards and rows returned from get are copied before anyone modifies them so implementations can
+ * just hold on to the instances.
+ * 
+ * Implementations must be thread safe.
+ */
+public interface SecondLevelCache {
+
+	/**
+	 * @return null on a miss or a holder whose value may be null meaning we know the row does not exist
+	 */
+	RowHolder<Row> get(DboTableMeta colFamily, byte[] key);
+
+	/**
+	 * @return the current generation, call it before reading a row from the database and pass it to put
+	 */
+	long generation();
+
+	/**
+	 * @param row the row read from the database or null if the row does not exist
+	 * @param generation what generation() returned before the row was read, if the key was invalidated since
+	 * then the row may be older than what is in the database now and must not be cached
+	 */
+	void put(DboTableMeta colFamily, byte[] key, Row row, long generation);
+
+	void invalidate(DboTableMeta colFamily, byte[] key);
+
+	void clear();
+
+	CacheStats getStats();
+
+}
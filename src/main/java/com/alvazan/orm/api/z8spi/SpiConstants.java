@@ -4,5 +4,10 @@ public class SpiConstants {
 
 	public static final String CASSANDRA_BUILDER = "nosql.cassandra.builder";
 	public static final String CASSANDRA_CF_CREATE_CALLBACK = "nosql.cassandra.createcfcallback";
+	public static final String READ_AHEAD_DEPTH = "nosql.readAhead.depth";
+	public static final String READ_AHEAD_MAX_IN_FLIGHT = "nosql.readAhead.maxInFlight";
+	public static final String SCAN_PARALLELISM = "nosql.scan.parallelism";
+	public static final String IN_MEMORY_DATA_DIR = "nosql.inmemory.dataDir";
+	public static final String IN_MEMORY_SNAPSHOT_AFTER_BYTES = "nosql.inmemory.snapshotAfterBytes";
 
 }
@@ -7,6 +7,8 @@ import java.util.Arrays;
 
 public class ByteArray implements Comparable<ByteArray> {
 	private byte[] key;
+	//cached like String does, 0 means not computed yet
+	private int hash;
 	
 	public ByteArray(byte[] key) {
 		this.key = key;
@@ -18,16 +20,60 @@ public class ByteArray implements Comparable<ByteArray> {
 	
 	@Override
 	public int hashCode() {
+		int h = hash;
+		if(h == 0 && key != null) {
+			h = hashOf(key);
+			hash = h;
+		}
+		return h;
+	}
+
+	/**
+	 * murmur3 32 bit hash of the bytes.  We used to sum the bytes which made every permutation of a key and
+	 * most small numbers collide.  NOTE: this is only for in memory hash tables and must never be persisted
+	 */
+	public static int hashOf(byte[] key) {
 		if(key == null)
 			return 0;
-		
-		long hash = 0;
-		for(int i = 0; i < key.length;i++) {
-			hash += key[i];
+		final int c1 = 0xcc9e2d51;
+		final int c2 = 0x1b873593;
+		int h = 0x9747b28c;
+		int len = key.length;
+		int roundedEnd = len & 0xfffffffc;
+		for(int i = 0; i < roundedEnd; i += 4) {
+			int k = (key[i] & 0xff) | ((key[i+1] & 0xff) << 8) | ((key[i+2] & 0xff) << 16) | (key[i+3] << 24);
+			k *= c1;
+			k = Integer.rotateLeft(k, 15);
+			k *= c2;
+			h ^= k;
+			h = Integer.rotateLeft(h, 13);
+			h = h*5+0xe6546b64;
 		}
-		
-		return (int) (hash / 2);
+
+		//the 1 to 3 bytes left over after the 4 byte blocks
+		int tail = len & 0x03;
+		if(tail > 0) {
+			int k = 0;
+			if(tail == 3)
+				k = (key[roundedEnd+2] & 0xff) << 16;
+			if(tail >= 2)
+				k |= (key[roundedEnd+1] & 0xff) << 8;
+			k |= key[roundedEnd] & 0xff;
+			k *= c1;
+			k = Integer.rotateLeft(k, 15);
+			k *= c2;
+			h ^= k;
+		}
+
+		h ^= len;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
 	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -0,0 +1,207 @@
+package com.alvazan.orm.api.z8spi.conv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash map keyed directly by byte[] contents using open addressing with linear probing.  Unlike
+ * HashMap&lt;ByteArray, V&gt; there is no wrapper object or Entry allocated per key and a lookup does not
+ * need to wrap the byte[] first.  The hash of every slot is kept alongside so probing only compares bytes
+ * when the full 32 bit hash already matches.
+ *
+ * Not thread safe, just like HashMap.  Keys must not be modified after being put in the map.
+ */
+public class ByteArrayMap<V> {
+
+	private static final int MIN_CAPACITY = 8;
+	//resize at 2/3 full which keeps linear probe chains short
+	private static final int LOAD_NUMERATOR = 2;
+	private static final int LOAD_DENOMINATOR = 3;
+
+	private byte[][] keys;
+	private Object[] values;
+	private int[] hashes;
+	private int size;
+	private int mask;
+	private int resizeAt;
+
+	public ByteArrayMap() {
+		this(16);
+	}
+
+	public ByteArrayMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while(capacity * LOAD_NUMERATOR / LOAD_DENOMINATOR < expectedSize)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new byte[capacity][];
+		values = new Object[capacity];
+		hashes = new int[capacity];
+		mask = capacity - 1;
+		resizeAt = capacity * LOAD_NUMERATOR / LOAD_DENOMINATOR;
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(byte[] key) {
+		int slot = findSlot(key);
+		if(slot < 0)
+			return null;
+		return (V) values[slot];
+	}
+
+	public boolean containsKey(byte[] key) {
+		return findSlot(key) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(byte[] key, V value) {
+		if(key == null)
+			throw new IllegalArgumentException("key cannot be null");
+		int hash = ByteArray.hashOf(key);
+		int slot = hash & mask;
+		while(keys[slot] != null) {
+			if(hashes[slot] == hash && Arrays.equals(keys[slot], key)) {
+				V old = (V) values[slot];
+				values[slot] = value;
+				return old;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		hashes[slot] = hash;
+		size++;
+		if(size > resizeAt)
+			resize();
+		return null;
+	}
+
+	/**
+	 * Puts the value only if the key is not in the map yet
+	 * @return the existing value or null if the value was added
+	 */
+	@SuppressWarnings("unchecked")
+	public V putIfAbsent(byte[] key, V value) {
+		int slot = findSlot(key);
+		if(slot >= 0)
+			return (V) values[slot];
+		put(key, value);
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V remove(byte[] key) {
+		int slot = findSlot(key);
+		if(slot < 0)
+			return null;
+		V old = (V) values[slot];
+		deleteSlot(slot);
+		return old;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * @return a snapshot of the keys in no particular order
+	 */
+	public List<byte[]> keys() {
+		List<byte[]> result = new ArrayList<byte[]>(size);
+		for(byte[] key : keys) {
+			if(key != null)
+				result.add(key);
+		}
+		return result;
+	}
+
+	/**
+	 * @return a snapshot of the values in no particular order
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		List<V> result = new ArrayList<V>(size);
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != null)
+				result.add((V) values[i]);
+		}
+		return result;
+	}
+
+	private int findSlot(byte[] key) {
+		if(key == null)
+			return -1;
+		int hash = ByteArray.hashOf(key);
+		int slot = hash & mask;
+		while(keys[slot] != null) {
+			if(hashes[slot] == hash && Arrays.equals(keys[slot], key))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Backward shift deletion so we never need tombstones and probe chains stay as short as if the
+	 * key had never been added
+	 */
+	private void deleteSlot(int slot) {
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while(keys[next] != null) {
+			int home = hashes[next] & mask;
+			//move the entry back into the hole unless its home slot lies cyclically within (hole, next]
+			if(((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hashes[hole] = hashes[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[hole] = null;
+		values[hole] = null;
+		size--;
+	}
+
+	private void resize() {
+		byte[][] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+		int oldSize = size;
+		allocate(oldKeys.length << 1);
+		for(int i = 0; i < oldKeys.length; i++) {
+			if(oldKeys[i] == null)
+				continue;
+			//keys are already unique so just find the first empty slot
+			int slot = oldHashes[i] & mask;
+			while(keys[slot] != null)
+				slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+			hashes[slot] = oldHashes[i];
+		}
+		size = oldSize;
+	}
+
+	@Override
+	public String toString() {
+		return "ByteArrayMap[size="+size+"]";
+	}
+}
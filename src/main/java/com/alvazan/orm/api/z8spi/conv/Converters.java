@@ -225,6 +225,14 @@ public class Converters {
 	}
 	
 	public static class ByteConverter extends IntegerConverter {
+		@Override
+		public byte[] convertToNoSqlImpl(Object value) {
+			return PrimitiveCodec.encodeLong((Byte) value);
+		}
+		@Override
+		public Object convertFromNoSqlImpl(byte[] data) {
+			return (byte) PrimitiveCodec.decodeLong(data);
+		}
 		@Override
 		protected Object convertToType(String value) {
 			return Byte.parseByte(value);
@@ -242,6 +250,14 @@ public class Converters {
 	}
 	
 	public static class ShortConverter extends IntegerConverter {
+		@Override
+		public byte[] convertToNoSqlImpl(Object value) {
+			return PrimitiveCodec.encodeLong((Short) value);
+		}
+		@Override
+		public Object convertFromNoSqlImpl(byte[] data) {
+			return (short) PrimitiveCodec.decodeLong(data);
+		}
 		@Override
 		protected Object convertToType(String value) {
 			return Short.parseShort(value);
@@ -258,6 +274,14 @@ public class Converters {
 	}
 	
 	public static class IntConverter extends IntegerConverter {
+		@Override
+		public byte[] convertToNoSqlImpl(Object value) {
+			return PrimitiveCodec.encodeLong((Integer) value);
+		}
+		@Override
+		public Object convertFromNoSqlImpl(byte[] data) {
+			return (int) PrimitiveCodec.decodeLong(data);
+		}
 		@Override
 		protected Object convertToType(String value) {
 			return Integer.parseInt(value);
@@ -274,6 +298,14 @@ public class Converters {
 	}
 
 	public static class LongConverter extends IntegerConverter {
+		@Override
+		public byte[] convertToNoSqlImpl(Object value) {
+			return PrimitiveCodec.encodeLong((Long) value);
+		}
+		@Override
+		public Object convertFromNoSqlImpl(byte[] data) {
+			return PrimitiveCodec.decodeLong(data);
+		}
 		@Override
 		protected Object convertToType(String value) {
 			return Long.parseLong(value);
@@ -319,6 +351,20 @@ public class Converters {
 	}
 	
 	public static class FloatConverter extends DecimalConverter {
+		@Override
+		public byte[] convertToNoSqlImpl(Object value) {
+			byte[] data = PrimitiveCodec.encodeFloat((Float) value);
+			if(data != null)
+				return data;
+			return super.convertToNoSqlImpl(value);
+		}
+		@Override
+		public Object convertFromNoSqlImpl(byte[] data) {
+			Float f = PrimitiveCodec.decodeFloat(data);
+			if(f != null)
+				return f;
+			return super.convertFromNoSqlImpl(data);
+		}
 		@Override
 		protected Object convertToType(String value) {
 			return Float.parseFloat(value);
@@ -339,6 +385,20 @@ public class Converters {
 	}
 	
 	public static class DoubleConverter extends DecimalConverter {
+		@Override
+		public byte[] convertToNoSqlImpl(Object value) {
+			byte[] data = PrimitiveCodec.encodeDouble((Double) value);
+			if(data != null)
+				return data;
+			return super.convertToNoSqlImpl(value);
+		}
+		@Override
+		public Object convertFromNoSqlImpl(byte[] data) {
+			Double d = PrimitiveCodec.decodeDouble(data);
+			if(d != null)
+				return d;
+			return super.convertFromNoSqlImpl(data);
+		}
 		@Override
 		protected Object convertToType(String value) {
 			return Double.parseDouble(value);
@@ -363,13 +423,13 @@ public class Converters {
 		public byte[] convertToNoSqlImpl(Object value) {
 			Boolean b = (Boolean) value;
 			if(b)
-				return StandardConverters.convertToBytes(1);
-			return StandardConverters.convertToBytes(0);
+				return PrimitiveCodec.encodeLong(1);
+			return PrimitiveCodec.encodeLong(0);
 		}
 		
 		@Override
 		public Object convertFromNoSqlImpl(byte[] bytes) {
-			Integer value = StandardConverters.convertFromBytes(Integer.class, bytes);
+			int value = (int) PrimitiveCodec.decodeLong(bytes);
 			if(value == 1)
 				return true;
 			return false;
@@ -388,12 +448,12 @@ public class Converters {
 		public byte[] convertToNoSqlImpl(Object value) {
 			LocalDateTime dt = (LocalDateTime) value;
 			long milliseconds = dt.toDate().getTime();
-			return StandardConverters.convertToBytes(milliseconds);
+			return PrimitiveCodec.encodeLong(milliseconds);
 		}
 
 		@Override
 		public Object convertFromNoSqlImpl(byte[] value) {
-			Long time = StandardConverters.convertFromBytes(Long.class, value);
+			long time = PrimitiveCodec.decodeLong(value);
 			LocalDateTime dt = new LocalDateTime(time);
 			return dt;
 		}
@@ -418,12 +478,12 @@ public class Converters {
 		public byte[] convertToNoSqlImpl(Object value) {
 			LocalDate dt = (LocalDate) value;
 			long milliseconds = dt.toDate().getTime();
-			return StandardConverters.convertToBytes(milliseconds);
+			return PrimitiveCodec.encodeLong(milliseconds);
 		}
 
 		@Override
 		public Object convertFromNoSqlImpl(byte[] value) {
-			Long time = StandardConverters.convertFromBytes(Long.class, value);
+			long time = PrimitiveCodec.decodeLong(value);
 			LocalDate dt = new LocalDate(time);
 			return dt;
 		}
@@ -448,12 +508,12 @@ public class Converters {
 		public byte[] convertToNoSqlImpl(Object value) {
 			LocalTime dt = (LocalTime) value;
 			long milliseconds = dt.getMillisOfDay();
-			return StandardConverters.convertToBytes(milliseconds);
+			return PrimitiveCodec.encodeLong(milliseconds);
 		}
 
 		@Override
 		public Object convertFromNoSqlImpl(byte[] value) {
-			Long time = StandardConverters.convertFromBytes(Long.class, value);
+			long time = PrimitiveCodec.decodeLong(value);
 			LocalTime dt = LocalTime.fromMillisOfDay(time);
 			return dt;
 		}
@@ -478,12 +538,12 @@ public class Converters {
 		public byte[] convertToNoSqlImpl(Object value) {
 			DateTime dt = (DateTime) value;
 			long milliseconds = dt.toDate().getTime();
-			return StandardConverters.convertToBytes(milliseconds);
+			return PrimitiveCodec.encodeLong(milliseconds);
 		}
 
 		@Override
 		public Object convertFromNoSqlImpl(byte[] value) {
-			Long time = StandardConverters.convertFromBytes(Long.class, value);
+			long time = PrimitiveCodec.decodeLong(value);
 			DateTime dt = new DateTime(time);
 			return dt;
 		}
@@ -508,23 +568,19 @@ public class Converters {
 			UUID uid = (UUID) value;
 		    long time = uid.getTime();
 		    long clockSeqAndNode = uid.getClockSeqAndNode();
-		    byte[] timeArray = LONG_CONVERTER.convertToNoSql(time);
-		    byte[] nodeArray = LONG_CONVERTER.convertToNoSql(clockSeqAndNode);
-		    byte[] combinedUUID = new byte[timeArray.length + nodeArray.length];
-		    System.arraycopy(timeArray,0,combinedUUID,0         ,timeArray.length);
-		    System.arraycopy(nodeArray,0,combinedUUID,timeArray.length,nodeArray.length);
+		    byte[] combinedUUID = new byte[PrimitiveCodec.lengthOf(time) + PrimitiveCodec.lengthOf(clockSeqAndNode)];
+		    int timeLength = PrimitiveCodec.writeLong(time, combinedUUID, 0);
+		    PrimitiveCodec.writeLong(clockSeqAndNode, combinedUUID, timeLength);
 		    return combinedUUID;			
 		}
 
 		@Override
 		public Object convertFromNoSqlImpl(byte[] value) {
 			try {
-				byte[] timeArray = new byte[8];
-				byte[] clockSeqAndNodeArray=new byte[8];
-				System.arraycopy(value,0,timeArray,0,8);
-				System.arraycopy(value,8,clockSeqAndNodeArray,0,8);
-				long time = StandardConverters.convertFromBytes(Long.class, timeArray);
-				long clockSeqAndNode = StandardConverters.convertFromBytes(Long.class, clockSeqAndNodeArray);
+				if(value.length < 16)
+					throw new ArrayIndexOutOfBoundsException("uuid needs 16 bytes");
+				long time = PrimitiveCodec.decodeLong(value, 0, 8);
+				long clockSeqAndNode = PrimitiveCodec.decodeLong(value, 8, 8);
 				UUID ud = new UUID(time,clockSeqAndNode);
 				return ud;
 			} catch(Exception e) {
@@ -0,0 +1,211 @@
+package com.alvazan.orm.api.z8spi.conv;
+
+/**
+ * Encodes and decodes primitives in the same bytes BigInteger.toByteArray() and BigDecimalConverter
+ * produce(a big endian two's complement value using the fewest bytes, decimals prefixed by a 4 byte
+ * scale) without creating the BigInteger, BigDecimal or String in between.  Integers are always
+ * converted here.  A float or double is converted here when Float/Double.toString would print it
+ * without an exponent and with at most 7/9 decimal places, which covers prices, rates and so on.  For
+ * anything else encode returns null(write returns -1) so the caller goes the old way.
+ */
+public class PrimitiveCodec {
+
+	/**
+	 * Big enough for any long or any decimal this class encodes
+	 */
+	public static final int MAX_LENGTH = 12;
+
+	private static final int MAX_DOUBLE_SCALE = 9;
+	private static final int MAX_FLOAT_SCALE = 7;
+	private static final long MAX_EXACT_DOUBLE = 1L << 53;
+	private static final long MAX_EXACT_FLOAT = 1L << 24;
+	private static final double[] DOUBLE_POWERS = new double[23];
+	private static final float[] FLOAT_POWERS = new float[11];
+
+	static {
+		double pow = 1;
+		for(int i = 0; i < DOUBLE_POWERS.length; i++) {
+			DOUBLE_POWERS[i] = pow;
+			pow *= 10;
+		}
+		float fpow = 1;
+		for(int i = 0; i < FLOAT_POWERS.length; i++) {
+			FLOAT_POWERS[i] = fpow;
+			fpow *= 10;
+		}
+	}
+
+	public static int lengthOf(long value) {
+		int bitLength = 64 - Long.numberOfLeadingZeros(value < 0 ? ~value : value);
+		return bitLength / 8 + 1;
+	}
+
+	public static byte[] encodeLong(long value) {
+		byte[] bytes = new byte[lengthOf(value)];
+		writeLong(value, bytes, 0);
+		return bytes;
+	}
+
+	/**
+	 * @return the number of bytes written
+	 */
+	public static int writeLong(long value, byte[] dest, int offset) {
+		int len = lengthOf(value);
+		long v = value;
+		for(int i = offset + len - 1; i >= offset; i--) {
+			dest[i] = (byte) v;
+			v >>= 8;
+		}
+		return len;
+	}
+
+	/**
+	 * Same as BigInteger.longValue(), so the low 64 bits if more than 8 bytes were stored
+	 */
+	public static long decodeLong(byte[] bytes) {
+		return decodeLong(bytes, 0, bytes.length);
+	}
+
+	public static long decodeLong(byte[] bytes, int offset, int len) {
+		if(len == 0)
+			throw new NumberFormatException("Zero length BigInteger");
+		int start = Math.max(offset, offset + len - 8);
+		long value = bytes[offset] < 0 ? -1L : 0L;
+		for(int i = start; i < offset + len; i++) {
+			value = (value << 8) | (bytes[i] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * @return the number of bytes written
+	 */
+	public static int writeDecimal(long unscaled, int scale, byte[] dest, int offset) {
+		dest[offset] = (byte) (scale >>> 24);
+		dest[offset+1] = (byte) (scale >>> 16);
+		dest[offset+2] = (byte) (scale >>> 8);
+		dest[offset+3] = (byte) scale;
+		return 4 + writeLong(unscaled, dest, offset + 4);
+	}
+
+	/**
+	 * @return the bytes new BigDecimal(""+value) would be stored as or null if this value needs the slow way
+	 */
+	public static byte[] encodeDouble(double value) {
+		int scale = doubleScale(value);
+		if(scale < 0)
+			return null;
+		long unscaled = (long) Math.rint(value * DOUBLE_POWERS[scale]);
+		byte[] bytes = new byte[4 + lengthOf(unscaled)];
+		writeDecimal(unscaled, scale, bytes, 0);
+		return bytes;
+	}
+
+	/**
+	 * @return the number of bytes written or -1 if nothing was written as this value needs the slow way
+	 */
+	public static int writeDouble(double value, byte[] dest, int offset) {
+		int scale = doubleScale(value);
+		if(scale < 0)
+			return -1;
+		return writeDecimal((long) Math.rint(value * DOUBLE_POWERS[scale]), scale, dest, offset);
+	}
+
+	/**
+	 * @return the bytes new BigDecimal(""+value) would be stored as or null if this value needs the slow way
+	 */
+	public static byte[] encodeFloat(float value) {
+		int scale = floatScale(value);
+		if(scale < 0)
+			return null;
+		long unscaled = (long) Math.rint(value * DOUBLE_POWERS[scale]);
+		byte[] bytes = new byte[4 + lengthOf(unscaled)];
+		writeDecimal(unscaled, scale, bytes, 0);
+		return bytes;
+	}
+
+	/**
+	 * @return the number of bytes written or -1 if nothing was written as this value needs the slow way
+	 */
+	public static int writeFloat(float value, byte[] dest, int offset) {
+		int scale = floatScale(value);
+		if(scale < 0)
+			return -1;
+		return writeDecimal((long) Math.rint(value * DOUBLE_POWERS[scale]), scale, dest, offset);
+	}
+
+	/**
+	 * The fewest decimal places that read back as the same double are the digits Double.toString
+	 * prints(it always prints at least one decimal place).  rint because when two of them read back
+	 * the same toString also picks the one ending in an even digit.
+	 * @return the scale BigDecimal would have or -1 if toString would use an exponent or more digits
+	 */
+	private static int doubleScale(double value) {
+		double abs = Math.abs(value);
+		//outside this range toString uses an exponent
+		if(value != 0 && (abs < 1e-3 || abs >= 1e7))
+			return -1;
+		for(int scale = 1; scale <= MAX_DOUBLE_SCALE; scale++) {
+			long unscaled = (long) Math.rint(value * DOUBLE_POWERS[scale]);
+			if(unscaled >= MAX_EXACT_DOUBLE || unscaled <= -MAX_EXACT_DOUBLE)
+				return -1;
+			//both exact so the division rounds once just like parsing the decimal would
+			if(unscaled / DOUBLE_POWERS[scale] == value)
+				return scale;
+		}
+		return -1;
+	}
+
+	private static int floatScale(float value) {
+		float abs = Math.abs(value);
+		if(value != 0 && (abs < 1e-3f || abs >= 1e7f))
+			return -1;
+		for(int scale = 1; scale <= MAX_FLOAT_SCALE; scale++) {
+			long unscaled = (long) Math.rint(value * DOUBLE_POWERS[scale]);
+			if(unscaled >= MAX_EXACT_FLOAT || unscaled <= -MAX_EXACT_FLOAT)
+				return -1;
+			if((float) unscaled / FLOAT_POWERS[scale] == value)
+				return scale;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the stored decimal as a double or null if this value needs the slow way(BigDecimal.doubleValue())
+	 */
+	public static Double decodeDouble(byte[] bytes) {
+		if(bytes.length < 5 || bytes.length > 12)
+			return null;
+		int scale = readScale(bytes);
+		long unscaled = decodeLong(bytes, 4, bytes.length - 4);
+		if(unscaled >= MAX_EXACT_DOUBLE || unscaled <= -MAX_EXACT_DOUBLE)
+			return null;
+		//an exact long times or divided by an exact power of ten is rounded once so it is the closest double
+		if(scale >= 0 && scale < DOUBLE_POWERS.length)
+			return unscaled / DOUBLE_POWERS[scale];
+		else if(scale < 0 && -scale < DOUBLE_POWERS.length)
+			return unscaled * DOUBLE_POWERS[-scale];
+		return null;
+	}
+
+	/**
+	 * @return the stored decimal as a float or null if this value needs the slow way(BigDecimal.floatValue())
+	 */
+	public static Float decodeFloat(byte[] bytes) {
+		if(bytes.length < 5 || bytes.length > 12)
+			return null;
+		int scale = readScale(bytes);
+		long unscaled = decodeLong(bytes, 4, bytes.length - 4);
+		if(unscaled >= MAX_EXACT_FLOAT || unscaled <= -MAX_EXACT_FLOAT)
+			return null;
+		if(scale >= 0 && scale < FLOAT_POWERS.length)
+			return (float) unscaled / FLOAT_POWERS[scale];
+		else if(scale < 0 && -scale < FLOAT_POWERS.length)
+			return (float) unscaled * FLOAT_POWERS[-scale];
+		return null;
+	}
+
+	private static int readScale(byte[] bytes) {
+		return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+	}
+}
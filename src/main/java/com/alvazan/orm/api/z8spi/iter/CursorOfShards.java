@@ -0,0 +1,313 @@
+package com.alvazan.orm.api.z8spi.iter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alvazan.orm.api.z8spi.BatchListener;
+import com.alvazan.orm.api.z8spi.Key;
+import com.alvazan.orm.api.z8spi.MetaLookup;
+import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.ScanInfo;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+
+/**
+ * A k-way merge over the index rows of a sharded index(see NoSqlIndexed.shards).  Each shard
+ * is itself sorted by indexed value and then primary key so we keep the head of every shard in
+ * a priority queue and always hand back the smallest(or largest when traversing in reverse).
+ * The first batch of every shard is fetched in parallel so a scan costs roughly one round trip
+ * instead of N unless the provider's cursors share a connection that is not thread safe(hbase's
+ * HTableInterface) in which case they are fetched one after the other.
+ */
+public class CursorOfShards extends AbstractCursor<IndexColumn> {
+
+	private static final ExecutorService SHARD_FETCHER = Executors.newCachedThreadPool(new ShardThreadFactory());
+
+	private List<DirectCursor<IndexColumn>> shards;
+	private Comparator<IndexColumn> comparator;
+	private PriorityQueue<ShardHead> heads;
+	private boolean forward = true;
+	private String info;
+	private boolean parallelPrime;
+
+	public CursorOfShards(List<DirectCursor<IndexColumn>> shards, String indexColFamily, String logInfo, boolean parallelPrime) {
+		this.shards = shards;
+		this.comparator = createComparator(indexColFamily);
+		this.info = logInfo;
+		this.parallelPrime = parallelPrime;
+		beforeFirst();
+	}
+
+	public static AbstractCursor<IndexColumn> scanIndex(NoSqlRawSession session, ScanInfo info, Key from, Key to,
+			Integer batchSize, BatchListener l, MetaLookup mgr) {
+		return scanIndex(session, info, from, to, batchSize, l, mgr, true);
+	}
+
+	/**
+	 * @param parallelPrime false if the cursors of the session may not be read from several threads at once
+	 */
+	public static AbstractCursor<IndexColumn> scanIndex(NoSqlRawSession session, ScanInfo info, Key from, Key to,
+			Integer batchSize, BatchListener l, MetaLookup mgr, boolean parallelPrime) {
+		BatchListener listener = wrap(l);
+		List<DirectCursor<IndexColumn>> cursors = new ArrayList<DirectCursor<IndexColumn>>();
+		for(byte[] rowKey : info.getShardRowKeys()) {
+			ScanInfo shardInfo = info.forShard(rowKey);
+			cursors.add(session.scanIndex(shardInfo, from, to, batchSize, listener, mgr));
+		}
+		return new CursorOfShards(cursors, info.getIndexColFamily(), ""+info, parallelPrime);
+	}
+
+	public static AbstractCursor<IndexColumn> scanIndex(NoSqlRawSession session, ScanInfo info, List<byte[]> values,
+			BatchListener l, MetaLookup mgr) {
+		return scanIndex(session, info, values, l, mgr, true);
+	}
+
+	public static AbstractCursor<IndexColumn> scanIndex(NoSqlRawSession session, ScanInfo info, List<byte[]> values,
+			BatchListener l, MetaLookup mgr, boolean parallelPrime) {
+		BatchListener listener = wrap(l);
+		List<DirectCursor<IndexColumn>> cursors = new ArrayList<DirectCursor<IndexColumn>>();
+		for(byte[] rowKey : info.getShardRowKeys()) {
+			ScanInfo shardInfo = info.forShard(rowKey);
+			cursors.add(session.scanIndex(shardInfo, values, listener, mgr));
+		}
+		return new CursorOfShards(cursors, info.getIndexColFamily(), ""+info, parallelPrime);
+	}
+
+	private static BatchListener wrap(BatchListener l) {
+		if(l == null)
+			return null;
+		return new SynchronizedListener(l);
+	}
+
+	@Override
+	public String toString() {
+		String tabs = StringLocal.getAndAdd();
+		String retVal = "CursorOfShards["+tabs+info+" shards="+shards.size()+tabs+"]";
+		StringLocal.set(tabs.length());
+		return retVal;
+	}
+
+	@Override
+	public void beforeFirst() {
+		for(DirectCursor<IndexColumn> shard : shards) {
+			shard.beforeFirst();
+		}
+		forward = true;
+		heads = null;
+	}
+
+	@Override
+	public void afterLast() {
+		for(DirectCursor<IndexColumn> shard : shards) {
+			shard.afterLast();
+		}
+		forward = false;
+		heads = null;
+	}
+
+	@Override
+	public Holder<IndexColumn> nextImpl() {
+		if(!forward)
+			throw new IllegalStateException("You must call beforeFirst to traverse the cursor forward, you cannot call next after calling previous");
+		return pollAndRefill();
+	}
+
+	@Override
+	public Holder<IndexColumn> previousImpl() {
+		if(forward)
+			throw new IllegalStateException("You must call afterLast to traverse reverse.  You cannot call previous after calling next");
+		return pollAndRefill();
+	}
+
+	private Holder<IndexColumn> pollAndRefill() {
+		if(heads == null)
+			primeAllShards();
+
+		ShardHead smallest = heads.poll();
+		if(smallest == null)
+			return null;
+
+		IndexColumn current = smallest.getValue();
+		Holder<IndexColumn> next = advance(smallest.getCursor());
+		if(next != null)
+			heads.add(new ShardHead(next.getValue(), smallest.getCursor()));
+		return new Holder<IndexColumn>(current);
+	}
+
+	private void primeAllShards() {
+		Comparator<ShardHead> headComparator = new HeadComparator(comparator, forward);
+		heads = new PriorityQueue<ShardHead>(shards.size(), headComparator);
+
+		if(!parallelPrime) {
+			for(DirectCursor<IndexColumn> shard : shards) {
+				Holder<IndexColumn> first = advance(shard);
+				if(first != null)
+					heads.add(new ShardHead(first.getValue(), shard));
+			}
+			return;
+		}
+
+		List<Future<Holder<IndexColumn>>> futures = new ArrayList<Future<Holder<IndexColumn>>>();
+		for(final DirectCursor<IndexColumn> shard : shards) {
+			Callable<Holder<IndexColumn>> fetch = new Callable<Holder<IndexColumn>>() {
+				@Override
+				public Holder<IndexColumn> call() {
+					return advance(shard);
+				}
+			};
+			futures.add(SHARD_FETCHER.submit(fetch));
+		}
+
+		for(int i = 0; i < shards.size(); i++) {
+			Holder<IndexColumn> first = waitFor(futures.get(i));
+			if(first != null)
+				heads.add(new ShardHead(first.getValue(), shards.get(i)));
+		}
+	}
+
+	private Holder<IndexColumn> advance(DirectCursor<IndexColumn> shard) {
+		if(forward)
+			return shard.nextImpl();
+		return shard.previousImpl();
+	}
+
+	private Holder<IndexColumn> waitFor(Future<Holder<IndexColumn>> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while fetching index shard", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Orders index columns exactly like the index column families do which is by the indexed value
+	 * first(according to the type of the indice cf) and then by the primary key bytes
+	 */
+	public static Comparator<IndexColumn> createComparator(String indexColFamily) {
+		if("IntegerIndice".equalsIgnoreCase(indexColFamily))
+			return new IndexColumnComparator(BigInteger.class);
+		else if("DecimalIndice".equalsIgnoreCase(indexColFamily))
+			return new IndexColumnComparator(BigDecimal.class);
+		return new IndexColumnComparator(null);
+	}
+
+	private static class IndexColumnComparator implements Comparator<IndexColumn> {
+		@SuppressWarnings("rawtypes")
+		private Class numberType;
+
+		@SuppressWarnings("rawtypes")
+		public IndexColumnComparator(Class numberType) {
+			this.numberType = numberType;
+		}
+
+		@Override
+		public int compare(IndexColumn o1, IndexColumn o2) {
+			int result = compareValues(o1.getIndexedValue(), o2.getIndexedValue());
+			if(result != 0)
+				return result;
+			return compareBytes(o1.getPrimaryKey(), o2.getPrimaryKey());
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private int compareValues(byte[] left, byte[] right) {
+			if(numberType == null)
+				return compareBytes(left, right);
+			else if(left == null || right == null)
+				return compareBytes(left, right);
+			Comparable leftVal = (Comparable) StandardConverters.convertFromBytes(numberType, left);
+			Comparable rightVal = (Comparable) StandardConverters.convertFromBytes(numberType, right);
+			return leftVal.compareTo(rightVal);
+		}
+	}
+
+	static int compareBytes(byte[] left, byte[] right) {
+		if(left == null)
+			return right == null ? 0 : -1;
+		else if(right == null)
+			return 1;
+		int len = Math.min(left.length, right.length);
+		for(int i = 0; i < len; i++) {
+			int a = left[i] & 0xff;
+			int b = right[i] & 0xff;
+			if(a != b)
+				return a - b;
+		}
+		return left.length - right.length;
+	}
+
+	private static class HeadComparator implements Comparator<ShardHead> {
+		private Comparator<IndexColumn> comparator;
+		private boolean forward;
+
+		public HeadComparator(Comparator<IndexColumn> comparator, boolean forward) {
+			this.comparator = comparator;
+			this.forward = forward;
+		}
+
+		@Override
+		public int compare(ShardHead o1, ShardHead o2) {
+			int result = comparator.compare(o1.getValue(), o2.getValue());
+			if(forward)
+				return result;
+			return -result;
+		}
+	}
+
+	private static class ShardHead {
+		private IndexColumn value;
+		private DirectCursor<IndexColumn> cursor;
+
+		public ShardHead(IndexColumn value, DirectCursor<IndexColumn> cursor) {
+			this.value = value;
+			this.cursor = cursor;
+		}
+		public IndexColumn getValue() {
+			return value;
+		}
+		public DirectCursor<IndexColumn> getCursor() {
+			return cursor;
+		}
+	}
+
+	private static class SynchronizedListener implements BatchListener {
+		private BatchListener listener;
+
+		public SynchronizedListener(BatchListener listener) {
+			this.listener = listener;
+		}
+		@Override
+		public synchronized void beforeFetchingNextBatch() {
+			listener.beforeFetchingNextBatch();
+		}
+		@Override
+		public synchronized void afterFetchingNextBatch(int numFetched) {
+			listener.afterFetchingNextBatch(numFetched);
+		}
+	}
+
+	private static class ShardThreadFactory implements ThreadFactory {
+		private AtomicInteger count = new AtomicInteger();
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "playorm-shardfetch"+count.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
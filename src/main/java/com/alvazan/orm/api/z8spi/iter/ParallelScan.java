@@ -0,0 +1,143 @@
+package com.alvazan.orm.api.z8spi.iter;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans the splits of a table(token ranges, regions, _id ranges) on ScanSettings.getParallelism() threads
+ * and hands what they find to the caller's thread through a bounded queue so the scanning threads wait
+ * when the caller falls behind.  The order of the results is whatever order the splits produce them in.
+ * If the caller stops calling next() for ABANDONED_MILLIS the scan assumes the cursor was dropped and stops.
+ */
+public class ParallelScan<T> {
+
+	private static final Logger log = LoggerFactory.getLogger(ParallelScan.class);
+	private static final long ABANDONED_MILLIS = 10 * 60 * 1000;
+	private static final Object SPLIT_DONE = new Object();
+
+	public interface Split<T> {
+		/**
+		 * Scan this split adding everything found to the sink and stop early once add returns false
+		 */
+		void scan(Sink<T> sink) throws Exception;
+	}
+
+	public interface Sink<T> {
+		/**
+		 * @return false if the scan was cancelled so the split should stop
+		 */
+		boolean add(T item);
+	}
+
+	private ConcurrentLinkedQueue<Split<T>> splits;
+	private ScanSettings settings;
+	private BlockingQueue<Object> queue;
+	private AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private volatile boolean cancelled;
+	private volatile long lastTaken;
+	private int numWorkers;
+	private int workersDone;
+
+	public ParallelScan(List<Split<T>> splits, ScanSettings settings, int queueSize) {
+		this.splits = new ConcurrentLinkedQueue<Split<T>>(splits);
+		this.settings = settings;
+		this.queue = new ArrayBlockingQueue<Object>(Math.max(queueSize, 16));
+	}
+
+	public void start() {
+		lastTaken = System.currentTimeMillis();
+		numWorkers = Math.min(settings.getParallelism(), splits.size());
+		if(log.isDebugEnabled())
+			log.debug("scanning "+splits.size()+" splits with "+numWorkers+" threads");
+		for(int i = 0; i < numWorkers; i++) {
+			settings.getExecutor().execute(new Worker());
+		}
+	}
+
+	/**
+	 * @return the next item found or null once every split is scanned
+	 */
+	@SuppressWarnings("unchecked")
+	public T next() {
+		try {
+			while(workersDone < numWorkers) {
+				Object item = queue.poll(100, TimeUnit.MILLISECONDS);
+				lastTaken = System.currentTimeMillis();
+				rethrowFailure();
+				if(item == SPLIT_DONE)
+					workersDone++;
+				else if(item != null)
+					return (T) item;
+			}
+			return null;
+		} catch (InterruptedException e) {
+			cancel();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void rethrowFailure() {
+		Throwable e = failure.get();
+		if(e == null)
+			return;
+		cancel();
+		if(e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		throw new RuntimeException(e);
+	}
+
+	public void cancel() {
+		cancelled = true;
+		queue.clear();
+	}
+
+	private boolean offer(Object item) {
+		try {
+			while(!cancelled) {
+				if(queue.offer(item, 1, TimeUnit.SECONDS))
+					return true;
+				else if(System.currentTimeMillis() - lastTaken > ABANDONED_MILLIS) {
+					if(log.isWarnEnabled())
+						log.warn("nothing read from the scan for "+ABANDONED_MILLIS+"ms so assuming the cursor was dropped and stopping");
+					cancel();
+				}
+			}
+		} catch (InterruptedException e) {
+			cancel();
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	private class Worker implements Runnable, Sink<T> {
+		@Override
+		public void run() {
+			try {
+				Split<T> split = splits.poll();
+				while(split != null && !cancelled) {
+					split.scan(this);
+					split = splits.poll();
+				}
+			} catch(Throwable e) {
+				if(log.isDebugEnabled())
+					log.debug("split failed", e);
+				failure.compareAndSet(null, e);
+			} finally {
+				offer(SPLIT_DONE);
+			}
+		}
+
+		@Override
+		public boolean add(T item) {
+			return offer(item);
+		}
+	}
+}
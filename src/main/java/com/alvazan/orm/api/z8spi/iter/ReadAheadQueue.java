@@ -0,0 +1,187 @@
+package com.alvazan.orm.api.z8spi.iter;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.z8spi.BatchListener;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder;
+
+/**
+ * Splits the row keys of a find cursor into batches and keeps up to ReadAheadSettings.getDepth() batches
+ * loading while the caller consumes the current one.  Reading the keys(which may itself be an index scan)
+ * and checking the session cache stay on the caller's thread as neither is thread safe, only the database
+ * request for a batch runs in the background.  Batches loaded ahead ask for every key, the cursor checks
+ * the cache when it consumes the batch so rows put in the session meanwhile still win over the database.
+ *
+ * With a depth of 0 each batch is loaded on the caller's thread when it is consumed, same as before.
+ */
+public class ReadAheadQueue<R> {
+
+	private static final Logger log = LoggerFactory.getLogger(ReadAheadQueue.class);
+
+	public interface Fetcher<R> {
+		/**
+		 * Load the rows on the caller's thread
+		 */
+		R fetch(List<byte[]> keys);
+
+		/**
+		 * Start loading the rows in the background
+		 */
+		Future<R> fetchAsync(List<byte[]> keys);
+	}
+
+	private DirectCursor<byte[]> rowKeys;
+	private int batchSize;
+	private ReadAheadSettings settings;
+	private Fetcher<R> fetcher;
+	private LinkedList<Batch<R>> ahead = new LinkedList<Batch<R>>();
+	private int keysAhead;
+	private boolean exhausted;
+
+	public ReadAheadQueue(DirectCursor<byte[]> rowKeys, int batchSize, ReadAheadSettings settings, Fetcher<R> fetcher) {
+		this.rowKeys = rowKeys;
+		this.batchSize = batchSize;
+		this.settings = settings;
+		this.fetcher = fetcher;
+	}
+
+	/**
+	 * @return the next batch which has no keys once the row keys are exhausted
+	 */
+	public Batch<R> nextBatch() {
+		Batch<R> batch;
+		if(ahead.isEmpty()) {
+			batch = readKeys();
+		} else {
+			batch = ahead.removeFirst();
+			keysAhead -= batch.keys.size();
+		}
+		//start the following batches before the caller waits on this one
+		readAhead();
+		return batch;
+	}
+
+	private void readAhead() {
+		if(settings == null || !settings.isEnabled())
+			return;
+		while(!exhausted && ahead.size() < settings.getDepth()) {
+			if(!settings.tryAcquire()) {
+				if(log.isDebugEnabled())
+					log.debug("all read ahead permits in use so only "+ahead.size()+" batches ahead");
+				break;
+			}
+			Batch<R> batch = readKeys();
+			if(batch.keys.size() == 0) {
+				settings.release();
+				break;
+			}
+			try {
+				batch.future = fetcher.fetchAsync(batch.keys);
+			} catch(RuntimeException e) {
+				settings.release();
+				throw e;
+			}
+			batch.permit = settings.loading(batch.future);
+			ahead.add(batch);
+			keysAhead += batch.keys.size();
+		}
+	}
+
+	private Batch<R> readKeys() {
+		Batch<R> batch = new Batch<R>(fetcher);
+		while(batch.keys.size() < batchSize) {
+			Holder<byte[]> keyHolder = rowKeys.nextImpl();
+			if(keyHolder == null) {
+				exhausted = true; //we are officially exhausted
+				break;
+			}
+			batch.keys.add(keyHolder.getValue());
+		}
+		return batch;
+	}
+
+	/**
+	 * Drops the batches loaded ahead and moves the row keys back to just after the last batch returned
+	 * from nextBatch so the caller can iterate backward from there
+	 */
+	public void rewind() {
+		int count = keysAhead;
+		cancel();
+		for(int i = 0; i < count; i++) {
+			rowKeys.previousImpl();
+		}
+	}
+
+	/**
+	 * Drops the batches loaded ahead, the caller moves the row keys itself(ie. beforeFirst)
+	 */
+	public void cancel() {
+		for(Batch<R> batch : ahead) {
+			batch.cancel();
+		}
+		ahead.clear();
+		keysAhead = 0;
+		exhausted = false;
+	}
+
+	public static class Batch<R> {
+		private List<byte[]> keys = new ArrayList<byte[]>();
+		private Fetcher<R> fetcher;
+		private Future<R> future;
+		private ReadAheadSettings.Permit permit;
+
+		private Batch(Fetcher<R> fetcher) {
+			this.fetcher = fetcher;
+		}
+
+		public List<byte[]> getKeys() {
+			return keys;
+		}
+
+		/**
+		 * @param keysToLookup the keys of this batch that were not in the cache
+		 * @return the rows of the keys to lookup(or of every key if the batch was loaded ahead) or null
+		 * if there was nothing to load
+		 */
+		public R fetch(List<byte[]> keysToLookup, BatchListener list) {
+			if(future == null && keysToLookup.size() == 0)
+				return null;
+
+			if(list != null)
+				list.beforeFetchingNextBatch();
+			if(future == null)
+				return fetcher.fetch(keysToLookup);
+
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new RuntimeException(e.getCause());
+			} finally {
+				releasePermit();
+			}
+		}
+
+		private void cancel() {
+			if(future != null)
+				future.cancel(true);
+			releasePermit();
+		}
+
+		private void releasePermit() {
+			if(permit != null)
+				permit.release();
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.alvazan.orm.api.z8spi.iter;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alvazan.orm.api.z8spi.SpiConstants;
+
+/**
+ * Read ahead configuration of one NoSqlRawSession shared by all of its find cursors.  depth is how many
+ * batches past the one being consumed each cursor keeps loading and the permits bound how many batches
+ * all cursors together may have loading.  When no permit is free a cursor simply stops reading ahead until
+ * a load finishes which is the back pressure.  A permit goes back when its batch is consumed or cancelled or,
+ * for cursors that are dropped before they are read to the end, once we find its load is done.
+ */
+public class ReadAheadSettings {
+
+	private static final AtomicInteger threadCounter = new AtomicInteger();
+
+	private int depth;
+	private int maxInFlight;
+	private Semaphore permits;
+	private Queue<Permit> inFlight = new ConcurrentLinkedQueue<Permit>();
+	private ExecutorService executor;
+
+	public ReadAheadSettings(int depth, int maxInFlight) {
+		if(depth < 0)
+			throw new IllegalArgumentException("depth cannot be negative");
+		else if(depth > 0 && maxInFlight <= 0)
+			throw new IllegalArgumentException("maxInFlight must be positive when reading ahead");
+		this.depth = depth;
+		this.maxInFlight = maxInFlight;
+		this.permits = new Semaphore(maxInFlight);
+	}
+
+	public static ReadAheadSettings create(Map<String, Object> properties) {
+		int depth = toInt(properties, SpiConstants.READ_AHEAD_DEPTH, 0);
+		int maxInFlight = toInt(properties, SpiConstants.READ_AHEAD_MAX_IN_FLIGHT, 16);
+		return new ReadAheadSettings(depth, maxInFlight);
+	}
+
+	private static int toInt(Map<String, Object> properties, String key, int defaultVal) {
+		Object val = properties.get(key);
+		if(val == null)
+			return defaultVal;
+		else if(val instanceof Integer)
+			return (Integer) val;
+		else if(val instanceof String)
+			return Integer.valueOf((String) val);
+		throw new RuntimeException(key+" key in map has a value of type="+val.getClass()+" but that must be a String or Integer");
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public boolean isEnabled() {
+		return depth > 0;
+	}
+
+	boolean tryAcquire() {
+		if(permits.tryAcquire())
+			return true;
+
+		//take back the permits of loads that are done, nothing else gives them back if their cursor was dropped
+		for(Permit permit : inFlight) {
+			if(permit.future.isDone())
+				permit.release();
+		}
+		return permits.tryAcquire();
+	}
+
+	void release() {
+		permits.release();
+	}
+
+	/**
+	 * Hands the permit taken with tryAcquire to the load it is for
+	 */
+	Permit loading(Future<?> future) {
+		Permit permit = new Permit(future);
+		inFlight.add(permit);
+		return permit;
+	}
+
+	public int getAvailablePermits() {
+		return permits.availablePermits();
+	}
+
+	/**
+	 * For databases whose client has no async api, the read ahead batches are loaded on these threads
+	 */
+	public synchronized ExecutorService getExecutor() {
+		if(executor == null) {
+			executor = Executors.newFixedThreadPool(maxInFlight, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "playorm-readahead-"+threadCounter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+
+	public synchronized void close() {
+		if(executor == null)
+			return;
+		executor.shutdownNow();
+		try {
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor = null;
+	}
+
+	@Override
+	public String toString() {
+		return "ReadAheadSettings[depth="+depth+" maxInFlight="+maxInFlight+"]";
+	}
+
+	class Permit {
+		private Future<?> future;
+		private AtomicBoolean released = new AtomicBoolean();
+
+		private Permit(Future<?> future) {
+			this.future = future;
+		}
+
+		/**
+		 * Safe to call more than once and from any thread, only the first call gives the permit back
+		 */
+		void release() {
+			if(!released.compareAndSet(false, true))
+				return;
+			inFlight.remove(this);
+			permits.release();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.alvazan.orm.api.z8spi.iter;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alvazan.orm.api.z8spi.SpiConstants;
+
+/**
+ * Full table scan configuration of one NoSqlRawSession.  parallelism is how many splits(token ranges,
+ * regions, _id ranges) of one table are scanned at the same time, 1(the default) scans the table on the
+ * caller's thread from start to end like before.
+ */
+public class ScanSettings {
+
+	private static final AtomicInteger threadCounter = new AtomicInteger();
+
+	private int parallelism;
+	private ExecutorService executor;
+
+	public ScanSettings(int parallelism) {
+		if(parallelism <= 0)
+			throw new IllegalArgumentException("parallelism must be 1 or more");
+		this.parallelism = parallelism;
+	}
+
+	public static ScanSettings create(Map<String, Object> properties) {
+		Object val = properties.get(SpiConstants.SCAN_PARALLELISM);
+		if(val == null)
+			return new ScanSettings(1);
+		else if(val instanceof Integer)
+			return new ScanSettings((Integer) val);
+		else if(val instanceof String)
+			return new ScanSettings(Integer.valueOf((String) val));
+		throw new RuntimeException(SpiConstants.SCAN_PARALLELISM+" key in map has a value of type="+val.getClass()+" but that must be a String or Integer");
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public boolean isParallel() {
+		return parallelism > 1;
+	}
+
+	/**
+	 * The splits are scanned on these threads.  Cached as each scan only runs parallelism splits at a time
+	 * but several scans may be running
+	 */
+	public synchronized ExecutorService getExecutor() {
+		if(executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "playorm-scan-"+threadCounter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+
+	public synchronized void close() {
+		if(executor == null)
+			return;
+		executor.shutdownNow();
+		try {
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor = null;
+	}
+
+	@Override
+	public String toString() {
+		return "ScanSettings[parallelism="+parallelism+"]";
+	}
+}
@@ -3,6 +3,7 @@ package com.alvazan.orm.api.z8spi.meta;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +38,9 @@ public abstract class DboColumnMeta {
 
 	protected boolean isIndexed;
 
+	//null(or 1) means the index for this column lives in a single row per partition
+	private Integer indexShards;
+
 	private String foreignKeyToExtensions;
 
 	@NoSqlIndexed
@@ -111,10 +115,76 @@ public abstract class DboColumnMeta {
 		return firstPart + "/" + partitionId;
 	}
 
+	/**
+	 * The row key of the index row the entry for the given primary key lives in.  For an
+	 * unsharded index this is just getIndexRowKey(partitionedBy, partitionId)
+	 */
+	public String getIndexRowKey(String partitionedBy, String partitionId, byte[] pk) {
+		String rowKey = getIndexRowKey(partitionedBy, partitionId);
+		if(!isIndexSharded())
+			return rowKey;
+		int shard = shardFor(pk, getIndexShards());
+		return formShardRowKey(rowKey, shard);
+	}
+
+	/**
+	 * All the index rows that together form the index for this column in the given partition.  Scans
+	 * must read every one of these rows.
+	 */
+	public List<String> getIndexShardRowKeys(String partitionedBy, String partitionId) {
+		String rowKey = getIndexRowKey(partitionedBy, partitionId);
+		List<String> keys = new ArrayList<String>();
+		if(!isIndexSharded()) {
+			keys.add(rowKey);
+			return keys;
+		}
+		for(int i = 0; i < getIndexShards(); i++) {
+			keys.add(formShardRowKey(rowKey, i));
+		}
+		return keys;
+	}
+
+	private static String formShardRowKey(String rowKey, int shard) {
+		return rowKey + "/~shard" + shard;
+	}
+
+	/**
+	 * NOTE: This is part of the on-disk layout of sharded index rows so it must never change(and
+	 * must not depend on ByteArray.hashCode or anything else that may be tuned later).  It is
+	 * a plain FNV-1a over the primary key bytes.
+	 */
+	public static int shardFor(byte[] pk, int numShards) {
+		int hash = 0x811c9dc5;
+		for(int i = 0; i < pk.length; i++) {
+			hash ^= pk[i] & 0xff;
+			hash *= 0x01000193;
+		}
+		return (hash & 0x7fffffff) % numShards;
+	}
+
 	public boolean isIndexed() {
 		return isIndexed;
 	}
 
+	public int getIndexShards() {
+		if(indexShards == null || indexShards < 1)
+			return 1;
+		return indexShards;
+	}
+
+	public void setIndexShards(int indexShards) {
+		if(indexShards < 1)
+			throw new IllegalArgumentException("shards must be 1 or greater.  column="+columnName+" shards="+indexShards);
+		else if(indexShards == 1)
+			this.indexShards = null;
+		else
+			this.indexShards = indexShards;
+	}
+
+	public boolean isIndexSharded() {
+		return getIndexShards() > 1;
+	}
+
 	/**
 	 * This is the more detailed type for programs to know what types the values
 	 * fit into. This would be of type long.class, short.class, float, etc. etc.
@@ -312,7 +382,7 @@ public abstract class DboColumnMeta {
 		IndexData data = new IndexData();
 		data.setColumnFamilyName(storageType.getIndexTableName());
 		String rowKey = getIndexRowKey(part.getPartitionBy(),
-				part.getPartitionId());
+				part.getPartitionId(), pk);
 		data.setRowKey(rowKey);
 		data.getIndexColumn().setIndexedValue(byteVal);
 		data.getIndexColumn().setPrimaryKey(pk);
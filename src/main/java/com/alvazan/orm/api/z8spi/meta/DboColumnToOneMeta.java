@@ -88,7 +88,8 @@ public class DboColumnToOneMeta extends DboColumnMeta {
 		row.getColumns().add(col);
 
 		TypedColumn column = entity.getColumn(getColumnName());
-		if (column != null) {
+		//a row read back in has the column even when it points at nothing
+		if (column != null && column.getValue() != null) {
 			byte[] byteVal = convertToStorage2(column.getValue());
 			byte[] prefix = StandardConverters.convertToBytes(getColumnName());
 
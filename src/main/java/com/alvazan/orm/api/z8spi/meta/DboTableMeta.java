@@ -90,6 +90,13 @@ public class DboTableMeta {
 
 	private Boolean isTimeSeries;
 	private Long timeSeriesPartionSize;
+
+	/**
+	 * Whether rows go in the second level cache shared across entity managers and for how many
+	 * seconds(null for no ttl)
+	 */
+	private Boolean isCacheable;
+	private Integer cacheTtlSeconds;
 	
 	static final Pattern NAME_PATTERN;
 	
@@ -511,6 +518,35 @@ public class DboTableMeta {
 		this.timeSeriesPartionSize = timeSeriesPartionSize;
 	}
 	
+	public boolean isCacheable() {
+		if(isCacheable == null)
+			return false;
+		return isCacheable;
+	}
+
+	public void setCacheable(boolean isCacheable) {
+		if(!isCacheable)
+			this.isCacheable = null; //use null for false
+		else
+			this.isCacheable = true;
+	}
+
+	/**
+	 * @return seconds a row stays in the second level cache or 0 for no limit
+	 */
+	public int getCacheTtlSeconds() {
+		if(cacheTtlSeconds == null)
+			return 0;
+		return cacheTtlSeconds;
+	}
+
+	public void setCacheTtlSeconds(int cacheTtlSeconds) {
+		if(cacheTtlSeconds <= 0)
+			this.cacheTtlSeconds = null;
+		else
+			this.cacheTtlSeconds = cacheTtlSeconds;
+	}
+	
 	public Map<String, String> getExtensions() {
 		return extensions;
 	}
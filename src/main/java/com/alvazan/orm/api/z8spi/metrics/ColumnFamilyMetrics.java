@@ -0,0 +1,103 @@
+package com.alvazan.orm.api.z8spi.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings and counters of the calls to the database for one column family.  For index scans that is the
+ * column family of the entity being scanned for, not the index column family.
+ */
+public class ColumnFamilyMetrics implements ColumnFamilyMetricsMXBean {
+
+	private String columnFamily;
+	private Histogram[] latencies = new Histogram[Operation.values().length];
+	private Histogram rowsPerFetch = new Histogram();
+	private AtomicLong actionsSent = new AtomicLong();
+	private AtomicLong cacheHits = new AtomicLong();
+	private AtomicLong cacheMisses = new AtomicLong();
+
+	public ColumnFamilyMetrics(String columnFamily) {
+		this.columnFamily = columnFamily;
+		for(int i = 0; i < latencies.length; i++) {
+			latencies[i] = new Histogram();
+		}
+	}
+
+	public String getColumnFamily() {
+		return columnFamily;
+	}
+
+	public void recordLatency(Operation op, long nanos) {
+		latencies[op.ordinal()].record(nanos);
+	}
+
+	public void recordFetch(int numRows) {
+		rowsPerFetch.record(numRows);
+	}
+
+	public void recordActionSent() {
+		actionsSent.incrementAndGet();
+	}
+
+	public void recordCacheHit() {
+		cacheHits.incrementAndGet();
+	}
+
+	public void recordCacheMiss() {
+		cacheMisses.incrementAndGet();
+	}
+
+	public HistogramSnapshot getLatency(Operation op) {
+		return latencies[op.ordinal()].getSnapshot();
+	}
+
+	@Override
+	public HistogramSnapshot getFindLatency() {
+		return getLatency(Operation.FIND);
+	}
+
+	@Override
+	public HistogramSnapshot getScanIndexLatency() {
+		return getLatency(Operation.SCAN_INDEX);
+	}
+
+	@Override
+	public HistogramSnapshot getColumnSliceLatency() {
+		return getLatency(Operation.COLUMN_SLICE);
+	}
+
+	@Override
+	public HistogramSnapshot getAllRowsLatency() {
+		return getLatency(Operation.ALL_ROWS);
+	}
+
+	@Override
+	public HistogramSnapshot getRowsPerFetch() {
+		return rowsPerFetch.getSnapshot();
+	}
+
+	@Override
+	public long getActionsSent() {
+		return actionsSent.get();
+	}
+
+	@Override
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	@Override
+	public long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	@Override
+	public String toString() {
+		String msg = "CF="+columnFamily;
+		for(Operation op : Operation.values()) {
+			if(op != Operation.SEND_CHANGES)
+				msg += " "+op+"="+getLatency(op);
+		}
+		return msg+" rowsPerFetch="+getRowsPerFetch()+" actionsSent="+getActionsSent()
+				+" cacheHits="+getCacheHits()+" cacheMisses="+getCacheMisses();
+	}
+}
@@ -0,0 +1,24 @@
+package com.alvazan.orm.api.z8spi.metrics;
+
+/**
+ * Latencies are in nanoseconds
+ */
+public interface ColumnFamilyMetricsMXBean {
+
+	public HistogramSnapshot getFindLatency();
+
+	public HistogramSnapshot getScanIndexLatency();
+
+	public HistogramSnapshot getColumnSliceLatency();
+
+	public HistogramSnapshot getAllRowsLatency();
+
+	public HistogramSnapshot getRowsPerFetch();
+
+	public long getActionsSent();
+
+	public long getCacheHits();
+
+	public long getCacheMisses();
+
+}
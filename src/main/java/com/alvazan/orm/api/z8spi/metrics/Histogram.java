@@ -0,0 +1,91 @@
+package com.alvazan.orm.api.z8spi.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of values(nanos or sizes) in buckets that are exact below 16 and then 8 buckets per power of 2
+ * so a percentile read back is within 12.5% of the real value.  Recording is a few atomic adds with no
+ * lock and no garbage so it can sit on every call to the database.
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR = 16;
+	//exponents 4 to 62 each get SUB_BUCKETS buckets
+	private static final int NUM_BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+	private AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+	private AtomicLong count = new AtomicLong();
+	private AtomicLong sum = new AtomicLong();
+	private AtomicLong max = new AtomicLong();
+
+	public void record(long value) {
+		if(value < 0)
+			value = 0;
+		buckets.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		while(true) {
+			long currentMax = max.get();
+			if(value <= currentMax || max.compareAndSet(currentMax, value))
+				break;
+		}
+	}
+
+	static int bucketOf(long value) {
+		if(value < LINEAR)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return the largest value that lands in the bucket
+	 */
+	static long highestValueOf(int bucket) {
+		if(bucket < LINEAR)
+			return bucket;
+		int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+		int sub = (bucket - LINEAR) % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		long lowest = (SUB_BUCKETS + sub) * width;
+		return lowest + width - 1;
+	}
+
+	/**
+	 * The counters are read one at a time while others may be recording so the snapshot can be off by
+	 * the few values recorded while it was taken
+	 */
+	public HistogramSnapshot getSnapshot() {
+		long[] counts = new long[NUM_BUCKETS];
+		long total = 0;
+		for(int i = 0; i < NUM_BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		long maxVal = max.get();
+		return new HistogramSnapshot(total, sum.get(), maxVal,
+				percentile(counts, total, maxVal, 0.50), percentile(counts, total, maxVal, 0.90),
+				percentile(counts, total, maxVal, 0.99), percentile(counts, total, maxVal, 0.999));
+	}
+
+	private static long percentile(long[] counts, long total, long maxVal, double percentile) {
+		if(total == 0)
+			return 0;
+		long target = (long) Math.ceil(total * percentile);
+		long seen = 0;
+		for(int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if(seen >= target)
+				return Math.min(highestValueOf(i), maxVal);
+		}
+		return maxVal;
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+}
@@ -0,0 +1,65 @@
+package com.alvazan.orm.api.z8spi.metrics;
+
+/**
+ * What a Histogram held when it was read.  Percentiles are within 12.5% of the real value.
+ */
+public class HistogramSnapshot {
+
+	private long count;
+	private long sum;
+	private long max;
+	private long median;
+	private long percentile90;
+	private long percentile99;
+	private long percentile999;
+
+	public HistogramSnapshot(long count, long sum, long max, long median, long percentile90, long percentile99, long percentile999) {
+		this.count = count;
+		this.sum = sum;
+		this.max = max;
+		this.median = median;
+		this.percentile90 = percentile90;
+		this.percentile99 = percentile99;
+		this.percentile999 = percentile999;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	public double getMean() {
+		if(count == 0)
+			return 0;
+		return (double) sum / count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public long getMedian() {
+		return median;
+	}
+
+	public long getPercentile90() {
+		return percentile90;
+	}
+
+	public long getPercentile99() {
+		return percentile99;
+	}
+
+	public long getPercentile999() {
+		return percentile999;
+	}
+
+	@Override
+	public String toString() {
+		return "[count="+count+" mean="+(long) getMean()+" median="+median+" p90="+percentile90+" p99="+percentile99
+				+" p999="+percentile999+" max="+max+"]";
+	}
+}
@@ -0,0 +1,11 @@
+package com.alvazan.orm.api.z8spi.metrics;
+
+public interface MetricsReporter {
+
+	/**
+	 * Called every Bootstrap.METRICS_REPORT_INTERVAL_MILLIS on the metrics thread with the metrics
+	 * since the factory started(they are never reset so diff them with the last report for rates)
+	 */
+	public void report(NoSqlMetrics metrics);
+
+}
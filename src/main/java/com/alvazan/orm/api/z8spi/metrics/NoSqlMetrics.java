@@ -0,0 +1,179 @@
+package com.alvazan.orm.api.z8spi.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The metrics of one NoSqlEntityManagerFactory.  When disabled(the default) the layer that records them
+ * is not even in the chain of sessions so there is no cost.  When enabled every call to the database is
+ * timed in nanoseconds per column family and per Operation, and fetch sizes, actions per flush and hits
+ * and misses of the read cache are counted.
+ * 
+ * Read them with getColumnFamilyMetrics, over JMX(com.alvazan.orm:type=NoSqlMetrics) or with a
+ * MetricsReporter called every report interval.
+ */
+public class NoSqlMetrics implements NoSqlMetricsMXBean {
+
+	private static final Logger log = LoggerFactory.getLogger(NoSqlMetrics.class);
+	private static final AtomicInteger factoryCounter = new AtomicInteger();
+	public static final long DEFAULT_REPORT_INTERVAL_MILLIS = 60000;
+
+	private boolean enabled;
+	private boolean jmx;
+	private MetricsReporter reporter;
+	private long reportIntervalMillis;
+	private String name = "factory"+factoryCounter.incrementAndGet();
+
+	private ConcurrentMap<String, ColumnFamilyMetrics> cfToMetrics = new ConcurrentHashMap<String, ColumnFamilyMetrics>();
+	private Histogram sendChanges = new Histogram();
+	private Histogram actionsPerFlush = new Histogram();
+
+	private List<ObjectName> registered = new CopyOnWriteArrayList<ObjectName>();
+	private ScheduledExecutorService reportThread;
+
+	public NoSqlMetrics(boolean enabled, boolean jmx, MetricsReporter reporter, long reportIntervalMillis) {
+		this.enabled = enabled;
+		this.jmx = jmx;
+		this.reporter = reporter;
+		this.reportIntervalMillis = reportIntervalMillis;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void start() {
+		if(!enabled)
+			return;
+		if(jmx)
+			register(objectName(null), this);
+		if(reporter != null) {
+			reportThread = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "nosql-metrics-"+name);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			reportThread.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					report();
+				}
+			}, reportIntervalMillis, reportIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void report() {
+		try {
+			reporter.report(this);
+		} catch(Throwable e) {
+			//keep reporting next time
+			if(log.isWarnEnabled())
+				log.warn("MetricsReporter="+reporter+" failed", e);
+		}
+	}
+
+	public void close() {
+		if(reportThread != null) {
+			reportThread.shutdownNow();
+			//one last report so the tail end is not lost
+			report();
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for(ObjectName objName : registered) {
+			try {
+				server.unregisterMBean(objName);
+			} catch(Exception e) {
+				if(log.isDebugEnabled())
+					log.debug("could not unregister="+objName, e);
+			}
+		}
+		registered.clear();
+	}
+
+	public ColumnFamilyMetrics forColumnFamily(String columnFamily) {
+		ColumnFamilyMetrics metrics = cfToMetrics.get(columnFamily);
+		if(metrics != null)
+			return metrics;
+
+		ColumnFamilyMetrics newMetrics = new ColumnFamilyMetrics(columnFamily);
+		metrics = cfToMetrics.putIfAbsent(columnFamily, newMetrics);
+		if(metrics != null)
+			return metrics;
+		if(jmx)
+			register(objectName(columnFamily), newMetrics);
+		return newMetrics;
+	}
+
+	public void recordFlush(int numActions, long nanos) {
+		sendChanges.record(nanos);
+		actionsPerFlush.record(numActions);
+	}
+
+	public Map<String, ColumnFamilyMetrics> getColumnFamilyMetrics() {
+		return Collections.unmodifiableMap(cfToMetrics);
+	}
+
+	@Override
+	public HistogramSnapshot getSendChangesLatency() {
+		return sendChanges.getSnapshot();
+	}
+
+	@Override
+	public HistogramSnapshot getActionsPerFlush() {
+		return actionsPerFlush.getSnapshot();
+	}
+
+	@Override
+	public List<String> getColumnFamilies() {
+		List<String> names = new ArrayList<String>(cfToMetrics.keySet());
+		Collections.sort(names);
+		return names;
+	}
+
+	private ObjectName objectName(String columnFamily) {
+		String objName = "com.alvazan.orm:type=NoSqlMetrics,name="+name;
+		if(columnFamily != null)
+			objName += ",cf="+ObjectName.quote(columnFamily);
+		try {
+			return new ObjectName(objName);
+		} catch (Exception e) {
+			throw new RuntimeException("bug, bad object name="+objName, e);
+		}
+	}
+
+	private void register(ObjectName objName, Object mbean) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objName);
+			registered.add(objName);
+		} catch(Exception e) {
+			//metrics are not worth failing the writes over
+			if(log.isWarnEnabled())
+				log.warn("could not register metrics in jmx as="+objName, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "NoSqlMetrics["+name+" sendChanges="+getSendChangesLatency()+" actionsPerFlush="+getActionsPerFlush()+"]";
+	}
+}
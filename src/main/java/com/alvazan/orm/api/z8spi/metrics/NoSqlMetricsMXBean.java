@@ -0,0 +1,16 @@
+package com.alvazan.orm.api.z8spi.metrics;
+
+import java.util.List;
+
+/**
+ * Latencies are in nanoseconds
+ */
+public interface NoSqlMetricsMXBean {
+
+	public HistogramSnapshot getSendChangesLatency();
+
+	public HistogramSnapshot getActionsPerFlush();
+
+	public List<String> getColumnFamilies();
+
+}
@@ -0,0 +1,10 @@
+package com.alvazan.orm.api.z8spi.metrics;
+
+/**
+ * The calls to a NoSqlRawSession we time
+ */
+public enum Operation {
+
+	SEND_CHANGES, FIND, SCAN_INDEX, COLUMN_SLICE, ALL_ROWS;
+
+}
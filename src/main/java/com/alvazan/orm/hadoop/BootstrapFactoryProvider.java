@@ -0,0 +1,60 @@
+package com.alvazan.orm.hadoop;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.DbTypeEnum;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+
+/**
+ * Bootstraps from the playorm.property.* keys of the job(see PlayOrmConfig.setProperty) and keeps one
+ * factory per set of properties for the life of the task JVM so reused JVMs don't scan the entities again.
+ */
+public class BootstrapFactoryProvider implements FactoryProvider {
+
+	private static final Logger log = LoggerFactory.getLogger(BootstrapFactoryProvider.class);
+	private static final Map<Map<String, Object>, NoSqlEntityManagerFactory> factories = new HashMap<Map<String, Object>, NoSqlEntityManagerFactory>();
+
+	@Override
+	public NoSqlEntityManagerFactory getFactory(Configuration conf) {
+		Map<String, Object> props = new HashMap<String, Object>();
+		for(Entry<String, String> entry : conf) {
+			String key = entry.getKey();
+			if(key.startsWith(PlayOrmConfig.PROPERTY_PREFIX))
+				props.put(key.substring(PlayOrmConfig.PROPERTY_PREFIX.length()), entry.getValue());
+		}
+
+		String type = (String) props.get(Bootstrap.TYPE);
+		DbTypeEnum dbType = DbTypeEnum.lookup(type);
+		if(dbType == null)
+			throw new IllegalArgumentException("NoSql type="+type+" not supported.  Call PlayOrmConfig.setProperty(conf, Bootstrap.TYPE, ...) with one of the DbTypeEnum values");
+
+		synchronized(factories) {
+			NoSqlEntityManagerFactory factory = factories.get(props);
+			if(factory == null) {
+				if(log.isInfoEnabled())
+					log.info("bootstrapping playorm for this task jvm with properties="+props);
+				//the map is copied since Bootstrap adds the connection builders to it
+				Map<String, Object> copy = new HashMap<String, Object>(props);
+				addBestConfiguration(dbType, copy);
+				factory = Bootstrap.create(dbType, copy, null, conf.getClassLoader());
+				factories.put(props, factory);
+			}
+			return factory;
+		}
+	}
+
+	private void addBestConfiguration(DbTypeEnum dbType, Map<String, Object> props) {
+		//the other databases connect straight from the nosql.* properties
+		if(dbType == DbTypeEnum.CASSANDRA && props.get(Bootstrap.CASSANDRA_BUILDER) == null)
+			Bootstrap.createAndAddBestCassandraConfiguration(props, (String) props.get(Bootstrap.CASSANDRA_CLUSTERNAME),
+					(String) props.get(Bootstrap.CASSANDRA_KEYSPACE), (String) props.get(Bootstrap.CASSANDRA_SEEDS));
+	}
+
+}
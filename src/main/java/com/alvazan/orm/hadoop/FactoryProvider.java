@@ -0,0 +1,16 @@
+package com.alvazan.orm.hadoop;
+
+import org.apache.hadoop.conf.Configuration;
+
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+
+/**
+ * Hands the map/reduce tasks the factory to read and write with.  Each task JVM calls this once per
+ * split/task so implementations should hand back the same factory each time rather than bootstrapping
+ * again(scanning entities is not cheap).  The default is BootstrapFactoryProvider.
+ */
+public interface FactoryProvider {
+
+	public NoSqlEntityManagerFactory getFactory(Configuration conf);
+
+}
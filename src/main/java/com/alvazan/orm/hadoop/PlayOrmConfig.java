@@ -0,0 +1,148 @@
+package com.alvazan.orm.hadoop;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+
+/**
+ * All the job settings for PlayOrmInputFormat and PlayOrmOutputFormat.  The bare minimum is
+ *
+ *   PlayOrmConfig.setProperty(conf, Bootstrap.TYPE, "cassandra");  //plus the nosql.cassandra.* properties
+ *   PlayOrmConfig.setProperty(conf, Bootstrap.AUTO_CREATE_KEY, "create");
+ *   PlayOrmConfig.setInputColumnFamily(conf, "Activity");
+ *
+ * which hands the mapper a TypedRow per row of Activity.  Add setInputEntity(conf, Activity.class) to get
+ * the entities instead(the entity's package must be in the job jar so the task can scan it).
+ */
+public class PlayOrmConfig {
+
+	public static final String PROPERTY_PREFIX = "playorm.property.";
+	public static final String FACTORY_PROVIDER = "playorm.factory.provider";
+
+	public static final String INPUT_COLUMN_FAMILY = "playorm.input.columnFamily";
+	public static final String INPUT_ENTITY = "playorm.input.entity";
+	public static final String INPUT_INDEX_COLUMN = "playorm.input.index.column";
+	public static final String INPUT_PARTITION_BY = "playorm.input.index.partitionBy";
+	public static final String INPUT_PARTITION_ID = "playorm.input.index.partitionId";
+	public static final String INPUT_ROWS_PER_SPLIT = "playorm.input.rowsPerSplit";
+	public static final String INPUT_NUM_SPLITS = "playorm.input.numSplits";
+	public static final String INPUT_BATCH_SIZE = "playorm.input.batchSize";
+
+	public static final String OUTPUT_COLUMN_FAMILY = "playorm.output.columnFamily";
+	public static final String OUTPUT_BATCH_SIZE = "playorm.output.batchSize";
+
+	public static final int DEFAULT_ROWS_PER_SPLIT = 65536;
+	public static final int DEFAULT_NUM_SPLITS = 64;
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/**
+	 * A property handed to Bootstrap in the tasks like Bootstrap.TYPE or Bootstrap.CASSANDRA_SEEDS
+	 */
+	public static void setProperty(Configuration conf, String key, String value) {
+		conf.set(PROPERTY_PREFIX+key, value);
+	}
+
+	public static void setFactoryProvider(Configuration conf, Class<? extends FactoryProvider> provider) {
+		conf.setClass(FACTORY_PROVIDER, provider, FactoryProvider.class);
+	}
+
+	public static NoSqlEntityManagerFactory getFactory(Configuration conf) {
+		Class<? extends FactoryProvider> clazz = conf.getClass(FACTORY_PROVIDER, BootstrapFactoryProvider.class, FactoryProvider.class);
+		FactoryProvider provider = ReflectionUtils.newInstance(clazz, conf);
+		return provider.getFactory(conf);
+	}
+
+	public static void setInputColumnFamily(Configuration conf, String columnFamily) {
+		conf.set(INPUT_COLUMN_FAMILY, columnFamily);
+	}
+
+	public static String getInputColumnFamily(Configuration conf) {
+		String cf = conf.get(INPUT_COLUMN_FAMILY);
+		if(cf == null)
+			throw new IllegalArgumentException("Call PlayOrmConfig.setInputColumnFamily so we know which table to read");
+		return cf;
+	}
+
+	/**
+	 * Read the rows as this entity instead of as TypedRows
+	 */
+	public static void setInputEntity(Configuration conf, Class<?> entity) {
+		conf.set(INPUT_ENTITY, entity.getName());
+	}
+
+	public static Class<?> getInputEntity(Configuration conf) {
+		String name = conf.get(INPUT_ENTITY);
+		if(name == null)
+			return null;
+		try {
+			return conf.getClassByName(name);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("entity="+name+" is not in the job jar", e);
+		}
+	}
+
+	/**
+	 * Split the table on ranges of this index instead of any index of the table so each mapper gets the rows
+	 * of one range of the indexed column(and only the rows of that partition)
+	 */
+	public static void setInputIndex(Configuration conf, String column, String partitionBy, String partitionId) {
+		conf.set(INPUT_INDEX_COLUMN, column);
+		if(partitionBy != null)
+			conf.set(INPUT_PARTITION_BY, partitionBy);
+		if(partitionId != null)
+			conf.set(INPUT_PARTITION_ID, partitionId);
+	}
+
+	/**
+	 * How many index entries go in one split of an index that is not an integer
+	 */
+	public static void setRowsPerSplit(Configuration conf, int rowsPerSplit) {
+		conf.setInt(INPUT_ROWS_PER_SPLIT, rowsPerSplit);
+	}
+
+	public static int getRowsPerSplit(Configuration conf) {
+		return conf.getInt(INPUT_ROWS_PER_SPLIT, DEFAULT_ROWS_PER_SPLIT);
+	}
+
+	/**
+	 * How many equal ranges an integer index is split into
+	 */
+	public static void setNumSplits(Configuration conf, int numSplits) {
+		conf.setInt(INPUT_NUM_SPLITS, numSplits);
+	}
+
+	public static int getNumSplits(Configuration conf) {
+		return conf.getInt(INPUT_NUM_SPLITS, DEFAULT_NUM_SPLITS);
+	}
+
+	public static void setInputBatchSize(Configuration conf, int batchSize) {
+		conf.setInt(INPUT_BATCH_SIZE, batchSize);
+	}
+
+	public static int getInputBatchSize(Configuration conf) {
+		return conf.getInt(INPUT_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Only needed when the reducer writes TypedRows, entities know their own column family
+	 */
+	public static void setOutputColumnFamily(Configuration conf, String columnFamily) {
+		conf.set(OUTPUT_COLUMN_FAMILY, columnFamily);
+	}
+
+	public static String getOutputColumnFamily(Configuration conf) {
+		return conf.get(OUTPUT_COLUMN_FAMILY);
+	}
+
+	/**
+	 * How many puts are sent to the database in one flush
+	 */
+	public static void setOutputBatchSize(Configuration conf, int batchSize) {
+		conf.setInt(OUTPUT_BATCH_SIZE, batchSize);
+	}
+
+	public static int getOutputBatchSize(Configuration conf) {
+		return conf.getInt(OUTPUT_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+	}
+}
@@ -0,0 +1,149 @@
+package com.alvazan.orm.hadoop;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.z8spi.ScanInfo;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.conv.StorageTypeEnum;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+
+/**
+ * Splits one column family into ranges of an index, the one from PlayOrmConfig.setInputIndex or else any index
+ * of the table(like select * from TABLE does).  An integer index is cut into PlayOrmConfig.getNumSplits equal
+ * ranges between its smallest and largest value so only those two entries are read here.  Any other index is
+ * walked(the index entries, not the rows) and cut every PlayOrmConfig.getRowsPerSplit entries, never between
+ * two equal values.  A partitioned table with no input index or a table with no index at all is one split of
+ * every row.  The mapper's key is the row key and the value is the TypedRow or, with
+ * PlayOrmConfig.setInputEntity, the entity.
+ */
+public class PlayOrmInputFormat extends InputFormat<Object, Object> {
+
+	private static final Logger log = LoggerFactory.getLogger(PlayOrmInputFormat.class);
+
+	@Override
+	public List<InputSplit> getSplits(JobContext context) throws IOException {
+		Configuration conf = context.getConfiguration();
+		String cf = PlayOrmConfig.getInputColumnFamily(conf);
+
+		NoSqlEntityManager mgr = PlayOrmConfig.getFactory(conf).createEntityManager();
+		DboTableMeta meta = mgr.find(DboTableMeta.class, cf);
+		if(meta == null)
+			throw new IllegalArgumentException("columnFamily="+cf+" was not found");
+
+		String column = conf.get(PlayOrmConfig.INPUT_INDEX_COLUMN);
+		String partitionBy = conf.get(PlayOrmConfig.INPUT_PARTITION_BY);
+		String partitionId = conf.get(PlayOrmConfig.INPUT_PARTITION_ID);
+		if(column == null) {
+			if(meta.getIndexedColumns().size() == 0 || meta.getPartitionedColumns().size() > 0) {
+				if (log.isInfoEnabled())
+					log.info("columnFamily="+cf+" has no index that holds every row so it is one split, call PlayOrmConfig.setInputIndex to split it");
+				List<InputSplit> splits = new ArrayList<InputSplit>();
+				splits.add(new PlayOrmInputSplit(null, null, null, null, null, false, 0));
+				return splits;
+			}
+			column = meta.getAnyIndex(null, null).getColumnName();
+		}
+
+		DboColumnMeta colMeta = findIndexedColumn(meta, column);
+		ScanInfo info = ScanInfo.createScanInfo(colMeta, partitionBy, partitionId);
+		int batchSize = PlayOrmConfig.getInputBatchSize(conf);
+		AbstractCursor<IndexColumn> cursor = mgr.getSession().scanIndex(info, null, null, batchSize);
+		List<InputSplit> splits;
+		if(!cursor.next())
+			splits = new ArrayList<InputSplit>();
+		else if(colMeta.getStorageType() == StorageTypeEnum.INTEGER && !isNull(cursor.getCurrent().getIndexedValue()))
+			splits = splitByValue(conf, column, partitionBy, partitionId, cursor.getCurrent().getIndexedValue(),
+					mgr.getSession().scanIndex(info, null, null, batchSize));
+		else
+			splits = splitByCount(conf, column, partitionBy, partitionId, cursor);
+
+		if(log.isInfoEnabled())
+			log.info("columnFamily="+cf+" split into "+splits.size()+" ranges of index="+column);
+		return splits;
+	}
+
+	private List<InputSplit> splitByValue(Configuration conf, String column, String partitionBy, String partitionId,
+			byte[] minValue, AbstractCursor<IndexColumn> cursor) {
+		cursor.afterLast();
+		cursor.previous();
+		byte[] maxValue = cursor.getCurrent().getIndexedValue();
+		BigInteger min = new BigInteger(minValue);
+		BigInteger range = new BigInteger(maxValue).subtract(min);
+		BigInteger numSplits = BigInteger.valueOf(PlayOrmConfig.getNumSplits(conf));
+
+		List<InputSplit> splits = new ArrayList<InputSplit>();
+		byte[] from = null;
+		BigInteger last = min;
+		for(int i = 1; i < numSplits.intValue(); i++) {
+			BigInteger point = min.add(range.multiply(BigInteger.valueOf(i)).divide(numSplits));
+			if(point.compareTo(last) <= 0)
+				continue;
+			byte[] to = point.toByteArray();
+			splits.add(new PlayOrmInputSplit(column, partitionBy, partitionId, from, to, false, 0));
+			from = to;
+			last = point;
+		}
+		splits.add(new PlayOrmInputSplit(column, partitionBy, partitionId, from, maxValue, true, 0));
+		return splits;
+	}
+
+	private List<InputSplit> splitByCount(Configuration conf, String column, String partitionBy, String partitionId,
+			AbstractCursor<IndexColumn> cursor) {
+		int rowsPerSplit = PlayOrmConfig.getRowsPerSplit(conf);
+		List<InputSplit> splits = new ArrayList<InputSplit>();
+		byte[] from = null;
+		byte[] last = null;
+		int count = 0;
+		do {
+			byte[] value = cursor.getCurrent().getIndexedValue();
+			if(count >= rowsPerSplit && !Arrays.equals(value, last)) {
+				splits.add(new PlayOrmInputSplit(column, partitionBy, partitionId, from, value, false, count));
+				from = value;
+				count = 0;
+			}
+			last = value;
+			count++;
+		} while(cursor.next());
+
+		//rows with no value for the column are first in the index, if that is all there is leave it open ended
+		byte[] to = isNull(last) ? null : last;
+		splits.add(new PlayOrmInputSplit(column, partitionBy, partitionId, from, to, true, count));
+		return splits;
+	}
+
+	private static boolean isNull(byte[] value) {
+		return value == null || value.length == 0;
+	}
+
+	static DboColumnMeta findIndexedColumn(DboTableMeta meta, String column) {
+		DboColumnMeta colMeta = meta.getColumnMeta(column);
+		if(colMeta == null && meta.getIdColumnMeta().getColumnName().equals(column))
+			colMeta = meta.getIdColumnMeta();
+		if(colMeta == null)
+			throw new IllegalArgumentException("column="+column+" not found on columnFamily="+meta.getColumnFamily());
+		else if(!colMeta.isIndexed())
+			throw new IllegalArgumentException("column="+column+" is not an indexed column");
+		return colMeta;
+	}
+
+	@Override
+	public RecordReader<Object, Object> createRecordReader(InputSplit split, TaskAttemptContext context) {
+		return new PlayOrmRecordReader();
+	}
+}
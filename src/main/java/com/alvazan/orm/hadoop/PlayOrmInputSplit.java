@@ -0,0 +1,136 @@
+package com.alvazan.orm.hadoop;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+/**
+ * One range of an index(from inclusive to exclusive, or inclusive for the last split) in storage form plus the
+ * partition of that index.  A null from or to is open ended.  A split with no column is every row of the table
+ * which is what we hand out when the table has no index we can split on.  The PlayOrmRecordReader reads the
+ * keys in its range when it starts so it only gets the rows that were in that range at that point.
+ */
+public class PlayOrmInputSplit extends InputSplit implements Writable {
+
+	private String column;
+	private String partitionBy;
+	private String partitionId;
+	private byte[] from;
+	private byte[] to;
+	private boolean toInclusive;
+	private long length;
+
+	public PlayOrmInputSplit() {
+		//for hadoop
+	}
+
+	public PlayOrmInputSplit(String column, String partitionBy, String partitionId, byte[] from, byte[] to, boolean toInclusive, long length) {
+		this.column = column;
+		this.partitionBy = partitionBy;
+		this.partitionId = partitionId;
+		this.from = from;
+		this.to = to;
+		this.toInclusive = toInclusive;
+		this.length = length;
+	}
+
+	public String getColumn() {
+		return column;
+	}
+
+	public String getPartitionBy() {
+		return partitionBy;
+	}
+
+	public String getPartitionId() {
+		return partitionId;
+	}
+
+	public byte[] getFrom() {
+		return from;
+	}
+
+	public byte[] getTo() {
+		return to;
+	}
+
+	public boolean isToInclusive() {
+		return toInclusive;
+	}
+
+	/**
+	 * The number of index entries in the range when we counted them, 0 if we didn't
+	 */
+	@Override
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public String[] getLocations() {
+		//we don't know which node has which key through the spi so let hadoop schedule anywhere
+		return new String[0];
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		writeString(out, column);
+		writeString(out, partitionBy);
+		writeString(out, partitionId);
+		writeBytes(out, from);
+		writeBytes(out, to);
+		out.writeBoolean(toInclusive);
+		out.writeLong(length);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		column = readString(in);
+		partitionBy = readString(in);
+		partitionId = readString(in);
+		from = readBytes(in);
+		to = readBytes(in);
+		toInclusive = in.readBoolean();
+		length = in.readLong();
+	}
+
+	private static void writeString(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if(value != null)
+			out.writeUTF(value);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		if(!in.readBoolean())
+			return null;
+		return in.readUTF();
+	}
+
+	private static void writeBytes(DataOutput out, byte[] value) throws IOException {
+		if(value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(value.length);
+		out.write(value);
+	}
+
+	private static byte[] readBytes(DataInput in) throws IOException {
+		int len = in.readInt();
+		if(len < 0)
+			return null;
+		byte[] value = new byte[len];
+		in.readFully(value);
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		if(column == null)
+			return "PlayOrmInputSplit[all rows]";
+		return "PlayOrmInputSplit[column="+column+" partitionBy="+partitionBy+" partitionId="+partitionId+" entries="+length+"]";
+	}
+}
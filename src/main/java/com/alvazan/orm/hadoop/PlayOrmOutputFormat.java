@@ -0,0 +1,95 @@
+package com.alvazan.orm.hadoop;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.z8spi.meta.TypedRow;
+
+/**
+ * Writes the values handed to context.write(the key is ignored) through NoSqlEntityManager.put for
+ * entities and NoSqlTypedSession.put for TypedRows so the indexes are kept up to date just like any other
+ * put.  The puts are flushed every PlayOrmConfig.getOutputBatchSize values and when the task ends.
+ */
+public class PlayOrmOutputFormat extends OutputFormat<Object, Object> {
+
+	@Override
+	public RecordWriter<Object, Object> getRecordWriter(TaskAttemptContext context) {
+		Configuration conf = context.getConfiguration();
+		NoSqlEntityManager mgr = PlayOrmConfig.getFactory(conf).createEntityManager();
+		return new PlayOrmRecordWriter(mgr, PlayOrmConfig.getOutputColumnFamily(conf), PlayOrmConfig.getOutputBatchSize(conf));
+	}
+
+	@Override
+	public void checkOutputSpecs(JobContext context) {
+		//every task connects on its own so nothing to check up front
+	}
+
+	@Override
+	public OutputCommitter getOutputCommitter(TaskAttemptContext context) {
+		//the puts are in the database once flushed so there is nothing to commit or clean up
+		return new NoOpCommitter();
+	}
+
+	private static class PlayOrmRecordWriter extends RecordWriter<Object, Object> {
+		private NoSqlEntityManager mgr;
+		private String cf;
+		private int batchSize;
+		private int pending;
+
+		public PlayOrmRecordWriter(NoSqlEntityManager mgr, String cf, int batchSize) {
+			this.mgr = mgr;
+			this.cf = cf;
+			this.batchSize = batchSize;
+		}
+
+		@Override
+		public void write(Object key, Object value) {
+			if(value instanceof TypedRow) {
+				if(cf == null)
+					throw new IllegalArgumentException("Call PlayOrmConfig.setOutputColumnFamily so we know where to write the TypedRows");
+				mgr.getTypedSession().put(cf, (TypedRow) value);
+			} else
+				mgr.put(value);
+
+			pending++;
+			if(pending >= batchSize)
+				flush();
+		}
+
+		private void flush() {
+			mgr.flush();
+			mgr.clear();
+			pending = 0;
+		}
+
+		@Override
+		public void close(TaskAttemptContext context) {
+			if(pending > 0)
+				flush();
+		}
+	}
+
+	private static class NoOpCommitter extends OutputCommitter {
+		@Override
+		public void setupJob(JobContext jobContext) {
+		}
+		@Override
+		public void setupTask(TaskAttemptContext taskContext) {
+		}
+		@Override
+		public boolean needsTaskCommit(TaskAttemptContext taskContext) {
+			return false;
+		}
+		@Override
+		public void commitTask(TaskAttemptContext taskContext) {
+		}
+		@Override
+		public void abortTask(TaskAttemptContext taskContext) {
+		}
+	}
+}
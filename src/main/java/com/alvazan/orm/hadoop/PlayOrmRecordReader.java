@@ -0,0 +1,154 @@
+package com.alvazan.orm.hadoop;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.z8spi.Key;
+import com.alvazan.orm.api.z8spi.KeyValue;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.ScanInfo;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder;
+import com.alvazan.orm.api.z8spi.iter.Cursor;
+import com.alvazan.orm.api.z8spi.meta.DboColumnIdMeta;
+import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+
+/**
+ * Reads the keys in the index range of one PlayOrmInputSplit(or every row key when the split has no column)
+ * when it starts and then the rows getInputBatchSize keys at a time.  Reading the keys first means rows the
+ * job writes into the range being read are not handed to the mapper.  Entities are read with
+ * NoSqlEntityManager.findAll so they come back exactly as they do outside of hadoop(translateFromRow,
+ * proxies and all), TypedRows with NoSqlTypedSession.createFindCursor.  Rows removed since the keys
+ * were read are skipped.
+ */
+public class PlayOrmRecordReader extends RecordReader<Object, Object> {
+
+	private NoSqlEntityManager mgr;
+	private String cf;
+	private Class<?> entityType;
+	private DboColumnIdMeta idMeta;
+	private List<byte[]> keys;
+	private int batchSize;
+
+	private int position;
+	private Cursor<? extends KeyValue<?>> batch;
+	private Object currentKey;
+	private Object currentValue;
+
+	@Override
+	public void initialize(InputSplit split, TaskAttemptContext context) {
+		Configuration conf = context.getConfiguration();
+		cf = PlayOrmConfig.getInputColumnFamily(conf);
+		entityType = PlayOrmConfig.getInputEntity(conf);
+		batchSize = PlayOrmConfig.getInputBatchSize(conf);
+
+		mgr = PlayOrmConfig.getFactory(conf).createEntityManager();
+		DboTableMeta meta = mgr.find(DboTableMeta.class, cf);
+		if(meta == null)
+			throw new IllegalArgumentException("columnFamily="+cf+" was not found");
+		idMeta = meta.getIdColumnMeta();
+
+		PlayOrmInputSplit range = (PlayOrmInputSplit) split;
+		if(range.getColumn() == null)
+			keys = readAllKeys(meta);
+		else
+			keys = readKeysInRange(meta, range);
+	}
+
+	private List<byte[]> readKeysInRange(DboTableMeta meta, PlayOrmInputSplit range) {
+		DboColumnMeta colMeta = PlayOrmInputFormat.findIndexedColumn(meta, range.getColumn());
+		ScanInfo info = ScanInfo.createScanInfo(colMeta, range.getPartitionBy(), range.getPartitionId());
+		Key from = range.getFrom() == null ? null : new Key(range.getFrom(), true);
+		Key to = range.getTo() == null ? null : new Key(range.getTo(), range.isToInclusive());
+
+		List<byte[]> result = new ArrayList<byte[]>();
+		AbstractCursor<IndexColumn> cursor = mgr.getSession().scanIndex(info, from, to, batchSize);
+		while(cursor.next()) {
+			//index columns hold the key as it is before it is made virtual
+			result.add(cursor.getCurrent().getPrimaryKey());
+		}
+		return result;
+	}
+
+	private List<byte[]> readAllKeys(DboTableMeta meta) {
+		List<byte[]> result = new ArrayList<byte[]>();
+		AbstractCursor<Row> rows = mgr.getTypedSession().getRawSession().allRows(meta, batchSize);
+		for(Holder<Row> holder = rows.nextImpl(); holder != null; holder = rows.nextImpl()) {
+			Row row = holder.getValue();
+			if(row == null)
+				continue;
+			byte[] key = row.getKey();
+			if(!meta.isVirtualCf())
+				result.add(key);
+			//the real column family holds the rows of every virtual table in it
+			else if(meta.getColumnFamily().equals(DboColumnIdMeta.fetchTableNameIfVirtual(key)))
+				result.add(idMeta.unformVirtRowKey(key));
+		}
+		return result;
+	}
+
+	@Override
+	public boolean nextKeyValue() {
+		while(true) {
+			if(batch == null || !batch.next()) {
+				if(position >= keys.size())
+					return false;
+				batch = readBatch();
+				continue;
+			}
+
+			KeyValue<?> kv = batch.getCurrent();
+			if(kv.getValue() == null)
+				continue;
+			currentKey = kv.getKey();
+			currentValue = kv.getValue();
+			return true;
+		}
+	}
+
+	private Cursor<? extends KeyValue<?>> readBatch() {
+		//the entities read so far are of no use to the mapper anymore
+		mgr.clear();
+
+		int end = Math.min(position+batchSize, keys.size());
+		List<Object> ids = new ArrayList<Object>(end-position);
+		for(; position < end; position++) {
+			ids.add(idMeta.convertFromStorage2(keys.get(position)));
+		}
+
+		if(entityType != null)
+			return mgr.findAll(entityType, ids);
+		return mgr.getTypedSession().createFindCursor(cf, ids, batchSize);
+	}
+
+	@Override
+	public Object getCurrentKey() {
+		return currentKey;
+	}
+
+	@Override
+	public Object getCurrentValue() {
+		return currentValue;
+	}
+
+	@Override
+	public float getProgress() {
+		if(keys.size() == 0)
+			return 1.0f;
+		return position / (float) keys.size();
+	}
+
+	@Override
+	public void close() {
+		//the factory belongs to the FactoryProvider which keeps it for the next task in this jvm
+		mgr = null;
+	}
+}
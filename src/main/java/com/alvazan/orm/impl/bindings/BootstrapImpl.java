@@ -6,8 +6,15 @@ import com.alvazan.orm.api.base.Bootstrap;
 import com.alvazan.orm.api.base.DbTypeEnum;
 import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
 import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.SecondLevelCache;
 import com.alvazan.orm.api.z8spi.conv.Converter;
+import com.alvazan.orm.api.z8spi.metrics.MetricsReporter;
+import com.alvazan.orm.api.z8spi.metrics.NoSqlMetrics;
 import com.alvazan.orm.layer0.base.BaseEntityManagerFactoryImpl;
+import com.alvazan.orm.layer5.nosql.cache.BoundedRowCache;
+import com.alvazan.orm.layer5.nosql.cache.BoundedRowCache.Policy;
+import com.alvazan.orm.layer5.nosql.cache.WriteBehindPipeline;
+import com.alvazan.orm.layer5.query.QueryPlanCache;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Key;
@@ -49,7 +56,15 @@ public class BootstrapImpl extends Bootstrap {
 			temp = (NoSqlRawSession) spiImpl;
 		}
 		
-		Injector injector = Guice.createInjector(new ProductionBindings(type, temp));
+		SecondLevelCache secondLevel = createSecondLevelCache(properties);
+		long sessionMaxRows = toLong(properties, Bootstrap.CACHE_SESSION_MAX_ROWS, 0);
+		long planCacheSize = toLong(properties, Bootstrap.QUERY_PLAN_CACHE_SIZE, QueryPlanCache.DEFAULT_MAX_PLANS);
+		WriteBehindPipeline writeBehind = createWriteBehind(properties);
+		long flushChunkSize = toLong(properties, Bootstrap.FLUSH_CHUNK_SIZE, 0);
+		boolean deferPutReads = toBoolean(properties, Bootstrap.DEFER_PUT_READS);
+		NoSqlMetrics metrics = createMetrics(properties);
+		
+		Injector injector = Guice.createInjector(new ProductionBindings(type, temp, secondLevel, (int) sessionMaxRows, (int) planCacheSize, writeBehind, (int) flushChunkSize, deferPutReads, metrics));
 		NoSqlEntityManagerFactory factory = injector.getInstance(NoSqlEntityManagerFactory.class);
 
 		Named named = Names.named("logger");
@@ -60,6 +75,8 @@ public class BootstrapImpl extends Bootstrap {
 		//why not just add setInjector() and setup() in NoSqlEntityManagerFactory
 		BaseEntityManagerFactoryImpl impl = (BaseEntityManagerFactoryImpl)factory;
 		impl.setInjector(injector);
+		//the writer thread reads meta data through its own entity manager
+		writeBehind.setFactory(factory);
 		
 		ClassLoader cl = cl2;
 		if(cl == null)
@@ -70,6 +87,65 @@ public class BootstrapImpl extends Bootstrap {
 		return impl;
 	}
 	
+	private SecondLevelCache createSecondLevelCache(Map<String, Object> properties) {
+		Object cache = properties.get(Bootstrap.SECOND_LEVEL_CACHE);
+		if(cache != null) {
+			if(!(cache instanceof SecondLevelCache))
+				throw new IllegalArgumentException(Bootstrap.SECOND_LEVEL_CACHE+" key in map has a value of type="+cache.getClass()+" but that must be a SecondLevelCache");
+			return (SecondLevelCache) cache;
+		}
+		
+		long maxRows = toLong(properties, Bootstrap.CACHE_MAX_ROWS, BoundedRowCache.DEFAULT_MAX_ROWS);
+		long maxBytes = toLong(properties, Bootstrap.CACHE_MAX_BYTES, BoundedRowCache.DEFAULT_MAX_BYTES);
+		String eviction = (String) properties.get(Bootstrap.CACHE_EVICTION);
+		Policy policy = Policy.LRU;
+		if(eviction != null) {
+			policy = Policy.translate(eviction);
+			if(policy == null)
+				throw new IllegalArgumentException("Property Bootstrap.CACHE_EVICTION can only have values lru or lfu");
+		}
+		return new BoundedRowCache((int) maxRows, maxBytes, policy);
+	}
+
+	private NoSqlMetrics createMetrics(Map<String, Object> properties) {
+		Object reporter = properties.get(Bootstrap.METRICS_REPORTER);
+		if(reporter != null && !(reporter instanceof MetricsReporter))
+			throw new IllegalArgumentException(Bootstrap.METRICS_REPORTER+" key in map has a value of type="+reporter.getClass()+" but that must be a MetricsReporter");
+		boolean jmx = toBoolean(properties, Bootstrap.METRICS_JMX);
+		boolean enabled = toBoolean(properties, Bootstrap.METRICS_ENABLED) || jmx || reporter != null;
+		long interval = toLong(properties, Bootstrap.METRICS_REPORT_INTERVAL_MILLIS, NoSqlMetrics.DEFAULT_REPORT_INTERVAL_MILLIS);
+		return new NoSqlMetrics(enabled, jmx, (MetricsReporter) reporter, interval);
+	}
+
+	private WriteBehindPipeline createWriteBehind(Map<String, Object> properties) {
+		long batchSize = toLong(properties, Bootstrap.WRITE_BEHIND_BATCH_SIZE, WriteBehindPipeline.DEFAULT_BATCH_SIZE);
+		long maxDelay = toLong(properties, Bootstrap.WRITE_BEHIND_MAX_DELAY_MILLIS, WriteBehindPipeline.DEFAULT_MAX_DELAY_MILLIS);
+		long queueSize = toLong(properties, Bootstrap.WRITE_BEHIND_QUEUE_SIZE, WriteBehindPipeline.DEFAULT_QUEUE_SIZE);
+		return new WriteBehindPipeline((int) batchSize, maxDelay, (int) queueSize);
+	}
+
+	private boolean toBoolean(Map<String, Object> properties, String key) {
+		Object val = properties.get(key);
+		if(val == null)
+			return false;
+		else if(val instanceof Boolean)
+			return (Boolean) val;
+		else if(val instanceof String)
+			return Boolean.valueOf((String) val);
+		throw new RuntimeException(key+" key in map has a value of type="+val.getClass()+" but that must be a String or Boolean");
+	}
+
+	private long toLong(Map<String, Object> properties, String key, long defaultVal) {
+		Object val = properties.get(key);
+		if(val == null)
+			return defaultVal;
+		else if(val instanceof Number)
+			return ((Number) val).longValue();
+		else if(val instanceof String)
+			return Long.valueOf((String) val);
+		throw new RuntimeException(key+" key in map has a value of type="+val.getClass()+" but that must be a String or Number");
+	}
+	
 	@Override
 	protected void createBestCassandraConfig(Map<String, Object> properties,
 			String clusterName, String keyspace2, String seeds2) {
@@ -4,10 +4,16 @@ import com.alvazan.orm.api.base.DbTypeEnum;
 import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
 import com.alvazan.orm.api.z5api.NoSqlSession;
 import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.SecondLevelCache;
 import com.alvazan.orm.api.z8spi.meta.DboDatabaseMeta;
+import com.alvazan.orm.api.z8spi.metrics.NoSqlMetrics;
 import com.alvazan.orm.layer0.base.BaseEntityManagerFactoryImpl;
+import com.alvazan.orm.layer5.nosql.cache.BoundedRowCache;
+import com.alvazan.orm.layer5.nosql.cache.BoundedRowCache.Policy;
 import com.alvazan.orm.layer5.nosql.cache.NoSqlReadCacheImpl;
 import com.alvazan.orm.layer5.nosql.cache.NoSqlWriteCacheImpl;
+import com.alvazan.orm.layer5.nosql.cache.WriteBehindPipeline;
+import com.alvazan.orm.layer5.query.QueryPlanCache;
 import com.alvazan.orm.layer9z.spi.db.cassandra.CassandraSession;
 import com.alvazan.orm.layer9z.spi.db.cassandracql3.CqlSession;
 import com.alvazan.orm.layer9z.spi.db.hbase.HbaseSession;
@@ -15,7 +21,9 @@ import com.alvazan.orm.layer9z.spi.db.inmemory.InMemorySession;
 import com.alvazan.orm.layer9z.spi.db.mongodb.MongoDbSession;
 import com.alvazan.orm.logging.NoSqlDevLogger;
 import com.alvazan.orm.logging.NoSqlRawLogger;
+import com.alvazan.orm.logging.NoSqlRawMetrics;
 import com.google.inject.Binder;
+import com.google.inject.Key;
 import com.google.inject.Module;
 import com.google.inject.name.Names;
 
@@ -23,10 +31,29 @@ public class ProductionBindings implements Module {
 
 	private DbTypeEnum type;
 	private NoSqlRawSession rawSession;
+	private SecondLevelCache secondLevelCache;
+	private int sessionMaxRows;
+	private int queryPlanCacheSize;
+	private WriteBehindPipeline writeBehind;
+	private int flushChunkSize;
+	private boolean deferPutReads;
+	private NoSqlMetrics metrics;
 
 	public ProductionBindings(DbTypeEnum type, NoSqlRawSession temp) {
+		this(type, temp, new BoundedRowCache(BoundedRowCache.DEFAULT_MAX_ROWS, BoundedRowCache.DEFAULT_MAX_BYTES, Policy.LRU), 0, QueryPlanCache.DEFAULT_MAX_PLANS,
+				new WriteBehindPipeline(WriteBehindPipeline.DEFAULT_BATCH_SIZE, WriteBehindPipeline.DEFAULT_MAX_DELAY_MILLIS, WriteBehindPipeline.DEFAULT_QUEUE_SIZE), 0, false, new NoSqlMetrics(false, false, null, 0));
+	}
+
+	public ProductionBindings(DbTypeEnum type, NoSqlRawSession temp, SecondLevelCache secondLevelCache, int sessionMaxRows, int queryPlanCacheSize, WriteBehindPipeline writeBehind, int flushChunkSize, boolean deferPutReads, NoSqlMetrics metrics) {
 		this.type = type;
 		this.rawSession = temp;
+		this.secondLevelCache = secondLevelCache;
+		this.sessionMaxRows = sessionMaxRows;
+		this.queryPlanCacheSize = queryPlanCacheSize;
+		this.writeBehind = writeBehind;
+		this.flushChunkSize = flushChunkSize;
+		this.deferPutReads = deferPutReads;
+		this.metrics = metrics;
 	}
 
 	/**
@@ -45,10 +72,23 @@ public class ProductionBindings implements Module {
 		binder.bind(NoSqlEntityManagerFactory.class).to(BaseEntityManagerFactoryImpl.class);
 		binder.bind(DboDatabaseMeta.class).asEagerSingleton();
 		
+		//metrics sits between the logger and the provider, when off the logger talks straight to the provider
+		if(metrics.isEnabled())
+			binder.bind(NoSqlRawSession.class).annotatedWith(Names.named("metrics")).to(NoSqlRawMetrics.class).asEagerSingleton();
+		else
+			binder.bind(NoSqlRawSession.class).annotatedWith(Names.named("metrics")).to(Key.get(NoSqlRawSession.class, Names.named("main")));
 		binder.bind(NoSqlRawSession.class).annotatedWith(Names.named("logger")).to(NoSqlRawLogger.class).asEagerSingleton();
 		binder.bind(NoSqlSession.class).annotatedWith(Names.named("writecachelayer")).to(NoSqlWriteCacheImpl.class);
 		binder.bind(NoSqlSession.class).annotatedWith(Names.named("readcachelayer")).to(NoSqlReadCacheImpl.class);
 		binder.bind(NoSqlSession.class).annotatedWith(Names.named("logger")).to(NoSqlDevLogger.class);
+		
+		binder.bind(SecondLevelCache.class).toInstance(secondLevelCache);
+		binder.bind(WriteBehindPipeline.class).toInstance(writeBehind);
+		binder.bind(NoSqlMetrics.class).toInstance(metrics);
+		binder.bindConstant().annotatedWith(Names.named("sessionMaxRows")).to(sessionMaxRows);
+		binder.bindConstant().annotatedWith(Names.named("queryPlanCacheSize")).to(queryPlanCacheSize);
+		binder.bindConstant().annotatedWith(Names.named("flushChunkSize")).to(flushChunkSize);
+		binder.bindConstant().annotatedWith(Names.named("deferPutReads")).to(deferPutReads);
 	}
 
 	private void bindRawSession(String name, Binder binder) {
@@ -0,0 +1,37 @@
+package com.alvazan.orm.impl.meta.data;
+
+import java.lang.reflect.Field;
+
+import com.alvazan.orm.api.z8spi.meta.ReflectionUtil;
+
+/**
+ * Reads and writes the persisted fields of one entity class by index.  This base class goes through
+ * reflection.  At scan time we generate a subclass per entity that overrides get/set with direct field
+ * access for every field the JVM lets another class touch, Unsafe for private fields, and falls back to
+ * this implementation for the rest(see AccessorGenerator).
+ */
+public class FieldAccessor {
+
+	private Field[] fields;
+
+	public void setFields(Field[] fields) {
+		this.fields = fields;
+	}
+
+	public Object get(Object entity, int index) {
+		return ReflectionUtil.fetchFieldValue(entity, fields[index]);
+	}
+
+	public void set(Object entity, int index, Object value) {
+		ReflectionUtil.putFieldValue(entity, fields[index], value);
+	}
+
+	public Field getField(int index) {
+		return fields[index];
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName()+"[fields="+fields.length+"]";
+	}
+}
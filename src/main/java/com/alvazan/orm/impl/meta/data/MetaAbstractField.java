@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.alvazan.orm.api.base.Indexing;
+import com.alvazan.orm.api.exc.TypeMismatchException;
 import com.alvazan.orm.api.z8spi.conv.StorageTypeEnum;
 import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
 import com.alvazan.orm.api.z8spi.meta.IndexData;
@@ -18,6 +19,8 @@ public abstract class MetaAbstractField<OWNER> implements MetaField<OWNER> {
 
 	protected Field field;
 	protected String columnName;
+	private FieldAccessor accessor;
+	private int accessorIndex;
 	
 	public Field getField() {
 		return field;
@@ -38,6 +41,31 @@ public abstract class MetaAbstractField<OWNER> implements MetaField<OWNER> {
 		this.field.setAccessible(true);
 		this.columnName = colName;
 	}
+
+	/**
+	 * Called once the class is scanned so reads and writes of this field go through the generated accessor
+	 */
+	public void setAccessor(FieldAccessor accessor, int index) {
+		this.accessor = accessor;
+		this.accessorIndex = index;
+	}
+
+	protected Object fetchFieldValue(Object entity) {
+		if(accessor == null)
+			return ReflectionUtil.fetchFieldValue(entity, field);
+		try {
+			return accessor.get(entity, accessorIndex);
+		} catch(ClassCastException e) {
+			throw new TypeMismatchException("Entity='"+entity.getClass()+"' was passed to field of a different type.  field='"+field+"'", e);
+		}
+	}
+
+	protected void putFieldValue(Object entity, Object value) {
+		if(accessor == null)
+			ReflectionUtil.putFieldValue(entity, field, value);
+		else
+			accessor.set(entity, accessorIndex, value);
+	}
 	
 	protected void removeIndexInfo(InfoForIndex<OWNER> info, Object value, byte[] byteVal, StorageTypeEnum storageType) {
 		Map<Field, Object> fieldToValue = info.getFieldToValue();
@@ -138,7 +166,7 @@ public abstract class MetaAbstractField<OWNER> implements MetaField<OWNER> {
 		IndexData data = new IndexData();
 		String colFamily = getMetaDbo().getIndexTableName();
 		data.setColumnFamilyName(colFamily);
-		String indexRowKey = getMetaDbo().getIndexRowKey(info.getPartitionBy(), info.getPartitionId());
+		String indexRowKey = getMetaDbo().getIndexRowKey(info.getPartitionBy(), info.getPartitionId(), pk);
 		data.setRowKey(indexRowKey);
 		data.getIndexColumn().setIndexedValue(byteVal);
 		data.getIndexColumn().setPrimaryKey(pk);
@@ -148,7 +176,7 @@ public abstract class MetaAbstractField<OWNER> implements MetaField<OWNER> {
 
 	@Override
 	public Object getFieldRawValue(OWNER entity) {
-		Object value = ReflectionUtil.fetchFieldValue(entity, field);
+		Object value = fetchFieldValue(entity);
 		return value;
 		//return unwrapIfNeeded(value);
 	}
@@ -7,14 +7,12 @@ import com.alvazan.orm.api.z5api.NoSqlSession;
 import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.action.Column;
 import com.alvazan.orm.api.z8spi.conv.Converter;
-import com.alvazan.orm.api.z8spi.conv.StandardConverters;
 import com.alvazan.orm.api.z8spi.conv.StorageTypeEnum;
 import com.alvazan.orm.api.z8spi.meta.DboColumnCommonMeta;
 import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.alvazan.orm.api.z8spi.meta.IndexData;
 import com.alvazan.orm.api.z8spi.meta.InfoForIndex;
-import com.alvazan.orm.api.z8spi.meta.ReflectionUtil;
 import com.alvazan.orm.api.z8spi.meta.RowToPersist;
 
 public class MetaCommonField<OWNER> extends MetaAbstractField<OWNER> {
@@ -39,7 +37,7 @@ public class MetaCommonField<OWNER> extends MetaAbstractField<OWNER> {
 		}
 		
 		Object value = converter.convertFromNoSql(column.getValue());
-		ReflectionUtil.putFieldValue(entity, field, value);
+		putFieldValue(entity, value);
 	}
 	@Override
 	public void translateToColumn(InfoForIndex<OWNER> info) {
@@ -49,10 +47,9 @@ public class MetaCommonField<OWNER> extends MetaAbstractField<OWNER> {
 		Column col = new Column();
 		row.getColumns().add(col);
 
-		Object value = ReflectionUtil.fetchFieldValue(entity, field);
+		Object value = fetchFieldValue(entity);
 		byte[] byteVal = translateValue(value);
-		byte[] colBytes = StandardConverters.convertToBytes(columnName);
-		col.setName(colBytes);
+		col.setName(metaDbo.getColumnNameAsBytes());
 		col.setValue(byteVal);
 		
 		StorageTypeEnum storageType = metaDbo.getStorageType();
@@ -62,7 +59,7 @@ public class MetaCommonField<OWNER> extends MetaAbstractField<OWNER> {
 	
 	@Override
 	public Object fetchField(Object entity) {
-		return ReflectionUtil.fetchFieldValue(entity, field);
+		return fetchFieldValue(entity);
 	}
 
 	@Override
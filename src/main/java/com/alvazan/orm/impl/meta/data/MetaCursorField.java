@@ -18,7 +18,6 @@ import com.alvazan.orm.api.z8spi.meta.DboColumnToManyMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.alvazan.orm.api.z8spi.meta.IndexData;
 import com.alvazan.orm.api.z8spi.meta.InfoForIndex;
-import com.alvazan.orm.api.z8spi.meta.ReflectionUtil;
 import com.alvazan.orm.api.z8spi.meta.RowToPersist;
 import com.alvazan.orm.impl.meta.data.collections.CursorProxy;
 
@@ -43,7 +42,7 @@ public final class MetaCursorField<OWNER, PROXY> extends MetaAbstractField<OWNER
 		AbstractCursor<IndexColumn> indexCursor = session.scanIndex(info , null, null, batchSize);
 		
 		CursorProxy<PROXY> cursor = new CursorProxy<PROXY>(entity, session, indexCursor, classMeta, batchSize);
-		ReflectionUtil.putFieldValue(entity, field, cursor);
+		putFieldValue(entity, cursor);
 	}
 
 	private String formRowKey(byte[] byteKey) {
@@ -71,7 +70,7 @@ public final class MetaCursorField<OWNER, PROXY> extends MetaAbstractField<OWNER
 	@Override
 	public void translateToColumn(InfoForIndex<OWNER> info) {
 		OWNER entity = info.getEntity();
-		Object cursor = ReflectionUtil.fetchFieldValue(entity, field);
+		Object cursor = fetchFieldValue(entity);
 		if(cursor == null)
 			return; //just ignore it then since user is not modifying what is in the cursor
 		
@@ -32,6 +32,8 @@ import com.alvazan.orm.impl.meta.data.collections.ToOneProviderProxy;
 
 public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 
+	private static final byte[] ID_BYTES = StandardConverters.convertToBytes("Id");
+
 	private DboColumnEmbedMeta metaDbo = new DboColumnEmbedMeta();
 	private MetaAbstractClass<PROXY> classMeta;
 	private Field fieldForKey;
@@ -63,14 +65,12 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 			proxy = translateFromSingleEntity(row, session);
 		}
 
-		ReflectionUtil.putFieldValue(entity, field, proxy);
+		putFieldValue(entity, proxy);
 	}
 
 	private Object translateFromSingleEntity(Row row, NoSqlSession session) {
 		Object proxy = null;
-		String columnName = getColumnName();
-		byte[] colBytes = StandardConverters.convertToBytes(columnName);
-		Column column = row.getColumn(colBytes);
+		Column column = row.getColumn(metaDbo.getColumnNameAsBytes());
 		if (column == null) {
 			column = new Column();
 		}
@@ -86,7 +86,7 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private Object translateFromToComposite(Row row, NoSqlSession session) {
 		// THIS IS NOT DONE YET
-		byte[] bytes = StandardConverters.convertToBytes(columnName);
+		byte[] bytes = metaDbo.getColumnNameAsBytes();
 		Collection<Column> columns = row.columnByPrefix(bytes);
 		if (columns != null && !columns.isEmpty()) {
 			Column column = columns.iterator().next();
@@ -105,8 +105,8 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	}
 
 	private Object convertIdToProxyComposite(Row row, NoSqlSession session) {
-		byte[] bytes = StandardConverters.convertToBytes(columnName);
-		byte[] rowid = StandardConverters.convertToBytes("Id");
+		byte[] bytes = metaDbo.getColumnNameAsBytes();
+		byte[] rowid = ID_BYTES;
         int bytesandrowid = bytes.length + rowid.length;
         byte[] bytesandId = new byte[bytesandrowid];
         System.arraycopy(bytes, 0, bytesandId, 0, bytes.length);
@@ -175,15 +175,14 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	@SuppressWarnings("unchecked")
 	private void translateToColumn(OWNER entity, RowToPersist row) {
 		Collection<PROXY> value = new ArrayList<PROXY>();
-		value.add((PROXY)ReflectionUtil.fetchFieldValue(entity, field));
+		value.add((PROXY)fetchFieldValue(entity));
 		Collection<PROXY> toBeRemoved = new ArrayList<PROXY>();
 		translateToColumnImpl(value, row, toBeRemoved);
 	}
 
 	@SuppressWarnings("unchecked")
 	private void translateToColumnList(OWNER entity, RowToPersist row) {
-		Collection<PROXY> values = (Collection<PROXY>) ReflectionUtil
-				.fetchFieldValue(entity, field);
+		Collection<PROXY> values = (Collection<PROXY>) fetchFieldValue(entity);
 		Collection<PROXY> toBeAdded = values;
 		// all values in the list get
 		// added if not an
@@ -199,7 +198,7 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private void translateToColumnMap(OWNER entity, RowToPersist row) {
-		Map mapOfProxies = (Map) ReflectionUtil.fetchFieldValue(entity, field);
+		Map mapOfProxies = (Map) fetchFieldValue(entity);
 		Collection<PROXY> toBeAdded = mapOfProxies.values();
 		Collection<PROXY> toBeRemoved = new ArrayList<PROXY>();
 		if (mapOfProxies instanceof SimpleAbstractCollection) {
@@ -274,7 +273,7 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	}
 
 	private byte[] formTheColumnName(PROXY p, byte[] id, Field singleField) {
-		byte[] prefix = StandardConverters.convertToBytes(columnName);
+		byte[] prefix = metaDbo.getColumnNameAsBytes();
 		byte[] singleFieldName = StandardConverters.convertToBytes(singleField.getName());
 		byte[] columnName = new byte[ prefix.length + id.length + singleFieldName.length];
 		for (int i = 0; i < columnName.length; i++) {
@@ -293,7 +292,7 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 		if (pkData == null)
 			return null;
 		else 
-			return formTheNameImpl(columnName, pkData);
+			return formTheNameImpl(pkData);
 	}
 
 	private Object createProxy(byte[] rowKey, Row row) {
@@ -324,7 +323,7 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
                 ReflectionUtil.putFieldValue(newproxy, metaFieldId.getField(),idValue);
 
 			// Now extract other columns
-			byte[] prefix = StandardConverters.convertToBytes(getColumnName());
+			byte[] prefix = metaDbo.getColumnNameAsBytes();
 			byte[] embedColumn = new byte[prefix.length + idBytes.length];
 		    System.arraycopy(prefix,0,embedColumn,0         ,prefix.length);
 		    System.arraycopy(idBytes,0,embedColumn,prefix.length,idBytes.length);
@@ -361,7 +360,7 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	}
 
     private void createProxy2(DboColumnMeta colMeta, Object newproxy, Row row) {
-        byte[] colName = StandardConverters.convertToBytes(getColumnName());
+        byte[] colName = metaDbo.getColumnNameAsBytes();
         Collection<Column> columnsWORowKey = row.columnByPrefix(colName);
         for (Column col : columnsWORowKey) {
             byte[] fullName = col.getName();
@@ -389,9 +388,9 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
         }
     }
 
-    private byte[] formTheNameImpl(String colName, byte[] postFix) {
-		byte[] prefix = StandardConverters.convertToBytes(colName);
-		byte[] rowid = StandardConverters.convertToBytes("Id");
+    private byte[] formTheNameImpl(byte[] postFix) {
+		byte[] prefix = metaDbo.getColumnNameAsBytes();
+		byte[] rowid = ID_BYTES;
 		byte[] name = new byte[prefix.length + rowid.length + postFix.length];
 		for (int i = 0; i < name.length; i++) {
 			if (i < prefix.length)
@@ -432,7 +431,7 @@ public class MetaEmbeddedEntity<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 		Column c = new Column();
 		//byte[] columnName = formTheColumnName(proxy, idValue, singleField);
 
-		byte[] prefix = StandardConverters.convertToBytes(columnName);
+		byte[] prefix = metaDbo.getColumnNameAsBytes();
 		byte[] singleFieldName = StandardConverters.convertToBytes(singleField.getName());
 		byte[] columnName = new byte[ prefix.length + singleFieldName.length];
 		for (int i = 0; i < columnName.length; i++) {
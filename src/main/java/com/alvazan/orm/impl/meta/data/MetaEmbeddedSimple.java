@@ -19,7 +19,6 @@ import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.alvazan.orm.api.z8spi.meta.IndexData;
 import com.alvazan.orm.api.z8spi.meta.InfoForIndex;
-import com.alvazan.orm.api.z8spi.meta.ReflectionUtil;
 import com.alvazan.orm.api.z8spi.meta.RowToPersist;
 import com.alvazan.orm.impl.meta.data.collections.SimpleAbstractCollection;
 import com.alvazan.orm.impl.meta.data.collections.SimpleList;
@@ -64,7 +63,7 @@ public class MetaEmbeddedSimple<OWNER, T> extends MetaAbstractField<OWNER> {
 		else
 			throw new RuntimeException("bug, we do not support type="+field.getType());
 			
-		ReflectionUtil.putFieldValue(entity, field, proxy);
+		putFieldValue(entity, proxy);
 	}
 
 	private Object translateFromColumnSet(Row row, OWNER entity,
@@ -122,7 +121,7 @@ public class MetaEmbeddedSimple<OWNER, T> extends MetaAbstractField<OWNER> {
 	private void translateToColumnMap(InfoForIndex<OWNER> info) {
         OWNER entity = info.getEntity();
         RowToPersist row = info.getRow();
-		Map values = (Map) ReflectionUtil.fetchFieldValue(entity, field);
+		Map values = (Map) fetchFieldValue(entity);
 		if (values == null)
 			values = new HashMap();
 		Map toBeAdded = values; //all values in the list get added if not an OurAbstractCollection
@@ -161,7 +160,7 @@ public class MetaEmbeddedSimple<OWNER, T> extends MetaAbstractField<OWNER> {
 	@SuppressWarnings("unchecked")
 	private void translateToColumnList(InfoForIndex<OWNER> info) {
         OWNER entity = info.getEntity();
-		Collection<T> values = (Collection<T>) ReflectionUtil.fetchFieldValue(entity, field);
+		Collection<T> values = (Collection<T>) fetchFieldValue(entity);
 		if (values == null)
 			values = new ArrayList<T>();
 		Collection<T> toBeAdded = values; //all values in the list get added if not an OurAbstractCollection
@@ -183,7 +182,7 @@ public class MetaEmbeddedSimple<OWNER, T> extends MetaAbstractField<OWNER> {
 			byte[] name = formTheName(p);
 			row.addEntityToRemove(name);
 		}
-        Object value = ReflectionUtil.fetchFieldValue(entity, field);
+        Object value = fetchFieldValue(entity);
         StorageTypeEnum storageType = metaDbo.getStorageType();
 		//now process all the existing columns (we can add same entity as many times as we like and it does not
 		//get duplicated)
@@ -45,7 +45,7 @@ public class MetaIdField<OWNER> extends MetaAbstractField<OWNER> {
 		byte[] virtKey = row.getKey();
 		byte[] nonVirtKey = metaDbo.unformVirtRowKey(virtKey);
 		Object entityId = converter.convertFromNoSql(nonVirtKey);
-		ReflectionUtil.putFieldValue(entity, field, entityId);
+		putFieldValue(entity, entityId);
 	}
 	
 	@Override
@@ -83,7 +83,7 @@ public class MetaIdField<OWNER> extends MetaAbstractField<OWNER> {
 	}
 	
 	public Object fillInAndFetchId(OWNER entity) {
-		Object idInEntity = ReflectionUtil.fetchFieldValue(entity, field);
+		Object idInEntity = fetchFieldValue(entity);
 		Object id = idInEntity;
 		if(!useGenerator) {
 			if(id == null)
@@ -107,7 +107,7 @@ public class MetaIdField<OWNER> extends MetaAbstractField<OWNER> {
 			newId = new UUID();
 		else 
 			newId = generator.generateNewKey(entity);
-		ReflectionUtil.putFieldValue(entity, field, newId);
+		putFieldValue(entity, newId);
 		return newId;
 	}
 
@@ -135,7 +135,7 @@ public class MetaIdField<OWNER> extends MetaAbstractField<OWNER> {
 		if(entityId == null)
 			return null;
 		OWNER proxy = createProxy(entityId, session, cacheLoadCallback, clazz);
-		ReflectionUtil.putFieldValue(proxy, field, entityId);
+		putFieldValue(proxy, entityId);
 		return proxy;
 	}
 	
@@ -16,8 +16,8 @@ import com.alvazan.orm.api.z8spi.meta.DboColumnToOneMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.alvazan.orm.api.z8spi.meta.IndexData;
 import com.alvazan.orm.api.z8spi.meta.InfoForIndex;
-import com.alvazan.orm.api.z8spi.meta.ReflectionUtil;
 import com.alvazan.orm.api.z8spi.meta.RowToPersist;
+import com.alvazan.orm.impl.meta.data.collections.ToOneBatches;
 import com.alvazan.orm.impl.meta.data.collections.ToOneProviderProxy;
 
 public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
@@ -26,6 +26,7 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	//once it is scanned
 	private MetaAbstractClass<PROXY> classMeta;
 	private DboColumnToOneMeta metaDbo = new DboColumnToOneMeta();
+	private int batchSize = 1;
 
 	public DboColumnMeta getMetaDbo() {
 		return metaDbo;
@@ -37,9 +38,7 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	}
 
 	public void translateFromColumn(Row row, OWNER entity, NoSqlSession session) {
-		String columnName = getColumnName();
-		byte[] colBytes = StandardConverters.convertToBytes(columnName);
-		Column column = row.getColumn(colBytes);
+		Column column = row.getColumn(metaDbo.getColumnNameAsBytes());
 		if(column == null) {
 			column = new Column();
 		}
@@ -54,7 +53,7 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 			if (proxy == null)
 				proxy = convertIdToProxy(row, column.getValue(), session);
 		}
-		ReflectionUtil.putFieldValue(entity, field, proxy);
+		putFieldValue(entity, proxy);
 	}
 	
 	private Object translateFromToProxy(Row row, byte[] value,
@@ -64,7 +63,7 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	}
 
 	private Object translateFromToComposite(Row row, NoSqlSession session) {
-		byte[] bytes = StandardConverters.convertToBytes(columnName);
+		byte[] bytes = metaDbo.getColumnNameAsBytes();
 		Collection<Column> columns = row.columnByPrefix(bytes);
 		if (columns != null && !columns.isEmpty()) {
 			Column column = columns.iterator().next();
@@ -83,7 +82,7 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	}
 
 	private Object convertIdToProxyComposite(Row row, NoSqlSession session) {
-		byte[] bytes = StandardConverters.convertToBytes(columnName);
+		byte[] bytes = metaDbo.getColumnNameAsBytes();
 		Collection<Column> columns = row.columnByPrefix(bytes);
 		if (columns != null && !columns.isEmpty()) {
 			Column column = columns.iterator().next();
@@ -94,8 +93,7 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 			for(int i = bytes.length; i < fullName.length; i++) {
 				fk[i-bytes.length] =  fullName[i];
 			}
-			Tuple<PROXY> tuple = classMeta.convertIdToProxy(row, session, fk, null);
-			return tuple.getProxy();
+			return createProxy(row, fk, session);
 		}
 		else 
 			return null;
@@ -108,7 +106,7 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 		Column col = new Column();
 		row.getColumns().add(col);
 
-		PROXY value = (PROXY) ReflectionUtil.fetchFieldValue(entity, field);
+		PROXY value = (PROXY) fetchFieldValue(entity);
 		
 		if(value instanceof ToOneProvider) {
 			value = (PROXY) ((ToOneProvider)value).get();
@@ -131,7 +129,7 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 							"\nmethod #2 is used for when you have a bi-directional relationship where each is a child of the other");
 		}
 
-		byte[] colBytes = StandardConverters.convertToBytes(columnName);
+		byte[] colBytes = metaDbo.getColumnNameAsBytes();
 		if(byteVal != null) {
 			byte[] name = new byte[colBytes.length + byteVal.length];
 			for(int i = 0; i < name.length; i++) {
@@ -159,7 +157,7 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	@SuppressWarnings("unchecked")
 	@Override
 	public Object fetchField(Object entity) {
-		PROXY value = (PROXY) ReflectionUtil.fetchFieldValue(entity, field);
+		PROXY value = (PROXY) fetchFieldValue(entity);
 		return value;
 		//throw new UnsupportedOperationException("only used for partitioning and multivalue column can't partition.  easy to implement if anyone else starts using this though, but for now unsupported");
 	}
@@ -192,15 +190,25 @@ public class MetaProxyField<OWNER, PROXY> extends MetaAbstractField<OWNER> {
 	}
 	
 	public PROXY convertIdToProxy(Row row, byte[] nonVirtFk, NoSqlSession session) {
+		return createProxy(row, nonVirtFk, session);
+	}
+
+	private PROXY createProxy(Row row, byte[] nonVirtFk, NoSqlSession session) {
+		ToOneBatches batches = ToOneBatches.getCurrent();
+		if(batchSize > 1 && batches != null && nonVirtFk != null) {
+			//a CursorRow is translating so load this proxy along with the ones of the other rows
+			return batches.createProxy(this, batchSize, classMeta, session, row, nonVirtFk);
+		}
 		Tuple<PROXY> tuple = classMeta.convertIdToProxy(row, session, nonVirtFk, null);
 		return tuple.getProxy();
 	}
 	
-	public void setup(DboTableMeta tableMeta, Field field2, String colName, MetaAbstractClass<PROXY> classMeta, boolean isIndexed, boolean isPartitionedBy) {
+	public void setup(DboTableMeta tableMeta, Field field2, String colName, MetaAbstractClass<PROXY> classMeta, boolean isIndexed, boolean isPartitionedBy, int batchSize) {
 		DboTableMeta fkToTable = classMeta.getMetaDbo();
 		metaDbo.setup(tableMeta, colName, fkToTable, isIndexed, isPartitionedBy);
 		super.setup(field2, colName);
 		this.classMeta = classMeta;
+		this.batchSize = batchSize;
 	}
 
 	@SuppressWarnings("unchecked")
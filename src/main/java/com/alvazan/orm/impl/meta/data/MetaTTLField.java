@@ -12,20 +12,15 @@ import com.alvazan.orm.api.z8spi.meta.DboColumnTTLMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.alvazan.orm.api.z8spi.meta.IndexData;
 import com.alvazan.orm.api.z8spi.meta.InfoForIndex;
-import com.alvazan.orm.api.z8spi.meta.ReflectionUtil;
 
 public class MetaTTLField<OWNER> extends MetaAbstractField<OWNER> {
 
 	private DboColumnTTLMeta metaDbo = new DboColumnTTLMeta();
-	protected Field field;
-	protected String columnName;
 	private IntConverter converter = new IntConverter();
 
 	public void setup(DboTableMeta owner, Field field, String colName, boolean indexed) {
 		metaDbo.setup(owner, colName, indexed);
-		this.field = field;
-		this.field.setAccessible(true);
-		this.columnName = colName;
+		super.setup(field, colName);
 	}
 
 	@Override
@@ -41,17 +36,17 @@ public class MetaTTLField<OWNER> extends MetaAbstractField<OWNER> {
 	@Override
 	public void translateFromColumn(Row row, OWNER entity, NoSqlSession session) {
 		if( row.getColumns().isEmpty() )
-			ReflectionUtil.putFieldValue(entity, field, new Integer(0));
+			putFieldValue(entity, new Integer(0));
 		else {
 			Column col = row.getColumns().iterator().next();
-			ReflectionUtil.putFieldValue(entity, field, col.getTtl());
+			putFieldValue(entity, col.getTtl());
 		}
 	}
 
 	@Override
 	public void translateToColumn(InfoForIndex<OWNER> info) {
 		OWNER entity = info.getEntity();
-		Object value = ReflectionUtil.fetchFieldValue(entity, field);
+		Object value = fetchFieldValue(entity);
 
 		info.getRow().setTtl((Integer)value);
 	}
@@ -69,7 +64,7 @@ public class MetaTTLField<OWNER> extends MetaAbstractField<OWNER> {
 
 	@Override
 	public Object fetchField(Object entity) {
-		return ReflectionUtil.fetchFieldValue(entity, field);
+		return fetchFieldValue(entity);
 	}
 
 	@Override
@@ -17,7 +17,6 @@ import com.alvazan.orm.api.z8spi.meta.DboColumnToManyMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.alvazan.orm.api.z8spi.meta.IndexData;
 import com.alvazan.orm.api.z8spi.meta.InfoForIndex;
-import com.alvazan.orm.api.z8spi.meta.ReflectionUtil;
 import com.alvazan.orm.api.z8spi.meta.RowToPersist;
 import com.alvazan.orm.impl.meta.data.collections.ListProxyFetchAll;
 import com.alvazan.orm.impl.meta.data.collections.MapProxyFetchAll;
@@ -48,7 +47,7 @@ public final class MetaToManyField<OWNER, PROXY> extends MetaAbstractField<OWNER
 		else
 			throw new RuntimeException("bug, we do not support type="+field.getType());
 			
-		ReflectionUtil.putFieldValue(entity, field, proxy);
+		putFieldValue(entity, proxy);
 	}
 
 	private Object translateFromColumnSet(Row row, OWNER entity,
@@ -123,7 +122,7 @@ public final class MetaToManyField<OWNER, PROXY> extends MetaAbstractField<OWNER
 
 	@SuppressWarnings("unchecked")
 	private void translateToColumnList(OWNER entity, RowToPersist row) {
-		Collection<PROXY> values = (Collection<PROXY>) ReflectionUtil.fetchFieldValue(entity, field);
+		Collection<PROXY> values = (Collection<PROXY>) fetchFieldValue(entity);
 		Collection<PROXY> toBeAdded = values; //all values in the list get added if not an OurAbstractCollection
 		Collection<PROXY> toBeRemoved = new ArrayList<PROXY>();
 		if(values instanceof OurAbstractCollection) {
@@ -137,7 +136,7 @@ public final class MetaToManyField<OWNER, PROXY> extends MetaAbstractField<OWNER
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private void translateToColumnMap(OWNER entity, RowToPersist row) {
-		Map mapOfProxies = (Map) ReflectionUtil.fetchFieldValue(entity, field);
+		Map mapOfProxies = (Map) fetchFieldValue(entity);
 		Collection<PROXY> toBeAdded = mapOfProxies.values();
 		Collection<PROXY> toBeRemoved = new ArrayList<PROXY>();
 		if(mapOfProxies instanceof MapProxyFetchAll) {
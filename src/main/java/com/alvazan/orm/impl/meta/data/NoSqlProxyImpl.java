@@ -70,8 +70,7 @@ public class NoSqlProxyImpl<T> implements MethodHandler, Serializable {
 		if(idMethod.equals(superClassMethod))
 			return entityId;
 		else if("__markInitializedAndCacheIndexedValues".equals(superClassMethod.getName())) {
-			cacheIndexedValues(self);
-			isInitialized = true;
+			markInitializedAndCacheIndexedValues(self);
 			return null;
 		} else if("__getOriginalValues".equals(superClassMethod.getName())) {
 			return getOriginalValues();
@@ -80,24 +79,40 @@ public class NoSqlProxyImpl<T> implements MethodHandler, Serializable {
 		
 		//Any other method that is called, toString, getHashCode, getName, someMethod() all end up
 		//loading the objects fields from the database in case those methods use those fields
-		if(!isInitialized) {
-			//If we have a cacheLoadCallback from a List or Map, we are not just loading
-			//this entity but the callback method will load this and all other entities from
-			//the database in ONE single call instead.
-			if(cacheLoadCallback != null) {
-				cacheLoadCallback.loadCacheIfNeeded();
-			} else {
-				fillInThisOneInstance(self);
-			}
-			
-			isInitialized = true;
-		}
+		loadIfNeeded(self);
 		
 		//Not sure if this should be subclassProxyMethod or superClassMethod
         return subclassProxyMethod.invoke(self, args);  // execute the original method.
 	}
 
-	private Map<Field, Object> getOriginalValues() {
+	/**
+	 * Called directly by compiled proxies(and by invoke above for javassist ProxyFactory proxies)
+	 */
+	public Object getEntityId() {
+		return entityId;
+	}
+
+	public void markInitializedAndCacheIndexedValues(T self) {
+		cacheIndexedValues(self);
+		isInitialized = true;
+	}
+
+	public void loadIfNeeded(T self) {
+		if(isInitialized)
+			return;
+		//If we have a cacheLoadCallback from a List or Map, we are not just loading
+		//this entity but the callback method will load this and all other entities from
+		//the database in ONE single call instead.
+		if(cacheLoadCallback != null) {
+			cacheLoadCallback.loadCacheIfNeeded();
+		} else {
+			fillInThisOneInstance(self);
+		}
+		
+		isInitialized = true;
+	}
+
+	public Map<Field, Object> getOriginalValues() {
 		return indexFieldToOriginalValue;
 	}
 
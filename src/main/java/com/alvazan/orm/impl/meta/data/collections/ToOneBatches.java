@@ -0,0 +1,158 @@
+package com.alvazan.orm.impl.meta.data.collections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.exc.RowNotFoundException;
+import com.alvazan.orm.api.z5api.NoSqlSession;
+import com.alvazan.orm.api.z8spi.KeyValue;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder;
+import com.alvazan.orm.api.z8spi.iter.IterableWrappingCursor;
+import com.alvazan.orm.api.z8spi.meta.DboColumnIdMeta;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.impl.meta.data.MetaAbstractClass;
+import com.alvazan.orm.impl.meta.data.Tuple;
+
+/**
+ * The to-one proxies a CursorRow creates while translating its rows, grouped by field in groups of up to
+ * the batchSize of the *ToOne annotation.  The first proxy of a group that is used loads every proxy of the
+ * group with one find instead of each proxy doing it's own find(the N+1 reads of walking a query result
+ * and touching each entity's account).  A group that was loaded takes no more proxies so proxies of rows
+ * translated after that start a new group.
+ *
+ * The proxies are created deep in the MetaField translating so the CursorRow makes it's ToOneBatches the
+ * current one only while it translates a row.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class ToOneBatches {
+
+	private static final Logger log = LoggerFactory.getLogger(ToOneBatches.class);
+	private static final ThreadLocal<ToOneBatches> current = new ThreadLocal<ToOneBatches>();
+
+	private Map<Object, Batch> fieldToBatch = new HashMap<Object, Batch>();
+
+	/**
+	 * @return the ToOneBatches that was current so the caller can put it back when done
+	 */
+	public static ToOneBatches setCurrent(ToOneBatches batches) {
+		ToOneBatches previous = current.get();
+		current.set(batches);
+		return previous;
+	}
+
+	public static ToOneBatches getCurrent() {
+		return current.get();
+	}
+
+	public <T> T createProxy(Object field, int batchSize, MetaAbstractClass<T> classMeta, NoSqlSession session, Row row, byte[] nonVirtKey) {
+		Batch<T> batch = fieldToBatch.get(field);
+		if(batch == null || batch.isClosed(batchSize)) {
+			batch = new Batch<T>(classMeta, session);
+			fieldToBatch.put(field, batch);
+		}
+		return batch.add(row, nonVirtKey);
+	}
+
+	private static class Batch<T> {
+		private MetaAbstractClass<T> classMeta;
+		private NoSqlSession session;
+		//many rows of a ManyToOne usually point to the same entity so each key is only read once
+		private Map<ByteArray, List<Member<T>>> keyToMembers = new LinkedHashMap<ByteArray, List<Member<T>>>();
+		private int size;
+		private boolean loaded;
+
+		public Batch(MetaAbstractClass<T> classMeta, NoSqlSession session) {
+			this.classMeta = classMeta;
+			this.session = session;
+		}
+
+		public boolean isClosed(int batchSize) {
+			return loaded || size >= batchSize;
+		}
+
+		public T add(Row row, byte[] nonVirtKey) {
+			Member<T> member = new Member<T>(this);
+			Tuple<T> tuple = classMeta.convertIdToProxy(row, null, nonVirtKey, member);
+			member.entityId = tuple.getEntityId();
+			member.proxy = tuple.getProxy();
+
+			ByteArray key = new ByteArray(nonVirtKey);
+			List<Member<T>> members = keyToMembers.get(key);
+			if(members == null) {
+				members = new ArrayList<Member<T>>();
+				keyToMembers.put(key, members);
+			}
+			members.add(member);
+			size++;
+			return member.proxy;
+		}
+
+		public void load() {
+			if(loaded)
+				return;
+			loaded = true;
+
+			DboTableMeta metaDbo = classMeta.getMetaDbo();
+			DboColumnIdMeta idMeta = metaDbo.getIdColumnMeta();
+			List<byte[]> virtKeys = new ArrayList<byte[]>(keyToMembers.size());
+			for(ByteArray key : keyToMembers.keySet()) {
+				virtKeys.add(idMeta.formVirtRowKey(key.getKey()));
+			}
+			if(log.isDebugEnabled())
+				log.debug("loading "+size+" proxies of type="+classMeta.getMetaClass().getName()+" with one find of "+virtKeys.size()+" rows");
+
+			//results are matched up by row key as not every provider hands them back in the order of the keys
+			Map<ByteArray, List<Member<T>>> notFound = new HashMap<ByteArray, List<Member<T>>>(keyToMembers);
+			AbstractCursor<KeyValue<Row>> rows = session.find(metaDbo, new IterableWrappingCursor<byte[]>(virtKeys), false, true, null);
+			while(true) {
+				Holder<KeyValue<Row>> holder = rows.nextImpl();
+				if(holder == null)
+					break;
+				KeyValue<Row> kv = holder.getValue();
+				Row row = kv.getValue();
+				if(row == null)
+					continue;
+				ByteArray key = new ByteArray(idMeta.unformVirtRowKey((byte[]) kv.getKey()));
+				List<Member<T>> members = notFound.remove(key);
+				if(members == null)
+					continue;
+				for(Member<T> member : members) {
+					classMeta.fillInInstance(row, session, member.proxy);
+				}
+			}
+
+			for(List<Member<T>> members : notFound.values()) {
+				for(Member<T> member : members) {
+					member.missing = true;
+				}
+			}
+		}
+	}
+
+	private static class Member<T> implements CacheLoadCallback {
+		private Batch<T> batch;
+		private Object entityId;
+		private T proxy;
+		private boolean missing;
+
+		public Member(Batch<T> batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		public void loadCacheIfNeeded() {
+			batch.load();
+			if(missing)
+				throw new RowNotFoundException("row for type="+batch.classMeta.getMetaClass().getName()+" not found for key="+entityId);
+		}
+	}
+}
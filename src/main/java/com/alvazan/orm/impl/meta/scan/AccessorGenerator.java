@@ -0,0 +1,261 @@
+package com.alvazan.orm.impl.meta.scan;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.impl.meta.data.FieldAccessor;
+import com.alvazan.orm.impl.meta.data.MetaAbstractField;
+
+/**
+ * Generates a FieldAccessor subclass per entity so hydrating and dehydrating rows does not pay for
+ * Field.get/Field.set on every column.  The generated class lives in the entity's package and class
+ * loader so it can read and write public, protected and package private fields directly.  The JVM won't
+ * let another class touch a private field so those are read and written through sun.misc.Unsafe at the
+ * field's offset(looked up once here).  Anything else(volatile fields, types the entity's package can't
+ * see, or a JVM without Unsafe) is left to the reflection based implementation in FieldAccessor.
+ */
+public class AccessorGenerator {
+
+	private static final Logger log = LoggerFactory.getLogger(AccessorGenerator.class);
+	private static final AtomicInteger counter = new AtomicInteger();
+	private static final Object UNSAFE = findUnsafe();
+
+	@SuppressWarnings("rawtypes")
+	public void generate(Class<?> entityClass, List<MetaAbstractField> metaFields) {
+		Field[] fields = new Field[metaFields.size()];
+		for(int i = 0; i < fields.length; i++) {
+			fields[i] = metaFields.get(i).getField();
+		}
+
+		FieldAccessor accessor = createAccessor(entityClass, fields);
+		accessor.setFields(fields);
+		for(int i = 0; i < fields.length; i++) {
+			metaFields.get(i).setAccessor(accessor, i);
+		}
+	}
+
+	/**
+	 * The generated accessors get Unsafe from here since they can't be compiled against it
+	 */
+	public static Object unsafe() {
+		return UNSAFE;
+	}
+
+	private static Object findUnsafe() {
+		try {
+			Field f = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			return f.get(null);
+		} catch(Exception e) {
+			if(log.isInfoEnabled())
+				log.info("sun.misc.Unsafe is not available so private entity fields will use reflection", e);
+			return null;
+		}
+	}
+
+	private FieldAccessor createAccessor(Class<?> entityClass, Field[] fields) {
+		List<Integer> direct = new ArrayList<Integer>();
+		List<Integer> viaUnsafe = new ArrayList<Integer>();
+		for(int i = 0; i < fields.length; i++) {
+			if(isDirectlyAccessible(entityClass, fields[i]))
+				direct.add(i);
+			else if(isAccessibleThroughUnsafe(entityClass, fields[i]))
+				viaUnsafe.add(i);
+		}
+
+		if(entityClass.getClassLoader() == null) {
+			return new FieldAccessor();
+		} else if(direct.size() == 0 && viaUnsafe.size() == 0) {
+			if(log.isDebugEnabled())
+				log.debug("no field of "+entityClass.getName()+" can be accessed without reflection so using reflection for all of them");
+			return new FieldAccessor();
+		}
+
+		try {
+			Class<?> accessorClass = compile(entityClass, fields, direct, viaUnsafe);
+			return (FieldAccessor) accessorClass.newInstance();
+		} catch(Exception e) {
+			//we can still run with reflection so don't fail the scan over this
+			log.warn("Could not generate field accessor for "+entityClass.getName()+" so falling back to reflection", e);
+			return new FieldAccessor();
+		}
+	}
+
+	private Class<?> compile(Class<?> entityClass, Field[] fields, List<Integer> direct, List<Integer> viaUnsafe) throws Exception {
+		ClassLoader loader = entityClass.getClassLoader();
+		ClassPool pool = new ClassPool(true);
+		pool.appendClassPath(new LoaderClassPath(loader));
+		pool.appendClassPath(new LoaderClassPath(FieldAccessor.class.getClassLoader()));
+
+		String name = entityClass.getName()+"$$PlayOrmAccessor"+counter.incrementAndGet();
+		CtClass ctClass = pool.makeClass(name, pool.get(FieldAccessor.class.getName()));
+		if(viaUnsafe.size() > 0) {
+			makeUnsafeStub(pool, fields, viaUnsafe);
+			ctClass.addField(CtField.make("private static final sun.misc.Unsafe UNSAFE = (sun.misc.Unsafe) "
+					+AccessorGenerator.class.getName()+".unsafe();", ctClass));
+		}
+
+		StringBuilder get = new StringBuilder("public Object get(Object entity, int index) {\n switch(index) {\n");
+		StringBuilder set = new StringBuilder("public void set(Object entity, int index, Object value) {\n switch(index) {\n");
+		for(Integer index : direct) {
+			Field field = fields[index];
+			String target = "(("+field.getDeclaringClass().getName()+")entity)."+field.getName();
+			get.append("  case ").append(index).append(": return ").append(box(field.getType(), target)).append(";\n");
+			if(Modifier.isFinal(field.getModifiers()))
+				continue;
+			set.append("  case ").append(index).append(": ");
+			if(field.getType().isPrimitive())
+				set.append("if(value == null) break; "); //let reflection throw the usual error
+			set.append(target).append(" = ").append(unbox(field.getType(), "value")).append("; return;\n");
+		}
+		for(Integer index : viaUnsafe) {
+			Field field = fields[index];
+			String args = "(("+field.getDeclaringClass().getName()+")entity, "+offset(field)+"L";
+			String kind = unsafeKind(field.getType());
+			get.append("  case ").append(index).append(": return ")
+				.append(box(field.getType(), "UNSAFE.get"+kind+args+")")).append(";\n");
+			if(Modifier.isFinal(field.getModifiers()))
+				continue;
+			set.append("  case ").append(index).append(": ");
+			if(field.getType().isPrimitive())
+				set.append("if(value == null) break; ");
+			set.append("UNSAFE.put").append(kind).append(args).append(", ")
+				.append(unbox(field.getType(), "value")).append("); return;\n");
+		}
+		get.append(" }\n return super.get(entity, index);\n}");
+		set.append(" }\n super.set(entity, index, value);\n}");
+
+		if(log.isDebugEnabled())
+			log.debug("generating "+name+" with "+direct.size()+" of "+fields.length+" fields accessed directly and "
+					+viaUnsafe.size()+" through Unsafe");
+
+		CtMethod getMethod = CtNewMethod.make(get.toString(), ctClass);
+		CtMethod setMethod = CtNewMethod.make(set.toString(), ctClass);
+		ctClass.addMethod(getMethod);
+		ctClass.addMethod(setMethod);
+
+		Class<?> clazz = ctClass.toClass(loader, entityClass.getProtectionDomain());
+		ctClass.detach();
+		return clazz;
+	}
+
+	/**
+	 * Only fields the JVM lets a class in the entity's package and class loader touch without reflection
+	 */
+	private boolean isDirectlyAccessible(Class<?> entityClass, Field field) {
+		Class<?> declaring = field.getDeclaringClass();
+		int modifiers = field.getModifiers();
+		if(Modifier.isPrivate(modifiers))
+			return false;
+		else if(!isSamePackage(entityClass, declaring))
+			return Modifier.isPublic(modifiers) && Modifier.isPublic(declaring.getModifiers()) && isVisibleType(entityClass, field.getType());
+		return isVisibleType(entityClass, field.getType());
+	}
+
+	/**
+	 * Private fields(or inherited ones we can't see) that Unsafe can read and write as long as the generated
+	 * code can still cast the entity and the value so a wrong type fails like it does with reflection
+	 */
+	private boolean isAccessibleThroughUnsafe(Class<?> entityClass, Field field) {
+		int modifiers = field.getModifiers();
+		if(UNSAFE == null || Modifier.isStatic(modifiers) || Modifier.isVolatile(modifiers))
+			return false;
+		return isVisibleType(entityClass, field.getDeclaringClass()) && isVisibleType(entityClass, field.getType());
+	}
+
+	private long offset(Field field) throws Exception {
+		Method method = UNSAFE.getClass().getMethod("objectFieldOffset", Field.class);
+		return (Long) method.invoke(UNSAFE, field);
+	}
+
+	/**
+	 * javassist 3.16 can't read the newer JDK class files Unsafe comes in so the generated code is compiled
+	 * against a stub with just the methods it calls, the real Unsafe is what gets linked at runtime
+	 */
+	private void makeUnsafeStub(ClassPool pool, Field[] fields, List<Integer> viaUnsafe) throws Exception {
+		CtClass stub = pool.makeClass("sun.misc.Unsafe");
+		Set<String> kinds = new HashSet<String>();
+		for(Integer index : viaUnsafe) {
+			Class<?> type = fields[index].getType();
+			String kind = unsafeKind(type);
+			if(!kinds.add(kind))
+				continue;
+			String typeName = type.isPrimitive() ? type.getName() : "Object";
+			stub.addMethod(CtNewMethod.make("public "+typeName+" get"+kind+"(Object o, long offset) { throw new RuntimeException(); }", stub));
+			stub.addMethod(CtNewMethod.make("public void put"+kind+"(Object o, long offset, "+typeName+" x) { }", stub));
+		}
+	}
+
+	private String unsafeKind(Class<?> type) {
+		if(!type.isPrimitive())
+			return "Object";
+		String name = type.getName();
+		return Character.toUpperCase(name.charAt(0))+name.substring(1);
+	}
+
+	private boolean isVisibleType(Class<?> entityClass, Class<?> type) {
+		while(type.isArray())
+			type = type.getComponentType();
+		if(type.isPrimitive())
+			return true;
+		//the generated code casts to the field type so it needs to be visible from the entity's package
+		return Modifier.isPublic(type.getModifiers()) || isSamePackage(entityClass, type);
+	}
+
+	private boolean isSamePackage(Class<?> entityClass, Class<?> other) {
+		if(entityClass.getClassLoader() != other.getClassLoader())
+			return false;
+		return packageOf(entityClass).equals(packageOf(other));
+	}
+
+	private String packageOf(Class<?> c) {
+		String name = c.getName();
+		int index = name.lastIndexOf('.');
+		if(index < 0)
+			return "";
+		return name.substring(0, index);
+	}
+
+	private String box(Class<?> type, String expr) {
+		if(!type.isPrimitive())
+			return expr;
+		return wrapper(type)+".valueOf("+expr+")";
+	}
+
+	private String unbox(Class<?> type, String expr) {
+		if(!type.isPrimitive())
+			return "("+typeName(type)+")"+expr;
+		return "(("+wrapper(type)+")"+expr+")."+type.getName()+"Value()";
+	}
+
+	private String typeName(Class<?> type) {
+		if(type.isArray())
+			return typeName(type.getComponentType())+"[]";
+		return type.getName();
+	}
+
+	private String wrapper(Class<?> type) {
+		if(type == Integer.TYPE)
+			return "Integer";
+		else if(type == Character.TYPE)
+			return "Character";
+		String name = type.getName();
+		return Character.toUpperCase(name.charAt(0))+name.substring(1);
+	}
+}
@@ -0,0 +1,196 @@
+package com.alvazan.orm.impl.meta.scan;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.util.proxy.Proxy;
+
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.impl.meta.data.NoSqlProxy;
+import com.alvazan.orm.impl.meta.data.NoSqlProxyImpl;
+
+/**
+ * Generates entity proxies that call the entity's methods directly instead of going through
+ * NoSqlProxyImpl.invoke and Method.invoke on every call.  Every overridden method is
+ *
+ *   if(!__initialized) __load();
+ *   return super.method(args);
+ *
+ * so once the entity is filled in a getter costs a field read.  The id getter returns the id held by
+ * the handler without loading, same as the ProxyFactory proxies.  The generated class still implements
+ * javassist's Proxy so it is created and handed its NoSqlProxyImpl exactly like a ProxyFactory proxy.
+ *
+ * If we cannot compile a proxy for a class(ie. the loaded class has methods that are not in its class
+ * file because some framework enhanced it) we return null and the caller uses ProxyFactory instead.
+ */
+@Singleton
+public class CompiledProxyGenerator {
+
+	private static final Logger log = LoggerFactory.getLogger(CompiledProxyGenerator.class);
+	private static final AtomicInteger counter = new AtomicInteger();
+
+	private boolean enabled = true;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @param idMethod the getter of the @NoSqlId field or null if there is none
+	 * @return the proxy class or null if one could not be compiled
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Class<T> generate(Class<?> mainClass, Method idMethod) {
+		if(mainClass.getClassLoader() == null)
+			return null;
+		try {
+			return (Class<T>) compile(mainClass, idMethod);
+		} catch(Exception e) {
+			log.warn("Could not compile proxy for "+mainClass.getName()+" so falling back to javassist ProxyFactory", e);
+			return null;
+		}
+	}
+
+	private Class<?> compile(Class<?> mainClass, Method idMethod) throws Exception {
+		ClassLoader loader = mainClass.getClassLoader();
+		ClassPool pool = new ClassPool(true);
+		pool.appendClassPath(new LoaderClassPath(loader));
+		pool.appendClassPath(new LoaderClassPath(NoSqlProxyImpl.class.getClassLoader()));
+
+		String name = mainClass.getName()+"$$PlayOrmProxy"+counter.incrementAndGet();
+		CtClass ctClass = pool.makeClass(name, pool.get(mainClass.getName()));
+		ctClass.addInterface(pool.get(NoSqlProxy.class.getName()));
+		ctClass.addInterface(pool.get(Proxy.class.getName()));
+
+		ctClass.addField(CtField.make("private "+NoSqlProxyImpl.class.getName()+" __handler;", ctClass));
+		ctClass.addField(CtField.make("private boolean __initialized;", ctClass));
+		ctClass.addMethod(CtNewMethod.make(
+				"public void setHandler(javassist.util.proxy.MethodHandler h) { __handler = ("+NoSqlProxyImpl.class.getName()+")h; }", ctClass));
+		ctClass.addMethod(CtNewMethod.make(
+				"public void __markInitializedAndCacheIndexedValues() { __handler.markInitializedAndCacheIndexedValues(this); __initialized = true; }", ctClass));
+		ctClass.addMethod(CtNewMethod.make(
+				"public java.util.Map __getOriginalValues() { return __handler.getOriginalValues(); }", ctClass));
+		//no handler yet means we are still in the constructor(or testInstanceCreation) so just run the real method
+		ctClass.addMethod(CtNewMethod.make(
+				"private void __load() { if(__handler == null) return; __handler.loadIfNeeded(this); __initialized = true; }", ctClass));
+
+		Map<String, Method> methods = findProxiedMethods(mainClass);
+		for(Method method : methods.values()) {
+			String body;
+			if(idMethod != null && isSameSignature(idMethod, method))
+				body = "{ if(__handler == null) return super."+method.getName()+"($$); return ($r)__handler.getEntityId(); }";
+			else if(method.getReturnType() == Void.TYPE)
+				body = "{ if(!__initialized) __load(); super."+method.getName()+"($$); }";
+			else
+				body = "{ if(!__initialized) __load(); return super."+method.getName()+"($$); }";
+
+			CtMethod ctMethod = CtNewMethod.make(toCtClass(pool, method.getReturnType()), method.getName(),
+					toCtClasses(pool, method.getParameterTypes()), toCtClasses(pool, method.getExceptionTypes()), body, ctClass);
+			ctMethod.setModifiers(method.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED));
+			ctClass.addMethod(ctMethod);
+		}
+
+		if(log.isDebugEnabled())
+			log.debug("compiled proxy "+name+" overriding "+methods.size()+" methods");
+
+		Class<?> clazz = ctClass.toClass(loader, mainClass.getProtectionDomain());
+		ctClass.detach();
+		return clazz;
+	}
+
+	/**
+	 * Same set of methods the ProxyFactory filter in ScannerForClass handles, that is everything we can
+	 * override except finalize, equals and hashCode
+	 */
+	private Map<String, Method> findProxiedMethods(Class<?> mainClass) throws NoSuchMethodException {
+		Map<String, Method> methods = new LinkedHashMap<String, Method>();
+		Class<?> next = mainClass;
+		while(next != Object.class) {
+			for(Method m : next.getDeclaredMethods()) {
+				String key = m.getName()+Arrays.toString(m.getParameterTypes());
+				if(methods.containsKey(key))
+					continue; //a subclass already overrides it
+				methods.put(key, m);
+			}
+			next = next.getSuperclass();
+		}
+		Method toString = Object.class.getMethod("toString");
+		String key = toString.getName()+Arrays.toString(toString.getParameterTypes());
+		if(!methods.containsKey(key))
+			methods.put(key, toString);
+
+		Map<String, Method> result = new LinkedHashMap<String, Method>();
+		for(Map.Entry<String, Method> entry : methods.entrySet()) {
+			if(isProxied(mainClass, entry.getValue()))
+				result.put(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	private boolean isProxied(Class<?> mainClass, Method m) {
+		int modifiers = m.getModifiers();
+		String name = m.getName();
+		if(Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isPrivate(modifiers)
+				|| Modifier.isAbstract(modifiers) || m.isBridge() || m.isSynthetic())
+			return false;
+		else if("finalize".equals(name) || "equals".equals(name) || "hashCode".equals(name))
+			return false;
+		else if(name.startsWith("__") || "setHandler".equals(name))
+			return false;
+		else if(!Modifier.isPublic(modifiers) && !Modifier.isProtected(modifiers))
+			return isSamePackage(mainClass, m.getDeclaringClass()); //package private can only be overridden from the same package
+		return true;
+	}
+
+	private boolean isSameSignature(Method a, Method b) {
+		return a.getName().equals(b.getName()) && Arrays.equals(a.getParameterTypes(), b.getParameterTypes());
+	}
+
+	private boolean isSamePackage(Class<?> a, Class<?> b) {
+		if(a.getClassLoader() != b.getClassLoader())
+			return false;
+		String nameA = a.getName();
+		String nameB = b.getName();
+		int indexA = nameA.lastIndexOf('.');
+		int indexB = nameB.lastIndexOf('.');
+		String pkgA = indexA < 0 ? "" : nameA.substring(0, indexA);
+		String pkgB = indexB < 0 ? "" : nameB.substring(0, indexB);
+		return pkgA.equals(pkgB);
+	}
+
+	private CtClass[] toCtClasses(ClassPool pool, Class<?>[] types) throws Exception {
+		CtClass[] result = new CtClass[types.length];
+		for(int i = 0; i < types.length; i++) {
+			result[i] = toCtClass(pool, types[i]);
+		}
+		return result;
+	}
+
+	private CtClass toCtClass(ClassPool pool, Class<?> type) throws Exception {
+		return pool.get(typeName(type));
+	}
+
+	private String typeName(Class<?> type) {
+		if(type.isArray())
+			return typeName(type.getComponentType())+"[]";
+		return type.getName();
+	}
+}
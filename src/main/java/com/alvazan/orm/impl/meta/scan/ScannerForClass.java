@@ -16,10 +16,12 @@ import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.alvazan.orm.api.base.anno.NoSqlCacheable;
 import com.alvazan.orm.api.base.anno.NoSqlEmbeddable;
 import com.alvazan.orm.api.base.anno.NoSqlEmbedded;
 import com.alvazan.orm.api.base.anno.NoSqlEntity;
 import com.alvazan.orm.api.base.anno.NoSqlId;
+import com.alvazan.orm.api.base.anno.NoSqlIndexed;
 import com.alvazan.orm.api.base.anno.NoSqlInheritance;
 import com.alvazan.orm.api.base.anno.NoSqlManyToMany;
 import com.alvazan.orm.api.base.anno.NoSqlManyToOne;
@@ -31,6 +33,7 @@ import com.alvazan.orm.api.base.anno.NoSqlVirtualCf;
 import com.alvazan.orm.api.z8spi.meta.DboDatabaseMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.alvazan.orm.impl.meta.data.MetaAbstractClass;
+import com.alvazan.orm.impl.meta.data.MetaAbstractField;
 import com.alvazan.orm.impl.meta.data.MetaClassInheritance;
 import com.alvazan.orm.impl.meta.data.MetaClassSingle;
 import com.alvazan.orm.impl.meta.data.MetaField;
@@ -46,6 +49,10 @@ public class ScannerForClass {
 	@Inject
 	private ScannerForField inspectorField;
 	@Inject
+	private AccessorGenerator accessorGenerator;
+	@Inject
+	private CompiledProxyGenerator compiledProxies;
+	@Inject
 	private MetaInfo metaInfo;
 	@Inject
 	private DboDatabaseMeta databaseInfo;
@@ -129,10 +136,37 @@ public class ScannerForClass {
 		Class<? extends T> proxyClass = createTheProxy(classMeta.getMetaClass());
 		classMeta.setProxyClass(proxyClass);
 		scanFields(classMeta, metaDbo);
+		generateAccessor(classMeta);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private <T> void generateAccessor(MetaClassSingle<T> classMeta) {
+		List<MetaAbstractField> fields = new ArrayList<MetaAbstractField>();
+		addAccessedField(fields, classMeta.getIdField());
+		addAccessedField(fields, classMeta.getTtlField());
+		for(MetaField<T> field : classMeta.getMetaFields()) {
+			addAccessedField(fields, field);
+		}
+		accessorGenerator.generate(classMeta.getMetaClass(), fields);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private void addAccessedField(List<MetaAbstractField> fields, MetaField<?> field) {
+		if(!(field instanceof MetaAbstractField) || field.getField() == null)
+			return;
+		fields.add((MetaAbstractField) field);
 	}
 	
 	@SuppressWarnings("unchecked")
 	private <T> Class<T> createTheProxy(Class<?> mainClass) {
+		if(compiledProxies.isEnabled()) {
+			Class<T> compiled = compiledProxies.generate(mainClass, findIdMethod(mainClass));
+			if(compiled != null) {
+				testInstanceCreation(compiled);
+				return compiled;
+			}
+		}
+
 		ProxyFactory f = new ProxyFactory();
 		f.setSuperclass(mainClass);
 		f.setInterfaces(new Class[] {NoSqlProxy.class});
@@ -154,6 +188,20 @@ public class ScannerForClass {
 		return clazz;
 	}
 	
+	private Method findIdMethod(Class<?> mainClass) {
+		for(Field field : findAllFields(mainClass)) {
+			if(!field.isAnnotationPresent(NoSqlId.class))
+				continue;
+			try {
+				return inspectorField.getIdMethod(field);
+			} catch(IllegalArgumentException e) {
+				//processId reports this one with the full explanation when the field gets scanned
+				return null;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * An early test so we get errors on startup instead of waiting until runtime(a.k.a fail as fast as we can)
 	 */
@@ -201,6 +249,14 @@ public class ScannerForClass {
 		}
 		
 		meta.setup(virtualCf, cf, false, false);
+		
+		NoSqlCacheable cacheable = meta.getMetaClass().getAnnotation(NoSqlCacheable.class);
+		if(cacheable != null) {
+			if(cacheable.ttlSeconds() < 0)
+				throw new IllegalArgumentException("Entity="+meta.getMetaClass().getName()+" has NoSqlCacheable with negative ttlSeconds");
+			meta.getMetaDbo().setCacheable(true);
+			meta.getMetaDbo().setCacheTtlSeconds(cacheable.ttlSeconds());
+		}
 	}
 	
 	private void scanFields(MetaClassSingle<?> meta, DboTableMeta metaDbo) {
@@ -249,8 +305,17 @@ public class ScannerForClass {
 		else
 			metaField = inspectorField.processColumn(metaDbo, field);
 		
+		applyIndexShards(metaField, field);
 		metaClass.addMetaField(metaField);
 	}
+
+	@SuppressWarnings("rawtypes")
+	private void applyIndexShards(MetaField metaField, Field field) {
+		NoSqlIndexed indexed = field.getAnnotation(NoSqlIndexed.class);
+		if(indexed == null || metaField.getMetaDbo() == null)
+			return;
+		metaField.getMetaDbo().setIndexShards(indexed.shards());
+	}
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private boolean processIdFieldWorks(MetaAbstractClass metaClass, DboTableMeta metaDbo, Field field) {
@@ -272,6 +337,7 @@ public class ScannerForClass {
 		}
 
 		MetaIdField idField = inspectorField.processId(metaDbo, field, metaClass);
+		applyIndexShards(idField, field);
 		metaClass.setIdField(idField);
 		return true;
 	}
@@ -152,7 +152,7 @@ public class ScannerForField {
 						" in the constructor and it is trivial code(and we can copy the existing pattern)");
 	}
 
-	private Method getIdMethod(Field field) {
+	Method getIdMethod(Field field) {
 		String name = field.getName();
 		String newName = name.substring(0,1).toUpperCase() + name.substring(1);
 		String methodName = "get"+newName; 
@@ -230,14 +230,14 @@ public class ScannerForField {
 	public MetaField processManyToOne(DboTableMeta t, Field field) {
 		NoSqlManyToOne annotation = field.getAnnotation(NoSqlManyToOne.class);
 		String colName = annotation.columnName();
-		return processToOne(t, field, colName);
+		return processToOne(t, field, colName, annotation.batchSize());
 	}
 
 	public MetaField processOneToOne(DboTableMeta t, Field field) {
 		NoSqlOneToOne annotation = field.getAnnotation(NoSqlOneToOne.class);
 		String colName = annotation.columnName();
 		
-		return processToOne(t, field, colName);
+		return processToOne(t, field, colName, annotation.batchSize());
 	}
 	
 	public MetaField processManyToMany(MetaClassSingle<?> metaClass, DboTableMeta t, Field field) {
@@ -395,7 +395,7 @@ public class ScannerForField {
 	}
 	
 	@SuppressWarnings("unchecked")
-	public MetaField processToOne(DboTableMeta t, Field field, String colNameOrig) {
+	public MetaField processToOne(DboTableMeta t, Field field, String colNameOrig, int batchSize) {
 		String colName = field.getName();
 		if(!"".equals(colNameOrig))
 			colName = colNameOrig;
@@ -447,7 +447,7 @@ public class ScannerForField {
 			classMeta = meta.findOrCreate(field.getType(), theSuperclass);
 		}
 		
-		metaField.setup(t, field, colName, classMeta, isIndexed, isPartitionedBy);
+		metaField.setup(t, field, colName, classMeta, isIndexed, isPartitionedBy, batchSize);
 		return metaField;
 	}
 
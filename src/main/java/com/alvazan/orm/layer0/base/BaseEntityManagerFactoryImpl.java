@@ -19,13 +19,18 @@ import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
 import com.alvazan.orm.api.base.anno.NoSqlQueries;
 import com.alvazan.orm.api.base.anno.NoSqlQuery;
 import com.alvazan.orm.api.z5api.QueryParser;
+import com.alvazan.orm.api.z5api.QueryPlanStats;
 import com.alvazan.orm.api.z5api.SpiMetaQuery;
+import com.alvazan.orm.api.z8spi.CacheStats;
+import com.alvazan.orm.api.z8spi.SecondLevelCache;
 import com.alvazan.orm.api.z8spi.conv.Converter;
+import com.alvazan.orm.api.z8spi.metrics.NoSqlMetrics;
 import com.alvazan.orm.impl.meta.data.MetaAbstractClass;
 import com.alvazan.orm.impl.meta.data.MetaClass;
 import com.alvazan.orm.impl.meta.data.MetaClassInheritance;
 import com.alvazan.orm.impl.meta.data.MetaClassSingle;
 import com.alvazan.orm.impl.meta.data.MetaInfo;
+import com.alvazan.orm.impl.meta.scan.CompiledProxyGenerator;
 import com.alvazan.orm.impl.meta.scan.ScannerForField;
 import com.alvazan.orm.layer3.typed.CachedMeta;
 import com.impetus.annovention.ClasspathDiscoverer;
@@ -42,6 +47,8 @@ public class BaseEntityManagerFactoryImpl implements NoSqlEntityManagerFactory {
 	@Inject
 	private ScannerForField inspectorField;
 	@Inject
+	private CompiledProxyGenerator compiledProxies;
+	@Inject
 	private QueryParser noSqlSessionFactory;
 	@Inject
 	private ClasspathDiscoverer discoverer; 
@@ -50,6 +57,10 @@ public class BaseEntityManagerFactoryImpl implements NoSqlEntityManagerFactory {
 	private MetaInfo metaInfo;
 	@Inject
 	private CachedMeta cache;
+	@Inject
+	private SecondLevelCache secondLevelCache;
+	@Inject
+	private NoSqlMetrics metrics;
 	
 	private Object injector;
 
@@ -129,6 +140,11 @@ public class BaseEntityManagerFactoryImpl implements NoSqlEntityManagerFactory {
 		
 		inspectorField.setCustomConverters(converters);
 		
+		String proxyMode = (String) properties.get(Bootstrap.PROXY_MODE);
+		if(proxyMode != null && !"compiled".equals(proxyMode) && !"reflective".equals(proxyMode))
+			throw new IllegalArgumentException("Property Bootstrap.PROXY_MODE can only have values compiled or reflective");
+		compiledProxies.setEnabled(!"reflective".equals(proxyMode));
+		
 		if (log.isInfoEnabled())
 			log.info("Begin scanning for jars with nosql.Persistence.class");
 		
@@ -206,6 +222,21 @@ public class BaseEntityManagerFactoryImpl implements NoSqlEntityManagerFactory {
 		this.injector = injector;
 	}
 
+	@Override
+	public CacheStats getCacheStats() {
+		return secondLevelCache.getStats();
+	}
+
+	@Override
+	public QueryPlanStats getQueryPlanStats() {
+		return noSqlSessionFactory.getPlanStats();
+	}
+
+	@Override
+	public NoSqlMetrics getMetrics() {
+		return metrics;
+	}
+
 	@Override
 	public void close() {
 		this.noSqlSessionFactory.close();
@@ -1,7 +1,13 @@
 package com.alvazan.orm.layer0.base;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -16,6 +22,7 @@ import com.alvazan.orm.api.base.Query;
 import com.alvazan.orm.api.z3api.NoSqlTypedSession;
 import com.alvazan.orm.api.z5api.IndexColumnInfo;
 import com.alvazan.orm.api.z5api.NoSqlSession;
+import com.alvazan.orm.api.z5api.QueryParser;
 import com.alvazan.orm.api.z5api.SpiMetaQuery;
 import com.alvazan.orm.api.z5api.SpiQueryAdapter;
 import com.alvazan.orm.api.z8spi.KeyValue;
@@ -23,6 +30,7 @@ import com.alvazan.orm.api.z8spi.MetaLoader;
 import com.alvazan.orm.api.z8spi.MetaLookup;
 import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
 import com.alvazan.orm.api.z8spi.conv.StorageTypeEnum;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
 import com.alvazan.orm.api.z8spi.iter.Cursor;
@@ -61,6 +69,17 @@ public class BaseEntityManagerImpl implements NoSqlEntityManager, MetaLookup, Me
 	private DboDatabaseMeta databaseInfo;
 	@Inject
 	private MetaLayerImpl metaImpl;
+	@Inject
+	private QueryParser queryParser;
+	@Inject @Named("deferPutReads")
+	private boolean deferPutReads;
+	@Inject @Named("flushChunkSize")
+	private int flushChunkSize;
+	
+	//puts that need the row from the database before they can be written, read all at once on flush
+	@SuppressWarnings("rawtypes")
+	private Map<MetaClass, Map<ByteArray, Object>> deferredPuts = new LinkedHashMap<MetaClass, Map<ByteArray, Object>>();
+	private int deferredCount;
 	
 	private boolean isTypedSessionInitialized = false;
 	
@@ -100,10 +119,42 @@ public class BaseEntityManagerImpl implements NoSqlEntityManager, MetaLookup, Me
 		putImpl(entity, needRead, metaClass);
 	}
 	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public void upsert(Object entity) {
+		Class cl = entity.getClass();
+		MetaClass metaClass = metaInfo.getMetaClass(cl);
+		if(metaClass == null)
+			throw new IllegalArgumentException("Entity type="+entity.getClass().getName()+" was not scanned and added to meta information on startup.  It is either missing @NoSqlEntity annotation or it was not in list of scanned packages");
+		else if(metaClass.hasIndexedField(entity))
+			throw new IllegalArgumentException("Entity type="+entity.getClass().getName()+" has indexed fields so it can't be written without reading it first(the old index entries would never be removed).  Use put instead");
+		putImpl(entity, false, metaClass);
+	}
+	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private void putImpl(Object originalEntity, boolean needRead, MetaClass metaClass) {
+		DboTableMeta metaDbo = metaClass.getMetaDbo();
+		if (metaDbo.isEmbeddable())
+			throw new IllegalArgumentException("Entity type="+originalEntity.getClass().getName()+" can not be saved as it is Embedded Entity. And Embeddable entitites are only saved along with their parent entity");
+
 		Object entity = originalEntity;
-		if(needRead) {
+		if(needRead && deferPutReads) {
+			Object id = metaClass.fetchId(originalEntity);
+			Map<ByteArray, Object> puts = deferredPuts.get(metaClass);
+			if(puts == null) {
+				puts = new LinkedHashMap<ByteArray, Object>();
+				deferredPuts.put(metaClass, puts);
+			}
+			//a later put of the same entity replaces the earlier one like it would have in the database.  The copy
+			//is so changes made to the entity after put are not written just like when put reads the row right away
+			Object snapshot = BeanProps.shallowCopy(originalEntity);
+			if(puts.put(new ByteArray(metaClass.getIdField().convertIdToNonVirtKey(id)), snapshot) == null)
+				deferredCount++;
+			//deferred puts are not actions in the write cache until written so they count toward the chunk here
+			if(flushChunkSize > 0 && deferredCount >= flushChunkSize)
+				writeDeferredPuts();
+			return;
+		} else if(needRead) {
 			Object id = metaClass.fetchId(originalEntity);
 			Object temp = find(metaClass.getMetaClass(), id);
 			if(log.isDebugEnabled())
@@ -114,11 +165,84 @@ public class BaseEntityManagerImpl implements NoSqlEntityManager, MetaLookup, Me
 			}
 		}
 		
+		writeImpl(entity, metaClass);
+	}
+	
+	/**
+	 * Reads the rows of all deferred puts with one findAll per column family and then writes the puts
+	 * exactly as put would have had it read each row right away
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void writeDeferredPuts() {
+		if(deferredPuts.isEmpty())
+			return;
+		Map<MetaClass, Map<ByteArray, Object>> toWrite = deferredPuts;
+		deferredPuts = new LinkedHashMap<MetaClass, Map<ByteArray, Object>>();
+		deferredCount = 0;
+		
+		for(Entry<MetaClass, Map<ByteArray, Object>> entry : toWrite.entrySet()) {
+			writeDeferredPuts(entry.getKey(), entry.getValue());
+		}
+	}
+	
+	/**
+	 * Writes the deferred puts of one column family so a find or query of that column family sees them
+	 */
+	@SuppressWarnings("rawtypes")
+	private void writeDeferredPuts(DboTableMeta table) {
+		if(deferredPuts.isEmpty())
+			return;
+		List<Entry<MetaClass, Map<ByteArray, Object>>> toWrite = new ArrayList<Entry<MetaClass, Map<ByteArray, Object>>>();
+		Iterator<Entry<MetaClass, Map<ByteArray, Object>>> iter = deferredPuts.entrySet().iterator();
+		while(iter.hasNext()) {
+			Entry<MetaClass, Map<ByteArray, Object>> entry = iter.next();
+			if(!table.getColumnFamily().equals(entry.getKey().getMetaDbo().getColumnFamily()))
+				continue;
+			//removed before writing as the write does a findAll of this column family itself
+			iter.remove();
+			deferredCount -= entry.getValue().size();
+			toWrite.add(entry);
+		}
+		
+		for(Entry<MetaClass, Map<ByteArray, Object>> entry : toWrite) {
+			writeDeferredPuts(entry.getKey(), entry.getValue());
+		}
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void writeDeferredPuts(MetaClass metaClass, Map<ByteArray, Object> puts) {
+		MetaIdField idField = metaClass.getIdField();
+		List<Object> ids = new ArrayList<Object>();
+		for(Object entity : puts.values()) {
+			ids.add(metaClass.fetchId(entity));
+		}
+		
+		Map<ByteArray, Object> existing = new HashMap<ByteArray, Object>();
+		Cursor<KeyValue<Object>> found = findAll(metaClass.getMetaClass(), ids);
+		while(found.next()) {
+			KeyValue<Object> kv = found.getCurrent();
+			if(kv.getValue() != null)
+				existing.put(new ByteArray(idField.convertIdToNonVirtKey(kv.getKey())), kv.getValue());
+		}
+		if(log.isDebugEnabled())
+			log.debug("deferred puts of cf="+metaClass.getColumnFamily()+" read "+ids.size()+" rows in one find and found="+existing.size());
+		
+		for(Entry<ByteArray, Object> put : puts.entrySet()) {
+			Object entity = put.getValue();
+			Object temp = existing.get(put.getKey());
+			if(temp != null) {
+				BeanProps.copyProps(entity, temp);
+				entity = temp;
+			}
+			writeImpl(entity, metaClass);
+		}
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void writeImpl(Object entity, MetaClass metaClass) {
 		RowToPersist row = metaClass.translateToRow(entity);
 		
 		DboTableMeta metaDbo = metaClass.getMetaDbo();
-		if (metaDbo.isEmbeddable())
-			throw new IllegalArgumentException("Entity type="+entity.getClass().getName()+" can not be saved as it is Embedded Entity. And Embeddable entitites are only saved along with their parent entity");
 		//This is if we need to be removing columns from the row that represents the entity in a oneToMany or ManyToMany
 		//as the entity.accounts may have removed one of the accounts!!!
 		if(row.hasRemoves())
@@ -144,6 +268,10 @@ public class BaseEntityManagerImpl implements NoSqlEntityManager, MetaLookup, Me
 			}
 		}
 		session.put(metaDbo, virtKey, cols);
+		
+		//the schema of this table may have changed so queries compiled against it are stale
+		if(entity instanceof DboTableMeta)
+			queryParser.invalidatePlans(((DboTableMeta) entity).getColumnFamily());
 	}
 
 	@Override
@@ -187,6 +315,8 @@ public class BaseEntityManagerImpl implements NoSqlEntityManager, MetaLookup, Me
 	
 	
 	<T> AbstractCursor<KeyValue<T>> findAllImpl2(MetaClass<T> meta, DirectCursor<byte[]> keys, String query, boolean cacheResults, Integer batchSize) {
+		//finds and queries have to see the puts we have not read for yet just like they would without deferring
+		writeDeferredPuts(meta.getMetaDbo());
 		boolean skipCache = query != null;
 		AbstractCursor<KeyValue<Row>> cursor = session.find(meta.getMetaDbo(), keys, skipCache, cacheResults, batchSize);
 		return new CursorRow<T>(session, meta, cursor, query);
@@ -212,9 +342,16 @@ public class BaseEntityManagerImpl implements NoSqlEntityManager, MetaLookup, Me
 	
 	@Override
 	public void flush() {
+		writeDeferredPuts();
 		session.flush();
 	}
 
+	@Override
+	public Future<Void> flushAsync() {
+		writeDeferredPuts();
+		return session.flushAsync();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> Query<T> createNamedQuery(Class<T> forEntity, String namedQuery) {
@@ -337,6 +474,12 @@ public class BaseEntityManagerImpl implements NoSqlEntityManager, MetaLookup, Me
 		byte[] virtKey = idField.formVirtRowKey(rowKey);
 		DboTableMeta metaDbo = metaClass.getMetaDbo();
 		
+		Map<ByteArray, Object> puts = deferredPuts.get(metaClass);
+		if(puts != null && puts.containsKey(new ByteArray(rowKey))) {
+			//the put has to reach the database before the remove does
+			writeDeferredPuts();
+		}
+		
 		if(!metaClass.hasIndexedField(entity)) {
 			session.remove(metaDbo, virtKey);
 			return;
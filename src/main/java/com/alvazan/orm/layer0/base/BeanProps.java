@@ -1,6 +1,8 @@
 package com.alvazan.orm.layer0.base;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -25,6 +27,29 @@ public class BeanProps {
 		}
 	}
 	
+	/**
+	 * A new instance of the class of src with all its fields copied over.  The copy is shallow so a collection
+	 * src holds is shared with the copy
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T shallowCopy(T src) {
+		try {
+			Constructor<?> constructor = src.getClass().getDeclaredConstructor();
+			constructor.setAccessible(true);
+			T copy = (T) constructor.newInstance();
+			copyPropsImpl(src, copy);
+			return copy;
+		} catch (NoSuchMethodException e) {
+			throw new RuntimeException("Entity type="+src.getClass().getName()+" needs a constructor with no arguments", e);
+		} catch (InstantiationException e) {
+			throw new RuntimeException(e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
 	public static void copyPropsImpl(Object src, Object dest) throws IllegalAccessException {
 		Class<? extends Object> clazz = src.getClass();
 		List<Field> fields = findAllFields(clazz);
@@ -0,0 +1,139 @@
+package com.alvazan.orm.layer0.base;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.z5api.IndexColumnInfo;
+import com.alvazan.orm.api.z5api.NoSqlSession;
+import com.alvazan.orm.api.z8spi.KeyValue;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder;
+import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.iter.IterableWrappingCursor;
+import com.alvazan.orm.api.z8spi.iter.StringLocal;
+import com.alvazan.orm.api.z8spi.meta.DboColumnIdMeta;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.api.z8spi.meta.ViewInfo;
+
+/**
+ * Sits on the index results of a join query and reads them batchSize at a time.  For each batch the rows of
+ * the joined views that were asked for with Query.prefetch are read with one find per view(using the primary
+ * keys the join already put in the IndexColumnInfo) and land in the session cache so the joined entities
+ * ie. activity.getAccount() load from memory instead of one read each.  All the finds of a batch are
+ * started before any is read so providers that load ahead read the views at the same time.
+ *
+ * Only walking forward prefetches.  Walking backward just passes through to the index results.
+ */
+public class CursorPrefetchJoins implements DirectCursor<IndexColumnInfo> {
+
+	private static final Logger log = LoggerFactory.getLogger(CursorPrefetchJoins.class);
+
+	private DirectCursor<IndexColumnInfo> cursor;
+	private NoSqlSession session;
+	private List<ViewInfo> views;
+	private int batchSize;
+	private List<IndexColumnInfo> batch = new ArrayList<IndexColumnInfo>();
+	private int position;
+
+	public CursorPrefetchJoins(DirectCursor<IndexColumnInfo> cursor, NoSqlSession session, List<ViewInfo> views, int batchSize) {
+		this.cursor = cursor;
+		this.session = session;
+		this.views = views;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public String toString() {
+		String tabs = StringLocal.getAndAdd();
+		String retVal = "CursorPrefetchJoins(prefetching="+views+")["+tabs+cursor+tabs+"]";
+		StringLocal.set(tabs.length());
+		return retVal;
+	}
+
+	@Override
+	public Holder<IndexColumnInfo> nextImpl() {
+		if(position >= batch.size())
+			loadBatch();
+		if(position >= batch.size())
+			return null;
+		return new Holder<IndexColumnInfo>(batch.get(position++));
+	}
+
+	@Override
+	public Holder<IndexColumnInfo> previousImpl() {
+		moveBackToPosition();
+		return cursor.previousImpl();
+	}
+
+	@Override
+	public void beforeFirst() {
+		clearBatch();
+		cursor.beforeFirst();
+	}
+
+	@Override
+	public void afterLast() {
+		clearBatch();
+		cursor.afterLast();
+	}
+
+	private void loadBatch() {
+		clearBatch();
+		for(int i = 0; i < batchSize; i++) {
+			Holder<IndexColumnInfo> next = cursor.nextImpl();
+			if(next == null)
+				break;
+			batch.add(next.getValue());
+		}
+		if(batch.size() > 0)
+			prefetch();
+	}
+
+	private void prefetch() {
+		List<AbstractCursor<KeyValue<Row>>> finds = new ArrayList<AbstractCursor<KeyValue<Row>>>();
+		for(ViewInfo view : views) {
+			DboTableMeta table = view.getTableMeta();
+			DboColumnIdMeta idMeta = table.getIdColumnMeta();
+			Set<ByteArray> alreadyAdded = new HashSet<ByteArray>();
+			List<byte[]> virtKeys = new ArrayList<byte[]>();
+			for(IndexColumnInfo info : batch) {
+				byte[] pk = info.getPrimaryKeyRaw(view);
+				//null on a left join with nothing to join to
+				if(pk != null && alreadyAdded.add(new ByteArray(pk)))
+					virtKeys.add(idMeta.formVirtRowKey(pk));
+			}
+			if(virtKeys.size() == 0)
+				continue;
+			if(log.isDebugEnabled())
+				log.debug("prefetching "+virtKeys.size()+" rows of view="+view.getAlias()+" for "+batch.size()+" results");
+			finds.add(session.find(table, new IterableWrappingCursor<byte[]>(virtKeys), false, true, null));
+		}
+
+		for(AbstractCursor<KeyValue<Row>> rows : finds) {
+			//reading them is what puts them in the session cache
+			while(rows.nextImpl() != null) {}
+		}
+	}
+
+	/**
+	 * We read ahead of what we handed out so put the index cursor back where the caller thinks it is
+	 */
+	private void moveBackToPosition() {
+		for(int i = position; i < batch.size(); i++) {
+			cursor.previousImpl();
+		}
+		clearBatch();
+	}
+
+	private void clearBatch() {
+		batch = new ArrayList<IndexColumnInfo>();
+		position = 0;
+	}
+}
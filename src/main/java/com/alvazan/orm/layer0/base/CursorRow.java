@@ -11,6 +11,7 @@ import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
 import com.alvazan.orm.api.z8spi.iter.StringLocal;
 import com.alvazan.orm.impl.meta.data.MetaClass;
 import com.alvazan.orm.impl.meta.data.MetaIdField;
+import com.alvazan.orm.impl.meta.data.collections.ToOneBatches;
 
 public class CursorRow<T> extends AbstractCursor<KeyValue<T>>{
 
@@ -20,6 +21,8 @@ public class CursorRow<T> extends AbstractCursor<KeyValue<T>>{
 	private String query;
 	private AbstractCursor<KeyValue<Row>> cursor;
 	private NoSqlSession session;
+	//so to-one proxies of the rows we hand out can be loaded together
+	private ToOneBatches toOneBatches = new ToOneBatches();
 	
 	public CursorRow(NoSqlSession session, MetaClass<T> meta2, AbstractCursor<KeyValue<Row>> cursor,
 			String query2) {
@@ -82,7 +85,12 @@ public class CursorRow<T> extends AbstractCursor<KeyValue<T>>{
 			}
 			keyVal.setKey(obj);
 		} else {
-			keyVal = meta.translateFromRow(row, session);
+			ToOneBatches previous = ToOneBatches.setCurrent(toOneBatches);
+			try {
+				keyVal = meta.translateFromRow(row, session);
+			} finally {
+				ToOneBatches.setCurrent(previous);
+			}
 		}
 		
 		return keyVal;
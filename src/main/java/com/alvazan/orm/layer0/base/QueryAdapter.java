@@ -47,6 +47,7 @@ public class QueryAdapter<T> implements Query<T> {
 	private MetaClass<T> mainMetaClass;
 	private ViewInfo mainView;
 	private Class targetSubclass;
+	private List<ViewInfo> prefetchViews = new ArrayList<ViewInfo>();
 
 	public void setup(MetaClass<T> target, SpiMetaQuery metaQuery, SpiQueryAdapter indexQuery, BaseEntityManagerImpl entityMgr, Class clazz) {
 		this.mainMetaClass = target;
@@ -131,6 +132,9 @@ public class QueryAdapter<T> implements Query<T> {
 		//BIG NOTE: Here, we could return all the keys from the join so we can eagerly fetch other entities as well
 		//instead of waiting for the user to loop through those entities AND if user accesses those entites, we could block
 		//while the load is happening too in the background
+		if(prefetchViews.size() > 0)
+			indice = new CursorPrefetchJoins(indice, mgr.getSession(), prefetchViews, batchSize);
+		
 		String query = meta.getQuery();
 		AbstractCursor<KeyValue<T>> results = mgr.findAllImpl2(mainMetaClass, mainView, indice, query, cacheResults, batchSize);
 
@@ -197,6 +201,24 @@ public class QueryAdapter<T> implements Query<T> {
 		this.indexQuery.setBatchSize(batchSize);
 	}
 
+	@Override
+	public void setJoinMemoryBudget(int numRows) {
+		this.indexQuery.setJoinMemoryBudget(numRows);
+	}
+
+	@Override
+	public Query<T> prefetch(String alias) {
+		//only eagerly joined views have the joined primary keys in the index results
+		for(ViewInfo view : meta.getViewsEagerJoin()) {
+			if(view != mainView && view.getAlias().equals(alias)) {
+				if(!prefetchViews.contains(view))
+					prefetchViews.add(view);
+				return this;
+			}
+		}
+		throw new IllegalArgumentException("alias='"+alias+"' is not a view joined to in the where clause of query="+meta.getQuery());
+	}
+
 	@Override
 	public Iterable<KeyValue<T>> getResultsIter() {
 		return getResultsIter(false);
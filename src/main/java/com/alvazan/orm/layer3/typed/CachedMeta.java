@@ -1,7 +1,7 @@
 package com.alvazan.orm.layer3.typed;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Singleton;
 
@@ -20,7 +20,7 @@ import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 public class CachedMeta {
 
 	private static final Logger log = LoggerFactory.getLogger(CachedMeta.class);
-	private Map<String, DboTableMeta> cachedMeta = new HashMap<String, DboTableMeta>();
+	private Map<String, DboTableMeta> cachedMeta = new ConcurrentHashMap<String, DboTableMeta>();
 	private NoSqlEntityManager mgr;
 	private int counter  = 0;
 	
@@ -36,8 +36,9 @@ public class CachedMeta {
 	}
 	
 	private DboTableMeta loadAllTableData(String colFamily) {
-		//only synchronize on the column family we need to create so we create it once
-		synchronized(colFamily.intern()) {
+		//the tables are only put in the map once fully loaded so getMeta never needs a lock.  Loading is
+		//rare and the one entity manager is not thread safe so loads of all column families take one lock
+		synchronized(this) {
 			if (log.isInfoEnabled())
 				log.info("loading table="+colFamily);
 			DboTableMeta dboTableMeta = cachedMeta.get(colFamily);
@@ -98,7 +98,8 @@ public class NoSqlTypedSessionImpl implements NoSqlTypedSession {
 	public void removeIndexPoint(IndexPoint pt, String partitionBy, String partitionId) {
 		DboColumnMeta colMeta = pt.getColumnMeta();
 		ScanInfo info = ScanInfo.createScanInfo(colMeta, partitionBy, partitionId);
-		byte[] rowKey = info.getRowKey();
+		//with sharded index rows the entry lives in the shard of its primary key, same as a put writes it
+		byte[] rowKey = StandardConverters.convertToBytes(colMeta.getIndexRowKey(partitionBy, partitionId, pt.getRawKey()));
 		String indColFamily = info.getIndexColFamily();
 		DboTableMeta cf = info.getEntityColFamily();
 		
@@ -110,7 +111,8 @@ public class NoSqlTypedSessionImpl implements NoSqlTypedSession {
 	public void addIndexPoint(IndexPoint pt, String partitionBy, String partitionId) {
 		DboColumnMeta colMeta = pt.getColumnMeta();
 		ScanInfo info = ScanInfo.createScanInfo(colMeta, partitionBy, partitionId);
-		byte[] rowKey = info.getRowKey();
+		//with sharded index rows the entry lives in the shard of its primary key, same as a put writes it
+		byte[] rowKey = StandardConverters.convertToBytes(colMeta.getIndexRowKey(partitionBy, partitionId, pt.getRawKey()));
 		String indColFamily = info.getIndexColFamily();
 		DboTableMeta cf = info.getEntityColFamily();
 		
@@ -0,0 +1,260 @@
+package com.alvazan.orm.layer5.nosql.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.z8spi.CacheStats;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.RowHolder;
+import com.alvazan.orm.api.z8spi.SecondLevelCache;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.layer5.nosql.cache.NoSqlReadCacheImpl.TheKey;
+
+/**
+ * The default SecondLevelCache.  Holds at most maxRows rows and maxBytes bytes(an estimate of keys, column
+ * names and values) and evicts the least recently used or least frequently used row to make room.
+ * Rows older than their column family's cache ttl are dropped when they are next read.
+ *
+ * Rows are kept in buckets by use count, LRU keeps every row in one bucket ordered by last use and LFU
+ * moves a row to the next bucket on every hit so the victim is always the oldest row of the lowest
+ * bucket.
+ *
+ * Every invalidate bumps the generation and remembers it for that key(for the last MAX_INVALIDATED keys, older
+ * ones count as invalidated at the newest generation we forgot) so a put of a row read before the invalidate
+ * is thrown away.
+ */
+public class BoundedRowCache implements SecondLevelCache {
+
+	public static final int DEFAULT_MAX_ROWS = 10000;
+	public static final long DEFAULT_MAX_BYTES = 64*1024*1024;
+
+	private static final Logger log = LoggerFactory.getLogger(BoundedRowCache.class);
+	//rough cost of the holder, map entries and Column objects so tiny rows are not counted as free
+	private static final int ROW_OVERHEAD = 64;
+	private static final int COLUMN_OVERHEAD = 32;
+	private static final int MAX_INVALIDATED = 10000;
+
+	public enum Policy {
+		LRU, LFU;
+
+		public static Policy translate(String val) {
+			for(Policy p : Policy.values()) {
+				if(p.name().equalsIgnoreCase(val))
+					return p;
+			}
+			return null;
+		}
+	}
+
+	private final int maxRows;
+	private final long maxBytes;
+	private final Policy policy;
+
+	private Map<TheKey, Entry> entries = new HashMap<TheKey, Entry>();
+	private TreeMap<Integer, LinkedHashSet<TheKey>> buckets = new TreeMap<Integer, LinkedHashSet<TheKey>>();
+	private long weight;
+	private long generation;
+	private long forgottenGeneration;
+	private Map<TheKey, Long> invalidated = new LinkedHashMap<TheKey, Long>(16, 0.75f, false) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<TheKey, Long> eldest) {
+			if(size() <= MAX_INVALIDATED)
+				return false;
+			forgottenGeneration = Math.max(forgottenGeneration, eldest.getValue());
+			return true;
+		}
+	};
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+	private long invalidations;
+
+	/**
+	 * @param maxRows 0 or less for no row limit
+	 * @param maxBytes 0 or less for no byte limit
+	 */
+	public BoundedRowCache(int maxRows, long maxBytes, Policy policy) {
+		if(policy == null)
+			throw new IllegalArgumentException("policy cannot be null");
+		this.maxRows = maxRows;
+		this.maxBytes = maxBytes;
+		this.policy = policy;
+	}
+
+	@Override
+	public synchronized RowHolder<Row> get(DboTableMeta colFamily, byte[] key) {
+		TheKey k = new TheKey(colFamily.getColumnFamily(), key);
+		Entry entry = entries.get(k);
+		if(entry == null) {
+			misses++;
+			return null;
+		} else if(entry.expiresAt <= currentTimeMillis()) {
+			removeEntry(k, entry);
+			expirations++;
+			misses++;
+			return null;
+		}
+
+		touch(k, entry);
+		hits++;
+		return entry.holder;
+	}
+
+	@Override
+	public synchronized long generation() {
+		return generation;
+	}
+
+	@Override
+	public synchronized void put(DboTableMeta colFamily, byte[] key, Row row, long readGeneration) {
+		TheKey k = new TheKey(colFamily.getColumnFamily(), key);
+		Long lastInvalidate = invalidated.get(k);
+		if(lastInvalidate == null)
+			lastInvalidate = forgottenGeneration;
+		if(lastInvalidate > readGeneration) {
+			if(log.isDebugEnabled())
+				log.debug("row in cf="+colFamily.getColumnFamily()+" was invalidated while it was read so not caching it");
+			return;
+		}
+
+		Entry existing = entries.get(k);
+		if(existing != null)
+			removeEntry(k, existing);
+
+		long rowWeight = weigh(key, row);
+		if(maxBytes > 0 && rowWeight > maxBytes) {
+			if(log.isDebugEnabled())
+				log.debug("row in cf="+colFamily.getColumnFamily()+" weighs "+rowWeight+" bytes which is more than the whole cache so not caching it");
+			return;
+		}
+
+		Entry entry = new Entry();
+		entry.holder = new RowHolder<Row>(key, row);
+		entry.weight = rowWeight;
+		int ttl = colFamily.getCacheTtlSeconds();
+		if(ttl > 0)
+			entry.expiresAt = currentTimeMillis() + ttl * 1000L;
+		else
+			entry.expiresAt = Long.MAX_VALUE;
+		//a row we replace keeps its use count so a hot row does not become the next LFU victim
+		if(existing != null)
+			entry.uses = existing.uses;
+
+		//make room before adding so LFU never picks the row we are adding(it has the lowest count)
+		makeRoom(rowWeight);
+		entries.put(k, entry);
+		bucket(entry.uses).add(k);
+		weight += rowWeight;
+	}
+
+	@Override
+	public synchronized void invalidate(DboTableMeta colFamily, byte[] key) {
+		TheKey k = new TheKey(colFamily.getColumnFamily(), key);
+		//remove first so the key moves to the end and is forgotten last
+		invalidated.remove(k);
+		invalidated.put(k, ++generation);
+		Entry entry = entries.get(k);
+		if(entry == null)
+			return;
+		removeEntry(k, entry);
+		invalidations++;
+	}
+
+	@Override
+	public synchronized void clear() {
+		entries.clear();
+		buckets.clear();
+		weight = 0;
+		//rows being read right now may be from before whatever the clear was for
+		invalidated.clear();
+		forgottenGeneration = ++generation;
+	}
+
+	@Override
+	public synchronized CacheStats getStats() {
+		return new CacheStats(hits, misses, evictions, expirations, invalidations, entries.size(), weight);
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private void touch(TheKey k, Entry entry) {
+		LinkedHashSet<TheKey> bucket = buckets.get(entry.uses);
+		bucket.remove(k);
+		if(policy == Policy.LFU) {
+			if(bucket.isEmpty())
+				buckets.remove(entry.uses);
+			if(entry.uses < Integer.MAX_VALUE)
+				entry.uses++;
+		}
+		bucket(entry.uses).add(k);
+	}
+
+	private void makeRoom(long incomingWeight) {
+		while((maxRows > 0 && entries.size() >= maxRows) || (maxBytes > 0 && weight + incomingWeight > maxBytes)) {
+			Map.Entry<Integer, LinkedHashSet<TheKey>> lowest = buckets.firstEntry();
+			Iterator<TheKey> iter = lowest.getValue().iterator();
+			TheKey victim = iter.next();
+			removeEntry(victim, entries.get(victim));
+			evictions++;
+		}
+	}
+
+	private void removeEntry(TheKey k, Entry entry) {
+		entries.remove(k);
+		LinkedHashSet<TheKey> bucket = buckets.get(entry.uses);
+		bucket.remove(k);
+		if(bucket.isEmpty())
+			buckets.remove(entry.uses);
+		weight -= entry.weight;
+	}
+
+	private LinkedHashSet<TheKey> bucket(int uses) {
+		LinkedHashSet<TheKey> bucket = buckets.get(uses);
+		if(bucket == null) {
+			bucket = new LinkedHashSet<TheKey>();
+			buckets.put(uses, bucket);
+		}
+		return bucket;
+	}
+
+	private long weigh(byte[] key, Row row) {
+		long total = ROW_OVERHEAD + key.length;
+		if(row == null)
+			return total;
+		for(Column c : row.getColumns()) {
+			total += COLUMN_OVERHEAD + c.getName().length;
+			if(c.getValue() != null)
+				total += c.getValue().length;
+		}
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		return "BoundedRowCache[policy="+policy+" maxRows="+maxRows+" maxBytes="+maxBytes+" "+getStats()+"]";
+	}
+
+	private static class Entry {
+		private RowHolder<Row> holder;
+		private long weight;
+		private long expiresAt;
+		private int uses;
+	}
+}
@@ -0,0 +1,185 @@
+package com.alvazan.orm.layer5.nosql.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alvazan.orm.api.z8spi.action.Action;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.action.Persist;
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+
+/**
+ * The actions of one session waiting on flush.  A put of a row already in the log is merged into the
+ * Persist that is there(a later value of a column replaces the earlier one) and an index add or remove of
+ * an index column already in the log replaces the earlier add or remove so only the last one is sent.  Any
+ * remove of a row or of its columns stops later puts of that row from merging into earlier ones so the
+ * removes and puts of a row still reach the database in the order they were made.
+ */
+public class CoalescingActionLog {
+
+	//cancelled actions are left as null so no one has to shift the list
+	private List<Action> actions = new ArrayList<Action>();
+	private int size;
+	private Map<RowKey, OpenRow> openRows = new HashMap<RowKey, OpenRow>();
+	private Map<IndexKey, Integer> indexPositions = new HashMap<IndexKey, Integer>();
+	private long coalesced;
+
+	public void put(Persist persist) {
+		RowKey key = new RowKey(persist.getColFamily(), persist.getRowKey());
+		OpenRow row = openRows.get(key);
+		if(row == null) {
+			openRows.put(key, new OpenRow(persist));
+			add(persist);
+			return;
+		}
+
+		row.merge(persist.getColumns());
+		coalesced++;
+	}
+
+	public void index(Action action, String indexColFamily, byte[] rowKey, IndexColumn column) {
+		IndexKey key = new IndexKey(indexColFamily, rowKey, column);
+		Integer previous = indexPositions.get(key);
+		if(previous != null) {
+			//adding then removing(or removing then adding) the same index column only needs the last one
+			actions.set(previous, null);
+			size--;
+			coalesced++;
+		}
+		indexPositions.put(key, actions.size());
+		add(action);
+	}
+
+	/**
+	 * A Remove or RemoveColumn of the row
+	 */
+	public void remove(Action action, DboTableMeta colFamily, byte[] rowKey) {
+		openRows.remove(new RowKey(colFamily, rowKey));
+		add(action);
+	}
+
+	private void add(Action action) {
+		actions.add(action);
+		size++;
+	}
+
+	/**
+	 * @return the number of actions that will be sent
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return how many actions were merged into or cancelled by later ones so far
+	 */
+	public long getCoalesced() {
+		return coalesced;
+	}
+
+	/**
+	 * @return the actions to send in the order they were made and leaves the log empty
+	 */
+	public List<Action> drain() {
+		List<Action> toSend = new ArrayList<Action>(size);
+		for(Action action : actions) {
+			if(action != null)
+				toSend.add(action);
+		}
+		actions = new ArrayList<Action>();
+		size = 0;
+		openRows.clear();
+		indexPositions.clear();
+		return toSend;
+	}
+
+	private static ByteArray wrap(byte[] data) {
+		if(data == null)
+			return new ByteArray(new byte[0]);
+		return new ByteArray(data);
+	}
+
+	private static class OpenRow {
+		private Persist persist;
+		private Map<ByteArray, Column> columns;
+
+		public OpenRow(Persist persist) {
+			this.persist = persist;
+		}
+
+		public void merge(List<Column> newColumns) {
+			if(columns == null) {
+				//only copied once a second put shows up as most rows are only put once
+				columns = new LinkedHashMap<ByteArray, Column>();
+				putAll(persist.getColumns());
+			}
+			putAll(newColumns);
+			persist.setColumns(new ArrayList<Column>(columns.values()));
+		}
+
+		private void putAll(List<Column> cols) {
+			for(Column c : cols) {
+				columns.put(wrap(c.getName()), c);
+			}
+		}
+	}
+
+	private static class RowKey {
+		private String colFamily;
+		private ByteArray key;
+
+		public RowKey(DboTableMeta colFamily, byte[] key) {
+			this.colFamily = colFamily.getColumnFamily();
+			this.key = wrap(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * colFamily.hashCode() + key.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof RowKey))
+				return false;
+			RowKey other = (RowKey) obj;
+			return colFamily.equals(other.colFamily) && key.equals(other.key);
+		}
+	}
+
+	private static class IndexKey {
+		private String indexColFamily;
+		private ByteArray rowKey;
+		private ByteArray indexedValue;
+		private ByteArray primaryKey;
+
+		public IndexKey(String indexColFamily, byte[] rowKey, IndexColumn column) {
+			this.indexColFamily = indexColFamily;
+			this.rowKey = wrap(rowKey);
+			this.indexedValue = wrap(column.getIndexedValue());
+			this.primaryKey = wrap(column.getPrimaryKey());
+		}
+
+		@Override
+		public int hashCode() {
+			int result = indexColFamily.hashCode();
+			result = 31 * result + rowKey.hashCode();
+			result = 31 * result + indexedValue.hashCode();
+			return 31 * result + primaryKey.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof IndexKey))
+				return false;
+			IndexKey other = (IndexKey) obj;
+			return indexColFamily.equals(other.indexColFamily) && rowKey.equals(other.rowKey)
+					&& indexedValue.equals(other.indexedValue) && primaryKey.equals(other.primaryKey);
+		}
+	}
+}
@@ -7,16 +7,18 @@ import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 
 public class EmptyCache implements Cache {
 
-	private Cache realCache;
+	private NoSqlReadCacheImpl realCache;
 	private boolean skipCache;
 	private boolean cacheResults;
+	private long generation;
 	
-	public EmptyCache(Cache c, boolean skipCache, boolean cacheResults) {
+	public EmptyCache(NoSqlReadCacheImpl c, boolean skipCache, boolean cacheResults, long generation) {
 		if(c == null)
 			throw new IllegalArgumentException("c can't be null");
 		realCache = c;
 		this.skipCache = skipCache;
 		this.cacheResults = cacheResults;
+		this.generation = generation;
 	}
 	
 	@Override
@@ -30,6 +32,6 @@ public class EmptyCache implements Cache {
 	@Override
 	public void cacheRow(DboTableMeta colFamily, byte[] b, Row value) {
 		if(cacheResults)
-			realCache.cacheRow(colFamily, b, value);
+			realCache.cacheRow(colFamily, b, value, generation);
 	}
 }
@@ -2,6 +2,7 @@ package com.alvazan.orm.layer5.nosql.cache;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -12,6 +13,7 @@ import javax.inject.Provider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.alvazan.orm.api.z5api.FlushFuture;
 import com.alvazan.orm.api.z5api.NoSqlSession;
 import com.alvazan.orm.api.z8spi.Cache;
 import com.alvazan.orm.api.z8spi.CacheThreadLocal;
@@ -22,6 +24,7 @@ import com.alvazan.orm.api.z8spi.NoSqlRawSession;
 import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.RowHolder;
 import com.alvazan.orm.api.z8spi.ScanInfo;
+import com.alvazan.orm.api.z8spi.SecondLevelCache;
 import com.alvazan.orm.api.z8spi.action.Column;
 import com.alvazan.orm.api.z8spi.action.IndexColumn;
 import com.alvazan.orm.api.z8spi.conv.ByteArray;
@@ -35,7 +38,19 @@ public class NoSqlReadCacheImpl implements NoSqlSession, Cache {
 	
 	@Inject @Named("writecachelayer")
 	private NoSqlSession session;
-	private Map<TheKey, RowHolder<Row>> cache = new HashMap<TheKey, RowHolder<Row>>();
+	@Inject
+	private SecondLevelCache sharedCache;
+	@Inject @Named("sessionMaxRows")
+	private int sessionMaxRows;
+	private Map<TheKey, RowHolder<Row>> cache = new LinkedHashMap<TheKey, RowHolder<Row>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<TheKey, RowHolder<Row>> eldest) {
+			return sessionMaxRows > 0 && size() > sessionMaxRows;
+		}
+	};
+	//rows written in this session that other sessions must not cache until after we flush
+	private Map<TheKey, DboTableMeta> pendingWrites = new HashMap<TheKey, DboTableMeta>();
 	@Inject
 	private Provider<Row> rowProvider;
 	
@@ -53,7 +68,9 @@ public class NoSqlReadCacheImpl implements NoSqlSession, Cache {
 		
 		value.setKey(rowKey);
 		value.addColumns(columns);
-		cacheRow(colFamily, rowKey, value);
+		cacheInSession(colFamily, rowKey, value);
+		invalidateShared(colFamily, rowKey);
+		flushIfDue();
 	}
 
 	@Override
@@ -65,17 +82,22 @@ public class NoSqlReadCacheImpl implements NoSqlSession, Cache {
 		else if(columns == null)
 			throw new IllegalArgumentException("column cannot be null");
 		session.persistIndex(colFamily, indexColFamily, rowKey, columns);
+		flushIfDue();
 	}
 	
 	@Override
 	public void remove(DboTableMeta colFamily, byte[] rowKey) {
 		session.remove(colFamily, rowKey);
-		cacheRow(colFamily, rowKey, null);
+		cacheInSession(colFamily, rowKey, null);
+		invalidateShared(colFamily, rowKey);
+		flushIfDue();
 	}
 
 	@Override
 	public void remove(DboTableMeta colFamily, byte[] rowKey, Collection<byte[]> columnNames) {
 		session.remove(colFamily, rowKey, columnNames);
+		invalidateShared(colFamily, rowKey);
+		flushIfDue();
 		RowHolder<Row> currentRow = fromCache(colFamily, rowKey);
 		if(currentRow == null) {
 			return;
@@ -94,15 +116,17 @@ public class NoSqlReadCacheImpl implements NoSqlSession, Cache {
 		if(result != null)
 			return result.getValue(); //This may return the cached null value!!
 		
+		long generation = sharedCache.generation();
 		Row row = session.find(colFamily, rowKey);
-		cacheRow(colFamily, rowKey, row);
+		cacheRow(colFamily, rowKey, row, generation);
 		return row;
 	}
 	
 	@Override
 	public AbstractCursor<KeyValue<Row>> find(DboTableMeta colFamily,
 			DirectCursor<byte[]> rowKeys, boolean skipCache, boolean cacheResults, Integer batchSize) {
-		Cache c = new EmptyCache(this, skipCache, cacheResults);
+		//the cursor reads rows later but never before now so this generation is old enough for all of them
+		Cache c = new EmptyCache(this, skipCache, cacheResults, sharedCache.generation());
 		
 		//NOTE: I would put a finally to clear out the threadlocal normally BUT sometimes log statements may
 		//cause further finds to be called which come in here as well and on their way BACK up the stack, they set
@@ -119,18 +143,68 @@ public class NoSqlReadCacheImpl implements NoSqlSession, Cache {
 			throw new IllegalArgumentException("CF="+colFamily+" key is null and shouldn't be....(this should be trapped in higher level exception telling us which index is corrupt");
 		TheKey k = new TheKey(colFamily.getColumnFamily(), key);
 		RowHolder<Row> holder = cache.get(k);
-		if(holder != null && log.isInfoEnabled())
-			log.info("cache hit(need to optimize this even further)");
+		if(holder != null) {
+			if(log.isInfoEnabled())
+				log.info("cache hit(need to optimize this even further)");
+			return holder;
+		} else if(!colFamily.isCacheable() || pendingWrites.containsKey(k)) {
+			return null;
+		}
+
+		RowHolder<Row> shared = sharedCache.get(colFamily, key);
+		if(shared == null)
+			return null;
+		//other sessions read the shared row so we modify our own copy
+		Row row = shared.getValue();
+		if(row != null)
+			row = row.deepCopy();
+		holder = new RowHolder<Row>(key, row);
+		cache.put(k, holder);
 		return holder;
 	}
 
+	/**
+	 * We don't know when this row was read so it only goes in our own cache, reads go through EmptyCache
+	 * which knows the generation
+	 */
+	@Override
 	public void cacheRow(DboTableMeta colFamily, byte[] key, Row r) {
+		cacheInSession(colFamily, key, r);
+	}
+
+	/**
+	 * Called with rows just read from the database so besides our own cache they also go in the shared
+	 * cache if the column family is cacheable
+	 * 
+	 * @param generation the shared cache's generation from before the row was read
+	 */
+	public void cacheRow(DboTableMeta colFamily, byte[] key, Row r, long generation) {
+		TheKey k = cacheInSession(colFamily, key, r);
+		if(colFamily.isCacheable() && !pendingWrites.containsKey(k)) {
+			Row copy = null;
+			if(r != null)
+				copy = r.deepCopy();
+			sharedCache.put(colFamily, key, copy, generation);
+		}
+	}
+
+	private TheKey cacheInSession(DboTableMeta colFamily, byte[] key, Row r) {
 		//NOTE: We cache null rows as on a user.getYYYEntites(), the loaded entities may be null though the user
 		//get a List<YYYEntity> and all are there but he can check if they are really there with
 		//mgr.checkRowExists(entity) and that will just hit the cache
 		TheKey k = new TheKey(colFamily.getColumnFamily(), key);
 		RowHolder<Row> holder = new RowHolder<Row>(key, r); //r may be null so we are caching null here
 		cache.put(k, holder);
+		return k;
+	}
+
+	private void invalidateShared(DboTableMeta colFamily, byte[] key) {
+		if(!colFamily.isCacheable())
+			return;
+		//invalidate now so no one reads the old row from the cache and again after the flush in case another
+		//session read the old row from the database and cached it in between
+		pendingWrites.put(new TheKey(colFamily.getColumnFamily(), key), colFamily);
+		sharedCache.invalidate(colFamily, key);
 	}
 
 	static final class TheKey {
@@ -153,6 +227,10 @@ public class NoSqlReadCacheImpl implements NoSqlSession, Cache {
             return result;
         }
 
+        byte[] getKey() {
+            return key.getKey();
+        }
+
         @Override
         public int hashCode() {
             return hash;
@@ -185,6 +263,41 @@ public class NoSqlReadCacheImpl implements NoSqlSession, Cache {
 	@Override
 	public void flush() {
 		session.flush();
+		for(Map.Entry<TheKey, DboTableMeta> entry : pendingWrites.entrySet()) {
+			sharedCache.invalidate(entry.getValue(), entry.getKey().getKey());
+		}
+		pendingWrites.clear();
+	}
+
+	@Override
+	public boolean isFlushDue() {
+		return session.isFlushDue();
+	}
+
+	/**
+	 * A chunk of a bulk write goes through flush() too or another session could cache the old row in between
+	 * our invalidate and the write and keep it until we flush at the very end
+	 */
+	private void flushIfDue() {
+		if(session.isFlushDue())
+			flush();
+	}
+
+	@Override
+	public FlushFuture flushAsync() {
+		//the write cache keeps its own list so these need to be invalidated once that write is done
+		final Map<TheKey, DboTableMeta> written = pendingWrites;
+		pendingWrites = new HashMap<TheKey, DboTableMeta>();
+		FlushFuture future = session.flushAsync();
+		future.addListener(new Runnable() {
+			@Override
+			public void run() {
+				for(Map.Entry<TheKey, DboTableMeta> entry : written.entrySet()) {
+					sharedCache.invalidate(entry.getValue(), entry.getKey().getKey());
+				}
+			}
+		});
+		return future;
 	}
 
 	@Override
@@ -196,6 +309,7 @@ public class NoSqlReadCacheImpl implements NoSqlSession, Cache {
 	public void removeFromIndex(DboTableMeta cf, String indexColFamily, byte[] rowKeyBytes,
 			IndexColumn c) {
 		session.removeFromIndex(cf, indexColFamily, rowKeyBytes, c);
+		flushIfDue();
 	}
 	
 	@Override
@@ -232,7 +346,9 @@ public class NoSqlReadCacheImpl implements NoSqlSession, Cache {
 	public void removeColumn(DboTableMeta colFamily, byte[] rowKey,
 			byte[] columnName) {
 		session.removeColumn(colFamily, rowKey, columnName);
-		cacheRow(colFamily, rowKey, null);
+		cacheInSession(colFamily, rowKey, null);
+		invalidateShared(colFamily, rowKey);
+		flushIfDue();
 	}
 
 	@Override
@@ -1,12 +1,17 @@
 package com.alvazan.orm.layer5.nosql.cache;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import com.alvazan.orm.api.z5api.FlushFuture;
 import com.alvazan.orm.api.z5api.NoSqlSession;
 import com.alvazan.orm.api.z8spi.ColumnSliceInfo;
 import com.alvazan.orm.api.z8spi.Key;
@@ -29,6 +34,8 @@ import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
 import com.alvazan.orm.api.z8spi.iter.IterableWrappingCursor;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
+import com.alvazan.orm.api.z8spi.meta.DboDatabaseMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 
 public class NoSqlWriteCacheImpl implements NoSqlSession {
@@ -36,9 +43,19 @@ public class NoSqlWriteCacheImpl implements NoSqlSession {
 	@Inject
 	@Named("logger")
 	private NoSqlRawSession rawSession;
-	private List<Action> actions = new ArrayList<Action>();
+	private static final Set<String> META_TABLES = new HashSet<String>(Arrays.asList(DboDatabaseMeta.class.getSimpleName(),
+			DboTableMeta.class.getSimpleName(), DboColumnMeta.class.getSimpleName()));
+	private CoalescingActionLog actions = new CoalescingActionLog();
+	@Inject
+	@Named("flushChunkSize")
+	private int flushChunkSize;
+	//meta data goes out in one piece since the index and table lookups on write need all of it
+	private boolean metaPending;
 	private MetaLookup ormSession;
 	private List<byte[]> newTables = new ArrayList<byte[]>();
+	@Inject
+	private WriteBehindPipeline writeBehind;
+	private FlushFuture lastAsync;
 	
 	@Override
 	public void put(DboTableMeta colFamily, byte[] rowKey, List<Column> columns) {
@@ -49,7 +66,9 @@ public class NoSqlWriteCacheImpl implements NoSqlSession {
 		persist.setColFamily(colFamily);
 		persist.setRowKey(rowKey);
 		persist.setColumns(columns);
-		actions.add(persist);
+		if(META_TABLES.contains(colFamily.getColumnFamily()))
+			metaPending = true;
+		actions.put(persist);
 	}
 
 	@Override
@@ -58,7 +77,7 @@ public class NoSqlWriteCacheImpl implements NoSqlSession {
 		remove.setAction(RemoveEnum.REMOVE_ENTIRE_ROW);
 		remove.setColFamily(colFamily);
 		remove.setRowKey(rowKey);
-		actions.add(remove);			
+		actions.remove(remove, colFamily, rowKey);
 	}
 	
 	@Override
@@ -68,7 +87,7 @@ public class NoSqlWriteCacheImpl implements NoSqlSession {
 		remove.setColFamily(colFamily);
 		remove.setRowKey(rowKey);
 		remove.setColumns(columnNames);
-		actions.add(remove);		
+		actions.remove(remove, colFamily, rowKey);
 	}
 
 	@Override
@@ -81,7 +100,7 @@ public class NoSqlWriteCacheImpl implements NoSqlSession {
 		Integer ttl = column.getTtl();
 		if (ttl != null)
 			persist.setRowTtl(ttl);
-		actions.add(persist);
+		actions.index(persist, indexColFamily, rowKey, column);
 	}
 
 	@Override
@@ -90,7 +109,7 @@ public class NoSqlWriteCacheImpl implements NoSqlSession {
      	removeColumn.setColFamily(colFamily);
      	removeColumn.setRowKey(rowKey);
      	removeColumn.setColumn(columnName);
-		actions.add(removeColumn);
+		actions.remove(removeColumn, colFamily, rowKey);
 	}
 
 	@Override
@@ -101,7 +120,7 @@ public class NoSqlWriteCacheImpl implements NoSqlSession {
 		remove.setIndexCfName(indexColFamily);
 		remove.setRowKey(rowKeyBytes);
 		remove.setColumn(c);
-		actions.add(remove);
+		actions.index(remove, indexColFamily, rowKeyBytes, c);
 	}
 
 	@Override
@@ -138,8 +157,9 @@ public class NoSqlWriteCacheImpl implements NoSqlSession {
 	public void flush() {
 		//if(log.isDebugEnabled())
 		//	logInformation();
-		rawSession.sendChanges(actions, ormSession);
-		actions = new ArrayList<Action>();
+		waitForAsyncFlush();
+		rawSession.sendChanges(actions.drain(), ormSession);
+		metaPending = false;
 		
 		//special case here...if any persists were of the DboTableMeta, we should create table now
 		for(byte[] key : newTables) {
@@ -149,6 +169,42 @@ public class NoSqlWriteCacheImpl implements NoSqlSession {
 		newTables.clear();
 	}
 
+	@Override
+	public FlushFuture flushAsync() {
+		//creating tables has to happen right after the meta is written so that stays a normal flush
+		if(newTables.size() > 0) {
+			flush();
+			return FlushFuture.completed();
+		}
+
+		lastAsync = writeBehind.submit(actions.drain());
+		metaPending = false;
+		return lastAsync;
+	}
+
+	/**
+	 * Bulk updates and deletes would otherwise hold every action until the caller flushes.  The read cache
+	 * does the flush so the rows of every chunk are invalidated in the shared cache like any other flush
+	 */
+	@Override
+	public boolean isFlushDue() {
+		return flushChunkSize > 0 && !metaPending && actions.size() >= flushChunkSize;
+	}
+
+	private void waitForAsyncFlush() {
+		if(lastAsync == null)
+			return;
+		try {
+			//so this flush can't overtake the one before it.  A failure was already handed to that future
+			lastAsync.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+		}
+		lastAsync = null;
+	}
+
 //	private void insertTime(Action action, long time) {
 //		if(action instanceof Persist) {
 //			((Persist)action).setTimestamp(time);
@@ -0,0 +1,259 @@
+package com.alvazan.orm.layer5.nosql.cache;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z5api.FlushFuture;
+import com.alvazan.orm.api.z8spi.MetaLookup;
+import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.action.Action;
+import com.alvazan.orm.api.z8spi.action.Persist;
+import com.alvazan.orm.api.z8spi.action.Remove;
+import com.alvazan.orm.api.z8spi.action.RemoveColumn;
+import com.alvazan.orm.api.z8spi.action.RemoveIndex;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+
+/**
+ * One per factory(so one per database).  flushAsync of every NoSqlEntityManager lands in a bounded queue
+ * and a single writer thread sends what is queued as one sendChanges of up to batchSize actions, waiting at
+ * most maxDelayMillis for more flushes to join the batch.  One thread keeps the flushes in the order they
+ * were made.  Once queueSize flushes are waiting flushAsync blocks until the writer catches up so a slow
+ * database slows the callers down instead of filling up memory.
+ *
+ * Flushes of any session go out together as long as they touch different rows.  Actions of one sendChanges
+ * can share a timestamp(cassandra) so a remove and a later put of the same row in one batch could lose the
+ * put.  The meta data sendChanges looks up comes from an entity manager of the writer thread as the ones
+ * that flushed are not thread safe.
+ */
+public class WriteBehindPipeline {
+
+	private static final Logger log = LoggerFactory.getLogger(WriteBehindPipeline.class);
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 5;
+	public static final int DEFAULT_QUEUE_SIZE = 256;
+
+	@Inject
+	@Named("logger")
+	private NoSqlRawSession rawSession;
+
+	private int batchSize;
+	private long maxDelayMillis;
+	private BlockingQueue<PendingFlush> queue;
+	private ExecutorService executor;
+	private volatile boolean closed;
+	private volatile NoSqlEntityManagerFactory factory;
+	//only ever used by the writer thread
+	private NoSqlEntityManager writerMgr;
+
+	public WriteBehindPipeline(int batchSize, long maxDelayMillis, int queueSize) {
+		if(batchSize <= 0 || maxDelayMillis < 0 || queueSize <= 0)
+			throw new IllegalArgumentException("batchSize and queueSize must be 1 or more and maxDelayMillis 0 or more");
+		this.batchSize = batchSize;
+		this.maxDelayMillis = maxDelayMillis;
+		this.queue = new ArrayBlockingQueue<PendingFlush>(queueSize);
+	}
+
+	public void setFactory(NoSqlEntityManagerFactory factory) {
+		this.factory = factory;
+	}
+
+	public FlushFuture submit(List<Action> actions) {
+		if(actions.size() == 0)
+			return FlushFuture.completed();
+		else if(closed)
+			throw new IllegalStateException("factory is closed");
+
+		start();
+		FlushFuture future = new FlushFuture();
+		try {
+			queue.put(new PendingFlush(actions, future));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		return future;
+	}
+
+	private synchronized void start() {
+		if(executor != null)
+			return;
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "playorm-writebehind");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		executor.execute(new Writer());
+	}
+
+	/**
+	 * Writes everything already queued and then stops the writer
+	 */
+	public synchronized void close() {
+		closed = true;
+		if(executor == null)
+			return;
+		executor.shutdown();
+		try {
+			if(!executor.awaitTermination(60, TimeUnit.SECONDS) && log.isWarnEnabled())
+				log.warn("write behind queue still had "+queue.size()+" flushes to write after 60 seconds");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor = null;
+	}
+
+	public int getQueuedFlushes() {
+		return queue.size();
+	}
+
+	private void write(List<PendingFlush> batch, int numActions) {
+		List<Action> all = new ArrayList<Action>(numActions);
+		for(PendingFlush flush : batch) {
+			all.addAll(flush.actions);
+		}
+
+		Throwable failure = null;
+		try {
+			rawSession.sendChanges(all, writerLookup());
+		} catch(Throwable e) {
+			if(log.isWarnEnabled())
+				log.warn("write behind batch of "+batch.size()+" flushes("+numActions+" actions) failed", e);
+			failure = e;
+		}
+
+		for(PendingFlush flush : batch) {
+			flush.future.complete(failure);
+		}
+	}
+
+	/**
+	 * The providers only look up the DboTableMeta of a column family they have not seen yet and that meta was
+	 * written before the flush was queued(flushAsync creating a table is a normal flush) so any entity manager
+	 * finds it.  It is cleared every batch so it never hands out meta older than the batch.
+	 */
+	private MetaLookup writerLookup() {
+		if(writerMgr == null)
+			writerMgr = factory.createEntityManager();
+		else
+			writerMgr.clear();
+		return (MetaLookup) writerMgr;
+	}
+
+	private static boolean canJoin(PendingFlush next, Set<String> rows) {
+		for(String row : next.rows) {
+			if(rows.contains(row))
+				return false;
+		}
+		return true;
+	}
+
+	private static Set<String> rowsOf(List<Action> actions) {
+		Set<String> rows = new HashSet<String>();
+		for(Action action : actions) {
+			if(action instanceof Persist) {
+				Persist persist = (Persist) action;
+				rows.add(row(persist.getColFamily().getColumnFamily(), persist.getRowKey()));
+			} else if(action instanceof Remove) {
+				Remove remove = (Remove) action;
+				rows.add(row(remove.getColFamily().getColumnFamily(), remove.getRowKey()));
+			} else if(action instanceof RemoveColumn) {
+				RemoveColumn remove = (RemoveColumn) action;
+				rows.add(row(remove.getColFamily().getColumnFamily(), remove.getRowKey()));
+			} else if(action instanceof RemoveIndex) {
+				//PersistIndex too
+				RemoveIndex index = (RemoveIndex) action;
+				rows.add(row(index.getIndexCfName(), index.getRowKey()));
+			}
+		}
+		return rows;
+	}
+
+	private static String row(String colFamily, byte[] rowKey) {
+		return colFamily+":"+StandardConverters.convertToString(rowKey);
+	}
+
+	private class Writer implements Runnable {
+		@Override
+		public void run() {
+			try {
+				while(!closed || queue.size() > 0) {
+					PendingFlush first = queue.poll(100, TimeUnit.MILLISECONDS);
+					if(first == null)
+						continue;
+
+					PendingFlush next = first;
+					while(next != null)
+						next = writeBatch(next);
+				}
+			} catch (InterruptedException e) {
+				if(log.isWarnEnabled())
+					log.warn("write behind writer interrupted with "+queue.size()+" flushes still queued");
+				//nothing will write these anymore so don't leave anyone waiting on them
+				List<PendingFlush> left = new ArrayList<PendingFlush>();
+				queue.drainTo(left);
+				for(PendingFlush flush : left) {
+					flush.future.complete(e);
+				}
+			}
+		}
+
+		/**
+		 * Writes first plus the flushes behind it that can join it and returns the flush that could not
+		 * join, it goes first in the next batch so the order is kept
+		 */
+		private PendingFlush writeBatch(PendingFlush first) throws InterruptedException {
+			List<PendingFlush> batch = new ArrayList<PendingFlush>();
+			batch.add(first);
+			Set<String> rows = new HashSet<String>(first.rows);
+			int numActions = first.actions.size();
+			long deadline = System.currentTimeMillis() + maxDelayMillis;
+			PendingFlush leftOver = null;
+			while(numActions < batchSize) {
+				long wait = deadline - System.currentTimeMillis();
+				PendingFlush next = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.poll();
+				if(next == null)
+					break;
+				else if(!canJoin(next, rows)) {
+					leftOver = next;
+					break;
+				}
+				batch.add(next);
+				rows.addAll(next.rows);
+				numActions += next.actions.size();
+			}
+			write(batch, numActions);
+			return leftOver;
+		}
+	}
+
+	private static class PendingFlush {
+		private List<Action> actions;
+		private Set<String> rows;
+		private FlushFuture future;
+
+		public PendingFlush(List<Action> actions, FlushFuture future) {
+			this.actions = actions;
+			this.rows = rowsOf(actions);
+			this.future = future;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.alvazan.orm.layer5.query;
+
+import java.util.List;
+
+import com.alvazan.orm.api.z5api.NoSqlSession;
+import com.alvazan.orm.api.z5api.SpiMetaQuery;
+import com.alvazan.orm.api.z5api.SpiQueryAdapter;
+import com.alvazan.orm.api.z8spi.meta.TypeInfo;
+import com.alvazan.orm.api.z8spi.meta.TypedColumn;
+import com.alvazan.orm.api.z8spi.meta.ViewInfo;
+
+/**
+ * A cached plan plus the literals of one ad-hoc query which are set as parameters on every adapter
+ * created from it
+ */
+public class BoundMetaQuery implements SpiMetaQuery {
+
+	private SpiMetaQueryImpl plan;
+	private String query;
+	private String[] names;
+	private byte[][] values;
+
+	public BoundMetaQuery(SpiMetaQueryImpl plan, String query, String[] names, byte[][] values) {
+		this.plan = plan;
+		this.query = query;
+		this.names = names;
+		this.values = values;
+	}
+
+	@Override
+	public SpiQueryAdapter createQueryInstanceFromQuery(NoSqlSession session) {
+		SpiQueryAdapter adapter = plan.createQueryInstanceFromQuery(session);
+		for(int i = 0; i < names.length; i++) {
+			adapter.setParameter(names[i], values[i]);
+		}
+		return adapter;
+	}
+
+	@Override
+	public TypeInfo getMetaFieldByParameter(String name) {
+		return plan.getMetaFieldByParameter(name);
+	}
+
+	@Override
+	public String getQuery() {
+		return query;
+	}
+
+	@Override
+	public List<ViewInfo> getTargetViews() {
+		return plan.getTargetViews();
+	}
+
+	@Override
+	public List<ViewInfo> getViewsDelayedJoin() {
+		return plan.getViewsDelayedJoin();
+	}
+
+	@Override
+	public List<ViewInfo> getViewsEagerJoin() {
+		return plan.getViewsEagerJoin();
+	}
+
+	@Override
+	public List<TypedColumn> getUpdateList() {
+		return plan.getUpdateList();
+	}
+
+	@Override
+	public String getQueryType() {
+		return plan.getQueryType();
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.alvazan.orm.layer5.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alvazan.orm.api.z5api.IndexColumnInfo;
+import com.alvazan.orm.api.z8spi.conv.ByteArrayMap;
+import com.alvazan.orm.layer5.query.JoinPlanner.JoinAlgorithm;
+
+/**
+ * Hash join on primary key.  When one side fits in the memory budget we build the hash table on it and
+ * stream the other side.  When neither fits, the right side is spilled to a local file once and the left
+ * side is processed in budget sized blocks, each block being hashed and probed by streaming the spill
+ * file instead of going back to the nosql store.
+ *
+ * Like the old nested loop, the first right row with a given primary key is the one that gets merged
+ * and results come back in left side order.
+ */
+class HashJoin extends JoinOperator {
+
+	private JoinAlgorithm algorithm;
+	private int memoryBudget;
+	private ByteArrayMap<IndexColumnInfo> rightTable;
+	private List<IndexColumnInfo> block;
+	private int blockIndex;
+	private ByteArrayMap<IndexColumnInfo> blockMatches;
+	private SpillFile spill;
+	private boolean leftDone = false;
+
+	public HashJoin(JoinInput left, JoinInput right, JoinAlgorithm algorithm, int memoryBudget) {
+		super(left, right);
+		this.algorithm = algorithm;
+		this.memoryBudget = memoryBudget;
+	}
+
+	@Override
+	public IndexColumnInfo nextMatch() {
+		if(algorithm == JoinAlgorithm.HASH_BUILD_RIGHT)
+			return probeRightTable();
+		return nextFromBlocks();
+	}
+
+	private IndexColumnInfo probeRightTable() {
+		if(rightTable == null) {
+			rightTable = new ByteArrayMap<IndexColumnInfo>();
+			IndexColumnInfo row;
+			while((row = right.next()) != null) {
+				rightTable.putIfAbsent(right.getPrimaryKeyRaw(row), row);
+			}
+		}
+
+		IndexColumnInfo leftRow;
+		while((leftRow = left.next()) != null) {
+			IndexColumnInfo match = rightTable.get(left.getPrimaryKeyRaw(leftRow));
+			if(match != null)
+				return merge(leftRow, match);
+		}
+		return null;
+	}
+
+	private IndexColumnInfo nextFromBlocks() {
+		while(true) {
+			if(block != null) {
+				while(blockIndex < block.size()) {
+					IndexColumnInfo leftRow = block.get(blockIndex);
+					block.set(blockIndex, null);
+					blockIndex++;
+					IndexColumnInfo match = blockMatches.get(left.getPrimaryKeyRaw(leftRow));
+					if(match != null)
+						return merge(leftRow, match);
+				}
+			}
+			if(leftDone)
+				return null;
+			readNextBlock();
+		}
+	}
+
+	private void readNextBlock() {
+		block = new ArrayList<IndexColumnInfo>();
+		blockIndex = 0;
+		blockMatches = new ByteArrayMap<IndexColumnInfo>();
+		ByteArrayMap<Boolean> keys = new ByteArrayMap<Boolean>();
+		//HASH_BUILD_LEFT means the whole left side fit so it is a single block
+		while(algorithm == JoinAlgorithm.HASH_BUILD_LEFT || block.size() < memoryBudget) {
+			IndexColumnInfo row = left.next();
+			if(row == null) {
+				leftDone = true;
+				break;
+			}
+			block.add(row);
+			keys.put(left.getPrimaryKeyRaw(row), Boolean.TRUE);
+		}
+
+		if(block.size() == 0)
+			return;
+
+		if(algorithm == JoinAlgorithm.HASH_BUILD_LEFT) {
+			probeWith(keys, new RightStream());
+			return;
+		}
+
+		if(spill == null) {
+			spill = new SpillFile();
+			IndexColumnInfo row;
+			while((row = right.next()) != null) {
+				spill.write(row);
+			}
+			spill.finishWriting();
+		}
+		probeWith(keys, spill.read());
+	}
+
+	private void probeWith(ByteArrayMap<Boolean> keys, RowSource rows) {
+		try {
+			IndexColumnInfo row;
+			while((row = rows.next()) != null) {
+				byte[] pk = right.getPrimaryKeyRaw(row);
+				if(keys.containsKey(pk))
+					blockMatches.putIfAbsent(pk, row);
+			}
+		} finally {
+			rows.close();
+		}
+	}
+
+	@Override
+	public void close() {
+		if(spill != null)
+			spill.delete();
+		spill = null;
+	}
+
+	interface RowSource {
+		IndexColumnInfo next();
+		void close();
+	}
+
+	private class RightStream implements RowSource {
+		@Override
+		public IndexColumnInfo next() {
+			return right.next();
+		}
+		@Override
+		public void close() {
+		}
+	}
+}
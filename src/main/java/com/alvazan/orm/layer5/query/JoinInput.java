@@ -0,0 +1,128 @@
+package com.alvazan.orm.layer5.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alvazan.orm.api.z5api.IndexColumnInfo;
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder;
+import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.meta.ViewInfo;
+
+/**
+ * One side of an AND join traversed in a single direction.  The planner reads ahead up to the memory
+ * budget to estimate the cardinality of the side and those rows are then replayed to whichever join
+ * algorithm was picked so nothing is read from the nosql store twice.
+ */
+class JoinInput {
+
+	private DirectCursor<IndexColumnInfo> cursor;
+	private ViewInfo view;
+	private boolean forward;
+	private boolean declaredPkOrdered;
+	private List<IndexColumnInfo> buffered = new ArrayList<IndexColumnInfo>();
+	private int replayIndex = 0;
+	private boolean exhausted = false;
+	private boolean prefixPkOrdered = true;
+
+	public JoinInput(DirectCursor<IndexColumnInfo> cursor, ViewInfo view, boolean forward, boolean declaredPkOrdered) {
+		this.cursor = cursor;
+		this.view = view;
+		this.forward = forward;
+		this.declaredPkOrdered = declaredPkOrdered;
+	}
+
+	/**
+	 * Reads ahead until we either run out of rows or have read more than the limit
+	 * @return the number of rows read so far
+	 */
+	public int estimate(int limit) {
+		while(!exhausted && buffered.size() <= limit) {
+			IndexColumnInfo info = fetch();
+			if(info == null) {
+				exhausted = true;
+				break;
+			}
+			if(buffered.size() > 0 && comparePk(buffered.get(buffered.size()-1), info) > 0)
+				prefixPkOrdered = false;
+			buffered.add(info);
+		}
+		return buffered.size();
+	}
+
+	/**
+	 * @return true if we read every row of this side while estimating
+	 */
+	public boolean isFullyRead() {
+		return exhausted;
+	}
+
+	/**
+	 * @return true if the side claims primary key order and the rows we read ahead agree
+	 */
+	public boolean isPkOrdered() {
+		return declaredPkOrdered && prefixPkOrdered;
+	}
+
+	public IndexColumnInfo next() {
+		if(replayIndex < buffered.size()) {
+			IndexColumnInfo info = buffered.get(replayIndex);
+			buffered.set(replayIndex, null);
+			replayIndex++;
+			return info;
+		} else if(exhausted)
+			return null;
+
+		IndexColumnInfo info = fetch();
+		if(info == null)
+			exhausted = true;
+		return info;
+	}
+
+	private IndexColumnInfo fetch() {
+		while(true) {
+			Holder<IndexColumnInfo> holder;
+			if(forward)
+				holder = cursor.nextImpl();
+			else
+				holder = cursor.previousImpl();
+			if(holder == null)
+				return null;
+			IndexColumnInfo info = holder.getValue();
+			//rows with no index column or no primary key can never match so skip them
+			if(info != null && info.getPrimaryKeyRaw(view) != null)
+				return info;
+		}
+	}
+
+	/**
+	 * Compares primary keys in the order this side is being traversed
+	 */
+	public int comparePk(IndexColumnInfo left, IndexColumnInfo right) {
+		int result = left.getPrimaryKey(view).compareTo(right.getPrimaryKey(view));
+		if(forward)
+			return result;
+		return -result;
+	}
+
+	public ByteArray getPrimaryKey(IndexColumnInfo info) {
+		return info.getPrimaryKey(view);
+	}
+
+	public byte[] getPrimaryKeyRaw(IndexColumnInfo info) {
+		return info.getPrimaryKeyRaw(view);
+	}
+
+	public ViewInfo getView() {
+		return view;
+	}
+
+	public boolean isForward() {
+		return forward;
+	}
+
+	@Override
+	public String toString() {
+		return ""+cursor;
+	}
+}
@@ -0,0 +1,35 @@
+package com.alvazan.orm.layer5.query;
+
+import com.alvazan.orm.api.z5api.IndexColumnInfo;
+
+/**
+ * A join running in a single direction over two JoinInputs.  Results always come back in the order of the
+ * left side(or primary key order for the merge join which is the same thing since it requires a sorted
+ * left side).
+ */
+abstract class JoinOperator {
+
+	protected JoinInput left;
+	protected JoinInput right;
+
+	protected JoinOperator(JoinInput left, JoinInput right) {
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * @return the next left row merged with its matching right row or null when there are no more matches
+	 */
+	public abstract IndexColumnInfo nextMatch();
+
+	/**
+	 * releases anything held on to like spill files.  Called when the cursor is rewound
+	 */
+	public void close() {
+	}
+
+	protected IndexColumnInfo merge(IndexColumnInfo leftRow, IndexColumnInfo rightRow) {
+		leftRow.mergeResults(rightRow);
+		return leftRow;
+	}
+}
@@ -0,0 +1,88 @@
+package com.alvazan.orm.layer5.query;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The cost rule for AND joins.  Both sides are read ahead up to the memory budget which gives us either an
+ * exact row count(the side fit) or a lower bound(it did not) and from there we pick the cheapest join.  Every
+ * algorithm reads each side from the nosql store exactly once, so what we are really trading off is memory
+ * and local disk
+ * <ul>
+ *   <li>a hash join building on whichever side fits in the budget costs N+M reads and holds the small side</li>
+ *   <li>a sort merge join costs N+M reads and constant memory but needs both sides in primary key order</li>
+ *   <li>a spilled hash join costs N+M reads plus writing M rows to disk and reading them back once per
+ *   budget sized block of the left side</li>
+ * </ul>
+ */
+public class JoinPlanner {
+
+	private static final Logger log = LoggerFactory.getLogger(JoinPlanner.class);
+
+	public static final int DEFAULT_MEMORY_BUDGET = 10000;
+
+	public enum JoinAlgorithm {
+		HASH_BUILD_RIGHT, HASH_BUILD_LEFT, SORT_MERGE, HASH_SPILL
+	}
+
+	private int memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+	public JoinPlanner() {
+	}
+
+	public JoinPlanner(int memoryBudget) {
+		setMemoryBudget(memoryBudget);
+	}
+
+	public void setMemoryBudget(int memoryBudget) {
+		if(memoryBudget <= 0)
+			throw new IllegalArgumentException("memoryBudget must be 1 or greater and is the number of index rows a join may hold in memory");
+		this.memoryBudget = memoryBudget;
+	}
+
+	public int getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	JoinAlgorithm choose(JoinInput left, JoinInput right) {
+		int leftRows = left.estimate(memoryBudget);
+		int rightRows = right.estimate(memoryBudget);
+		boolean leftFits = left.isFullyRead();
+		boolean rightFits = right.isFullyRead();
+
+		JoinAlgorithm algorithm;
+		if(rightFits && (!leftFits || rightRows <= leftRows))
+			algorithm = JoinAlgorithm.HASH_BUILD_RIGHT;
+		else if(leftFits)
+			algorithm = JoinAlgorithm.HASH_BUILD_LEFT;
+		else if(left.isPkOrdered() && right.isPkOrdered())
+			algorithm = JoinAlgorithm.SORT_MERGE;
+		else
+			algorithm = JoinAlgorithm.HASH_SPILL;
+
+		if (log.isDebugEnabled())
+			log.debug("join plan="+algorithm+" left(rows"+bound(leftFits)+leftRows+", pkOrdered="+left.isPkOrdered()
+					+") right(rows"+bound(rightFits)+rightRows+", pkOrdered="+right.isPkOrdered()+") budget="+memoryBudget);
+		return algorithm;
+	}
+
+	private String bound(boolean exact) {
+		if(exact)
+			return "=";
+		return ">";
+	}
+
+	JoinOperator createOperator(JoinInput left, JoinInput right) {
+		JoinAlgorithm algorithm = choose(left, right);
+		switch (algorithm) {
+		case HASH_BUILD_RIGHT:
+		case HASH_BUILD_LEFT:
+		case HASH_SPILL:
+			return new HashJoin(left, right, algorithm, memoryBudget);
+		case SORT_MERGE:
+			return new SortMergeJoin(left, right);
+		default:
+			throw new UnsupportedOperationException("bug, unsupported join algorithm="+algorithm);
+		}
+	}
+}
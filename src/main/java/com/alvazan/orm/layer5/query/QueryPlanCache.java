@@ -0,0 +1,186 @@
+package com.alvazan.orm.layer5.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.z5api.QueryPlanStats;
+import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.api.z8spi.meta.ViewInfo;
+import com.alvazan.orm.parser.antlr.MetaFacade;
+
+/**
+ * Compiled ad-hoc queries keyed by their QueryShape so queries that only differ in their literals share
+ * one SpiMetaQueryImpl(which is never modified after compiling).  Least recently used plans are thrown out
+ * once there are more than maxPlans.  A plan remembers the columns of the tables it was compiled against
+ * and is thrown out when the table looked up again(which may be the same instance changed in place) has
+ * different columns.  Putting a DboTableMeta also throws out every plan reading from that table.
+ */
+@Singleton
+public class QueryPlanCache {
+
+	private static final Logger log = LoggerFactory.getLogger(QueryPlanCache.class);
+	public static final int DEFAULT_MAX_PLANS = 500;
+
+	private final int maxPlans;
+	private LinkedHashMap<String, QueryPlan> plans = new LinkedHashMap<String, QueryPlan>(16, 0.75f, true);
+	private long hits;
+	private long misses;
+	private long compiles;
+	private long compileNanos;
+	private long evictions;
+	private long invalidations;
+
+	@Inject
+	public QueryPlanCache(@Named("queryPlanCacheSize") int maxPlans) {
+		this.maxPlans = maxPlans;
+	}
+
+	public boolean isEnabled() {
+		return maxPlans > 0;
+	}
+
+	/**
+	 * @return the plan or null if there is none or it was compiled against tables that have since changed
+	 */
+	public QueryPlan get(String shape, MetaFacade facade) {
+		QueryPlan plan;
+		synchronized(this) {
+			plan = plans.get(shape);
+			if(plan == null) {
+				misses++;
+				return null;
+			}
+		}
+
+		//looking up tables may hit the database so do it outside the lock
+		if(plan.isValid(facade)) {
+			synchronized(this) {
+				hits++;
+			}
+			return plan;
+		}
+
+		if(log.isDebugEnabled())
+			log.debug("table changed since compiling so recompiling query="+shape);
+		synchronized(this) {
+			misses++;
+			if(plans.get(shape) == plan) {
+				plans.remove(shape);
+				invalidations++;
+			}
+		}
+		return null;
+	}
+
+	public synchronized void put(String shape, SpiMetaQueryImpl metaQuery, long nanosToCompile) {
+		compiles++;
+		compileNanos += nanosToCompile;
+		plans.put(shape, new QueryPlan(metaQuery));
+		Iterator<QueryPlan> iter = plans.values().iterator();
+		while(plans.size() > maxPlans && iter.hasNext()) {
+			iter.next();
+			iter.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Throws out every plan that reads from this column family
+	 */
+	public synchronized void invalidate(String columnFamily) {
+		Iterator<QueryPlan> iter = plans.values().iterator();
+		while(iter.hasNext()) {
+			QueryPlan plan = iter.next();
+			if(plan.readsFrom(columnFamily)) {
+				iter.remove();
+				invalidations++;
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		invalidations += plans.size();
+		plans.clear();
+	}
+
+	public synchronized QueryPlanStats getStats() {
+		return new QueryPlanStats(hits, misses, compiles, compileNanos, evictions, invalidations, plans.size());
+	}
+
+	public static class QueryPlan {
+		private SpiMetaQueryImpl metaQuery;
+		private List<DboTableMeta> tables = new ArrayList<DboTableMeta>();
+		private List<String> signatures = new ArrayList<String>();
+
+		private QueryPlan(SpiMetaQueryImpl metaQuery) {
+			this.metaQuery = metaQuery;
+			for(ViewInfo view : metaQuery.getTargetViews()) {
+				DboTableMeta table = view.getTableMeta();
+				if(tables.contains(table))
+					continue;
+				tables.add(table);
+				signatures.add(signature(table));
+			}
+		}
+
+		public SpiMetaQueryImpl getMetaQuery() {
+			return metaQuery;
+		}
+
+		private boolean readsFrom(String columnFamily) {
+			for(DboTableMeta table : tables) {
+				if(table.getColumnFamily().equals(columnFamily))
+					return true;
+			}
+			return false;
+		}
+
+		private boolean isValid(MetaFacade facade) {
+			for(int i = 0; i < tables.size(); i++) {
+				DboTableMeta old = tables.get(i);
+				DboTableMeta current = facade.getColumnFamily(old.getColumnFamily());
+				//even the same instance may have had columns added since so always compare the columns
+				if(current == null || !signatures.get(i).equals(signature(current)))
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Everything compiling looks at, a table meta read again from the database is a new instance
+		 * but usually the same table
+		 */
+		private static String signature(DboTableMeta table) {
+			StringBuilder b = new StringBuilder(table.getColumnFamily());
+			append(b, table.getIdColumnMeta());
+			Map<String, DboColumnMeta> sorted = new TreeMap<String, DboColumnMeta>();
+			for(DboColumnMeta col : table.getAllColumns()) {
+				sorted.put(col.getColumnName(), col);
+			}
+			for(DboColumnMeta col : sorted.values()) {
+				append(b, col);
+			}
+			return b.toString();
+		}
+
+		private static void append(StringBuilder b, DboColumnMeta col) {
+			if(col == null)
+				return;
+			b.append('|').append(col.getColumnName()).append(':').append(col.getClass().getSimpleName())
+				.append(':').append(col.getStorageType()).append(':').append(col.isIndexed())
+				.append(':').append(col.isPartitionedByThisColumn()).append(':').append(col.getIndexShards());
+		}
+	}
+}
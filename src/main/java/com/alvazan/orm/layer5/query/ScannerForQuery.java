@@ -7,21 +7,32 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.alvazan.orm.api.exc.ParseException;
 import com.alvazan.orm.api.z5api.QueryParser;
+import com.alvazan.orm.api.z5api.QueryPlanStats;
 import com.alvazan.orm.api.z5api.SpiMetaQuery;
 import com.alvazan.orm.api.z8spi.MetaLoader;
 import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
 import com.alvazan.orm.api.z8spi.meta.DboDatabaseMeta;
+import com.alvazan.orm.api.z8spi.meta.TypeInfo;
 import com.alvazan.orm.api.z8spi.meta.ViewInfo;
+import com.alvazan.orm.layer5.nosql.cache.WriteBehindPipeline;
+import com.alvazan.orm.layer5.query.QueryPlanCache.QueryPlan;
 import com.alvazan.orm.parser.antlr.ExpressionNode;
 import com.alvazan.orm.parser.antlr.InfoForWiring;
 import com.alvazan.orm.parser.antlr.MetaFacade;
 import com.alvazan.orm.parser.antlr.ParseQueryException;
+import com.alvazan.orm.parser.antlr.QueryShape;
 import com.alvazan.orm.parser.antlr.ScannerSql;
 
 public class ScannerForQuery implements QueryParser {
 
+	private static final Logger log = LoggerFactory.getLogger(ScannerForQuery.class);
+
 	@Inject
 	@Named("logger")
 	private NoSqlRawSession rawSession;
@@ -31,13 +42,63 @@ public class ScannerForQuery implements QueryParser {
 	private DboDatabaseMeta metaInfo;
 	@Inject
 	private ScannerSql compiler;
+	@Inject
+	private QueryPlanCache planCache;
+	@Inject
+	private WriteBehindPipeline writeBehind;
 	
 	@Override
-	public SpiMetaQuery parseQueryForAdHoc(String query, MetaLoader mgr) {		
+	public SpiMetaQuery parseQueryForAdHoc(String query, MetaLoader mgr) {
+		if(planCache.isEnabled()) {
+			SpiMetaQuery cached = fromPlanCache(query, mgr);
+			if(cached != null)
+				return cached;
+		}
 		SpiMetaQuery metaQuery = newsetupByVisitingTree(query, null, mgr, "Query="+query+". ");
 		return metaQuery;
 	}
 
+	/**
+	 * @return the cached plan of this query's shape with its literals bound or null to compile the query as is
+	 * which is also how any error gets reported against the text the user actually typed
+	 */
+	private SpiMetaQuery fromPlanCache(String query, MetaLoader mgr) {
+		QueryShape shape = QueryShape.parse(query);
+		if(shape == null)
+			return null;
+
+		MetaFacade facade = new MetaFacadeImpl(mgr, metaInfo);
+		QueryPlan plan = planCache.get(shape.getKey(), facade);
+		SpiMetaQueryImpl metaQuery;
+		if(plan != null) {
+			metaQuery = plan.getMetaQuery();
+		} else {
+			long start = System.nanoTime();
+			try {
+				metaQuery = newsetupByVisitingTreeImpl(shape.getKey(), null, mgr);
+			} catch(RuntimeException e) {
+				if(log.isDebugEnabled())
+					log.debug("could not compile shape="+shape.getKey()+" so compiling query as is", e);
+				return null;
+			}
+			planCache.put(shape.getKey(), metaQuery, System.nanoTime() - start);
+		}
+
+		String[] names = new String[shape.getLiteralCount()];
+		byte[][] values = new byte[names.length][];
+		for(int i = 0; i < names.length; i++) {
+			names[i] = shape.getParameterName(i);
+			TypeInfo typeInfo = metaQuery.getMetaFieldByParameter(names[i]);
+			if(typeInfo == null || typeInfo.getColumnInfo() == null)
+				return null;
+			DboColumnMeta info = typeInfo.getColumnInfo();
+			if(!ScannerSql.isAssignable(shape.getType(i), info))
+				return null;
+			values[i] = SpiIndexQueryImpl.convertConstant(info, shape.getValue(i));
+		}
+		return new BoundMetaQuery(metaQuery, query, names, values);
+	}
+
 	@Override
 	public SpiMetaQuery parseQueryForOrm(String query, String targetTable, String errorMsg) {
 		return newsetupByVisitingTree(query, targetTable, null, errorMsg);
@@ -45,7 +106,7 @@ public class ScannerForQuery implements QueryParser {
 
 	private SpiMetaQuery newsetupByVisitingTree(String query, String targetTable, MetaLoader mgr, String errorMsg) {
 		try {
-			return newsetupByVisitingTreeImpl(query, targetTable, mgr, errorMsg);
+			return newsetupByVisitingTreeImpl(query, targetTable, mgr);
 		} catch(ParseQueryException e) {
 			String msg = errorMsg+"  failed to parse.  Specific reason="+e.getMessage();
 			throw new ParseException(msg, e);
@@ -54,7 +115,7 @@ public class ScannerForQuery implements QueryParser {
 		}
 	}
 	
-	private SpiMetaQuery newsetupByVisitingTreeImpl(String query, String targetTable, MetaLoader mgr, String errorMsg) {
+	private SpiMetaQueryImpl newsetupByVisitingTreeImpl(String query, String targetTable, MetaLoader mgr) {
 		SpiMetaQueryImpl spiMetaQuery = factory.get(); 
 
 		InfoForWiring wiring = new InfoForWiring(query, targetTable);
@@ -78,8 +139,20 @@ public class ScannerForQuery implements QueryParser {
 		return spiMetaQuery;
 	}
 	
+	@Override
+	public QueryPlanStats getPlanStats() {
+		return planCache.getStats();
+	}
+
+	@Override
+	public void invalidatePlans(String columnFamily) {
+		planCache.invalidate(columnFamily);
+	}
+
 	@Override
 	public void close() {
+		//write what flushAsync queued up before the connections go away
+		writeBehind.close();
 		rawSession.close();
 	}
 
@@ -0,0 +1,53 @@
+package com.alvazan.orm.layer5.query;
+
+import com.alvazan.orm.api.z5api.IndexColumnInfo;
+
+/**
+ * Merge join on primary key for two sides that both come back in primary key order(EQ index scans of a
+ * provider whose NoSqlRawSession.isIndexPkOrdered is true).  Each side is read once and nothing is held
+ * in memory.
+ */
+class SortMergeJoin extends JoinOperator {
+
+	private IndexColumnInfo currentRight;
+	private boolean started = false;
+
+	public SortMergeJoin(JoinInput left, JoinInput right) {
+		super(left, right);
+	}
+
+	@Override
+	public IndexColumnInfo nextMatch() {
+		if(!started) {
+			currentRight = right.next();
+			started = true;
+		}
+
+		while(currentRight != null) {
+			IndexColumnInfo leftRow = left.next();
+			if(leftRow == null)
+				return null;
+
+			int result = compare(leftRow, currentRight);
+			while(result > 0) {
+				currentRight = right.next();
+				if(currentRight == null)
+					return null;
+				result = compare(leftRow, currentRight);
+			}
+
+			//we only move the right side forward when it is behind so duplicate primary keys on the
+			//left still find their match
+			if(result == 0)
+				return merge(leftRow, currentRight);
+		}
+		return null;
+	}
+
+	private int compare(IndexColumnInfo leftRow, IndexColumnInfo rightRow) {
+		int result = left.getPrimaryKey(leftRow).compareTo(right.getPrimaryKey(rightRow));
+		if(left.isForward())
+			return result;
+		return -result;
+	}
+}
@@ -48,6 +48,7 @@ public class SpiIndexQueryImpl implements SpiQueryAdapter {
 	private Map<String, ByteArray> parameters = new HashMap<String, ByteArray>();
 
 	private Integer batchSize = null;
+	private JoinPlanner joinPlanner = new JoinPlanner();
 	
 	public void setup(SpiMetaQueryImpl spiMetaQueryImpl, NoSqlSession session) {
 		this.spiMeta = spiMetaQueryImpl;
@@ -175,8 +176,10 @@ public class SpiIndexQueryImpl implements SpiQueryAdapter {
 		
 		if(root.getType() == NoSqlLexer.AND) {
 			CursorForAnd cursor = new CursorForAnd(leftView, leftResults, rightView, rightResults);
-			//AND always returns LESS results(or same) than the left or right sides, 
-			//sooooo, we cache results if there is less than 500 results
+			cursor.setPlanner(joinPlanner);
+			cursor.setPkOrdered(isPkOrdered(root, ChildSide.LEFT), isPkOrdered(root, ChildSide.RIGHT));
+			//The planner picks a hash or merge join for the AND.  A parent that rewinds(ie. a join above us)
+			//would run that join again so CachingCursor keeps the output if it is under 500 rows
 			return new CachingCursor<IndexColumnInfo>(cursor);
 		} else {
 			//Since OR always returns MORE results(or the same) as the left or right views
@@ -186,6 +189,29 @@ public class SpiIndexQueryImpl implements SpiQueryAdapter {
 		}
 	}
 	
+	private boolean isPkOrdered(ExpressionNode parent, ChildSide side) {
+		//once we join to another table, the results are in order of the other table's rows
+		JoinType joinType = parent.getJoinMeta().getJoinType();
+		if(side == ChildSide.LEFT && (joinType == JoinType.INNER || joinType == JoinType.LEFT_OUTER))
+			return false;
+		return isPkOrdered(parent.getChild(side));
+	}
+
+	/**
+	 * An EQ index scan is sorted by primary key when the provider keeps index entries in (indexedValue, pk)
+	 * order(mongodb does not) and an AND or OR of sorted sides keeps the order of its left side
+	 */
+	private boolean isPkOrdered(ExpressionNode node) {
+		int type = node.getType();
+		if(type == NoSqlLexer.EQ)
+			return session.getRawSession().isIndexPkOrdered();
+		else if(type == NoSqlLexer.AND)
+			return isPkOrdered(node, ChildSide.LEFT);
+		else if(type == NoSqlLexer.OR)
+			return isPkOrdered(node, ChildSide.LEFT) && isPkOrdered(node, ChildSide.RIGHT);
+		return false;
+	}
+
 	private DirectCursor<IndexColumnInfo> processRangeExpression(ExpressionNode root, Set<ViewInfo> alreadyJoinedViews) {
 		StateAttribute attr;
 		if(root.getType() == NoSqlLexer.BETWEEN) {
@@ -321,6 +347,13 @@ public class SpiIndexQueryImpl implements SpiQueryAdapter {
 	private byte[] processConstant(DboColumnMeta info, ExpressionNode node) {
 		//constant is either BigDecimal, BigInteger or a String
 		Object constant = node.getState();
+		return convertConstant(info, constant);
+	}
+
+	/**
+	 * Also used by the plan cache to convert the literals it moved out of the query into parameters
+	 */
+	public static byte[] convertConstant(DboColumnMeta info, Object constant) {
 		if (info.isJodaType()) {
 			DateTimeFormatter fmt;
 			if (info.getClassType().getName().equals("org.joda.time.DateTime")) {
@@ -357,4 +390,9 @@ public class SpiIndexQueryImpl implements SpiQueryAdapter {
 		this.batchSize = batchSize;
 	}
 
+	@Override
+	public void setJoinMemoryBudget(int numRows) {
+		joinPlanner.setMemoryBudget(numRows);
+	}
+
 }
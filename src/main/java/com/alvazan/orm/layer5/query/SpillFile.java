@@ -0,0 +1,184 @@
+package com.alvazan.orm.layer5.query;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alvazan.orm.api.z5api.IndexColumnInfo;
+import com.alvazan.orm.api.z5api.IndexColumnInfo.Wrapper;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
+import com.alvazan.orm.api.z8spi.meta.ViewInfo;
+import com.alvazan.orm.layer5.query.HashJoin.RowSource;
+
+/**
+ * A local temp file of IndexColumnInfo rows written once and read back any number of times.  Views and
+ * column metas are not serialized, we just write their position in a registry kept in memory since the
+ * file never outlives the query.
+ */
+class SpillFile {
+
+	private File file;
+	private DataOutputStream out;
+	private List<Object> registry = new ArrayList<Object>();
+	private Map<Object, Integer> registryIndex = new IdentityHashMap<Object, Integer>();
+
+	public SpillFile() {
+		try {
+			file = File.createTempFile("playorm-join", ".spill");
+			file.deleteOnExit();
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		} catch (IOException e) {
+			throw new RuntimeException("Could not create spill file for join", e);
+		}
+	}
+
+	public void write(IndexColumnInfo info) {
+		try {
+			out.writeInt(info.getViews().size());
+			for(ViewInfo view : info.getViews()) {
+				Wrapper wrapper = info.getIndexNode(view);
+				out.writeInt(register(view));
+				out.writeInt(register(wrapper.getColMeta()));
+				writeColumn(wrapper.getCol());
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not write to spill file="+file, e);
+		}
+	}
+
+	public void finishWriting() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Could not close spill file="+file, e);
+		}
+	}
+
+	public RowSource read() {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			return new SpillReader(in);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read spill file="+file, e);
+		}
+	}
+
+	public void delete() {
+		if(!file.delete() && file.exists())
+			file.deleteOnExit();
+	}
+
+	private int register(Object obj) {
+		if(obj == null)
+			return -1;
+		Integer index = registryIndex.get(obj);
+		if(index == null) {
+			index = registry.size();
+			registry.add(obj);
+			registryIndex.put(obj, index);
+		}
+		return index;
+	}
+
+	private Object lookup(int index) {
+		if(index < 0)
+			return null;
+		return registry.get(index);
+	}
+
+	private void writeColumn(IndexColumn col) throws IOException {
+		writeBytes(col.getIndexedValue());
+		writeBytes(col.getPrimaryKey());
+		writeBytes(col.getValue());
+		out.writeBoolean(col.getTimestamp() != null);
+		if(col.getTimestamp() != null)
+			out.writeLong(col.getTimestamp());
+		out.writeBoolean(col.getTtl() != null);
+		if(col.getTtl() != null)
+			out.writeInt(col.getTtl());
+		out.writeBoolean(col.getColumnName() != null);
+		if(col.getColumnName() != null)
+			out.writeUTF(col.getColumnName());
+	}
+
+	private void writeBytes(byte[] data) throws IOException {
+		if(data == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+	private class SpillReader implements RowSource {
+		private DataInputStream in;
+
+		public SpillReader(DataInputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public IndexColumnInfo next() {
+			try {
+				int numViews;
+				try {
+					numViews = in.readInt();
+				} catch(EOFException e) {
+					return null;
+				}
+				IndexColumnInfo info = new IndexColumnInfo();
+				for(int i = 0; i < numViews; i++) {
+					ViewInfo view = (ViewInfo) lookup(in.readInt());
+					DboColumnMeta colMeta = (DboColumnMeta) lookup(in.readInt());
+					info.putIndexNode(view, readColumn(), colMeta);
+				}
+				return info;
+			} catch (IOException e) {
+				throw new RuntimeException("Could not read spill file="+file, e);
+			}
+		}
+
+		private IndexColumn readColumn() throws IOException {
+			IndexColumn col = new IndexColumn();
+			col.setIndexedValue(readBytes());
+			col.setPrimaryKey(readBytes());
+			col.setValue(readBytes());
+			if(in.readBoolean())
+				col.setTimestamp(in.readLong());
+			if(in.readBoolean())
+				col.setTtl(in.readInt());
+			if(in.readBoolean())
+				col.setColumnName(in.readUTF());
+			return col;
+		}
+
+		private byte[] readBytes() throws IOException {
+			int len = in.readInt();
+			if(len < 0)
+				return null;
+			byte[] data = new byte[len];
+			in.readFully(data);
+			return data;
+		}
+
+		@Override
+		public void close() {
+			try {
+				in.close();
+			} catch (IOException e) {
+				throw new RuntimeException("Could not close spill file="+file, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.alvazan.orm.layer9z.spi.db.cassandra;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.z8spi.iter.ParallelScan.Sink;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan.Split;
+import com.netflix.astyanax.RowCallback;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.Row;
+import com.netflix.astyanax.model.Rows;
+import com.netflix.astyanax.query.AllRowsQuery;
+
+/**
+ * Astyanax already splits the ring into one token range per thread when given a concurrency level so the
+ * whole ring is a single split here whose callbacks come from those threads
+ */
+public class AllRowsSplit implements Split<Row<byte[], byte[]>> {
+
+	private static final Logger log = LoggerFactory.getLogger(AllRowsSplit.class);
+
+	private AllRowsQuery<byte[], byte[]> query;
+	private int parallelism;
+
+	public AllRowsSplit(AllRowsQuery<byte[], byte[]> query, int parallelism) {
+		this.query = query;
+		this.parallelism = parallelism;
+	}
+
+	public static List<Split<Row<byte[], byte[]>>> wholeRing(AllRowsQuery<byte[], byte[]> query, int parallelism) {
+		List<Split<Row<byte[], byte[]>>> splits = new ArrayList<Split<Row<byte[], byte[]>>>();
+		splits.add(new AllRowsSplit(query, parallelism));
+		return splits;
+	}
+
+	@Override
+	public void scan(final Sink<Row<byte[], byte[]>> sink) throws ConnectionException {
+		final AtomicReference<ConnectionException> failed = new AtomicReference<ConnectionException>();
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		query.setConcurrencyLevel(parallelism);
+		try {
+			query.executeWithCallback(new RowCallback<byte[], byte[]>() {
+				@Override
+				public void success(Rows<byte[], byte[]> rows) {
+					if(cancelled.get())
+						throw new ScanCancelled();
+					for(Row<byte[], byte[]> row : rows) {
+						if(!sink.add(row)) {
+							cancelled.set(true);
+							//astyanax keeps paging until a callback throws, then every token range stops
+							throw new ScanCancelled();
+						}
+					}
+				}
+
+				@Override
+				public boolean failure(ConnectionException e) {
+					if(log.isWarnEnabled())
+						log.warn("Exception scanning token range", e);
+					failed.compareAndSet(null, e);
+					return false;
+				}
+			});
+		} catch(ConnectionException e) {
+			//that is just our ScanCancelled coming back out
+			if(cancelled.get())
+				return;
+			throw e;
+		}
+		if(cancelled.get())
+			return;
+		//otherwise the caller would just see fewer rows
+		if(failed.get() != null)
+			throw failed.get();
+	}
+
+	private static class ScanCancelled extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		public ScanCancelled() {
+			super("scan was cancelled");
+		}
+	}
+}
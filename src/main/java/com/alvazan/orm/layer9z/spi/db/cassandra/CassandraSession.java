@@ -28,7 +28,10 @@ import com.alvazan.orm.api.z8spi.action.Remove;
 import com.alvazan.orm.api.z8spi.action.RemoveColumn;
 import com.alvazan.orm.api.z8spi.action.RemoveIndex;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.CursorOfShards;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadSettings;
+import com.alvazan.orm.api.z8spi.iter.ScanSettings;
 import com.alvazan.orm.api.z8spi.iter.EmptyCursor;
 import com.alvazan.orm.api.z8spi.meta.DboColumnToManyMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
@@ -58,9 +61,13 @@ public class CassandraSession implements NoSqlRawSession {
 	private ColumnFamilyHelper columnFamilies;
 	@Inject
 	private Provider<Row> rowProvider;
+	private ReadAheadSettings readAhead = new ReadAheadSettings(0, 0);
+	private ScanSettings scanSettings = new ScanSettings(1);
 	
 	@Override
 	public void start(Map<String, Object> properties) {
+		readAhead = ReadAheadSettings.create(properties);
+		scanSettings = ScanSettings.create(properties);
 		try {
 			columnFamilies.start(properties);
 		} catch (ConnectionException e) {
@@ -70,6 +77,8 @@ public class CassandraSession implements NoSqlRawSession {
 
 	@Override
 	public void close() {
+		readAhead.close();
+		scanSettings.close();
 		columnFamilies.close();
 	}
 	
@@ -89,7 +98,7 @@ public class CassandraSession implements NoSqlRawSession {
 		
 		Keyspace keyspace = columnFamilies.getKeyspace();
 		CursorKeysToRows2 cursor = new CursorKeysToRows2(rowKeys, batchSize, list, rowProvider);
-		cursor.setupMore(keyspace, colFamily, info, cache);
+		cursor.setupMore(keyspace, colFamily, info, cache, readAhead);
 		return cursor;
 	}
 
@@ -336,6 +345,8 @@ public class CassandraSession implements NoSqlRawSession {
 
 	@Override
 	public AbstractCursor<IndexColumn> scanIndex(ScanInfo info, List<byte[]> values, BatchListener batchList, MetaLookup mgr) {
+		if(info.isSharded())
+			return CursorOfShards.scanIndex(this, info, values, batchList, mgr);
 		return scanIndex(info, values, batchList, mgr, false);
 	}
 	
@@ -375,11 +386,14 @@ public class CassandraSession implements NoSqlRawSession {
                 && !info.getEntityColFamily().isInheritance()) {
             Keyspace keyspace = columnFamilies.getKeyspace();
             Info cfInfo = columnFamilies.lookupOrCreate2(info.getEntityColFamily().getRealColumnFamily(), mgr);
-            ScanCassandraCf scanner = new ScanCassandraCf(info, cfInfo, bListener, batchSize, keyspace);
+            ScanCassandraCf scanner = new ScanCassandraCf(info, cfInfo, bListener, batchSize, keyspace, scanSettings);
             scanner.beforeFirst();
             return scanner;
         }
 
+		if(info.isSharded())
+			return CursorOfShards.scanIndex(this, info, from, to, batchSize, bListener, mgr);
+
         Info info1 = columnFamilies.fetchColumnFamilyInfo(colFamily, mgr);
 		if(info1 == null) {
 			//well, if column family doesn't exist, then no entities exist either
@@ -498,7 +512,7 @@ public class CassandraSession implements NoSqlRawSession {
 	public AbstractCursor<Row> allRows(DboTableMeta colFamily, MetaLookup mgr, int batchSize) {
 		Keyspace keyspace = columnFamilies.getKeyspace();
 		Info cfInfo = columnFamilies.lookupOrCreate2(colFamily.getColumnFamily(), mgr);
-		ScanCassandraCfAllRows scanner = new ScanCassandraCfAllRows(cfInfo, batchSize, keyspace, rowProvider);
+		ScanCassandraCfAllRows scanner = new ScanCassandraCfAllRows(cfInfo, batchSize, keyspace, rowProvider, scanSettings);
 		scanner.beforeFirst();
 		return scanner;
 	}
@@ -508,4 +522,10 @@ public class CassandraSession implements NoSqlRawSession {
 		return columnFamilies;
 	}
 
+	@Override
+	public boolean isIndexPkOrdered() {
+		//the index column is a composite of the indexed value and the primary key as BytesType
+		return true;
+	}
+
 }
@@ -15,6 +15,7 @@ import org.apache.cassandra.db.marshal.UTF8Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.alvazan.orm.api.z8spi.ColumnFamilyRegistry;
 import com.alvazan.orm.api.z8spi.ColumnType;
 import com.alvazan.orm.api.z8spi.CreateCfCallback;
 import com.alvazan.orm.api.z8spi.MetaLookup;
@@ -45,8 +46,7 @@ public class ColumnFamilyHelper {
 	@Inject
 	private DboDatabaseMeta dbMetaFromOrmOnly;
 	
-	private Map<String, Info> cfNameToCassandra = new HashMap<String, Info>();
-	private Map<String, String> virtualToCfName = new HashMap<String, String>();
+	private ColumnFamilyRegistry<Info> registry = new ColumnFamilyRegistry<Info>();
 	
 	private Keyspace keyspace;
 	private Cluster cluster;
@@ -62,7 +62,11 @@ public class ColumnFamilyHelper {
 	}
 
 	public Map<String, Info> getNameToCassandraCf() {
-		return cfNameToCassandra;
+		return registry.getRealColumnFamilies();
+	}
+
+	public ColumnFamilyRegistry<Info> getRegistry() {
+		return registry;
 	}
 
 	public void setKeyspace(Keyspace keyspace) {
@@ -167,25 +171,25 @@ public class ColumnFamilyHelper {
 
 		findExistingColumnFamilies(keySpaceMeta);
 		if (log.isInfoEnabled())
-			log.info("On keyspace="+keyspace.getKeyspaceName()+"Existing column families="+cfNameToCassandra.keySet()+"\nNOTE: WE WILL CREATE " +
+			log.info("On keyspace="+keyspace.getKeyspaceName()+"Existing column families="+registry.getRealColumnFamilies().keySet()+"\nNOTE: WE WILL CREATE " +
 				"new column families automatically as you save entites that have no column family");
 	}
 
 	private void findExistingColumnFamilies(KeyspaceDefinition keySpaceMeta) {
 		List<ColumnFamilyDefinition> cfList = keySpaceMeta.getColumnFamilyList();
 		for(ColumnFamilyDefinition def : cfList) {
-			loadColumnFamilyImpl(def);
+			String lowerCaseName = def.getName().toLowerCase();
+			registry.add(null, lowerCaseName, createInfo(def), false);
 		}
 	}
 
 	private void loadColumnFamily(ColumnFamilyDefinition def, String virtCf,
 			String realCf) {
-		loadColumnFamilyImpl(def);
 		String cfLowercase = realCf.toLowerCase();
-		virtualToCfName.put(virtCf, cfLowercase);
+		registry.add(virtCf, cfLowercase, createInfo(def), false);
 	}
 	
-	private void loadColumnFamilyImpl(ColumnFamilyDefinition def) {
+	private Info createInfo(ColumnFamilyDefinition def) {
 		String comparatorType = def.getComparatorType();
 		ColumnType type = ColumnType.ANY_EXCEPT_COMPOSITE;
 		if(formName(UTF8Type.class, BytesType.class).equals(comparatorType)) {
@@ -209,10 +213,7 @@ public class ColumnFamilyHelper {
 		} else 
 			keyType = StorageTypeEnum.BYTES;
 		
-		String colFamily = def.getName();
-		Info info = createInfo(colFamily, type, keyType);
-		String lowerCaseName = colFamily.toLowerCase();
-		cfNameToCassandra.put(lowerCaseName, info);
+		return createInfo(def.getName(), type, keyType);
 	}
 	
 	private String formName(Class class1, Class class2) {
@@ -281,16 +282,7 @@ public class ColumnFamilyHelper {
 	}
 
 	private Info lookupVirtCf(String virtualCf) {
-		String cfName = virtualToCfName.get(virtualCf);
-		if(log.isInfoEnabled())
-			log.info("looking up virtualcf="+virtualCf+" actual name="+cfName);
-		if(cfName == null)
-			return null;
-		
-		Info info = cfNameToCassandra.get(cfName);
-		if(log.isInfoEnabled())
-			log.info("virtual="+virtualCf+" actual name="+cfName+" cf info="+info);
-		return info;
+		return registry.lookupVirtual(virtualCf);
 	}
 
 	private Info tryToLoadColumnFamilyVirt(String virtColFamily, MetaLookup lookup) {
@@ -307,17 +299,16 @@ public class ColumnFamilyHelper {
 	}
 
 	private Info tryToLoadColumnFamilyImpl(String virtCf, MetaLookup lookup) throws ConnectionException {
-		synchronized(virtCf.intern()) {
-			log.info("Column family NOT found in-memory="+virtCf+", CHECK and LOAD from Cassandra if available");
+		//a miss only happens once per column family so one lock for all of them is fine
+		synchronized(this) {
+			if(log.isInfoEnabled())
+				log.info("Column family NOT found in-memory="+virtCf+", CHECK and LOAD from Cassandra if available");
 			
-			String cfName = virtualToCfName.get(virtCf);
-			if(cfName != null) {
-				Info info = cfNameToCassandra.get(cfName);
-				if (info != null && log.isInfoEnabled())
-					log.info("NEVER MIND, someone beat us to loading it into memory, it is now there="+virtCf+"(realcf="+cfName+")");
-				if(info != null) {
-					return cfNameToCassandra.get(cfName);
-				}
+			Info existing = registry.lookupVirtual(virtCf);
+			if(existing != null) {
+				if (log.isInfoEnabled())
+					log.info("NEVER MIND, someone beat us to loading it into memory, it is now there="+virtCf+"(realcf="+registry.lookupRealName(virtCf)+")");
+				return existing;
 			}
 
 			DboTableMeta table = loadFromInMemoryOrDb(virtCf, lookup);
@@ -325,13 +316,12 @@ public class ColumnFamilyHelper {
 			String realCf = table.getRealColumnFamily();
 
 			String realCfLower = realCf.toLowerCase();
-			Info info = cfNameToCassandra.get(realCfLower);
+			Info info = registry.lookupReal(realCfLower);
 			if(info != null) {
 				if (log.isInfoEnabled())
 					log.info("Virt CF="+virtCf+" already exists and real colfamily="+realCf+" already exists so return it");
 				//Looks like it already existed
-				String cfLowercase = realCf.toLowerCase();
-				virtualToCfName.put(virtCf, cfLowercase);
+				registry.addVirtual(virtCf, realCfLower);
 				return info;
 			}
 			
@@ -446,8 +436,7 @@ public class ColumnFamilyHelper {
 		String realCf = meta.getRealColumnFamily();
 		String realCfLower = realCf.toLowerCase();
 		Info info = createInfo(realCf, colType, rowKeyType);
-		virtualToCfName.put(virtual, realCfLower);
-		cfNameToCassandra.put(realCfLower, info);
+		registry.add(virtual, realCfLower, info, true);
 	}
 	
 	private ColumnFamilyDefinition setColumnNameCompareType(DboTableMeta cf,
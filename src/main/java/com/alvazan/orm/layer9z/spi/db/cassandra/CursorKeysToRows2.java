@@ -1,11 +1,10 @@
 package com.alvazan.orm.layer9z.spi.db.cassandra;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
+import java.util.concurrent.Future;
 
 import javax.inject.Provider;
 
@@ -17,9 +16,13 @@ import com.alvazan.orm.api.z8spi.Cache;
 import com.alvazan.orm.api.z8spi.KeyValue;
 import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.RowHolder;
-import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.conv.ByteArrayMap;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue.Batch;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue.Fetcher;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadSettings;
 import com.alvazan.orm.api.z8spi.iter.StringLocal;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.netflix.astyanax.Keyspace;
@@ -43,6 +46,7 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 	private Provider<Row> rowProvider;
 	private Cache cache;
 	private DboTableMeta cf;
+	private ReadAheadQueue<OperationResult<Rows<byte[], byte[]>>> readAhead;
 
 	public CursorKeysToRows2(DirectCursor<byte[]> rowKeys, int batchSize,
 			BatchListener list, Provider<Row> rowProvider) {
@@ -63,23 +67,26 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 		return retVal;
 	}
 	
-	public void setupMore(Keyspace keyspace, DboTableMeta cf, Info info, Cache cache) {
+	public void setupMore(Keyspace keyspace, DboTableMeta cf, Info info, Cache cache, ReadAheadSettings settings) {
 		if(cache == null || keyspace == null || cf == null | info == null)
 			throw new IllegalArgumentException("no params can be null but one was null");
 		this.cf = cf;
 		this.info = info;
 		this.cache = cache;
 		this.keyspace = keyspace;
+		this.readAhead = new ReadAheadQueue<OperationResult<Rows<byte[], byte[]>>>(rowKeys, batchSize, settings, new SliceFetcher());
 		beforeFirst();
 	}
 	@Override
 	public void beforeFirst() {
+		readAhead.cancel();
 		rowKeys.beforeFirst();
 		cachedRows = null;
 	}
 	
 	@Override
 	public void afterLast() {
+		readAhead.cancel();
 		rowKeys.afterLast();
 		cachedRows = null;
 	}
@@ -102,19 +109,14 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 		return new Holder<KeyValue<Row>>(cachedRows.previous());
 	}
 
-	@SuppressWarnings("unchecked")
 	private void loadCache() {
 		if(cachedRows != null && cachedRows.hasNext())
 			return; //There are more rows so return and the code will return the next result from cache
 
+		Batch<OperationResult<Rows<byte[], byte[]>>> batch = readAhead.nextBatch();
 		List<RowHolder<Row>> results = new ArrayList<RowHolder<Row>>();
 		List<byte[]> keysToLookup = new ArrayList<byte[]>();
-		while(results.size() < batchSize) {
-			Holder<byte[]> keyHolder = rowKeys.nextImpl();
-			if(keyHolder == null)
-				break; //we are officially exhausted
-			
-			byte[] nextKey = keyHolder.getValue();
+		for(byte[] nextKey : batch.getKeys()) {
 			RowHolder<Row> result = cache.fromCache(cf, nextKey);
 			if(result == null)
 				keysToLookup.add(nextKey);
@@ -122,45 +124,16 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 			results.add(result);
 		}
 		
-		Iterator<com.netflix.astyanax.model.Row<byte[], byte[]>> resultingRows = null;
-		if(keysToLookup.size() > 0) {
-			if(list != null)
-				list.beforeFetchingNextBatch();
-			
-			ColumnFamily<byte[], byte[]> cf = info.getColumnFamilyObj();
-			ColumnFamilyQuery<byte[], byte[]> q2 = keyspace.prepareQuery(cf);
-			RowSliceQuery<byte[], byte[]> slice = q2.getKeySlice(keysToLookup);
-			
-			long start = System.currentTimeMillis();
-			OperationResult<Rows<byte[], byte[]>> result = execute(slice);
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
+		long start = System.currentTimeMillis();
+		OperationResult<Rows<byte[], byte[]>> result = batch.fetch(keysToLookup, list);
+		if(result != null) {
+			Rows<byte[], byte[]> rows = result.getResult();
 			if (log.isDebugEnabled())
-				log.debug("executing slice "+slice+" took "+(System.currentTimeMillis()-start));
-			
-			Rows<byte[], byte[]> rows = result.getResult();		
-			resultingRows = rows.iterator();
+				log.debug("waiting on slice of "+batch.getKeys().size()+" keys took "+(System.currentTimeMillis()-start));
+			fillMap(map, rows.iterator());
 			if(list != null)
 				list.afterFetchingNextBatch(rows.size());
-		} else {
-			resultingRows = new ArrayList<com.netflix.astyanax.model.Row<byte[], byte[]>>().iterator();
-		}
-
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
-		while(resultingRows.hasNext()) {
-			com.netflix.astyanax.model.Row<byte[], byte[]> row = resultingRows.next();
-			KeyValue<Row> kv = new KeyValue<Row>();
-			kv.setKey(row.getKey());
-			if(!row.getColumns().isEmpty()) {
-				//Astyanax returns a row when there is none BUT we know if there are 0 columns there is really no row in the database
-				//then
-				Row r = rowProvider.get();
-				r.setKey(row.getKey());
-				CassandraSession.processColumns(row, r);
-				kv.setValue(r);
-			}
-			
-			ByteArray b = new ByteArray(row.getKey());
-			map.put(b, kv);
-			cache.cacheRow(cf, row.getKey(), kv.getValue());
 		}
 		
 		//UNFORTUNATELY, astyanax's result is NOT ORDERED by the keys we provided so, we need to iterate over the whole thing here
@@ -171,9 +144,14 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 		for(RowHolder<Row> r : results) {
 			if(r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
-				finalRes.add(kv);				
+				KeyValue<Row> kv = map.get(key);
+				if(kv == null) {
+					kv = new KeyValue<Row>();
+					kv.setKey(key);
+				}
+				//only rows that were not in the cache go in, a batch read ahead has every row of the batch
+				cache.cacheRow(cf, key, kv.getValue());
+				finalRes.add(kv);
 			} else {
 				Row row = r.getValue();
 				KeyValue<Row> kv = new KeyValue<Row>();
@@ -185,13 +163,32 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 		
 		cachedRows = finalRes.listIterator();
 	}
+
+	private void fillMap(ByteArrayMap<KeyValue<Row>> map, Iterator<com.netflix.astyanax.model.Row<byte[], byte[]>> resultingRows) {
+		while(resultingRows.hasNext()) {
+			com.netflix.astyanax.model.Row<byte[], byte[]> row = resultingRows.next();
+			KeyValue<Row> kv = new KeyValue<Row>();
+			kv.setKey(row.getKey());
+			if(!row.getColumns().isEmpty()) {
+				//Astyanax returns a row when there is none BUT we know if there are 0 columns there is really no row in the database
+				//then
+				Row r = rowProvider.get();
+				r.setKey(row.getKey());
+				CassandraSession.processColumns(row, r);
+				kv.setValue(r);
+			}
+			
+			map.put(row.getKey(), kv);
+		}
+	}
 	
-	
-	@SuppressWarnings("unchecked")
 	private void loadCacheBackward() {
 		if(cachedRows != null && cachedRows.hasPrevious())
 			return; //There are more rows so return and the code will return the next result from cache
 		
+		//the keys of batches read ahead were never returned so step back over them first
+		readAhead.rewind();
+		
 		List<RowHolder<Row>> results = new ArrayList<RowHolder<Row>>();
 		List<byte[]> keysToLookup = new ArrayList<byte[]>();
 		while(results.size() < batchSize) {
@@ -212,11 +209,7 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 			if(list != null)
 				list.beforeFetchingNextBatch();
 			
-			ColumnFamily<byte[], byte[]> cf = info.getColumnFamilyObj();
-			ColumnFamilyQuery<byte[], byte[]> q2 = keyspace.prepareQuery(cf);
-			RowSliceQuery<byte[], byte[]> slice = q2.getKeySlice(keysToLookup);
-			
-			OperationResult<Rows<byte[], byte[]>> result = execute(slice);
+			OperationResult<Rows<byte[], byte[]>> result = execute(createSlice(keysToLookup));
 			
 			Rows<byte[], byte[]> rows = result.getResult();		
 			resultingRows = rows.iterator();
@@ -226,7 +219,7 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 			resultingRows = new ArrayList<com.netflix.astyanax.model.Row<byte[], byte[]>>().iterator();
 		}
 
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
 		while(resultingRows.hasNext()) {
 			com.netflix.astyanax.model.Row<byte[], byte[]> row = resultingRows.next();
 			KeyValue<Row> kv = new KeyValue<Row>();
@@ -240,8 +233,7 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 				kv.setValue(r);
 			}
 			
-			ByteArray b = new ByteArray(row.getKey());
-			map.put(b, kv);
+			map.put(row.getKey(), kv);
 			cache.cacheRow(cf, row.getKey(), kv.getValue());
 		}
 		
@@ -253,8 +245,7 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 		for(RowHolder<Row> r : results) {
 			if(r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
+				KeyValue<Row> kv = map.get(key);
 				finalRes.add(kv);				
 			} else {
 				Row row = r.getValue();
@@ -278,4 +269,29 @@ public class CursorKeysToRows2 extends AbstractCursor<KeyValue<Row>> {
 		}
 	}
 
+	//Info holds the raw ColumnFamily since composite column families have other column types but the
+	//entity column families we find rows in are always byte[] keys and byte[] column names
+	@SuppressWarnings("unchecked")
+	private RowSliceQuery<byte[], byte[]> createSlice(List<byte[]> keys) {
+		ColumnFamily<byte[], byte[]> cf = info.getColumnFamilyObj();
+		ColumnFamilyQuery<byte[], byte[]> q2 = keyspace.prepareQuery(cf);
+		return q2.getKeySlice(keys);
+	}
+
+	private class SliceFetcher implements Fetcher<OperationResult<Rows<byte[], byte[]>>> {
+		@Override
+		public OperationResult<Rows<byte[], byte[]>> fetch(List<byte[]> keys) {
+			return execute(createSlice(keys));
+		}
+
+		@Override
+		public Future<OperationResult<Rows<byte[], byte[]>>> fetchAsync(List<byte[]> keys) {
+			try {
+				return createSlice(keys).executeAsync();
+			} catch (ConnectionException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
 }
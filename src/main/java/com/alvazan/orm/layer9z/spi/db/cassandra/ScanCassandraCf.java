@@ -9,6 +9,8 @@ import com.alvazan.orm.api.z8spi.BatchListener;
 import com.alvazan.orm.api.z8spi.ScanInfo;
 import com.alvazan.orm.api.z8spi.action.IndexColumn;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan;
+import com.alvazan.orm.api.z8spi.iter.ScanSettings;
 import com.netflix.astyanax.ExceptionCallback;
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.connectionpool.OperationResult;
@@ -33,10 +35,13 @@ public class ScanCassandraCf extends AbstractCursor<IndexColumn> {
 
 	private boolean reversed;
 	private Iterator<Row<byte[], byte[]>> iterator;
+	private ScanSettings scanSettings;
+	private ParallelScan<Row<byte[], byte[]>> parallelScan;
 
 	public ScanCassandraCf(ScanInfo info, Info info1, BatchListener bListener,
-			Integer batchSize, Keyspace keyspace) {
+			Integer batchSize, Keyspace keyspace, ScanSettings scanSettings) {
 		this.keyspace = keyspace;
+		this.scanSettings = scanSettings;
 		this.info = info;
 		this.cfInfo = info1;
 		this.bListener = bListener;
@@ -58,12 +63,14 @@ public class ScanCassandraCf extends AbstractCursor<IndexColumn> {
 	@SuppressWarnings("unchecked")
 	private void initialize() {
 		try {
-			ByteBufferRange range = new RangeBuilder().setReversed(reversed).build();
+			//only the row key is used so ask for one column, deleted rows come back with none and are skipped
+			ByteBufferRange range = new RangeBuilder().setReversed(reversed).setLimit(1).build();
 			ColumnFamily<byte[], byte[]> cf = cfInfo.getColumnFamilyObj();
 
 			ColumnFamilyQuery<byte[], byte[]> cfQuery = keyspace.prepareQuery(cf);
 			AllRowsQuery<byte[], byte[]> query = cfQuery.getAllRows();
 			query.withColumnRange(range)
+				.setIncludeEmptyRows(false)
 				.setExceptionCallback(new ExcCallback());
 			
 			if(batchSize != null) {
@@ -72,6 +79,17 @@ public class ScanCassandraCf extends AbstractCursor<IndexColumn> {
 				query.setRowLimit(batchSize);
 			}
 
+			if(parallelScan != null)
+				parallelScan.cancel();
+			parallelScan = null;
+			//the row order means nothing when scanning the ring so reversed is just the column order
+			if(scanSettings.isParallel()) {
+				int queueSize = (batchSize == null ? 500 : batchSize) * scanSettings.getParallelism();
+				parallelScan = new ParallelScan<Row<byte[], byte[]>>(AllRowsSplit.wholeRing(query, scanSettings.getParallelism()), scanSettings, queueSize);
+				parallelScan.start();
+				return;
+			}
+
 			OperationResult<Rows<byte[], byte[]>> opResult = query.execute();
 			iterator = opResult.getResult().iterator();
 		} catch (ConnectionException e) {
@@ -109,14 +127,30 @@ public class ScanCassandraCf extends AbstractCursor<IndexColumn> {
 	}
 
 	private com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder<IndexColumn> fetchNext() {
-		if(!iterator.hasNext())
+		Row<byte[], byte[]> row = nextRow();
+		if(row == null)
 			return null;
-		
-		Row<byte[], byte[]> row = iterator.next();
 		byte[] key = row.getKey();
 		
 		IndexColumn col = new IndexColumn();
 		col.setPrimaryKey(key);
 		return new Holder<IndexColumn>(col);
 	}
+
+	private Row<byte[], byte[]> nextRow() {
+		while(true) {
+			Row<byte[], byte[]> row = fetchRow();
+			//a deleted row is a tombstone with no columns until compaction, it is not a row anymore
+			if(row == null || !row.getColumns().isEmpty())
+				return row;
+		}
+	}
+
+	private Row<byte[], byte[]> fetchRow() {
+		if(parallelScan != null)
+			return parallelScan.next();
+		else if(!iterator.hasNext())
+			return null;
+		return iterator.next();
+	}
 }
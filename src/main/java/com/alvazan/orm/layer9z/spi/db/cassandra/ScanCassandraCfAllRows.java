@@ -8,6 +8,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan;
+import com.alvazan.orm.api.z8spi.iter.ScanSettings;
 import com.netflix.astyanax.ExceptionCallback;
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.connectionpool.OperationResult;
@@ -30,11 +32,14 @@ public class ScanCassandraCfAllRows extends AbstractCursor<com.alvazan.orm.api.z
 
 	private boolean reversed;
 	private Iterator<Row<byte[], byte[]>> iterator;
+	private ScanSettings scanSettings;
+	private ParallelScan<Row<byte[], byte[]>> parallelScan;
 
 	private Provider<com.alvazan.orm.api.z8spi.Row> rowProvider;
 
-	public ScanCassandraCfAllRows(Info info1, Integer batchSize, Keyspace keyspace, Provider<com.alvazan.orm.api.z8spi.Row> rowProvider) {
+	public ScanCassandraCfAllRows(Info info1, Integer batchSize, Keyspace keyspace, Provider<com.alvazan.orm.api.z8spi.Row> rowProvider, ScanSettings scanSettings) {
 		this.keyspace = keyspace;
+		this.scanSettings = scanSettings;
 		this.cfInfo = info1;
 		this.batchSize = batchSize;
 		this.rowProvider = rowProvider;
@@ -69,6 +74,17 @@ public class ScanCassandraCfAllRows extends AbstractCursor<com.alvazan.orm.api.z
 				query.setRowLimit(batchSize);
 			}
 
+			if(parallelScan != null)
+				parallelScan.cancel();
+			parallelScan = null;
+			//the row order means nothing when scanning the ring so reversed is just the column order
+			if(scanSettings.isParallel()) {
+				int queueSize = (batchSize == null ? 500 : batchSize) * scanSettings.getParallelism();
+				parallelScan = new ParallelScan<Row<byte[], byte[]>>(AllRowsSplit.wholeRing(query, scanSettings.getParallelism()), scanSettings, queueSize);
+				parallelScan.start();
+				return;
+			}
+
 			OperationResult<Rows<byte[], byte[]>> opResult = query.execute();
 			iterator = opResult.getResult().iterator();
 		} catch (ConnectionException e) {
@@ -106,10 +122,9 @@ public class ScanCassandraCfAllRows extends AbstractCursor<com.alvazan.orm.api.z
 	}
 
 	private Holder<com.alvazan.orm.api.z8spi.Row> fetchNext() {
-		if(!iterator.hasNext())
+		Row<byte[], byte[]> row = nextRow();
+		if(row == null)
 			return null;
-
-		Row<byte[], byte[]> row = iterator.next();
 		byte[] key = row.getKey();
 
 		com.alvazan.orm.api.z8spi.Row r = rowProvider.get();
@@ -118,4 +133,12 @@ public class ScanCassandraCfAllRows extends AbstractCursor<com.alvazan.orm.api.z
 		
 		return new Holder<com.alvazan.orm.api.z8spi.Row>(r);
 	}
+
+	private Row<byte[], byte[]> nextRow() {
+		if(parallelScan != null)
+			return parallelScan.next();
+		else if(!iterator.hasNext())
+			return null;
+		return iterator.next();
+	}
 }
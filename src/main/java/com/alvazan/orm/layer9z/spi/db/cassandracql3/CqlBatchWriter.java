@@ -0,0 +1,83 @@
+package com.alvazan.orm.layer9z.spi.db.cassandracql3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.Batch;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Using;
+
+/**
+ * Collects every write of a single flush and sends them as unlogged BATCHes in one go instead of one
+ * statement(plus a read) at a time.  Statements inside a batch all get the same timestamp by default which
+ * would make a delete win over the insert that follows it, so each statement is stamped with its own
+ * strictly increasing timestamp in the order the actions came in which keeps the sequential semantics.
+ */
+public class CqlBatchWriter {
+
+	private static final Logger log = LoggerFactory.getLogger(CqlBatchWriter.class);
+	private static final AtomicLong lastTimestamp = new AtomicLong();
+
+	public static final int MAX_STATEMENTS_PER_BATCH = 500;
+
+	private List<Statement> statements = new ArrayList<Statement>();
+
+	/**
+	 * @return the Using to add to the next statement so it is ordered after every previous statement
+	 */
+	public Using nextTimestamp() {
+		return QueryBuilder.timestamp(nextMicros());
+	}
+
+	public void add(Statement statement) {
+		statements.add(statement);
+	}
+
+	public int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Sends all batches asynchronously and then waits for all of them so a large flush is still a single
+	 * round of requests
+	 */
+	public void execute(Session session) {
+		if(statements.size() == 0)
+			return;
+
+		List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>();
+		for(int i = 0; i < statements.size(); i += MAX_STATEMENTS_PER_BATCH) {
+			int end = Math.min(i+MAX_STATEMENTS_PER_BATCH, statements.size());
+			Batch batch = QueryBuilder.unloggedBatch();
+			for(Statement statement : statements.subList(i, end)) {
+				batch.add(statement);
+			}
+			futures.add(session.executeAsync(batch));
+		}
+
+		if (log.isDebugEnabled())
+			log.debug("sent "+statements.size()+" statements in "+futures.size()+" batches");
+
+		for(ResultSetFuture future : futures) {
+			future.getUninterruptibly();
+		}
+		statements.clear();
+	}
+
+	private static long nextMicros() {
+		while(true) {
+			long now = System.currentTimeMillis()*1000;
+			long last = lastTimestamp.get();
+			long next = Math.max(now, last+1);
+			if(lastTimestamp.compareAndSet(last, next))
+				return next;
+		}
+	}
+}
@@ -29,20 +29,16 @@ import com.alvazan.orm.api.z8spi.action.RemoveColumn;
 import com.alvazan.orm.api.z8spi.action.RemoveIndex;
 import com.alvazan.orm.api.z8spi.conv.StandardConverters;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.CursorOfShards;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
 import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
-import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.KeyspaceMetadata;
-import com.datastax.driver.core.PreparedStatement;
-import com.datastax.driver.core.Query;
-import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.querybuilder.Clause;
+import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
-import com.datastax.driver.core.querybuilder.Select;
-import com.datastax.driver.core.querybuilder.Select.Where;
 
 public class CqlSession implements NoSqlRawSession {
     private static final Logger log = LoggerFactory.getLogger(CqlSession.class);
@@ -74,104 +70,64 @@ public class CqlSession implements NoSqlRawSession {
 
     @Override
     public void sendChanges(List<Action> actions, MetaLookup ormSession) {
+        CqlBatchWriter writer = new CqlBatchWriter();
         for (Action action : actions) {
             if (action instanceof Persist) {
-                persist((Persist) action, ormSession);
+                persist((Persist) action, ormSession, writer);
             } else if (action instanceof PersistIndex) {
-                persistIndex((PersistIndex) action, ormSession);
+                persistIndex((PersistIndex) action, ormSession, writer);
             } else if(action instanceof Remove) {
-                remove((Remove)action, ormSession);
+                remove((Remove)action, ormSession, writer);
             } else if(action instanceof RemoveIndex) {
-                removeIndex((RemoveIndex) action, ormSession);
+                removeIndex((RemoveIndex) action, ormSession, writer);
             } else if(action instanceof RemoveColumn) {
-                removeColumn((RemoveColumn) action, ormSession);
+                removeColumn((RemoveColumn) action, ormSession, writer);
             }
 
         }
+        writer.execute(session);
     }
 
-    private void persist(Persist action, MetaLookup ormSession) {
+    private void persist(Persist action, MetaLookup ormSession, CqlBatchWriter writer) {
         String colFamily = action.getColFamily().getColumnFamily();
         String table = lookupOrCreate(colFamily, ormSession);
         List<Column> s = action.getColumns();
         byte[] rowkey = action.getRowKey();
 
         for (Column c : s) {
-            try {
-                PreparedStatement statement = session.prepare("INSERT INTO " + keys + "." + table + "(id, colname, colvalue) VALUES (?, ?, ?)");
-                BoundStatement boundStatement = new BoundStatement(statement);
-                String colName = StandardConverters.convertToString(c.getName());
-                checkIfRowExsits(table, rowkey, colName);
-                if (c.getValue() != null && c.getValue().length != 0) {
-                    session.execute(boundStatement.bind(ByteBuffer.wrap(rowkey), colName, ByteBuffer.wrap(c.getValue())));
-                } else {
-                    session.execute(boundStatement.bind(ByteBuffer.wrap(rowkey), colName, ByteBuffer.wrap(new byte[0])));
-                }
-
-            } catch (Exception e) {
-                System.out.println(c.getValue() + "Exception:" + e.getMessage());
-            }
-        }
-
-    }
-
-    private void checkIfRowExsits(String table, byte[] rowKey, String colName) {
-        Clause rkClause = QueryBuilder.eq("id", ByteBuffer.wrap(rowKey));
-        Clause cnClause = QueryBuilder.eq("colname", colName);
-        try {
-            Query query = QueryBuilder.select().all().from(keys, table).where(rkClause).and(cnClause);
-            ResultSet resultSet = session.execute(query);
-            if (resultSet.isExhausted())
-                return;
-            else {
-                Query delQuery = QueryBuilder.delete().from(keys, table).where(rkClause).and(cnClause);
-                session.execute(delQuery);
-            }
-        } catch (Exception e) {
-            System.out.println(" Exception:" + e.getMessage());
+            String colName = StandardConverters.convertToString(c.getName());
+            //colvalue is part of the primary key so an existing value must be deleted or we would end up with
+            //two values.  A blind delete ordered before the insert replaces the old SELECT then DELETE
+            removeColumnImpl(rowkey, table, colName, writer);
+            byte[] value = c.getValue();
+            if (value == null)
+                value = new byte[0];
+            Insert insert = QueryBuilder.insertInto(keys, table)
+                    .value("id", ByteBuffer.wrap(rowkey))
+                    .value("colname", colName)
+                    .value("colvalue", ByteBuffer.wrap(value));
+            insert.using(writer.nextTimestamp());
+            writer.add(insert);
         }
 
     }
 
-    private void persistIndex(PersistIndex action, MetaLookup ormSession) {
+    private void persistIndex(PersistIndex action, MetaLookup ormSession, CqlBatchWriter writer) {
         String indexCfName = action.getIndexCfName();
         String table = lookupOrCreate(indexCfName, ormSession);
-        byte[] rowKey = action.getRowKey();
+        String rowKey = StandardConverters.convertFromBytes(String.class, action.getRowKey());
         IndexColumn column = action.getColumn();
-        byte[] key = column.getIndexedValue();
         byte[] value = column.getPrimaryKey();
 
-        try {
-            Object keyObject = null;
-            if (key != null) {
-                PreparedStatement statement = session.prepare("INSERT INTO " + keys + "." + table + "(id, colname, colvalue) VALUES (?, ?, ?)");
-                BoundStatement boundStatement = new BoundStatement(statement);
-                if (indexCfName.equalsIgnoreCase("StringIndice")) {
-                    keyObject = StandardConverters.convertFromBytes(String.class, key);
-                } else if (indexCfName.equalsIgnoreCase("IntegerIndice")) {
-                    keyObject = StandardConverters.convertFromBytes(Long.class, key);
-                } else if (indexCfName.equalsIgnoreCase("DecimalIndice")) {
-                    keyObject = StandardConverters.convertFromBytes(Float.class, key);
-                }
-                session.execute(boundStatement.bind(StandardConverters.convertFromBytes(String.class, rowKey), keyObject, ByteBuffer.wrap(value)));
-            } else {
-                PreparedStatement statement = session.prepare("INSERT INTO " + keys + "." + table + "(id, colname, colvalue) VALUES (?, ?, ?)");
-                BoundStatement boundStatement = new BoundStatement(statement);
-                if (indexCfName.equalsIgnoreCase("IntegerIndice")) {
-                    boundStatement.setString("id", StandardConverters.convertFromBytes(String.class, rowKey));
-                    boundStatement.setBytesUnsafe("colname", ByteBuffer.wrap(new byte[0]));
-                    boundStatement.setBytes("colvalue", ByteBuffer.wrap(value));
-                    session.execute(boundStatement);
-                } else
-                    session.execute(boundStatement.bind(StandardConverters.convertFromBytes(String.class, rowKey), "", ByteBuffer.wrap(value)));
-          }
-        } catch (Exception e) {
-            System.out.println(indexCfName + " Exception:" + e.getMessage());
-        }
-
+        Insert insert = QueryBuilder.insertInto(keys, table)
+                .value("id", rowKey)
+                .value("colname", toIndexedValue(table, column.getIndexedValue()))
+                .value("colvalue", ByteBuffer.wrap(value));
+        insert.using(writer.nextTimestamp());
+        writer.add(insert);
     }
 
-    private void remove(Remove action, MetaLookup ormSession) {
+    private void remove(Remove action, MetaLookup ormSession, CqlBatchWriter writer) {
         String colFamily = action.getColFamily().getColumnFamily();
         String table = lookupOrCreate(colFamily, ormSession);
         if (action.getAction() == null)
@@ -179,45 +135,43 @@ public class CqlSession implements NoSqlRawSession {
         switch (action.getAction()) {
         case REMOVE_ENTIRE_ROW:
             Clause eqClause = QueryBuilder.eq("id", ByteBuffer.wrap(action.getRowKey()));
-            Query query = QueryBuilder.delete().from(keys, table).where(eqClause);
-            session.execute(query);
+            writer.add(QueryBuilder.delete().from(keys, table).using(writer.nextTimestamp()).where(eqClause));
             break;
         case REMOVE_COLUMNS_FROM_ROW:
-            removeColumns(action, table);
+            removeColumns(action, table, writer);
             break;
         default:
             throw new RuntimeException("bug, unknown remove action=" + action.getAction());
         }
     }
 
-    private void removeColumns(Remove action, String table) {
+    private void removeColumns(Remove action, String table, CqlBatchWriter writer) {
         String rowKey = StandardConverters.convertFromBytes(String.class, action.getRowKey());
         if (rowKey != null) {
             for (byte[] name : action.getColumns()) {
                 String colName = StandardConverters.convertToString(name);
-                removeColumnImpl(action.getRowKey(), table, colName);
+                removeColumnImpl(action.getRowKey(), table, colName, writer);
             }
         }
     }
 
-    private void removeColumn(RemoveColumn action, MetaLookup ormSession) {
+    private void removeColumn(RemoveColumn action, MetaLookup ormSession, CqlBatchWriter writer) {
         String colFamily = action.getColFamily().getColumnFamily();
         String table = lookupOrCreate(colFamily, ormSession);
         String rowKey = StandardConverters.convertFromBytes(String.class, action.getRowKey());
         if (rowKey != null) {
             String colName = StandardConverters.convertToString(action.getColumn());
-            removeColumnImpl(action.getRowKey(), table, colName);
+            removeColumnImpl(action.getRowKey(), table, colName, writer);
         }
     }
 
-    private void removeColumnImpl(byte[] rowKey, String table, String colName) {
+    private void removeColumnImpl(byte[] rowKey, String table, String colName, CqlBatchWriter writer) {
         Clause eqClause = QueryBuilder.eq("id",ByteBuffer.wrap(rowKey));
         Clause eqColClause = QueryBuilder.eq("colname", colName);
-        Query query = QueryBuilder.delete().from(keys, table).where(eqClause).and(eqColClause);
-        session.execute(query);
+        writer.add(QueryBuilder.delete().from(keys, table).using(writer.nextTimestamp()).where(eqClause).and(eqColClause));
     }
 
-    private void removeIndex(RemoveIndex action, MetaLookup ormSession) {
+    private void removeIndex(RemoveIndex action, MetaLookup ormSession, CqlBatchWriter writer) {
         String colFamily = action.getIndexCfName();
         if (colFamily.equalsIgnoreCase("BytesIndice"))
             return;
@@ -226,60 +180,33 @@ public class CqlSession implements NoSqlRawSession {
         String rowKey = StandardConverters.convertFromBytes(String.class, action.getRowKey());
         IndexColumn column = action.getColumn();
         byte[] fk = column.getPrimaryKey();
-        byte[] indexedValue = action.getColumn().getIndexedValue();
-        Object indValue = null;
-        if (table.equalsIgnoreCase("StringIndice"))
-            indValue = StandardConverters.convertFromBytes(String.class, indexedValue);
+
+        //deleting an index column that is already gone is a no-op so there is no need to read it first
+        Clause eqClause = QueryBuilder.eq("id", rowKey);
+        Clause indClause = QueryBuilder.eq("colname", toIndexedValue(table, column.getIndexedValue()));
+        Clause fkClause = QueryBuilder.eq("colvalue", ByteBuffer.wrap(fk));
+        writer.add(QueryBuilder.delete().from(keys, table).using(writer.nextTimestamp()).where(eqClause).and(indClause).and(fkClause));
+    }
+
+    private Object toIndexedValue(String table, byte[] indexedValue) {
+        if (indexedValue == null) {
+            if (table.equalsIgnoreCase("IntegerIndice"))
+                return ByteBuffer.wrap(new byte[0]);
+            return "";
+        } else if (table.equalsIgnoreCase("StringIndice"))
+            return StandardConverters.convertFromBytes(String.class, indexedValue);
         else if (table.equalsIgnoreCase("IntegerIndice"))
-            indValue = StandardConverters.convertFromBytes(Long.class, indexedValue);
+            return StandardConverters.convertFromBytes(Long.class, indexedValue);
         else if (table.equalsIgnoreCase("DecimalIndice"))
-            indValue = StandardConverters.convertFromBytes(Float.class, indexedValue);
-        boolean exists = findIndexRow(table, rowKey, fk, indValue);
-        if (!exists) {
-            if (log.isInfoEnabled())
-                log.info("Index: " + column.toString() + " already removed.");
-        } else {
-            Clause eqClause = QueryBuilder.eq("id", rowKey);
-            Clause indClause = null;
-            if (indValue != null) {
-                indClause = QueryBuilder.eq("colname", indValue);
-            } else {
-                if (table.equalsIgnoreCase("IntegerIndice")) {
-                    indClause = QueryBuilder.eq("colname", ByteBuffer.wrap(new byte[0]));
-                } else {
-                    indClause = QueryBuilder.eq("colname", "");
-                }
-            }
-            Clause fkClause = QueryBuilder.eq("colvalue", ByteBuffer.wrap(fk));
-            Query query = QueryBuilder.delete().from(keys, table).where(eqClause).and(indClause).and(fkClause);
-            session.execute(query);
-        }
+            return StandardConverters.convertFromBytes(Float.class, indexedValue);
+        return null;
     }
 
-    public boolean findIndexRow(String table, String rowKey, byte[] key, Object indValue) {
-        Select selectQuery = QueryBuilder.select().all().from(keys, table).allowFiltering();
-        Where selectWhere = selectQuery.where();
-        Clause rkClause = QueryBuilder.eq("id", rowKey);
-        selectWhere.and(rkClause);
-        Clause indClause = null;
-        if (indValue != null) {
-            indClause = QueryBuilder.eq("colname", indValue);
-        } else {
-            if (table.equalsIgnoreCase("IntegerIndice")) {
-                indClause = QueryBuilder.eq("colname", ByteBuffer.wrap(new byte[0]));
-            } else {
-                indClause = QueryBuilder.eq("colname", "");
-            }
-        }
-        selectWhere.and(indClause);
-        Clause keyClause = QueryBuilder.eq("colvalue", ByteBuffer.wrap(key));
-        selectWhere.and(keyClause);
-        Query query = selectWhere.limit(1);
-        ResultSet resultSet = session.execute(query);
-        return !resultSet.isExhausted();
-   }
-
-    private String lookupOrCreate(String colFamily1, MetaLookup ormSession) {
+    /**
+     * Creates the table of the column family if the cluster does not know it yet(protected so a test can write
+     * without a cluster)
+     */
+    protected String lookupOrCreate(String colFamily1, MetaLookup ormSession) {
         if (cluster.getMetadata().getKeyspace(keys).getTable(colFamily1.toLowerCase()) == null) {
             try {
                 String colType = null;
@@ -338,6 +265,8 @@ public class CqlSession implements NoSqlRawSession {
 
     @Override
     public AbstractCursor<IndexColumn> scanIndex(ScanInfo scan, Key from, Key to, Integer batchSize, BatchListener l, MetaLookup mgr) {
+        if (scan.isSharded())
+            return CursorOfShards.scanIndex(this, scan, from, to, batchSize, l, mgr);
         byte[] rowKey = scan.getRowKey();
         String indexTableName = scan.getIndexColFamily();
         DboColumnMeta colMeta = scan.getColumnName();
@@ -360,6 +289,8 @@ public class CqlSession implements NoSqlRawSession {
 
     @Override
     public AbstractCursor<IndexColumn> scanIndex(ScanInfo scanInfo, List<byte[]> values, BatchListener list, MetaLookup mgr) {
+        if (scanInfo.isSharded())
+            return CursorOfShards.scanIndex(this, scanInfo, values, list, mgr);
         StartQueryListener listener = new StartQueryManyKeys(keys, scanInfo, session, values, false);
         return new CursorOfFutures(listener, list, scanInfo);
     }
@@ -396,4 +327,10 @@ public class CqlSession implements NoSqlRawSession {
         return null;
     }
 
+    @Override
+    public boolean isIndexPkOrdered() {
+        //colvalue(the primary key) is a blob clustering column after colname
+        return true;
+    }
+
 }
\ No newline at end of file
@@ -3,11 +3,9 @@ package com.alvazan.orm.layer9z.spi.db.cassandracql3;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
 
 import javax.inject.Provider;
 
@@ -18,6 +16,7 @@ import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.RowHolder;
 import com.alvazan.orm.api.z8spi.action.Column;
 import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.conv.ByteArrayMap;
 import com.alvazan.orm.api.z8spi.conv.StandardConverters;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
@@ -150,7 +149,7 @@ public class CursorKeysToRowsCql3 extends AbstractCursor<KeyValue<Row>> {
             if (list != null) list.afterFetchingNextBatch(batchSize);
         }
 
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
 
 		fillCache(map, resultSet, keysToLookup);
 
@@ -161,8 +160,7 @@ public class CursorKeysToRowsCql3 extends AbstractCursor<KeyValue<Row>> {
 		for (RowHolder<Row> r : results) {
 			if (r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
+				KeyValue<Row> kv = map.get(key);
 				if (kv!=null)
 					finalRes.add(kv);
 			} else {
@@ -220,7 +218,7 @@ public class CursorKeysToRowsCql3 extends AbstractCursor<KeyValue<Row>> {
             }
             if (list != null) list.afterFetchingNextBatch(batchSize);
         }
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
 
         fillCache(map, resultSet, keysToLookup);
 
@@ -230,8 +228,7 @@ public class CursorKeysToRowsCql3 extends AbstractCursor<KeyValue<Row>> {
 		for (RowHolder<Row> r : results) {
 			if (r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
+				KeyValue<Row> kv = map.get(key);
 				if (kv != null)
 					finalRes.add(kv);
 			} else {
@@ -248,14 +245,13 @@ public class CursorKeysToRowsCql3 extends AbstractCursor<KeyValue<Row>> {
 			cachedRows.next();
 	}
 
-    private void fillCache(Map<ByteArray, KeyValue<Row>> map, ResultSet cursor, List<byte[]> keysToLookup) {
+    private void fillCache(ByteArrayMap<KeyValue<Row>> map, ResultSet cursor, List<byte[]> keysToLookup) {
         if (cursor == null) {
             for (byte[] key : keysToLookup) {
                 KeyValue<Row> kv = new KeyValue<Row>();
                 kv.setKey(key);
                 kv.setValue(null);
-                ByteArray b = new ByteArray(key);
-                map.put(b, kv);
+                map.put(key, kv);
                 cache.cacheRow(cf, key, kv.getValue());
             }
         } else {
@@ -263,7 +259,7 @@ public class CursorKeysToRowsCql3 extends AbstractCursor<KeyValue<Row>> {
         }
     }
 
-    private void fillCacheForCursor(Map<ByteArray, KeyValue<Row>> map, ResultSet cursor, List<byte[]> keysToLookup) {
+    private void fillCacheForCursor(ByteArrayMap<KeyValue<Row>> map, ResultSet cursor, List<byte[]> keysToLookup) {
         byte[] rowKey = null;
         List<List<com.datastax.driver.core.Row>> cqlRows = new ArrayList<List<com.datastax.driver.core.Row>>();
         List<com.datastax.driver.core.Row> actualRowList = new ArrayList<com.datastax.driver.core.Row>();
@@ -306,8 +302,7 @@ public class CursorKeysToRowsCql3 extends AbstractCursor<KeyValue<Row>> {
                 r.put(c);
 
                 kv.setValue(r);
-                ByteArray b = new ByteArray(cqlRowKey);
-                map.put(b, kv);
+                map.put(cqlRowKey, kv);
                 cache.cacheRow(cf, cqlRowKey, kv.getValue());
             }
         }
@@ -315,13 +310,12 @@ public class CursorKeysToRowsCql3 extends AbstractCursor<KeyValue<Row>> {
         // Now put the remaining keys which are not in CQL3's cursor.
         // This is because Cassandra returns all the rows with rowkeys while CQL# doesn't
         for (byte[] key : keysToLookup) {
-            ByteArray baKey = new ByteArray(key);
-            if (!map.containsKey(baKey)) {
+            if (!map.containsKey(key)) {
                 KeyValue<Row> kv = new KeyValue<Row>();
                 kv.setKey(key);
                 kv.setValue(null);
                 // ByteArray b = new ByteArray(key);
-                map.put(baKey, kv);
+                map.put(key, kv);
                 cache.cacheRow(cf, key, kv.getValue());
             }
         }
@@ -2,11 +2,11 @@ package com.alvazan.orm.layer9z.spi.db.hbase;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 
 import javax.inject.Provider;
@@ -14,6 +14,7 @@ import javax.inject.Provider;
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.HTablePool;
 import org.apache.hadoop.hbase.client.Result;
 
 
@@ -23,9 +24,13 @@ import com.alvazan.orm.api.z8spi.KeyValue;
 import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.RowHolder;
 import com.alvazan.orm.api.z8spi.action.Column;
-import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.conv.ByteArrayMap;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue.Batch;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue.Fetcher;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadSettings;
 import com.alvazan.orm.api.z8spi.iter.StringLocal;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 
@@ -42,6 +47,10 @@ public class CursorKeysToRowsHbase extends AbstractCursor<KeyValue<Row>> {
 	private Provider<Row> rowProvider;
 	private Cache cache;
 	private DboTableMeta cf;
+	private HTablePool hTablePool;
+	private String tableName;
+	private ReadAheadSettings readAheadSettings;
+	private ReadAheadQueue<Result[]> readAhead;
 
 	public CursorKeysToRowsHbase(DirectCursor<byte[]> rowKeys, int batchSize,
 			BatchListener list, Provider<Row> rowProvider) {
@@ -63,7 +72,8 @@ public class CursorKeysToRowsHbase extends AbstractCursor<KeyValue<Row>> {
 		return retVal; 
 	}
 
-	public void setupMore(HTableInterface keyspace, DboTableMeta colFamily, Info info, Cache cache) {
+	public void setupMore(HTableInterface keyspace, DboTableMeta colFamily, Info info, Cache cache,
+			HTablePool pool, String tableName, ReadAheadSettings settings) {
 		if (cache == null || keyspace == null || info == null){
 			throw new IllegalArgumentException(
 					"no params can be null but one was null");}
@@ -71,17 +81,23 @@ public class CursorKeysToRowsHbase extends AbstractCursor<KeyValue<Row>> {
 		this.hTable = keyspace;
 		this.info = info;
 		this.cf = colFamily;
+		this.hTablePool = pool;
+		this.tableName = tableName;
+		this.readAheadSettings = settings;
+		this.readAhead = new ReadAheadQueue<Result[]>(rowKeys, batchSize, settings, new GetFetcher());
 		beforeFirst();
 	}
 
 	@Override
 	public void beforeFirst() {
+		readAhead.cancel();
 		rowKeys.beforeFirst();
 		cachedRows = null;
 	}
 
 	@Override
 	public void afterLast() {
+		readAhead.cancel();
 		rowKeys.afterLast();
 		cachedRows = null;
 	}
@@ -108,62 +124,36 @@ public class CursorKeysToRowsHbase extends AbstractCursor<KeyValue<Row>> {
 		if (cachedRows != null && cachedRows.hasNext())
 			return; // There are more rows so return and the code will return
 					// the next result from cache
+		if (info.getColFamily() == null)
+			return;
 
+		Batch<Result[]> batch = readAhead.nextBatch();
 		List<RowHolder<Row>> results = new ArrayList<RowHolder<Row>>();
 		List<byte[]> keysToLookup = new ArrayList<byte[]>();
-		while (results.size() < batchSize) {
-			Holder<byte[]> keyHolder = rowKeys.nextImpl();
-			if (keyHolder == null)
-				break; // we are officially exhausted
-
-			byte[] nextKey = keyHolder.getValue();
-			if (cache != null) {
-				RowHolder<Row> result = cache.fromCache(cf, nextKey);
-				if (result == null)
-					keysToLookup.add(nextKey);
-				results.add(result);
-			}
-
+		for (byte[] nextKey : batch.getKeys()) {
+			RowHolder<Row> result = cache.fromCache(cf, nextKey);
+			if (result == null)
+				keysToLookup.add(nextKey);
+			results.add(result);
 		}
-		Result[] resultArray = null;
-		HColumnDescriptor dbCollection = null;
-		if (info.getColFamily() != null) {
-			dbCollection = info.getColFamily();
-		} else
-			return;
-		if (keysToLookup.size() > 0) {
-			if (list != null)
-				list.beforeFetchingNextBatch();
-			List<Get> listGet = new ArrayList<Get>();
-			for (byte[] keys : keysToLookup) {
-				Get get = new Get(keys);
-				get.addFamily(dbCollection.getName());
-				listGet.add(get);
-			}
-			try {
-				resultArray = hTable.get(listGet);
 
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		Result[] resultArray = batch.fetch(keysToLookup, list);
+		if (resultArray != null && list != null)
+			list.afterFetchingNextBatch(5);
 
-			
-			if (list != null)
-				list.afterFetchingNextBatch(5);
-		}
-
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
-		fillCache(map, resultArray, keysToLookup);
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
+		fillMap(map, resultArray, keysToLookup);
 
 		List<KeyValue<Row>> finalRes = new ArrayList<KeyValue<Row>>();
 		Iterator<byte[]> keyIter = keysToLookup.iterator();
 		for (RowHolder<Row> r : results) {
 			if (r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
-				if (kv != null)
-					finalRes.add(kv);
+				KeyValue<Row> kv = map.get(key);
+				// only rows that were not in the cache go in, a batch read
+				// ahead has every row of the batch
+				cache.cacheRow(cf, key, kv.getValue());
+				finalRes.add(kv);
 			} else {
 				Row row = r.getValue();
 				KeyValue<Row> kv = new KeyValue<Row>();
@@ -176,11 +166,81 @@ public class CursorKeysToRowsHbase extends AbstractCursor<KeyValue<Row>> {
 		cachedRows = finalRes.listIterator();
 	}
 
+	private void fillMap(ByteArrayMap<KeyValue<Row>> map,
+			Result[] resultArray, List<byte[]> keysToLookup) {
+		if (resultArray != null) {
+			for (Result result : resultArray) {
+				List<org.apache.hadoop.hbase.KeyValue> hKeyValue = result.list();
+				if (hKeyValue == null || hKeyValue.isEmpty())
+					continue;
+				KeyValue<Row> kv = new KeyValue<Row>();
+				kv.setKey(result.getRow());
+				Row r = rowProvider.get();
+				processColumns(hKeyValue, r);
+				kv.setValue(r);
+				map.put(result.getRow(), kv);
+			}
+		}
+		for (byte[] key : keysToLookup) {
+			if (!map.containsKey(key)) {
+				KeyValue<Row> kv = new KeyValue<Row>();
+				kv.setKey(key);
+				kv.setValue(null);
+				map.put(key, kv);
+			}
+		}
+	}
+
+	private List<Get> createGets(List<byte[]> keys) {
+		HColumnDescriptor dbCollection = info.getColFamily();
+		List<Get> listGet = new ArrayList<Get>();
+		for (byte[] key : keys) {
+			Get get = new Get(key);
+			get.addFamily(dbCollection.getName());
+			listGet.add(get);
+		}
+		return listGet;
+	}
+
+	private class GetFetcher implements Fetcher<Result[]> {
+		@Override
+		public Result[] fetch(List<byte[]> keys) {
+			try {
+				return hTable.get(createGets(keys));
+			} catch (IOException e) {
+				e.printStackTrace();
+				return null;
+			}
+		}
+
+		@Override
+		public Future<Result[]> fetchAsync(List<byte[]> keys) {
+			final List<Get> gets = createGets(keys);
+			return readAheadSettings.getExecutor().submit(new Callable<Result[]>() {
+				@Override
+				public Result[] call() throws Exception {
+					// HTable is not thread safe so the background load uses
+					// its own table from the pool
+					HTableInterface table = hTablePool.getTable(tableName);
+					try {
+						return table.get(gets);
+					} finally {
+						table.close();
+					}
+				}
+			});
+		}
+	}
+
 	private void loadCacheBackward() {
 		if (cachedRows != null && cachedRows.hasPrevious())
 			return; // There are more rows so return and the code will return
 					// the next result from cache
 
+		// the keys of batches read ahead were never returned so step back
+		// over them first
+		readAhead.rewind();
+
 		List<RowHolder<Row>> results = new ArrayList<RowHolder<Row>>();
 		List<byte[]> keysToLookup = new ArrayList<byte[]>();
 		while (results.size() < batchSize) {
@@ -219,7 +279,7 @@ public class CursorKeysToRowsHbase extends AbstractCursor<KeyValue<Row>> {
 				list.afterFetchingNextBatch(5);
 		}
 
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
 
 		fillCache(map, resultArray, keysToLookup);
 		List<KeyValue<Row>> finalRes = new ArrayList<KeyValue<Row>>();
@@ -227,8 +287,7 @@ public class CursorKeysToRowsHbase extends AbstractCursor<KeyValue<Row>> {
 		for (RowHolder<Row> r : results) {
 			if (r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
+				KeyValue<Row> kv = map.get(key);
 				if (kv != null)
 					finalRes.add(kv);
 			} else {
@@ -245,15 +304,14 @@ public class CursorKeysToRowsHbase extends AbstractCursor<KeyValue<Row>> {
 			cachedRows.next();
 	}
 
-	private void fillCache(Map<ByteArray, KeyValue<Row>> map,
+	private void fillCache(ByteArrayMap<KeyValue<Row>> map,
 			Result[] resultArray, List<byte[]> keysToLookup) {
 		if (resultArray == null) {
 			for (byte[] key : keysToLookup) {
 				KeyValue<Row> kv = new KeyValue<Row>();
 				kv.setKey(key);
 				kv.setValue(null);
-				ByteArray b = new ByteArray(key);
-				map.put(b, kv);
+				map.put(key, kv);
 				cache.cacheRow(cf, key, kv.getValue());
 			}
 		} else {
@@ -266,17 +324,15 @@ public class CursorKeysToRowsHbase extends AbstractCursor<KeyValue<Row>> {
 					processColumns(hKeyValue, r);
 					kv.setValue(r);
 				}
-				ByteArray b = new ByteArray(result.getRow());
-				map.put(b, kv);
+				map.put(result.getRow(), kv);
 				cache.cacheRow(cf, result.getRow(), kv.getValue());
 			}
 			for (byte[] key : keysToLookup) {
-				ByteArray baKey = new ByteArray(key);
-				if (!map.containsKey(baKey)) {
+				if (!map.containsKey(key)) {
 					KeyValue<Row> kv = new KeyValue<Row>();
 					kv.setKey(key);
 					kv.setValue(null);
-					map.put(baKey, kv);
+					map.put(key, kv);
 					cache.cacheRow(cf, key, kv.getValue());
 				}
 			}
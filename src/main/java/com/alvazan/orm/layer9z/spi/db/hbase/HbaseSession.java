@@ -3,7 +3,6 @@ package com.alvazan.orm.layer9z.spi.db.hbase;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -13,6 +12,7 @@ import javax.inject.Provider;
 import com.alvazan.orm.api.base.Bootstrap;
 import com.alvazan.orm.api.z8spi.BatchListener;
 import com.alvazan.orm.api.z8spi.Cache;
+import com.alvazan.orm.api.z8spi.ColumnFamilyRegistry;
 import com.alvazan.orm.api.z8spi.ColumnSliceInfo;
 import com.alvazan.orm.api.z8spi.Key;
 import com.alvazan.orm.api.z8spi.KeyValue;
@@ -31,7 +31,10 @@ import com.alvazan.orm.api.z8spi.action.RemoveIndex;
 import com.alvazan.orm.api.z8spi.conv.StandardConverters;
 import com.alvazan.orm.api.z8spi.conv.StorageTypeEnum;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.CursorOfShards;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadSettings;
+import com.alvazan.orm.api.z8spi.iter.ScanSettings;
 import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
 import com.alvazan.orm.api.z8spi.meta.DboColumnToManyMeta;
 import com.alvazan.orm.api.z8spi.meta.DboDatabaseMeta;
@@ -40,16 +43,15 @@ import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.MasterNotRunningException;
 import org.apache.hadoop.hbase.ZooKeeperConnectionException;
 import org.apache.hadoop.hbase.client.Delete;
-import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.HTablePool;
 import org.apache.hadoop.hbase.client.Put;
-import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.util.Bytes;
 
 public class HbaseSession implements NoSqlRawSession {
@@ -70,46 +72,56 @@ public class HbaseSession implements NoSqlRawSession {
 	private DboDatabaseMeta dbMetaFromHbaseOrmOnly;
 
 	private HTableDescriptor tableDescriptor;
-	private Map<String, Info> cfNameToHbase = new HashMap<String, Info>();
-	private Map<String, String> virtualToCfHbaseName = new HashMap<String, String>();
+	private ColumnFamilyRegistry<Info> registry = new ColumnFamilyRegistry<Info>();
 
 	/** The pool size. */
 	private int poolSize = 100;
 
+	private ReadAheadSettings readAhead = new ReadAheadSettings(0, 0);
+	private ScanSettings scanSettings = new ScanSettings(1);
+
 	@Override
 	public void sendChanges(List<Action> actions, MetaLookup ormSession) {
-
-		for (Action action : actions) {
-			if (action instanceof Persist) {
-				persist((Persist) action, ormSession);
-			} else if (action instanceof Remove) {
-				remove((Remove) action, ormSession);
-			} else if (action instanceof PersistIndex) {
-				persistIndex((PersistIndex) action, ormSession);
-			} else if (action instanceof RemoveIndex) {
-				removeIndex((RemoveIndex) action, ormSession);
-			} else if (action instanceof RemoveColumn) {
-				removeColumn((RemoveColumn) action, ormSession);
+		//HTableInterface is not thread safe so every flush gets it's own table from the pool
+		HTableInterface table = hTablePool.getTable(tableDescriptor.getNameAsString());
+		try {
+			HbaseWriteBatch batch = new HbaseWriteBatch(table);
+			for (Action action : actions) {
+				if (action instanceof Persist) {
+					persist((Persist) action, ormSession, batch);
+				} else if (action instanceof Remove) {
+					remove((Remove) action, ormSession, batch);
+				} else if (action instanceof PersistIndex) {
+					persistIndex((PersistIndex) action, ormSession, batch);
+				} else if (action instanceof RemoveIndex) {
+					removeIndex((RemoveIndex) action, ormSession, batch);
+				} else if (action instanceof RemoveColumn) {
+					removeColumn((RemoveColumn) action, ormSession, batch);
+				}
+			}
+			batch.send();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			try {
+				table.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
 			}
 		}
 	}
 
-	private void remove(Remove action, MetaLookup ormSession) {
+	private void remove(Remove action, MetaLookup ormSession, HbaseWriteBatch batch) throws IOException {
 		byte[] rowKey = action.getRowKey();
 		if (action.getAction() == null)
 			throw new IllegalArgumentException("action param is missing ActionEnum so we know to remove entire row or just columns in the row");
 		switch (action.getAction()) {
 		case REMOVE_ENTIRE_ROW:
 			Delete delete = new Delete(rowKey);
-			try {
-				hTable.delete(delete);
-			} catch (IOException e) {
-
-				e.printStackTrace();
-			}
+			batch.delete(delete);
 			break;
 		case REMOVE_COLUMNS_FROM_ROW:
-			removeColumns(action, ormSession);
+			removeColumns(action, ormSession, batch);
 			break;
 		default:
 			throw new RuntimeException("bug, unknown remove action="
@@ -117,28 +129,23 @@ public class HbaseSession implements NoSqlRawSession {
 		}
 	}
 
-	private void removeColumns(Remove action, MetaLookup ormSession) {
+	private void removeColumns(Remove action, MetaLookup ormSession, HbaseWriteBatch batch) throws IOException {
 		String colFamily = action.getColFamily().getColumnFamily();
 		Info info = lookupOrCreate(colFamily, ormSession);
 		HColumnDescriptor hColumnDescriptor = info.getColFamily();
 		String tableName = hColumnDescriptor.getNameAsString();
 		byte[] colFamilyBytes = Bytes.toBytes(tableName);
 		Collection<byte[]> columns = action.getColumns();
-		List<Delete> listDelete = new ArrayList<Delete>();
+		if (columns.isEmpty())
+			return; //a Delete with no columns would remove the whole row
+		Delete delete = new Delete(action.getRowKey());
 		for (byte[] col : columns) {
-			Delete delete = new Delete(action.getRowKey());
 			delete.deleteColumns(colFamilyBytes, col);
-			listDelete.add(delete);
-		}
-		try {
-			hTable.delete(listDelete);
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
-
+		batch.delete(delete);
 	}
 
-	private void removeIndex(RemoveIndex action, MetaLookup ormSession) {
+	private void removeIndex(RemoveIndex action, MetaLookup ormSession, HbaseWriteBatch batch) throws IOException {
 		String indexCfName = action.getIndexCfName();
 		if (indexCfName.equalsIgnoreCase("BytesIndice"))
 			return;
@@ -148,15 +155,10 @@ public class HbaseSession implements NoSqlRawSession {
 		byte[] value = column.getPrimaryKey();
 		Delete delete = new Delete(rowKey);
 		delete.deleteColumn(family, value);
-		try {
-			hTable.delete(delete);
-			hTable.flushCommits();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		batch.delete(delete);
 	}
 
-	private void removeColumn(RemoveColumn action, MetaLookup ormSession) {
+	private void removeColumn(RemoveColumn action, MetaLookup ormSession, HbaseWriteBatch batch) throws IOException {
 		Info info = lookupOrCreate(action.getColFamily().getColumnFamily(), ormSession);
 		HColumnDescriptor hColumnDescriptor=info.getColFamily();
 		String tableName = hColumnDescriptor.getNameAsString();
@@ -164,16 +166,10 @@ public class HbaseSession implements NoSqlRawSession {
 		byte[] c = action.getColumn();
 		Delete delete = new Delete(action.getRowKey());
 		delete.deleteColumns(colFamily, c);
-		try {
-			hTable.delete(delete);
-			hTable.flushCommits();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
+		batch.delete(delete);
 	}
 
-	private void persistIndex(PersistIndex action, MetaLookup ormSession) {
+	private void persistIndex(PersistIndex action, MetaLookup ormSession, HbaseWriteBatch batch) {
 		String indexCfName = action.getIndexCfName();
 		Info info = lookupOrCreate(indexCfName, ormSession);
 		HColumnDescriptor hColFamily = info.getColFamily();
@@ -181,7 +177,6 @@ public class HbaseSession implements NoSqlRawSession {
 		IndexColumn column = action.getColumn();
 		byte[] key = column.getIndexedValue();
 		byte[] value = column.getPrimaryKey();
-		Get get = new Get(rowKey);
 		Object keyToPersist = null;
 		byte[] byteArr = null;
 		if (key != null) {
@@ -194,25 +189,10 @@ public class HbaseSession implements NoSqlRawSession {
 				byteArr = key;
 		}
 
-		try {
-			Result result = hTable.get(get);
-			byte[] existing = result.getValue(hColFamily.getName(), value);
-			if (existing != null) {
-				if (!Bytes.equals(existing, byteArr)) {
-					Put put = new Put(rowKey);
-					put.add(hColFamily.getName(), value, byteArr);
-					hTable.put(put);
-					hTable.flushCommits();
-				}
-			} else {
-				Put put = new Put(rowKey);
-				put.add(hColFamily.getName(), value, byteArr);
-				hTable.put(put);
-				hTable.flushCommits();
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		//writing the same value again is cheaper than reading it first to see if it changed
+		Put put = new Put(rowKey);
+		put.add(hColFamily.getName(), value, byteArr);
+		batch.put(put);
 	}
 
 
@@ -238,7 +218,10 @@ public class HbaseSession implements NoSqlRawSession {
 		String hbaseSeed = properties.get(Bootstrap.HBASE_SEEDS)
 				.toString();
 		hadoopConf.set("hbase.zookeeper.quorum", hbaseSeed);
-		hTablePool = new HTablePool(conf, poolSize);
+		//the pool hands out the tables flushes write with so it needs the quorum too
+		hTablePool = new HTablePool(hadoopConf, poolSize);
+		readAhead = ReadAheadSettings.create(properties);
+		scanSettings = ScanSettings.create(properties);
 		try {
 			hAdmin = new HBaseAdmin(hadoopConf);
 			String keySpace = properties.get(Bootstrap.HBASE_KEYSPACE)
@@ -267,6 +250,8 @@ public class HbaseSession implements NoSqlRawSession {
 
 	@Override
 	public void close() {
+		readAhead.close();
+		scanSettings.close();
 		try {
 			hAdmin.close();
 		} catch (IOException e) {
@@ -296,23 +281,31 @@ public class HbaseSession implements NoSqlRawSession {
 		byte[] rowKey = scan.getRowKey();
 		String indexTableName = scan.getIndexColFamily();
 		DboColumnMeta colMeta = scan.getColumnName();
-		CursorOfHbaseIndexes cursor = new CursorOfHbaseIndexes(rowKey, batchSize, l, indexTableName, from, to);
-		cursor.setupMore(hTable, colMeta);
 		if (!scan.getEntityColFamily().isVirtualCf() && from == null
 				&& to == null
 				&& !(scan.getColumnName() instanceof DboColumnToManyMeta)
 				&& !scan.getEntityColFamily().isInheritance()) {
 			String table = scan.getEntityColFamily().getColumnFamily();
-			ScanHbaseDbCollection scanner = new ScanHbaseDbCollection(batchSize, l,table, hTable);
+			List<byte[][]> regions = null;
+			if (scanSettings.isParallel())
+				regions = findRegions();
+			ScanHbaseDbCollection scanner = new ScanHbaseDbCollection(batchSize, l,table, hTable, scanSettings, hTablePool, regions);
 			scanner.beforeFirst();
 			return scanner;
 		}
+		if (scan.isSharded())
+			//the shard cursors all share hTable which is not thread safe so no parallel priming
+			return CursorOfShards.scanIndex(this, scan, from, to, batchSize, l, mgr, false);
+		CursorOfHbaseIndexes cursor = new CursorOfHbaseIndexes(rowKey, batchSize, l, indexTableName, from, to);
+		cursor.setupMore(hTable, colMeta);
 		return cursor;
 	}
 
 	@Override
 	public AbstractCursor<IndexColumn> scanIndex(ScanInfo scanInfo,
 			List<byte[]> values, BatchListener list, MetaLookup mgr) {
+		if (scanInfo.isSharded())
+			return CursorOfShards.scanIndex(this, scanInfo, values, list, mgr, false);
 		byte[] rowKey = scanInfo.getRowKey();
 		String indexTableName = scanInfo.getIndexColFamily();
 		CursorForHbaseValues cursor = new CursorForHbaseValues(rowKey, list,
@@ -330,77 +323,32 @@ public class HbaseSession implements NoSqlRawSession {
 		}
 		CursorKeysToRowsHbase cursor = new CursorKeysToRowsHbase(rowKeys,
 				batchSize, list, rowProvider);
-		cursor.setupMore(hTable, colFamily, info, cache);
+		cursor.setupMore(hTable, colFamily, info, cache, hTablePool, tableDescriptor.getNameAsString(), readAhead);
 		return cursor;
 	}
 
-	private void persist(Persist action, MetaLookup ormSession) {
+	private void persist(Persist action, MetaLookup ormSession, HbaseWriteBatch batch) {
 		StorageTypeEnum type = action.getColFamily().getNameStorageType();
 		String colFamily = action.getColFamily().getColumnFamily();
 		Info info = lookupOrCreate(colFamily, ormSession);
 		HColumnDescriptor hColFamily = info.getColFamily();
 		byte[] rowKey = action.getRowKey();
 		Put put = new Put(rowKey);
-		try {
+		for (Column col : action.getColumns()) {
+			byte[] qualifier = col.getName();
 			if (type == StorageTypeEnum.INTEGER) {
-				for (Column col : action.getColumns()) {
-					byte[] qualifier = new byte[0];
-					qualifier = col.getName();
-					int fillipedNumber = StandardConverters.convertFromBytes(
-							Integer.class, qualifier);
-					fillipedNumber ^= (1 << 31);
-					qualifier = Bytes.toBytes(fillipedNumber);
-					byte[] value = new byte[0];
-					if (col.getValue() != null) {
-						value = col.getValue();
-					}
-					put.add(hColFamily.getName(), qualifier, value);
-					hTable.put(put);
-				}
-
-			} else {
-				for (Column col : action.getColumns()) {
-					byte[] qualifier = new byte[0];
-					qualifier = col.getName();
-					byte[] value = new byte[0];
-					if (col.getValue() != null) {
-						value = col.getValue();
-					}
-					put.add(hColFamily.getName(), qualifier, value);
-					hTable.put(put);
-				}
-
+				int fillipedNumber = StandardConverters.convertFromBytes(
+						Integer.class, qualifier);
+				fillipedNumber ^= (1 << 31);
+				qualifier = Bytes.toBytes(fillipedNumber);
 			}
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-
-		try {
-			hTable.flushCommits();
-			// hTable.close();
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-	}
-
-	public Result findOrCreateRow(HColumnDescriptor hColFamily, byte[] key) {
-		Get get = new Get(key);
-		Result r = new Result();
-		try {
-			r = hTable.get(get);
-			if (r == null) {
-				Put put = new Put(key);
-				hTable.put(put);
-				hTable.flushCommits();
-				r = hTable.get(get);
+			byte[] value = new byte[0];
+			if (col.getValue() != null) {
+				value = col.getValue();
 			}
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			put.add(hColFamily.getName(), qualifier, value);
 		}
-		return r;
+		batch.put(put);
 	}
 
 	public Info lookupOrCreate(String virtualCf, MetaLookup ormSession) {
@@ -434,22 +382,18 @@ public class HbaseSession implements NoSqlRawSession {
 	}
 
 	private Info tryToLoadColumnFamilyImpl(String virtCf, MetaLookup lookup) {
-		synchronized (virtCf.intern()) {
-			String cfName = virtualToCfHbaseName.get(virtCf);
-			if (cfName != null) {
-				Info info = cfNameToHbase.get(cfName);
-				if (info != null) {
-					return cfNameToHbase.get(cfName);
-				}
-			}
+		// a miss only happens once per column family so one lock for all of them is fine
+		synchronized (this) {
+			Info existing = registry.lookupVirtual(virtCf);
+			if (existing != null)
+				return existing;
 			DboTableMeta table = loadFromInMemoryOrDb(virtCf, lookup);
 			String realCf = table.getRealColumnFamily();
 			String realCfLower = realCf.toLowerCase();
-			Info info = cfNameToHbase.get(realCfLower);
+			Info info = registry.lookupReal(realCfLower);
 			String table1 = tableDescriptor.getNameAsString();
 			if (info != null) {
-				String cfLowercase = realCf.toLowerCase();
-				virtualToCfHbaseName.put(virtCf, cfLowercase);
+				registry.addVirtual(virtCf, realCfLower);
 				return info;
 			}
 			try {
@@ -470,7 +414,7 @@ public class HbaseSession implements NoSqlRawSession {
 	private void loadColumnFamily(HTableInterface def, String virtCf,
 			String realCf) {
 		addExistingCollections(def);
-		virtualToCfHbaseName.put(virtCf, realCf);
+		registry.addVirtual(virtCf, realCf);
 	}
 
 	private void addExistingCollections(HTableInterface def) {
@@ -479,7 +423,7 @@ public class HbaseSession implements NoSqlRawSession {
 			columnFamilies = def.getTableDescriptor().getColumnFamilies();
 			for (HColumnDescriptor columnFamily : columnFamilies) {
 				Info info = createInfo(columnFamily, null, null);
-				cfNameToHbase.put(columnFamily.getNameAsString(), info);
+				registry.add(null, columnFamily.getNameAsString(), info, false);
 			}
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
@@ -529,8 +473,7 @@ public class HbaseSession implements NoSqlRawSession {
 		String virtual = meta.getColumnFamily();
 		String realCf = meta.getRealColumnFamily();
 		String realCfLower = realCf.toLowerCase();
-		virtualToCfHbaseName.put(virtual, realCfLower);
-		cfNameToHbase.put(realCfLower, info);
+		registry.add(virtual, realCfLower, info, true);
 	}
 
 	private Info createInfo(HColumnDescriptor colFamily, Object type,
@@ -541,11 +484,7 @@ public class HbaseSession implements NoSqlRawSession {
 	}
 
 	private Info lookupVirtCf(String virtualCf) {
-		String cfName = virtualToCfHbaseName.get(virtualCf);
-		if (cfName == null)
-			return null;
-		Info info = cfNameToHbase.get(cfName);
-		return info;
+		return registry.lookupVirtual(virtualCf);
 	}
 
 	private DboTableMeta loadFromInMemoryOrDb(String virtCf, MetaLookup lookup) {
@@ -561,14 +500,36 @@ public class HbaseSession implements NoSqlRawSession {
 		return table;
 	}
 
+	private List<byte[][]> findRegions() {
+		List<byte[][]> regions = new ArrayList<byte[][]>();
+		try {
+			for (HRegionInfo region : hAdmin.getTableRegions(hTable.getTableName())) {
+				regions.add(new byte[][] { region.getStartKey(), region.getEndKey() });
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return regions;
+	}
+
 	@Override
 	public AbstractCursor<Row> allRows(DboTableMeta colFamily, MetaLookup ormSession, int batchSize) {
 		throw new UnsupportedOperationException("not supported yet");
 	}
 
+	public ColumnFamilyRegistry<Info> getRegistry() {
+		return registry;
+	}
+
 	@Override
 	public Object getDriverHelper() {
 		throw new UnsupportedOperationException("not supported yet");
 	}
 
+	@Override
+	public boolean isIndexPkOrdered() {
+		//the columns of an index row are named by primary key so one value's entries come back in that order
+		return true;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.alvazan.orm.layer9z.spi.db.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
+
+/**
+ * The Puts and Deletes of one flush sent as one delete(List) and one put(List) instead of a round trip
+ * per column.  Deletes go out before puts so a put of a cell after a delete of it is fine but a delete of
+ * a cell that has a put waiting would run in the wrong order, so in that case what is waiting is sent
+ * first and a new batch is started.  A flush of entities(index removes, index adds and the rows) is
+ * two round trips.
+ */
+public class HbaseWriteBatch {
+
+	private static final byte[] ALL = new byte[0];
+
+	private HTableInterface table;
+	private List<Delete> deletes = new ArrayList<Delete>();
+	private List<Put> puts = new ArrayList<Put>();
+	//cells, families(qualifier ALL) and rows(family and qualifier ALL) that have a put waiting
+	private Set<ByteArray> putCells = new HashSet<ByteArray>();
+	private int roundTrips;
+
+	public HbaseWriteBatch(HTableInterface table) {
+		this.table = table;
+	}
+
+	public void put(Put put) {
+		if(put.isEmpty())
+			return;
+		byte[] row = put.getRow();
+		putCells.add(cell(row, ALL, ALL));
+		for(Map.Entry<byte[], List<KeyValue>> entry : put.getFamilyMap().entrySet()) {
+			byte[] family = entry.getKey();
+			putCells.add(cell(row, family, ALL));
+			for(KeyValue kv : entry.getValue()) {
+				putCells.add(cell(row, family, kv.getQualifier()));
+			}
+		}
+		puts.add(put);
+	}
+
+	public void delete(Delete delete) throws IOException {
+		if(conflictsWithPuts(delete))
+			send();
+		deletes.add(delete);
+	}
+
+	private boolean conflictsWithPuts(Delete delete) {
+		byte[] row = delete.getRow();
+		if(delete.isEmpty())
+			return putCells.contains(cell(row, ALL, ALL));
+
+		for(Map.Entry<byte[], List<KeyValue>> entry : delete.getFamilyMap().entrySet()) {
+			byte[] family = entry.getKey();
+			for(KeyValue kv : entry.getValue()) {
+				if(kv.isDeleteFamily() && putCells.contains(cell(row, family, ALL)))
+					return true;
+				else if(putCells.contains(cell(row, family, kv.getQualifier())))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	public void send() throws IOException {
+		if(deletes.size() > 0) {
+			//delete(List) removes what it sent from the list
+			table.delete(deletes);
+			roundTrips++;
+			deletes = new ArrayList<Delete>();
+		}
+		if(puts.size() > 0) {
+			table.put(puts);
+			table.flushCommits();
+			roundTrips++;
+			puts = new ArrayList<Put>();
+			putCells.clear();
+		}
+	}
+
+	public int getRoundTrips() {
+		return roundTrips;
+	}
+
+	private static ByteArray cell(byte[] row, byte[] family, byte[] qualifier) {
+		byte[] key = Bytes.add(Bytes.toBytes(row.length), row, Bytes.toBytes(family.length));
+		return new ByteArray(Bytes.add(key, family, qualifier));
+	}
+}
@@ -5,13 +5,21 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
 import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.HTablePool;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 import com.alvazan.orm.api.z8spi.BatchListener;
 import com.alvazan.orm.api.z8spi.action.IndexColumn;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan.Sink;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan.Split;
+import com.alvazan.orm.api.z8spi.iter.ScanSettings;
 import com.alvazan.orm.api.z8spi.iter.StringLocal;
 
 public class ScanHbaseDbCollection extends AbstractCursor<IndexColumn> {
@@ -21,13 +29,24 @@ public class ScanHbaseDbCollection extends AbstractCursor<IndexColumn> {
 	private String indTable;
 	private HTableInterface hTable;
 	private boolean needToGetBatch;
+	private ScanSettings scanSettings;
+	private HTablePool hTablePool;
+	private String tableName;
+	private List<byte[][]> regions;
 
+	/**
+	 * @param regions start and end key of every region which are scanned at the same time if the settings allow
+	 */
 	public ScanHbaseDbCollection(Integer batchSize, BatchListener list,
-			String table, HTableInterface hTable) {
+			String table, HTableInterface hTable, ScanSettings scanSettings, HTablePool pool, List<byte[][]> regions) {
 		this.batchSize = batchSize;
 		this.batchListener = list;
 		this.indTable = table;
 		this.hTable = hTable;
+		this.scanSettings = scanSettings;
+		this.hTablePool = pool;
+		this.tableName = Bytes.toString(hTable.getTableName());
+		this.regions = regions;
 		this.needToGetBatch = true;
 		this.cachedRows = null;
 		beforeFirst();
@@ -82,30 +101,28 @@ public class ScanHbaseDbCollection extends AbstractCursor<IndexColumn> {
 		if (cachedRows != null && cachedRows.hasNext())
 			return; // There are more rows so return and the code will return
 					// the next result from cache
-		byte[] family = Bytes.toBytes(indTable);
-		Scan scan = new Scan();
-		scan.addFamily(family);
 		if (needToGetBatch) {
 			if (batchListener != null)
 				batchListener.beforeFetchingNextBatch();
 			ResultScanner rs;
 			List<byte[]> finalRes = new ArrayList<byte[]>();
-			if (batchSize != null)
-				scan.setBatch(batchSize);
-			try {
-				rs = hTable.getScanner(scan);
-				for (Result r = rs.next(); r != null; r = rs.next()) {
-					byte[] kv = r.getRow();
-					finalRes.add(kv);
+			if (scanSettings.isParallel() && regions != null && regions.size() > 1) {
+				scanRegions(finalRes);
+			} else {
+				try {
+					rs = hTable.getScanner(createScan(null, null));
+					for (Result r = rs.next(); r != null; r = rs.next()) {
+						byte[] kv = r.getRow();
+						finalRes.add(kv);
 
+					}
+					rs.close();
+				} catch (IOException e) {
+					e.printStackTrace();
 				}
-				rs.close();
-				if (batchListener != null)
-					batchListener.afterFetchingNextBatch(2);
-
-			} catch (IOException e) {
-				e.printStackTrace();
 			}
+			if (batchListener != null)
+				batchListener.afterFetchingNextBatch(2);
 
 			fillinCache(finalRes);
 			needToGetBatch = false;
@@ -116,6 +133,63 @@ public class ScanHbaseDbCollection extends AbstractCursor<IndexColumn> {
 		}
 	}
 
+	/**
+	 * Only the row keys are used so each row comes back with just its first column and no value
+	 */
+	private Scan createScan(byte[] startRow, byte[] stopRow) {
+		Scan scan = new Scan();
+		if (startRow != null)
+			scan.setStartRow(startRow);
+		if (stopRow != null)
+			scan.setStopRow(stopRow);
+		scan.addFamily(Bytes.toBytes(indTable));
+		scan.setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+		if (batchSize != null)
+			scan.setCaching(batchSize);
+		return scan;
+	}
+
+	private void scanRegions(List<byte[]> finalRes) {
+		List<Split<byte[]>> splits = new ArrayList<Split<byte[]>>();
+		for (byte[][] region : regions) {
+			splits.add(new RegionSplit(region[0], region[1]));
+		}
+		int queueSize = (batchSize == null ? 500 : batchSize) * scanSettings.getParallelism();
+		ParallelScan<byte[]> scan = new ParallelScan<byte[]>(splits, scanSettings, queueSize);
+		scan.start();
+		for (byte[] key = scan.next(); key != null; key = scan.next()) {
+			finalRes.add(key);
+		}
+	}
+
+	private class RegionSplit implements Split<byte[]> {
+		private byte[] startRow;
+		private byte[] stopRow;
+
+		private RegionSplit(byte[] startRow, byte[] stopRow) {
+			this.startRow = startRow;
+			this.stopRow = stopRow;
+		}
+
+		@Override
+		public void scan(Sink<byte[]> sink) throws IOException {
+			// HTable is not thread safe so each region uses its own table from the pool
+			HTableInterface table = hTablePool.getTable(tableName);
+			ResultScanner rs = null;
+			try {
+				rs = table.getScanner(createScan(startRow, stopRow));
+				for (Result r = rs.next(); r != null; r = rs.next()) {
+					if (!sink.add(r.getRow()))
+						return;
+				}
+			} finally {
+				if (rs != null)
+					rs.close();
+				table.close();
+			}
+		}
+	}
+
 	private void fillinCache(List<byte[]> finalRes) {
 		if (finalRes == null) {
 			cachedRows = new ArrayList<byte[]>().listIterator();
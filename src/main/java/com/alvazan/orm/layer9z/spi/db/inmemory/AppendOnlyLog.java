@@ -0,0 +1,416 @@
+package com.alvazan.orm.layer9z.spi.db.inmemory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+
+/**
+ * Optional persistence for the in memory database.  Every change is appended to changes.log and once the
+ * log grows past snapshotAfterBytes(and on close) the whole database is written to snapshot.db and the
+ * log starts over.  On start the snapshot is loaded and then the log replayed on top of it.
+ *
+ * Both files are a series of records, each framed by its length and a CRC32 so a record torn by a crash
+ * is dropped along with anything after it.  Every change is a put or a remove of whole values so
+ * replaying a log on top of a snapshot that already contains it(a crash between writing the snapshot
+ * and truncating the log) ends in the same state.
+ *
+ * Columns with a ttl get the full ttl again when loaded since we only store the ttl, not when it ends.
+ *
+ * Not thread safe, InMemorySession only calls it while holding the lock on it.
+ */
+public class AppendOnlyLog {
+
+	private static final Logger log = LoggerFactory.getLogger(AppendOnlyLog.class);
+
+	public static final long DEFAULT_SNAPSHOT_AFTER_BYTES = 64*1024*1024;
+	static final String LOG_FILE = "changes.log";
+	static final String SNAPSHOT_FILE = "snapshot.db";
+
+	private static final byte CREATE_TABLE = 1;
+	private static final byte PUT_COLUMN = 2;
+	private static final byte REMOVE_ROW = 3;
+	private static final byte REMOVE_COLUMN = 4;
+	private static final byte PUT_INDEX = 5;
+	private static final byte REMOVE_INDEX = 6;
+	private static final byte CLEAR = 7;
+
+	private File directory;
+	private long snapshotAfterBytes;
+	private DataOutputStream out;
+	private long logBytes;
+	private ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+	private DataOutputStream record = new DataOutputStream(recordBytes);
+	private CRC32 crc = new CRC32();
+
+	/**
+	 * @param snapshotAfterBytes 0 or less to only snapshot on close
+	 */
+	public AppendOnlyLog(File directory, long snapshotAfterBytes) {
+		this.directory = directory;
+		this.snapshotAfterBytes = snapshotAfterBytes;
+	}
+
+	/**
+	 * Loads the snapshot and log into the database and opens the log for writing
+	 */
+	public void open(NoSqlDatabase database) {
+		if(!directory.exists() && !directory.mkdirs())
+			throw new RuntimeException("Could not create directory="+directory.getAbsolutePath());
+		int fromSnapshot = replay(new File(directory, SNAPSHOT_FILE), database);
+		int fromLog = replay(new File(directory, LOG_FILE), database);
+		if(log.isInfoEnabled())
+			log.info("loaded "+fromSnapshot+" snapshot records and "+fromLog+" log records from "+directory.getAbsolutePath());
+		//rewrite so a torn record at the end of the log is not followed by new ones we could never read
+		snapshot(database);
+	}
+
+	public void createTable(Table table) {
+		try {
+			startRecord(CREATE_TABLE, table.getName());
+			record.writeUTF(table.getSortType().name());
+			endRecord(out);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void putColumn(String table, byte[] rowKey, Column col) {
+		try {
+			writeColumn(out, table, rowKey, col);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void removeRow(String table, byte[] rowKey) {
+		try {
+			startRecord(REMOVE_ROW, table);
+			writeBytes(rowKey);
+			endRecord(out);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void removeColumn(String table, byte[] rowKey, byte[] name) {
+		try {
+			startRecord(REMOVE_COLUMN, table);
+			writeBytes(rowKey);
+			writeBytes(name);
+			endRecord(out);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void putIndex(String table, byte[] rowKey, IndexColumn col) {
+		try {
+			writeIndex(out, PUT_INDEX, table, rowKey, col);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void removeIndex(String table, byte[] rowKey, IndexColumn col) {
+		try {
+			writeIndex(out, REMOVE_INDEX, table, rowKey, col);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void clear() {
+		try {
+			startRecord(CLEAR, "");
+			endRecord(out);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Hands the records of one sendChanges call to the OS(we don't fsync each batch so the log survives the
+	 * process dying but not the machine losing power) and snapshots if the log has grown too big
+	 */
+	public void commit(NoSqlDatabase database) {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		if(snapshotAfterBytes > 0 && logBytes > snapshotAfterBytes)
+			snapshot(database);
+	}
+
+	/**
+	 * Writes the whole database to a new snapshot, swaps it in and empties the log
+	 */
+	public void snapshot(NoSqlDatabase database) {
+		File tmp = new File(directory, SNAPSHOT_FILE+".tmp");
+		File snapshot = new File(directory, SNAPSHOT_FILE);
+		try {
+			closeLog();
+			FileOutputStream fileOut = new FileOutputStream(tmp);
+			try {
+				DataOutputStream snapOut = new DataOutputStream(new BufferedOutputStream(fileOut));
+				int count = writeDatabase(snapOut, database);
+				snapOut.flush();
+				fileOut.getFD().sync();
+				if(log.isDebugEnabled())
+					log.debug("wrote snapshot of "+count+" records to "+snapshot.getAbsolutePath());
+			} finally {
+				fileOut.close();
+			}
+			//renameTo won't replace an existing file on every platform
+			if(!tmp.renameTo(snapshot)) {
+				if(!snapshot.delete() || !tmp.renameTo(snapshot))
+					throw new IOException("Could not rename "+tmp.getAbsolutePath()+" to "+snapshot.getAbsolutePath());
+			}
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(directory, LOG_FILE), false)));
+			logBytes = 0;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void close(NoSqlDatabase database) {
+		snapshot(database);
+		try {
+			closeLog();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void closeLog() throws IOException {
+		if(out == null)
+			return;
+		out.close();
+		out = null;
+	}
+
+	private int writeDatabase(DataOutputStream snapOut, NoSqlDatabase database) throws IOException {
+		int count = 0;
+		for(Table table : database.getTables()) {
+			startRecord(CREATE_TABLE, table.getName());
+			record.writeUTF(table.getSortType().name());
+			endRecord(snapOut);
+			count++;
+			for(Row row : table.getRows()) {
+				if(row instanceof IndexedRow) {
+					for(IndexColumn col : ((IndexedRow) row).getIndexedColumns()) {
+						writeIndex(snapOut, PUT_INDEX, table.getName(), row.getKey(), col);
+						count++;
+					}
+				} else {
+					for(Column col : row.getColumns()) {
+						writeColumn(snapOut, table.getName(), row.getKey(), col);
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	private void writeColumn(DataOutputStream to, String table, byte[] rowKey, Column col) throws IOException {
+		startRecord(PUT_COLUMN, table);
+		writeBytes(rowKey);
+		writeBytes(col.getName());
+		writeBytes(col.getValue());
+		writeLong(col.getTimestamp());
+		writeInt(col.getTtl());
+		endRecord(to);
+	}
+
+	private void writeIndex(DataOutputStream to, byte type, String table, byte[] rowKey, IndexColumn col) throws IOException {
+		startRecord(type, table);
+		writeBytes(rowKey);
+		writeBytes(col.getIndexedValue());
+		writeBytes(col.getPrimaryKey());
+		writeBytes(col.getValue());
+		writeLong(col.getTimestamp());
+		writeInt(col.getTtl());
+		record.writeBoolean(col.getColumnName() != null);
+		if(col.getColumnName() != null)
+			record.writeUTF(col.getColumnName());
+		endRecord(to);
+	}
+
+	private void startRecord(byte type, String table) throws IOException {
+		recordBytes.reset();
+		record.writeByte(type);
+		record.writeUTF(table);
+	}
+
+	private void endRecord(DataOutputStream to) throws IOException {
+		record.flush();
+		byte[] data = recordBytes.toByteArray();
+		crc.reset();
+		crc.update(data);
+		to.writeInt(data.length);
+		to.writeInt((int) crc.getValue());
+		to.write(data);
+		if(to == out)
+			logBytes += data.length + 8;
+	}
+
+	private void writeBytes(byte[] data) throws IOException {
+		if(data == null) {
+			record.writeInt(-1);
+			return;
+		}
+		record.writeInt(data.length);
+		record.write(data);
+	}
+
+	private void writeLong(Long val) throws IOException {
+		record.writeBoolean(val != null);
+		if(val != null)
+			record.writeLong(val);
+	}
+
+	private void writeInt(Integer val) throws IOException {
+		record.writeBoolean(val != null);
+		if(val != null)
+			record.writeInt(val);
+	}
+
+	private int replay(File file, NoSqlDatabase database) {
+		if(!file.exists())
+			return 0;
+		int count = 0;
+		try {
+			InputStream fileIn = new BufferedInputStream(new FileInputStream(file));
+			try {
+				DataInputStream in = new DataInputStream(fileIn);
+				byte[] data;
+				while((data = readRecord(in, file)) != null) {
+					apply(new DataInputStream(new ByteArrayInputStream(data)), database);
+					count++;
+				}
+			} finally {
+				fileIn.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read "+file.getAbsolutePath(), e);
+		}
+		return count;
+	}
+
+	private byte[] readRecord(DataInputStream in, File file) throws IOException {
+		try {
+			int length = in.readInt();
+			int checksum = in.readInt();
+			if(length < 0) {
+				log.warn("corrupt record length in "+file.getAbsolutePath()+", ignoring the rest of the file");
+				return null;
+			}
+			byte[] data = new byte[length];
+			in.readFully(data);
+			crc.reset();
+			crc.update(data);
+			if((int) crc.getValue() != checksum) {
+				log.warn("checksum mismatch in "+file.getAbsolutePath()+", ignoring the rest of the file");
+				return null;
+			}
+			return data;
+		} catch(EOFException e) {
+			//end of file or the last record was cut short by a crash
+			return null;
+		}
+	}
+
+	private void apply(DataInputStream in, NoSqlDatabase database) throws IOException {
+		byte type = in.readByte();
+		String tableName = in.readUTF();
+		if(type == CLEAR) {
+			database.clear();
+			return;
+		} else if(type == CREATE_TABLE) {
+			SortType sortType = SortType.valueOf(in.readUTF());
+			database.putTableIfAbsent(tableName, new Table(tableName, sortType));
+			return;
+		}
+
+		Table table = database.findTable(tableName);
+		if(table == null)
+			throw new IllegalStateException("bug, record for table="+tableName+" before the table was created");
+		byte[] rowKey = readBytes(in);
+		switch(type) {
+		case PUT_COLUMN:
+			Column col = new Column(readBytes(in), readBytes(in));
+			col.setTimestamp(readLong(in));
+			col.setTtl(readInt(in));
+			table.findOrCreateRow(rowKey).put(col);
+			break;
+		case REMOVE_ROW:
+			table.removeRow(rowKey);
+			break;
+		case REMOVE_COLUMN:
+			Row row = table.getRow(rowKey);
+			if(row != null)
+				row.remove(readBytes(in));
+			break;
+		case PUT_INDEX:
+			((IndexedRow) table.findOrCreateRow(rowKey)).addIndexedColumn(readIndex(in));
+			break;
+		case REMOVE_INDEX:
+			((IndexedRow) table.findOrCreateRow(rowKey)).removeIndexedColumn(readIndex(in));
+			break;
+		default:
+			throw new IllegalStateException("bug, unknown record type="+type);
+		}
+	}
+
+	private IndexColumn readIndex(DataInputStream in) throws IOException {
+		IndexColumn col = new IndexColumn();
+		col.setIndexedValue(readBytes(in));
+		col.setPrimaryKey(readBytes(in));
+		col.setValue(readBytes(in));
+		col.setTimestamp(readLong(in));
+		col.setTtl(readInt(in));
+		if(in.readBoolean())
+			col.setColumnName(in.readUTF());
+		return col;
+	}
+
+	private byte[] readBytes(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length < 0)
+			return null;
+		byte[] data = new byte[length];
+		in.readFully(data);
+		return data;
+	}
+
+	private Long readLong(DataInputStream in) throws IOException {
+		if(!in.readBoolean())
+			return null;
+		return in.readLong();
+	}
+
+	private Integer readInt(DataInputStream in) throws IOException {
+		if(!in.readBoolean())
+			return null;
+		return in.readInt();
+	}
+}
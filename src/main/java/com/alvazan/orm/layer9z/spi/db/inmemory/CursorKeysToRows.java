@@ -1,18 +1,16 @@
 package com.alvazan.orm.layer9z.spi.db.inmemory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
 
 import com.alvazan.orm.api.z8spi.BatchListener;
 import com.alvazan.orm.api.z8spi.Cache;
 import com.alvazan.orm.api.z8spi.KeyValue;
 import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.RowHolder;
-import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.conv.ByteArrayMap;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
 import com.alvazan.orm.api.z8spi.iter.StringLocal;
@@ -102,12 +100,11 @@ public class CursorKeysToRows extends AbstractCursor<KeyValue<Row>> {
 
 		Iterator<KeyValue<Row>> resultingRows = rows.iterator();
 		
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
 		while(resultingRows.hasNext()) {
 			KeyValue<Row> kv = resultingRows.next();			
 			byte[] key = (byte[]) kv.getKey();
-			ByteArray b = new ByteArray(key);
-			map.put(b, kv);
+			map.put(key, kv);
 			cache.cacheRow(colFamily, key, kv.getValue());
 		}
 		
@@ -119,8 +116,7 @@ public class CursorKeysToRows extends AbstractCursor<KeyValue<Row>> {
 		for(RowHolder<Row> r : results) {
 			if(r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
+				KeyValue<Row> kv = map.get(key);
 				finalRes.add(kv);				
 			} else {
 				Row row = r.getValue();
@@ -171,12 +167,11 @@ public class CursorKeysToRows extends AbstractCursor<KeyValue<Row>> {
 
 		Iterator<KeyValue<Row>> resultingRows = rows.iterator();
 		
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
 		while(resultingRows.hasNext()) {
 			KeyValue<Row> kv = resultingRows.next();			
 			byte[] key = (byte[]) kv.getKey();
-			ByteArray b = new ByteArray(key);
-			map.put(b, kv);
+			map.put(key, kv);
 			cache.cacheRow(colFamily, key, kv.getValue());
 		}
 		
@@ -188,8 +183,7 @@ public class CursorKeysToRows extends AbstractCursor<KeyValue<Row>> {
 		for(RowHolder<Row> r : results) {
 			if(r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
+				KeyValue<Row> kv = map.get(key);
 				finalRes.add(kv);				
 			} else {
 				Row row = r.getValue();
@@ -6,8 +6,17 @@ import java.util.Comparator;
 import com.alvazan.orm.api.z8spi.conv.ByteArray;
 import com.alvazan.orm.api.z8spi.conv.StandardConverters;
 
+/**
+ * Orders BigDecimal encoded values(a 4 byte scale followed by the two's complement unscaled value)
+ * mostly without decoding them.  Different signs, equal scales and unscaled values that fit in a long
+ * are all compared on the bytes, only values with more than 18 digits and different scales fall back to
+ * BigDecimal which in practice means doubles and longs stored as decimals never allocate.
+ */
 public class DecimalComparator implements Comparator<ByteArray> {
 
+	private static final int SCALE_LENGTH = 4;
+	private static final long MULTIPLY_LIMIT = Long.MAX_VALUE / 10;
+
 	@Override
 	public int compare(ByteArray o1, ByteArray o2) {
 		if(o1.getKey() == null && o2.getKey() != null)
@@ -17,9 +26,66 @@ public class DecimalComparator implements Comparator<ByteArray> {
 		else if(o2.getKey() == null && o1.getKey() == null)
 			return 0;
 		
-		BigDecimal left = StandardConverters.convertFromBytes(BigDecimal.class, o1.getKey());
-		BigDecimal right = StandardConverters.convertFromBytes(BigDecimal.class, o2.getKey());
-		return left.compareTo(right);
+		byte[] left = o1.getKey();
+		byte[] right = o2.getKey();
+		int leftLen = left.length - SCALE_LENGTH;
+		int rightLen = right.length - SCALE_LENGTH;
+		if(leftLen < 0 || rightLen < 0)
+			return decode(left).compareTo(decode(right)); //corrupt value, let the converter report it
+
+		int leftSign = IntegerComparator.signum(left, SCALE_LENGTH, leftLen);
+		int rightSign = IntegerComparator.signum(right, SCALE_LENGTH, rightLen);
+		if(leftSign != rightSign)
+			return leftSign < rightSign ? -1 : 1;
+		else if(leftSign == 0)
+			return 0;
+
+		int leftScale = readInt(left);
+		int rightScale = readInt(right);
+		if(leftScale == rightScale)
+			return IntegerComparator.compareTwosComplement(left, SCALE_LENGTH, leftLen, right, SCALE_LENGTH, rightLen);
+
+		//the unscaled value fits in a long with room to spare for Long.MIN_VALUE's missing positive
+		if(leftLen < 8 && rightLen < 8) {
+			long leftUnscaled = readLong(left, leftLen);
+			long rightUnscaled = readLong(right, rightLen);
+			if(leftScale < rightScale)
+				return compareScaled(leftUnscaled, (long) rightScale - leftScale, rightUnscaled);
+			return -compareScaled(rightUnscaled, (long) leftScale - rightScale, leftUnscaled);
+		}
+		
+		return decode(left).compareTo(decode(right));
 	}
 
+	/**
+	 * compares value * 10^exponent with other where both have the same non zero sign
+	 */
+	private int compareScaled(long value, long exponent, long other) {
+		long scaled = value;
+		for(long i = 0; i < exponent; i++) {
+			if(scaled > MULTIPLY_LIMIT || scaled < -MULTIPLY_LIMIT) {
+				//one more multiply and |scaled| is past Long.MAX_VALUE so it is past |other| too
+				return scaled > 0 ? 1 : -1;
+			}
+			scaled *= 10;
+		}
+		return scaled < other ? -1 : (scaled == other ? 0 : 1);
+	}
+
+	private static int readInt(byte[] bytes) {
+		return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+	}
+
+	private static long readLong(byte[] bytes, int len) {
+		//start from the sign so shorter values are sign extended
+		long value = bytes[SCALE_LENGTH] < 0 ? -1L : 0L;
+		for(int i = SCALE_LENGTH; i < SCALE_LENGTH + len; i++) {
+			value = (value << 8) | (bytes[i] & 0xFF);
+		}
+		return value;
+	}
+
+	private static BigDecimal decode(byte[] bytes) {
+		return StandardConverters.convertFromBytes(BigDecimal.class, bytes);
+	}
 }
@@ -1,5 +1,6 @@
 package com.alvazan.orm.layer9z.spi.db.inmemory;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -21,6 +22,7 @@ import com.alvazan.orm.api.z8spi.MetaLookup;
 import com.alvazan.orm.api.z8spi.NoSqlRawSession;
 import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.ScanInfo;
+import com.alvazan.orm.api.z8spi.SpiConstants;
 import com.alvazan.orm.api.z8spi.action.Action;
 import com.alvazan.orm.api.z8spi.action.Column;
 import com.alvazan.orm.api.z8spi.action.IndexColumn;
@@ -31,6 +33,7 @@ import com.alvazan.orm.api.z8spi.action.RemoveColumn;
 import com.alvazan.orm.api.z8spi.action.RemoveIndex;
 import com.alvazan.orm.api.z8spi.conv.StorageTypeEnum;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.CursorOfShards;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
 import com.alvazan.orm.api.z8spi.iter.ProxyTempCursor;
 import com.alvazan.orm.api.z8spi.meta.DboColumnToManyMeta;
@@ -45,6 +48,7 @@ public class InMemorySession implements NoSqlRawSession {
 	private NoSqlDatabase database;
 	@Inject
 	private DboDatabaseMeta dbMetaFromOrmOnly;
+	private AppendOnlyLog appendLog;
 	
 	@Override
 	public AbstractCursor<KeyValue<Row>> find(DboTableMeta colFamily,
@@ -57,7 +61,17 @@ public class InMemorySession implements NoSqlRawSession {
 
 	@Override
 	public void sendChanges(List<Action> actions, MetaLookup ormSession) {
-		sendChangesImpl(actions, ormSession);
+		if(appendLog == null) {
+			sendChangesImpl(actions, ormSession);
+			return;
+		}
+		
+		//writes are applied and logged one batch at a time so the log has them in the order they were
+		//applied, reads don't take the lock
+		synchronized(appendLog) {
+			sendChangesImpl(actions, ormSession);
+			appendLog.commit(database);
+		}
 	}
 	
 	public void sendChangesImpl(List<Action> actions, Object ormSession) {
@@ -83,6 +97,8 @@ public class InMemorySession implements NoSqlRawSession {
 		IndexColumn column = action.getColumn();
 		IndexedRow row = (IndexedRow) table.findOrCreateRow(rowKey);
 		row.addIndexedColumn(column.copy());
+		if(appendLog != null)
+			appendLog.putIndex(colFamily, rowKey, column);
 	}
 
 
@@ -97,6 +113,8 @@ public class InMemorySession implements NoSqlRawSession {
 		IndexColumn column = action.getColumn();
 		IndexedRow row = (IndexedRow) table.findOrCreateRow(rowKey);
 		row.removeIndexedColumn(column.copy());		
+		if(appendLog != null)
+			appendLog.removeIndex(colFamily, rowKey, column);
 	}
 	
 	private Table lookupColFamily(String colFamily, NoSqlEntityManager mgr) {
@@ -159,7 +177,11 @@ public class InMemorySession implements NoSqlRawSession {
 		}
 		
 		table = new Table(colFamily, sortType);
-		database.putTable(colFamily, table);
+		Table existing = database.putTableIfAbsent(colFamily, table);
+		if(existing != null)
+			return existing; //another thread created it first
+		if(appendLog != null)
+			appendLog.createTable(table);
 		
 		return table;
 	}
@@ -172,6 +194,8 @@ public class InMemorySession implements NoSqlRawSession {
 		switch(action.getAction()) {
 		case REMOVE_ENTIRE_ROW:
 			table.removeRow(action.getRowKey());
+			if(appendLog != null)
+				appendLog.removeRow(colFamily, action.getRowKey());
 			break;
 		case REMOVE_COLUMNS_FROM_ROW:
 			removeColumns(action, table);
@@ -188,6 +212,8 @@ public class InMemorySession implements NoSqlRawSession {
 		
 		for(byte[] name : action.getColumns()) {
 			row.remove(name);
+			if(appendLog != null)
+				appendLog.removeColumn(table.getName(), action.getRowKey(), name);
 		}
 	}
 
@@ -200,6 +226,8 @@ public class InMemorySession implements NoSqlRawSession {
 			return;
 		byte[] name = action.getColumn();
 			row.remove(name);
+		if(appendLog != null)
+			appendLog.removeColumn(colFamily, action.getRowKey(), name);
 	}
 
 	private void persist(Persist action, NoSqlEntityManager ormSession) {
@@ -209,17 +237,50 @@ public class InMemorySession implements NoSqlRawSession {
 		
 		for(Column col : action.getColumns()) {
 			row.put(col.copy());
+			if(appendLog != null)
+				appendLog.putColumn(colFamily, action.getRowKey(), col);
 		}
 	}
 
 	@Override
 	public void clearDatabase() {
-		database.clear();
+		if(appendLog == null) {
+			database.clear();
+			return;
+		}
+		synchronized(appendLog) {
+			database.clear();
+			appendLog.clear();
+			appendLog.commit(database);
+		}
 	}
 
 	@Override
 	public void start(Map<String, Object> properties) {
+		Object dir = properties.get(SpiConstants.IN_MEMORY_DATA_DIR);
+		if(dir == null)
+			return;
+		
+		File directory;
+		if(dir instanceof File)
+			directory = (File) dir;
+		else if(dir instanceof String)
+			directory = new File((String) dir);
+		else
+			throw new IllegalArgumentException(SpiConstants.IN_MEMORY_DATA_DIR+" key in map has a value of type="+dir.getClass()+" but that must be a String or File");
 		
+		long snapshotAfter = AppendOnlyLog.DEFAULT_SNAPSHOT_AFTER_BYTES;
+		Object snapshotVal = properties.get(SpiConstants.IN_MEMORY_SNAPSHOT_AFTER_BYTES);
+		if(snapshotVal instanceof Number)
+			snapshotAfter = ((Number) snapshotVal).longValue();
+		else if(snapshotVal instanceof String)
+			snapshotAfter = Long.parseLong((String) snapshotVal);
+		
+		if (log.isInfoEnabled())
+			log.info("persisting the in memory nosql store to "+directory.getAbsolutePath());
+		AppendOnlyLog newLog = new AppendOnlyLog(directory, snapshotAfter);
+		newLog.open(database);
+		appendLog = newLog;
 	}
 
 	public Collection<Column> columnSliceImpl(DboTableMeta colFamily, byte[] rowKey,
@@ -251,7 +312,12 @@ public class InMemorySession implements NoSqlRawSession {
 
 	@Override
 	public void close() {
-		
+		if(appendLog == null)
+			return;
+		synchronized(appendLog) {
+			appendLog.close(database);
+		}
+		appendLog = null;
 	}
 
 	@Override
@@ -263,7 +329,6 @@ public class InMemorySession implements NoSqlRawSession {
 	@Override
 	public AbstractCursor<IndexColumn> scanIndex(ScanInfo scan, Key from, Key to,
 			Integer batchSize, BatchListener l, MetaLookup mgr) {
-		Collection<IndexColumn> iter = scanIndexImpl(scan, from, to, batchSize, l);
 		if (!scan.getEntityColFamily().isVirtualCf() && from == null && to == null
 				&& !scan.getEntityColFamily().hasIndexedField()
 				&& !(scan.getColumnName() instanceof DboColumnToManyMeta)
@@ -273,11 +338,16 @@ public class InMemorySession implements NoSqlRawSession {
 			scanner.beforeFirst();
 			return scanner;
 		}
+		if (scan.isSharded())
+			return CursorOfShards.scanIndex(this, scan, from, to, batchSize, l, mgr);
+		Collection<IndexColumn> iter = scanIndexImpl(scan, from, to, batchSize, l);
 		return new ProxyTempCursor<IndexColumn>(iter);
 	}
 
 	@Override
 	public AbstractCursor<IndexColumn> scanIndex(ScanInfo scanInfo, List<byte[]> values, BatchListener list, MetaLookup mgr) {
+		if (scanInfo.isSharded())
+			return CursorOfShards.scanIndex(this, scanInfo, values, list, mgr);
 		List<IndexColumn> results = new ArrayList<IndexColumn>();
 		for(byte[] val : values) {
 			Key from = new Key(val, true);
@@ -295,11 +365,27 @@ public class InMemorySession implements NoSqlRawSession {
 
 	@Override
 	public AbstractCursor<Row> allRows(DboTableMeta colFamily, MetaLookup ormSession, int batchSize) {
-		throw new UnsupportedOperationException("not supported yet");
+		List<Row> rows = new ArrayList<Row>();
+		Table table = database.findTable(colFamily.getColumnFamily());
+		if(table == null)
+			return new ProxyTempCursor<Row>(rows);
+
+		for(byte[] key : table.findAllKeys()) {
+			//getRow skips the rows that expired
+			Row row = table.getRow(key);
+			if(row != null)
+				rows.add(row);
+		}
+		return new ProxyTempCursor<Row>(rows);
 	}
 
 	@Override
 	public Object getDriverHelper() {
 		return database;
 	}
+
+	@Override
+	public boolean isIndexPkOrdered() {
+		return true;
+	}
 }
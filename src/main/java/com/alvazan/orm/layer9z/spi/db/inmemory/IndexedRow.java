@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.NavigableMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import com.alvazan.orm.api.z8spi.Key;
 import com.alvazan.orm.api.z8spi.action.Column;
@@ -13,9 +13,9 @@ import com.alvazan.orm.api.z8spi.conv.ByteArray;
 
 public class IndexedRow extends RowImpl {
 	
-	private NavigableMap<OurKey, IndexColumn> columns = new TreeMap<OurKey, IndexColumn>();
+	private NavigableMap<OurKey, IndexColumn> columns;
 	
-	public IndexedRow(TreeMap<OurKey, IndexColumn> map) {
+	public IndexedRow(ConcurrentSkipListMap<OurKey, IndexColumn> map) {
 		this.columns = map;
 	}
 
@@ -27,8 +27,10 @@ public class IndexedRow extends RowImpl {
 		OurKey key = new OurKey(column.getIndexedValue(), column.getPrimaryKey());
 		columns.remove(key);
 	}
-	
-	
+
+	public Collection<IndexColumn> getIndexedColumns() {
+		return columns.values();
+	}
 	
 	@Override
 	public Collection<IndexColumn> columnSlice(Key from, Key to) {
@@ -1,11 +1,14 @@
 package com.alvazan.orm.layer9z.spi.db.inmemory;
 
-import java.math.BigInteger;
 import java.util.Comparator;
 
 import com.alvazan.orm.api.z8spi.conv.ByteArray;
-import com.alvazan.orm.api.z8spi.conv.StandardConverters;
 
+/**
+ * Orders BigInteger.toByteArray() encoded values(big endian two's complement) without decoding them.
+ * Values of the same sign compare like unsigned bytes once the shorter one is sign extended to the
+ * length of the longer one, so we read the missing leading bytes as 0x00 or 0xFF instead of copying.
+ */
 public class IntegerComparator implements Comparator<ByteArray> {
 
 	@Override
@@ -17,10 +20,40 @@ public class IntegerComparator implements Comparator<ByteArray> {
 		else if(o2.getKey() == null && o1.getKey() == null)
 			return 0;
 		
-		BigInteger left = StandardConverters.convertFromBytes(BigInteger.class, o1.getKey());
-		BigInteger right = StandardConverters.convertFromBytes(BigInteger.class, o2.getKey());
-		
-		return left.compareTo(right);
+		return compareTwosComplement(o1.getKey(), 0, o1.getKey().length, o2.getKey(), 0, o2.getKey().length);
+	}
+
+	static int compareTwosComplement(byte[] left, int leftOffset, int leftLen, byte[] right, int rightOffset, int rightLen) {
+		boolean leftNegative = leftLen > 0 && left[leftOffset] < 0;
+		boolean rightNegative = rightLen > 0 && right[rightOffset] < 0;
+		if(leftNegative != rightNegative)
+			return leftNegative ? -1 : 1;
+
+		int pad = leftNegative ? 0xFF : 0x00;
+		int len = Math.max(leftLen, rightLen);
+		int leftStart = len - leftLen;
+		int rightStart = len - rightLen;
+		for(int i = 0; i < len; i++) {
+			int l = i < leftStart ? pad : left[leftOffset + i - leftStart] & 0xFF;
+			int r = i < rightStart ? pad : right[rightOffset + i - rightStart] & 0xFF;
+			if(l != r)
+				return l < r ? -1 : 1;
+		}
+		return 0;
 	}
 
+	/**
+	 * @return -1, 0 or 1 for a negative, zero or positive two's complement value
+	 */
+	static int signum(byte[] bytes, int offset, int len) {
+		if(len == 0)
+			return 0;
+		if(bytes[offset] < 0)
+			return -1;
+		for(int i = offset; i < offset + len; i++) {
+			if(bytes[i] != 0)
+				return 1;
+		}
+		return 0;
+	}
 }
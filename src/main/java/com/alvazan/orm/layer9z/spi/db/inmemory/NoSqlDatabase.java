@@ -1,14 +1,15 @@
 package com.alvazan.orm.layer9z.spi.db.inmemory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Singleton;
 
 @Singleton
 public class NoSqlDatabase {
 
-	private Map<String, Table> nameToTable = new HashMap<String, Table>();
+	private ConcurrentMap<String, Table> nameToTable = new ConcurrentHashMap<String, Table>();
 	
 	public Table findTable(String name) {
 		return nameToTable.get(name);
@@ -17,6 +18,17 @@ public class NoSqlDatabase {
 	public void putTable(String name, Table table) {
 		nameToTable.put(name, table);
 	}
+
+	/**
+	 * @return the table already there if another thread created it first or null if ours was added
+	 */
+	public Table putTableIfAbsent(String name, Table table) {
+		return nameToTable.putIfAbsent(name, table);
+	}
+
+	public Collection<Table> getTables() {
+		return nameToTable.values();
+	}
 	
 	public void clear() {
 		nameToTable.clear();
@@ -6,7 +6,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import com.alvazan.orm.api.z8spi.Key;
 import com.alvazan.orm.api.z8spi.Row;
@@ -14,16 +14,20 @@ import com.alvazan.orm.api.z8spi.action.Column;
 import com.alvazan.orm.api.z8spi.action.IndexColumn;
 import com.alvazan.orm.api.z8spi.conv.ByteArray;
 
+/**
+ * Columns are held in a ConcurrentSkipListMap(when created by Table) so a row can be read while another
+ * thread writes to it, readers see each column either before or after a write, never half way.
+ */
 public class RowImpl implements Row {
 	private byte[] key;
-	private NavigableMap<ByteArray, Column> columns = new TreeMap<ByteArray, Column>();
-	private long expire;
+	private NavigableMap<ByteArray, Column> columns = new ConcurrentSkipListMap<ByteArray, Column>();
+	private volatile long expire;
 
 	public RowImpl() {
 		expire = 0L;
 	}
 
-	public RowImpl(TreeMap<ByteArray, Column> map) {
+	public RowImpl(NavigableMap<ByteArray, Column> map) {
 		this.columns = map;
 		if(!map.isEmpty()) {
 			updateExpire(map.values().iterator().next());
@@ -177,7 +181,7 @@ public class RowImpl implements Row {
 
 	@Override
 	public Row deepCopy() {
-		RowImpl impl = new RowImpl();
+		RowImpl impl = new RowImpl(new ConcurrentSkipListMap<ByteArray, Column>(columns.comparator()));
 		impl.key = key;
 		for(Entry<ByteArray, Column> s : columns.entrySet()) {
 			impl.columns.put(s.getKey(), s.getValue().copy());
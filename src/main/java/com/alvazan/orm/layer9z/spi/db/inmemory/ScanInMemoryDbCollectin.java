@@ -3,10 +3,8 @@ package com.alvazan.orm.layer9z.spi.db.inmemory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Set;
 import com.alvazan.orm.api.z8spi.BatchListener;
 import com.alvazan.orm.api.z8spi.action.IndexColumn;
-import com.alvazan.orm.api.z8spi.conv.ByteArray;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
 import com.alvazan.orm.api.z8spi.iter.StringLocal;
 
@@ -71,7 +69,7 @@ public class ScanInMemoryDbCollectin extends AbstractCursor<IndexColumn> {
 		if (needToGetBatch) {
 			if (batchListener != null)
 				batchListener.beforeFetchingNextBatch();
-			Set<ByteArray> rows = indTable.findAllKeys();
+			List<byte[]> rows = indTable.findAllKeys();
 			if (batchListener != null)
 				batchListener.afterFetchingNextBatch(rows.size());
 			List<IndexColumn> finalRes = new ArrayList<IndexColumn>();
@@ -84,11 +82,11 @@ public class ScanInMemoryDbCollectin extends AbstractCursor<IndexColumn> {
 		}
 	}
 
-	private void fillinCache(List<IndexColumn> finalRes, Set<ByteArray> cursor) {
+	private void fillinCache(List<IndexColumn> finalRes, List<byte[]> cursor) {
 		if (cursor.size() == 0) {
 			cachedRows = new ArrayList<IndexColumn>().listIterator();
 		} else {
-			for (ByteArray row : cursor) {
+			for (byte[] row : cursor) {
 				IndexColumn c = convertToIndexColFromInId(row);
 				finalRes.add(c);
 			}
@@ -96,10 +94,10 @@ public class ScanInMemoryDbCollectin extends AbstractCursor<IndexColumn> {
 		}
 	}
 
-	private IndexColumn convertToIndexColFromInId(ByteArray rowKey) {
+	private IndexColumn convertToIndexColFromInId(byte[] rowKey) {
 		IndexColumn c = new IndexColumn();
-		c.setPrimaryKey(rowKey.getKey());
-		c.setIndexedValue(rowKey.getKey());
+		c.setPrimaryKey(rowKey);
+		c.setIndexedValue(rowKey);
 		return c;
 	}
 
@@ -1,10 +1,11 @@
 package com.alvazan.orm.layer9z.spi.db.inmemory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.action.Column;
@@ -12,9 +13,13 @@ import com.alvazan.orm.api.z8spi.action.IndexColumn;
 import com.alvazan.orm.api.z8spi.conv.ByteArray;
 import com.alvazan.orm.layer9z.spi.db.inmemory.IndexedRow.OurKey;
 
+/**
+ * Rows sorted by key in a ConcurrentSkipListMap so any number of threads can read and write the table
+ * without locking and findAllKeys returns the keys in byte order like a cassandra ordered partitioner.
+ */
 public class Table {
 
-	private Map<ByteArray, Row> keyToRow = new HashMap<ByteArray, Row>();
+	private ConcurrentNavigableMap<ByteArray, Row> keyToRow = new ConcurrentSkipListMap<ByteArray, Row>();
 	private String columnFamilyName;
 	private SortType columnSortType;
 	static final Comparator<ByteArray> UTF_COMPARATOR = new Utf8Comparator();
@@ -29,47 +34,58 @@ public class Table {
 		this.columnFamilyName = columnFamily;
 	}
 
+	public String getName() {
+		return columnFamilyName;
+	}
+
+	public SortType getSortType() {
+		return columnSortType;
+	}
+
 	public Row findOrCreateRow(byte[] key) {
-		ByteArray array = new ByteArray(key);
-		Row row = keyToRow.get(array);
+		ByteArray k = new ByteArray(key);
+		Row row = keyToRow.get(k);
 		if(row == null) {
-			row = createSortedMap();
-			row.setKey(key);
-			keyToRow.put(new ByteArray(key), row);
+			Row newRow = createSortedMap();
+			newRow.setKey(key);
+			//another thread may have created the row first in which case we both use theirs
+			row = keyToRow.putIfAbsent(k, newRow);
+			if(row == null)
+				row = newRow;
 		}
 		return row;
 	}
 
 	private Row createSortedMap() {
-		TreeMap<ByteArray, Column> tree;
+		ConcurrentSkipListMap<ByteArray, Column> tree;
 		Row row;
 		switch (columnSortType) {
 		case BYTES:
-			tree = new TreeMap<ByteArray, Column>();
+			tree = new ConcurrentSkipListMap<ByteArray, Column>();
 			row = new RowImpl(tree);
 			break;
 		case UTF8:
-			tree = new TreeMap<ByteArray, Column>(UTF_COMPARATOR);
+			tree = new ConcurrentSkipListMap<ByteArray, Column>(UTF_COMPARATOR);
 			row = new RowImpl(tree);
 			break;
 		case INTEGER:
-			tree = new TreeMap<ByteArray, Column>(INTEGER_COMPARATOR);
+			tree = new ConcurrentSkipListMap<ByteArray, Column>(INTEGER_COMPARATOR);
 			row = new RowImpl(tree);
 			break;
 		case DECIMAL:
-			tree = new TreeMap<ByteArray, Column>(DECIMAL_COMPARATOR);
+			tree = new ConcurrentSkipListMap<ByteArray, Column>(DECIMAL_COMPARATOR);
 			row = new RowImpl(tree);
 			break;
 		case DECIMAL_PREFIX:
-			TreeMap<OurKey, IndexColumn> map = new TreeMap<OurKey, IndexColumn>(decimalPrefixComparator);
+			ConcurrentSkipListMap<OurKey, IndexColumn> map = new ConcurrentSkipListMap<OurKey, IndexColumn>(decimalPrefixComparator);
 			row = new IndexedRow(map);
 			break;
 		case INTEGER_PREFIX:
-			TreeMap<OurKey, IndexColumn> map2 = new TreeMap<OurKey, IndexColumn>(integerPrefixComparator);
+			ConcurrentSkipListMap<OurKey, IndexColumn> map2 = new ConcurrentSkipListMap<OurKey, IndexColumn>(integerPrefixComparator);
 			row = new IndexedRow(map2);
 			break;
 		case UTF8_PREFIX:
-			TreeMap<OurKey, IndexColumn> map3 = new TreeMap<OurKey, IndexColumn>(utfPrefixComparator);
+			ConcurrentSkipListMap<OurKey, IndexColumn> map3 = new ConcurrentSkipListMap<OurKey, IndexColumn>(utfPrefixComparator);
 			row = new IndexedRow(map3);
 			break;
 		default:
@@ -80,22 +96,26 @@ public class Table {
 	}
 
 	public void removeRow(byte[] rowKey) {
-		ByteArray key = new ByteArray(rowKey);
-		keyToRow.remove(key);
+		keyToRow.remove(new ByteArray(rowKey));
 	}
 
 	public Row getRow(byte[] rowKey) {
-		ByteArray key = new ByteArray(rowKey);
-		Row row = keyToRow.get(key);
+		ByteArray k = new ByteArray(rowKey);
+		Row row = keyToRow.get(k);
 		if (row instanceof RowImpl) {
 			if (((RowImpl) row).isExpired()) {
-				keyToRow.remove(key);
+				//only remove the expired row, not one another thread just put in its place
+				keyToRow.remove(k, row);
 				return null;
 			}
 		}
 		return row;
 	}
 
+	public Collection<Row> getRows() {
+		return keyToRow.values();
+	}
+
 	@Override
 	public String toString() {
 		String t = "";
@@ -107,8 +127,12 @@ public class Table {
 		return t;
 	}
 
-	public Set<ByteArray> findAllKeys() {
-		return keyToRow.keySet();
+	public List<byte[]> findAllKeys() {
+		List<byte[]> keys = new ArrayList<byte[]>();
+		for(ByteArray k : keyToRow.keySet()) {
+			keys.add(k.getKey());
+		}
+		return keys;
 	}
 	
 }
@@ -1,11 +1,11 @@
 package com.alvazan.orm.layer9z.spi.db.mongodb;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import javax.inject.Provider;
 
@@ -15,9 +15,14 @@ import com.alvazan.orm.api.z8spi.KeyValue;
 import com.alvazan.orm.api.z8spi.Row;
 import com.alvazan.orm.api.z8spi.RowHolder;
 import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.conv.ByteArrayMap;
 import com.alvazan.orm.api.z8spi.conv.StandardConverters;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue.Batch;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue.Fetcher;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadSettings;
 import com.alvazan.orm.api.z8spi.iter.StringLocal;
 import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.mongodb.DBCollection;
@@ -37,6 +42,8 @@ public class CursorKeysToRowsMDB extends AbstractCursor<KeyValue<Row>> {
 	private Provider<Row> rowProvider;
 	private Cache cache;
 	private DboTableMeta cf;
+	private ReadAheadSettings readAheadSettings;
+	private ReadAheadQueue<List<DBObject>> readAhead;
 
 	public CursorKeysToRowsMDB(DirectCursor<byte[]> rowKeys, int batchSize,
 			BatchListener list, Provider<Row> rowProvider,
@@ -60,7 +67,7 @@ public class CursorKeysToRowsMDB extends AbstractCursor<KeyValue<Row>> {
 		return retVal;
 	}
 
-	public void setupMore(DB keyspace, DboTableMeta cf, Info info, Cache cache) {
+	public void setupMore(DB keyspace, DboTableMeta cf, Info info, Cache cache, ReadAheadSettings settings) {
 		if (cache == null || keyspace == null || cf == null | info == null)
 			throw new IllegalArgumentException(
 					"no params can be null but one was null");
@@ -68,17 +75,21 @@ public class CursorKeysToRowsMDB extends AbstractCursor<KeyValue<Row>> {
 		this.cache = cache;
 		this.db = keyspace;
 		this.info = info;
+		this.readAheadSettings = settings;
+		this.readAhead = new ReadAheadQueue<List<DBObject>>(rowKeys, batchSize, settings, new FindFetcher());
 		beforeFirst();
 	}
 
 	@Override
 	public void beforeFirst() {
+		readAhead.cancel();
 		rowKeys.beforeFirst();
 		cachedRows = null;
 	}
 
 	@Override
 	public void afterLast() {
+		readAhead.cancel();
 		rowKeys.afterLast();
 		cachedRows = null;
 	}
@@ -105,58 +116,36 @@ public class CursorKeysToRowsMDB extends AbstractCursor<KeyValue<Row>> {
 		if (cachedRows != null && cachedRows.hasNext())
 			return; // There are more rows so return and the code will return
 					// the next result from cache
+		if (info.getDbObj() == null)
+			return;
 
+		Batch<List<DBObject>> batch = readAhead.nextBatch();
 		List<RowHolder<Row>> results = new ArrayList<RowHolder<Row>>();
 		List<byte[]> keysToLookup = new ArrayList<byte[]>();
-		while (results.size() < batchSize) {
-			Holder<byte[]> keyHolder = rowKeys.nextImpl();
-			if (keyHolder == null)
-				break; // we are officially exhausted
-
-			byte[] nextKey = keyHolder.getValue();
-			if (cache != null) {
-				RowHolder<Row> result = cache.fromCache(cf, nextKey);
-				if (result == null)
-					keysToLookup.add(nextKey);
-				results.add(result);
-			}
-
-		}
-		DBCursor cursor = null;
-		DBCollection dbCollection = null;
-		if (info.getDbObj() != null) {
-			dbCollection = info.getDbObj();
-		} else
-			return;
-		if (keysToLookup.size() > 0) {
-			if (list != null)
-				list.beforeFetchingNextBatch();
-			BasicDBObject query = new BasicDBObject();
-			query.put("_id", new BasicDBObject("$in", keysToLookup));
-			BasicDBObject orderBy = new BasicDBObject();
-			orderBy.put("_id", 1);
-			cursor = dbCollection.find(query).sort(orderBy).batchSize(batchSize);
-			if (list != null)
-				list.afterFetchingNextBatch(cursor.count());
-		} else {
-			cursor = new DBCursor(dbCollection, null, null, null);
+		for (byte[] nextKey : batch.getKeys()) {
+			RowHolder<Row> result = cache.fromCache(cf, nextKey);
+			if (result == null)
+				keysToLookup.add(nextKey);
+			results.add(result);
 		}
 
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
-
-		fillCache(map, cursor, keysToLookup);
+		List<DBObject> found = batch.fetch(keysToLookup, list);
+		if (found != null && list != null)
+			list.afterFetchingNextBatch(found.size());
 
-		// This is copied from Cassandra. Need to check how can we get results in an order.
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
+		fillMap(map, found, keysToLookup);
 
 		List<KeyValue<Row>> finalRes = new ArrayList<KeyValue<Row>>();
 		Iterator<byte[]> keyIter = keysToLookup.iterator();
 		for (RowHolder<Row> r : results) {
 			if (r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
-				if (kv!=null)
-					finalRes.add(kv);
+				KeyValue<Row> kv = map.get(key);
+				// only rows that were not in the cache go in, a batch read
+				// ahead has every row of the batch
+				cache.cacheRow(cf, key, kv.getValue());
+				finalRes.add(kv);
 			} else {
 				Row row = r.getValue();
 				KeyValue<Row> kv = new KeyValue<Row>();
@@ -169,11 +158,72 @@ public class CursorKeysToRowsMDB extends AbstractCursor<KeyValue<Row>> {
 		cachedRows = finalRes.listIterator();
 	}
 
+	private void fillMap(ByteArrayMap<KeyValue<Row>> map, List<DBObject> found,
+			List<byte[]> keysToLookup) {
+		if (found != null) {
+			for (DBObject mdbrow : found) {
+				KeyValue<Row> kv = new KeyValue<Row>();
+				byte[] mdbRowKey = StandardConverters.convertToBytes(mdbrow
+						.get("_id"));
+				kv.setKey(mdbRowKey);
+
+				if (!mdbrow.keySet().isEmpty()) {
+					Row r = rowProvider.get();
+					r.setKey(mdbRowKey);
+					MongoDbUtil.processColumns(mdbrow, r);
+					kv.setValue(r);
+				}
+				map.put(mdbRowKey, kv);
+			}
+		}
+		// Now put the remaining keys which are not in MongoDB's cursor.
+		// This is because Cassandra returns all the rows with rowkeys while Mongodb doesn't
+		for (byte[] key : keysToLookup) {
+			if (!map.containsKey(key)) {
+				KeyValue<Row> kv = new KeyValue<Row>();
+				kv.setKey(key);
+				kv.setValue(null);
+				map.put(key, kv);
+			}
+		}
+	}
+
+	private List<DBObject> find(List<byte[]> keys) {
+		BasicDBObject query = new BasicDBObject();
+		query.put("_id", new BasicDBObject("$in", keys));
+		BasicDBObject orderBy = new BasicDBObject();
+		orderBy.put("_id", 1);
+		DBCursor cursor = info.getDbObj().find(query).sort(orderBy).batchSize(batchSize);
+		return cursor.toArray();
+	}
+
+	private class FindFetcher implements Fetcher<List<DBObject>> {
+		@Override
+		public List<DBObject> fetch(List<byte[]> keys) {
+			return find(keys);
+		}
+
+		@Override
+		public Future<List<DBObject>> fetchAsync(final List<byte[]> keys) {
+			// DBCollection is thread safe so the background load can use it directly
+			return readAheadSettings.getExecutor().submit(new Callable<List<DBObject>>() {
+				@Override
+				public List<DBObject> call() {
+					return find(keys);
+				}
+			});
+		}
+	}
+
 	private void loadCacheBackward() {
 		if (cachedRows != null && cachedRows.hasPrevious())
 			return; // There are more rows so return and the code will return
 					// the next result from cache
 
+		// the keys of batches read ahead were never returned so step back
+		// over them first
+		readAhead.rewind();
+
 		List<RowHolder<Row>> results = new ArrayList<RowHolder<Row>>();
 		List<byte[]> keysToLookup = new ArrayList<byte[]>();
 		while (results.size() < batchSize) {
@@ -213,7 +263,7 @@ public class CursorKeysToRowsMDB extends AbstractCursor<KeyValue<Row>> {
 			cursor = new DBCursor(dbCollection, null, null, null);
 		}
 
-		Map<ByteArray, KeyValue<Row>> map = new HashMap<ByteArray, KeyValue<Row>>();
+		ByteArrayMap<KeyValue<Row>> map = new ByteArrayMap<KeyValue<Row>>();
 
 		fillCache(map, cursor, keysToLookup);
 
@@ -226,8 +276,7 @@ public class CursorKeysToRowsMDB extends AbstractCursor<KeyValue<Row>> {
 		for (RowHolder<Row> r : results) {
 			if (r == null) {
 				byte[] key = keyIter.next();
-				ByteArray b = new ByteArray(key);
-				KeyValue<Row> kv = map.get(b);
+				KeyValue<Row> kv = map.get(key);
 				if (kv != null)
 					finalRes.add(kv);
 			} else {
@@ -244,15 +293,14 @@ public class CursorKeysToRowsMDB extends AbstractCursor<KeyValue<Row>> {
 			cachedRows.next();
 	}
 
-	private void fillCache(Map<ByteArray, KeyValue<Row>> map, DBCursor cursor,
+	private void fillCache(ByteArrayMap<KeyValue<Row>> map, DBCursor cursor,
 			List<byte[]> keysToLookup) {
 		if (cursor.size() == 0) {
 			for (byte[] key : keysToLookup) {
 				KeyValue<Row> kv = new KeyValue<Row>();
 				kv.setKey(key);
 				kv.setValue(null);
-				ByteArray b = new ByteArray(key);
-				map.put(b, kv);
+				map.put(key, kv);
 				cache.cacheRow(cf, key, kv.getValue());
 			}
 		} else {
@@ -269,20 +317,18 @@ public class CursorKeysToRowsMDB extends AbstractCursor<KeyValue<Row>> {
 					MongoDbUtil.processColumns(mdbrow, r);
 					kv.setValue(r);
 				}
-				ByteArray b = new ByteArray(mdbRowKey);
-				map.put(b, kv);
+				map.put(mdbRowKey, kv);
 				cache.cacheRow(cf, mdbRowKey, kv.getValue());
 			}
 			// Now put the remaining keys which are not in MongoDB's cursor.
 			// This is because Cassandra returns all the rows with rowkeys while Mongodb doesn't
 			for (byte[] key : keysToLookup) {
-				ByteArray baKey = new ByteArray(key);
-				if (!map.containsKey(baKey)) {
+				if (!map.containsKey(key)) {
 					KeyValue<Row> kv = new KeyValue<Row>();
 					kv.setKey(key);
 					kv.setValue(null);
 					// ByteArray b = new ByteArray(key);
-					map.put(baKey, kv);
+					map.put(key, kv);
 					cache.cacheRow(cf, key, kv.getValue());
 				}
 			}
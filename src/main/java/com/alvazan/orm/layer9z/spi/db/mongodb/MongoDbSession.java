@@ -2,7 +2,7 @@ package com.alvazan.orm.layer9z.spi.db.mongodb;
 
 import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -17,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import com.alvazan.orm.api.base.Bootstrap;
 import com.alvazan.orm.api.z8spi.BatchListener;
 import com.alvazan.orm.api.z8spi.Cache;
+import com.alvazan.orm.api.z8spi.ColumnFamilyRegistry;
 import com.alvazan.orm.api.z8spi.ColumnSliceInfo;
 import com.alvazan.orm.api.z8spi.ColumnType;
 import com.alvazan.orm.api.z8spi.Key;
@@ -36,7 +37,10 @@ import com.alvazan.orm.api.z8spi.action.RemoveIndex;
 import com.alvazan.orm.api.z8spi.conv.StandardConverters;
 import com.alvazan.orm.api.z8spi.conv.StorageTypeEnum;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.CursorOfShards;
 import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadSettings;
+import com.alvazan.orm.api.z8spi.iter.ScanSettings;
 import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
 import com.alvazan.orm.api.z8spi.meta.DboColumnToManyMeta;
 import com.alvazan.orm.api.z8spi.meta.DboDatabaseMeta;
@@ -45,7 +49,6 @@ import com.mongodb.ServerAddress;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
-import com.mongodb.DBObject;
 import com.mongodb.MongoClient;
 
 public class MongoDbSession implements NoSqlRawSession {
@@ -61,8 +64,9 @@ public class MongoDbSession implements NoSqlRawSession {
 	@Inject
 	private DboDatabaseMeta dbMetaFromOrmOnly;
 	
-	private Map<String, Info> cfNameToMongodb = new HashMap<String, Info>();
-	private Map<String, String> virtualToCfName = new HashMap<String, String>();
+	private ColumnFamilyRegistry<Info> registry = new ColumnFamilyRegistry<Info>();
+	private ReadAheadSettings readAhead = new ReadAheadSettings(0, 0);
+	private ScanSettings scanSettings = new ScanSettings(1);
 
 	public DB getDb() {
 		return db;
@@ -72,6 +76,10 @@ public class MongoDbSession implements NoSqlRawSession {
 		this.db = db;
 	}
 
+	public ColumnFamilyRegistry<Info> getRegistry() {
+		return registry;
+	}
+
 	public MongoClient getMongoClient() {
 		return mongoClient;
 	}
@@ -86,19 +94,23 @@ public class MongoDbSession implements NoSqlRawSession {
 	}
 	
 	public void sendChangesImpl(List<Action> actions, MetaLookup ormSession) {
+		MongoWriteBatch batch = new MongoWriteBatch();
 		for(Action action : actions) {
 			if(action instanceof Persist) {
-				persist((Persist)action, ormSession);
+				persist((Persist)action, ormSession, batch);
 			} else if(action instanceof Remove) {
-				remove((Remove)action, ormSession);
+				remove((Remove)action, ormSession, batch);
 			} else if(action instanceof PersistIndex) {
-				persistIndex((PersistIndex) action, ormSession);
+				persistIndex((PersistIndex) action, ormSession, batch);
 			} else if(action instanceof RemoveIndex) {
-				removeIndex((RemoveIndex) action, ormSession);
+				removeIndex((RemoveIndex) action, ormSession, batch);
 			} else if(action instanceof RemoveColumn) {
-				removeColumn((RemoveColumn) action, ormSession);
+				removeColumn((RemoveColumn) action, ormSession, batch);
 			}
 		}
+		batch.send();
+		if(log.isDebugEnabled())
+			log.debug("sent "+actions.size()+" actions in "+batch.getRoundTrips()+" round trips");
 	}
 	
 
@@ -110,6 +122,8 @@ public class MongoDbSession implements NoSqlRawSession {
 	@Override
 	public void start(Map<String, Object> properties) {
 		properties.keySet();
+		readAhead = ReadAheadSettings.create(properties);
+		scanSettings = ScanSettings.create(properties);
 		String seeds = properties.get(Bootstrap.MONGODB_SEEDS).toString();
 		try {
 			if (seeds == null)
@@ -136,6 +150,8 @@ public class MongoDbSession implements NoSqlRawSession {
 
 	@Override
 	public void close() {
+		readAhead.close();
+		scanSettings.close();
 		mongoClient.close();
 	}
 
@@ -170,10 +186,12 @@ public class MongoDbSession implements NoSqlRawSession {
         // use an index so check the column type
         if (!entityDbCollection.isVirtualCf() && from == null && to == null && !(scan.getColumnName() instanceof DboColumnToManyMeta)
                 && !entityDbCollection.isInheritance()) {
-            ScanMongoDbCollection scanner = new ScanMongoDbCollection(batchSize, l, entityDbCollection.getColumnFamily(), db);
+            ScanMongoDbCollection scanner = new ScanMongoDbCollection(batchSize, l, entityDbCollection.getColumnFamily(), db, scanSettings);
             scanner.beforeFirst();
             return scanner;
         }
+		if (scan.isSharded())
+			return CursorOfShards.scanIndex(this, scan, from, to, batchSize, l, mgr);
 		CursorOfIndexes cursor = new CursorOfIndexes(rowKey, batchSize, l, indexTableName, from, to);
 		cursor.setupMore(db, colMeta);
 		return cursor;
@@ -182,6 +200,8 @@ public class MongoDbSession implements NoSqlRawSession {
 	@Override
 	public AbstractCursor<IndexColumn> scanIndex(ScanInfo scanInfo,
 			List<byte[]> values, BatchListener list, MetaLookup mgr) {
+		if (scanInfo.isSharded())
+			return CursorOfShards.scanIndex(this, scanInfo, values, list, mgr);
 		byte[] rowKey = scanInfo.getRowKey();
 		String indexTableName = scanInfo.getIndexColFamily();
 		DboColumnMeta colMeta = scanInfo.getColumnName();
@@ -200,61 +220,47 @@ public class MongoDbSession implements NoSqlRawSession {
 			return new CursorReturnsEmptyRows2(rowKeys);
 		}
 		CursorKeysToRowsMDB cursor = new CursorKeysToRowsMDB(rowKeys, batchSize, list, rowProvider, colFamily);
-		cursor.setupMore(db, colFamily, info, cache);
+		cursor.setupMore(db, colFamily, info, cache, readAhead);
 		return cursor;
 	}
 
-	private void persistIndex(PersistIndex action, MetaLookup ormSession) {
+	private void persistIndex(PersistIndex action, MetaLookup ormSession, MongoWriteBatch batch) {
 		String indexCfName = action.getIndexCfName();
 		Info info = lookupOrCreate2(indexCfName, ormSession);
 		DBCollection table = info.getDbObj();
-		byte[] rowKey = action.getRowKey();
 		IndexColumn column = action.getColumn();
-		byte[] key = column.getIndexedValue();
-		byte[] value = column.getPrimaryKey();
-		BasicDBObject doc = findIndexRow(table, rowKey, value);
-		Object keyToPersist = null;
+		String indexRow = StandardConverters.convertFromBytes(String.class, action.getRowKey());
+		Object keyToPersist = convertIndexedValue(indexCfName, column.getIndexedValue());
+		//no need to look for the entry first, the unique index on (i,k,v) keeps it from going in twice
+		batch.insertIndex(table, indexRow, keyToPersist, column.getPrimaryKey());
+	}
+
+	private Object convertIndexedValue(String indexCfName, byte[] key) {
 		if (indexCfName.equalsIgnoreCase("StringIndice")) {
-			keyToPersist = StandardConverters.convertFromBytes(String.class, key);
+			return StandardConverters.convertFromBytes(String.class, key);
 		} else if ((indexCfName.equalsIgnoreCase("IntegerIndice"))) {
-			keyToPersist = StandardConverters.convertFromBytes(Integer.class, key);
+			return StandardConverters.convertFromBytes(Integer.class, key);
 		} else if (indexCfName.equalsIgnoreCase("DecimalIndice")) {
-			keyToPersist = StandardConverters.convertFromBytes(Double.class, key);
+			return StandardConverters.convertFromBytes(Double.class, key);
 		}
-		if (doc != null) {
-			// Check for duplicates
-			Object indValue = doc.get("k");
-			if (indValue != null && !indValue.equals(keyToPersist))
-				insertIndex(table, rowKey, keyToPersist, value);
-		} else
-			insertIndex(table, rowKey, keyToPersist, value);
-	}
-
-	private void insertIndex(DBCollection table, byte[] rowKey,
-			Object keyToPersist, byte[] value) {
-		BasicDBObject doc = new BasicDBObject();
-		doc.append("i",	StandardConverters.convertFromBytes(String.class, rowKey));
-		doc.put("k", keyToPersist);
-		doc.append("v", value);
-		table.insert(doc);
+		return null;
 	}
 
-	private void removeIndex(RemoveIndex action, MetaLookup ormSession) {
+	private void removeIndex(RemoveIndex action, MetaLookup ormSession, MongoWriteBatch batch) {
 		String colFamily = action.getIndexCfName();
 		if (colFamily.equalsIgnoreCase("BytesIndice"))
 			return;
 		Info info = fetchDbCollectionInfo(colFamily, ormSession);
-		DBCollection table = info.getDbObj();
-		byte[] rowKey = action.getRowKey();
-		IndexColumn column = action.getColumn();
-		byte[] value = column.getPrimaryKey();
-		BasicDBObject doc = findIndexRow(table, rowKey, value);
-		if (doc == null) {
+		if (info == null) {
 			if (log.isInfoEnabled())
-				log.info("Index: " + column.toString() + " already removed.");
-		} else {
-			table.remove(doc);
+				log.info("Index: " + action.getColumn() + " already removed, there is no " + colFamily);
+			return;
 		}
+		DBCollection table = info.getDbObj();
+		IndexColumn column = action.getColumn();
+		String indexRow = StandardConverters.convertFromBytes(String.class, action.getRowKey());
+		Object indexedValue = convertIndexedValue(colFamily, column.getIndexedValue());
+		batch.removeIndex(table, indexRow, indexedValue, column.getPrimaryKey());
 	}
 
 	private synchronized Exception createColFamily(String virtualCf, MetaLookup ormSession) {
@@ -292,23 +298,17 @@ public class MongoDbSession implements NoSqlRawSession {
 		if (db!=null && db.collectionExists(colFamily))
 			return;
 		DBCollection table = db.createCollection(colFamily, new BasicDBObject());
-		if (colFamily.equalsIgnoreCase("StringIndice")
-				|| colFamily.equalsIgnoreCase("IntegerIndice")
-				|| colFamily.equalsIgnoreCase("DecimalIndice")) {
-			BasicDBObject index = new BasicDBObject();
-			index.append("i", 1);
-			index.append("k", 1);
-			table.ensureIndex(index);
-		}
+		//unique so an index entry can be inserted without reading to see if it is there already
+		if (isIndexCollection(colFamily))
+			MongoWriteBatch.ensureUniqueIndex(table);
 		String virtual = meta.getColumnFamily();
 		String realCf = meta.getRealColumnFamily();
 		String realCfLower = realCf.toLowerCase();
 		Info info = createInfo(realCf, null, null);
-		virtualToCfName.put(virtual, realCfLower);
-		cfNameToMongodb.put(realCfLower, info);
+		registry.add(virtual, realCfLower, info, true);
 	}
 
-	private void remove(Remove action, MetaLookup ormSession) {
+	private void remove(Remove action, MetaLookup ormSession, MongoWriteBatch batch) {
 		String colFamily = action.getColFamily().getColumnFamily();
 		Info info = fetchDbCollectionInfo(colFamily, ormSession);
 		DBCollection table = info.getDbObj();
@@ -316,75 +316,47 @@ public class MongoDbSession implements NoSqlRawSession {
 			throw new IllegalArgumentException("action param is missing ActionEnum so we know to remove entire row or just columns in the row");
 		switch(action.getAction()) {
 		case REMOVE_ENTIRE_ROW:
-			DBObject row = table.findOne(action.getRowKey());
-			table.remove(row);
+			batch.removeRow(table, action.getRowKey());
 			break;
 		case REMOVE_COLUMNS_FROM_ROW:
-			removeColumns(action, table);
+			removeColumns(action, table, batch);
 			break;
 		default:
 			throw new RuntimeException("bug, unknown remove action="+action.getAction());
 		}
 	}
 
-	private void removeColumns(Remove action, DBCollection table) {
-		DBObject row = table.findOne(action.getRowKey());
-		if (row != null) {
-			BasicDBObject docToRemove = new BasicDBObject();
-			for (byte[] name : action.getColumns()) {
-				docToRemove.append(StandardConverters.convertToString(name), 1);
-			}
-			table.update(row, new BasicDBObject("$unset", docToRemove));
+	private void removeColumns(Remove action, DBCollection table, MongoWriteBatch batch) {
+		List<String> names = new ArrayList<String>();
+		for (byte[] name : action.getColumns()) {
+			names.add(StandardConverters.convertToString(name));
 		}
+		if (names.size() > 0)
+			batch.unsetColumns(table, action.getRowKey(), names);
 	}
 
-	private void removeColumn(RemoveColumn action, MetaLookup ormSession) {
-
+	private void removeColumn(RemoveColumn action, MetaLookup ormSession, MongoWriteBatch batch) {
 		String colFamily = action.getColFamily().getColumnFamily();
 		Info info = fetchDbCollectionInfo(colFamily, ormSession);
 		DBCollection table = info.getDbObj();
-		DBObject row = table.findOne(action.getRowKey());
-		BasicDBObject docToRemove = new BasicDBObject();
-		docToRemove.put(StandardConverters.convertToString(action.getColumn()), 1);
-		if (row != null)
-			table.update(row, new BasicDBObject("$unset", docToRemove));
+		List<String> names = new ArrayList<String>();
+		names.add(StandardConverters.convertToString(action.getColumn()));
+		batch.unsetColumns(table, action.getRowKey(), names);
 	}
 
-	private void persist(Persist action, MetaLookup ormSession) {
+	private void persist(Persist action, MetaLookup ormSession, MongoWriteBatch batch) {
 		String colFamily = action.getColFamily().getColumnFamily();
 		Info info = lookupOrCreate2(colFamily, ormSession);
 		DBCollection table = info.getDbObj();
-		BasicDBObject row = findOrCreateRow(table, action.getRowKey());
-		BasicDBObject doc = new BasicDBObject();
+		Map<String, Object> columns = new LinkedHashMap<String, Object>();
 		for(Column col : action.getColumns()) {
 			byte[] value = new byte[0];
 			if(col.getValue() != null)
 				value = col.getValue();
-			doc.append(StandardConverters.convertToString(col.getName()), value);
-		}
-		table.update(row, new BasicDBObject("$set", doc));
-	}
-
-	public BasicDBObject findOrCreateRow(DBCollection table, byte[] key) {
-		DBObject row = table.findOne(key);
-		if(row == null) {
-			BasicDBObject basicRow = new BasicDBObject();
-			basicRow.append("_id", key);
-			table.insert(basicRow);
-			return basicRow;
+			columns.put(StandardConverters.convertToString(col.getName()), value);
 		}
-		else return (BasicDBObject)row;
-	}
-
-	public BasicDBObject findIndexRow(DBCollection table, byte[] indexKey, byte[] key) {
-		BasicDBObject basicRow = new BasicDBObject();
-		basicRow.append("i", StandardConverters.convertFromBytes(String.class, indexKey));
-		basicRow.append("v", key);
-		DBObject row = table.findOne(basicRow);
-		if(row == null) {
-			return null;
-		}
-		else return (BasicDBObject)row;
+		//an upsert, the row is created if it is not there yet
+		batch.setColumns(table, action.getRowKey(), columns);
 	}
 
 	private void findExistingCollections() {
@@ -396,8 +368,17 @@ public class MongoDbSession implements NoSqlRawSession {
 
 	private void addExistingCollections(String collectionName) {
 			Info info = createInfo(collectionName, null, null);
+			//collections from before the index writes stopped reading first only have the (i,k) index
+			if (isIndexCollection(collectionName))
+				MongoWriteBatch.ensureUniqueIndex(info.getDbObj());
 			String lowerCaseName = collectionName.toLowerCase();
-			cfNameToMongodb.put(lowerCaseName, info);
+			registry.add(null, lowerCaseName, info, false);
+	}
+
+	private static boolean isIndexCollection(String colFamily) {
+		return colFamily.equalsIgnoreCase("StringIndice")
+				|| colFamily.equalsIgnoreCase("IntegerIndice")
+				|| colFamily.equalsIgnoreCase("DecimalIndice");
 	}
 
 	private Info createInfo(String dbCollection, ColumnType type, StorageTypeEnum keyType) {
@@ -420,18 +401,7 @@ public class MongoDbSession implements NoSqlRawSession {
 	}
 
 	private Info lookupVirtCf(String virtualCf) {
-		String cfName = virtualToCfName.get(virtualCf);
-		if (log.isDebugEnabled())
-			log.debug("looking up virtualcf=" + virtualCf + " actual name="
-					+ cfName);
-		if (cfName == null)
-			return null;
-
-		Info info = cfNameToMongodb.get(cfName);
-		if (log.isDebugEnabled())
-			log.debug("virtual=" + virtualCf + " actual name=" + cfName
-					+ " cf info=" + info);
-		return info;
+		return registry.lookupVirtual(virtualCf);
 	}
 
 	private DboTableMeta loadFromInMemoryOrDb(String virtCf, MetaLookup lookup) {
@@ -457,8 +427,10 @@ public class MongoDbSession implements NoSqlRawSession {
 	}
 
 	private void loadColumnFamily(DBCollection def, String virtCf, String realCf) {
-		addExistingCollections(def.getName());
-		virtualToCfName.put(virtCf, realCf);
+		Info info = createInfo(def.getName(), null, null);
+		if (isIndexCollection(realCf))
+			MongoWriteBatch.ensureUniqueIndex(info.getDbObj());
+		registry.add(virtCf, realCf.toLowerCase(), info, false);
 	}
 
 	public Info lookupOrCreate2(String virtualCf, MetaLookup ormSession) {
@@ -500,17 +472,16 @@ public class MongoDbSession implements NoSqlRawSession {
 	}
 
 	private Info tryToLoadColumnFamilyImpl(String virtCf, MetaLookup lookup) {
-		synchronized (virtCf.intern()) {
+		// a miss only happens once per column family so one lock for all of them is fine
+		synchronized (this) {
 			if (log.isInfoEnabled())
 				log.info("Column family NOT found in-memory=" + virtCf + ", CHECK and LOAD from MongoDb if available");
 
-			String cfName = virtualToCfName.get(virtCf);
-			if (cfName != null) {
-				Info info = cfNameToMongodb.get(cfName);
-				if (info != null) {
-					log.info("NEVER MIND, someone beat us to loading it into memory, it is now there=" + virtCf + "(realcf=" + cfName + ")");
-					return cfNameToMongodb.get(cfName);
-				}
+			Info existing = registry.lookupVirtual(virtCf);
+			if (existing != null) {
+				if (log.isInfoEnabled())
+					log.info("NEVER MIND, someone beat us to loading it into memory, it is now there=" + virtCf + "(realcf=" + registry.lookupRealName(virtCf) + ")");
+				return existing;
 			}
 
 			DboTableMeta table = loadFromInMemoryOrDb(virtCf, lookup);
@@ -518,13 +489,12 @@ public class MongoDbSession implements NoSqlRawSession {
 			String realCf = table.getRealColumnFamily();
 
 			String realCfLower = realCf.toLowerCase();
-			Info info = cfNameToMongodb.get(realCfLower);
+			Info info = registry.lookupReal(realCfLower);
 			if (info != null) {
 				if (log.isInfoEnabled())
 					log.info("Virt CF=" + virtCf + " already exists and real colfamily=" + realCf + " already exists so return it");
 				// Looks like it already existed
-				String cfLowercase = realCf.toLowerCase();
-				virtualToCfName.put(virtCf, cfLowercase);
+				registry.addVirtual(virtCf, realCfLower);
 				return info;
 			}
 
@@ -554,4 +524,10 @@ public class MongoDbSession implements NoSqlRawSession {
 	public Object getDriverHelper() {
 		throw new UnsupportedOperationException("not supported yet");
 	}
+
+	@Override
+	public boolean isIndexPkOrdered() {
+		//index documents come back in natural order and mongodb orders binary by length before bytes anyway
+		return false;
+	}
 }
@@ -0,0 +1,227 @@
+package com.alvazan.orm.layer9z.spi.db.mongodb;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+
+/**
+ * The changes of one flush grouped by collection.  Each row gets one upsert with a $set of the columns
+ * put and an $unset of the columns removed(instead of a findOne, an insert of an empty row and then an
+ * update), the index entries of a collection are removed with one remove and added with one insert.
+ * There is no read before the index insert, the unique index on (i,k,v) keeps an entry from being
+ * there twice so a duplicate key error from that insert is just an entry that was already there.
+ *
+ * Per collection removes go out first, then the index inserts and then the row updates.  A remove of
+ * something that has a put waiting cancels the put so the order of the flush is kept.
+ */
+public class MongoWriteBatch {
+
+	private static final Logger log = LoggerFactory.getLogger(MongoWriteBatch.class);
+
+	private Map<DBCollection, Changes> collToChanges = new LinkedHashMap<DBCollection, Changes>();
+	private int roundTrips;
+
+	/**
+	 * Every index collection needs this before we write to it, including ones created before we had it.
+	 * An older collection may have the same entry twice, dropDups removes those copies(they are identical)
+	 * but MongoDB 3.0 and later ignore it so we fail and say so rather than write without the index.
+	 */
+	public static void ensureUniqueIndex(DBCollection table) {
+		BasicDBObject index = new BasicDBObject();
+		index.append("i", 1);
+		index.append("k", 1);
+		index.append("v", 1);
+		BasicDBObject options = new BasicDBObject("unique", true);
+		options.append("dropDups", true);
+		try {
+			table.ensureIndex(index, options);
+		} catch(MongoException e) {
+			throw new RuntimeException("Could not create the unique (i,k,v) index on index collection="+table.getName()
+					+", it probably has duplicate entries this MongoDB won't drop.  Remove the duplicate (i,k,v) documents and restart", e);
+		}
+	}
+
+	public void setColumns(DBCollection table, byte[] rowKey, Map<String, Object> columns) {
+		RowUpdate update = changes(table).update(rowKey);
+		update.create = true;
+		for(Map.Entry<String, Object> entry : columns.entrySet()) {
+			update.unset.removeField(entry.getKey());
+			update.set.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	public void unsetColumns(DBCollection table, byte[] rowKey, List<String> columns) {
+		RowUpdate update = changes(table).update(rowKey);
+		for(String col : columns) {
+			update.set.removeField(col);
+			update.unset.put(col, 1);
+		}
+	}
+
+	public void removeRow(DBCollection table, byte[] rowKey) {
+		Changes changes = changes(table);
+		ByteArray key = new ByteArray(rowKey);
+		changes.rows.remove(key);
+		changes.rowRemoves.put(key, rowKey);
+	}
+
+	public void insertIndex(DBCollection table, String indexRow, Object indexedValue, byte[] pk) {
+		changes(table).indexInserts.put(new IndexEntry(indexRow, indexedValue, pk), indexDoc(indexRow, indexedValue, pk));
+	}
+
+	public void removeIndex(DBCollection table, String indexRow, Object indexedValue, byte[] pk) {
+		Changes changes = changes(table);
+		IndexEntry entry = new IndexEntry(indexRow, indexedValue, pk);
+		changes.indexInserts.remove(entry);
+		changes.indexRemoves.put(entry, indexDoc(indexRow, indexedValue, pk));
+	}
+
+	public void send() {
+		for(Map.Entry<DBCollection, Changes> entry : collToChanges.entrySet()) {
+			send(entry.getKey(), entry.getValue());
+		}
+		collToChanges.clear();
+	}
+
+	private void send(DBCollection table, Changes changes) {
+		List<Object> removes = new ArrayList<Object>(changes.rowRemoves.values());
+		if(removes.size() > 0) {
+			table.remove(new BasicDBObject("_id", new BasicDBObject("$in", removes)));
+			roundTrips++;
+		}
+		if(changes.indexRemoves.size() > 0) {
+			List<DBObject> entries = new ArrayList<DBObject>(changes.indexRemoves.values());
+			table.remove(new BasicDBObject("$or", entries));
+			roundTrips++;
+		}
+		if(changes.indexInserts.size() > 0) {
+			insertIgnoringDuplicates(table, new ArrayList<DBObject>(changes.indexInserts.values()));
+			roundTrips++;
+		}
+		List<DBObject> emptyRows = new ArrayList<DBObject>();
+		for(RowUpdate update : changes.rows.values()) {
+			BasicDBObject doc = new BasicDBObject();
+			if(update.set.size() > 0)
+				doc.append("$set", update.set);
+			if(update.unset.size() > 0)
+				doc.append("$unset", update.unset);
+			if(doc.size() == 0) {
+				//a put with no columns just makes sure the row is there and an empty $set is not allowed
+				if(update.create)
+					emptyRows.add(new BasicDBObject("_id", update.rowKey));
+				continue;
+			}
+			//only a put creates the row, removing columns of a row that is not there leaves it not there
+			boolean upsert = update.set.size() > 0;
+			table.update(new BasicDBObject("_id", update.rowKey), doc, upsert, false);
+			roundTrips++;
+		}
+		if(emptyRows.size() > 0) {
+			insertIgnoringDuplicates(table, emptyRows);
+			roundTrips++;
+		}
+	}
+
+	private void insertIgnoringDuplicates(DBCollection table, List<DBObject> docs) {
+		WriteConcern concern = table.getWriteConcern().continueOnErrorForInsert(true);
+		try {
+			table.insert(docs, concern);
+		} catch(MongoException.DuplicateKey e) {
+			//the rest of the entries still went in since we continue on error
+			if(log.isDebugEnabled())
+				log.debug("some of the "+docs.size()+" index entries were already there", e);
+		}
+	}
+
+	public int getRoundTrips() {
+		return roundTrips;
+	}
+
+	private Changes changes(DBCollection table) {
+		Changes changes = collToChanges.get(table);
+		if(changes == null) {
+			changes = new Changes();
+			collToChanges.put(table, changes);
+		}
+		return changes;
+	}
+
+	private static BasicDBObject indexDoc(String indexRow, Object indexedValue, byte[] pk) {
+		BasicDBObject doc = new BasicDBObject();
+		doc.append("i", indexRow);
+		doc.append("k", indexedValue);
+		doc.append("v", pk);
+		return doc;
+	}
+
+	private static class Changes {
+		private Map<ByteArray, byte[]> rowRemoves = new LinkedHashMap<ByteArray, byte[]>();
+		private Map<ByteArray, RowUpdate> rows = new LinkedHashMap<ByteArray, RowUpdate>();
+		private Map<IndexEntry, DBObject> indexRemoves = new LinkedHashMap<IndexEntry, DBObject>();
+		private Map<IndexEntry, DBObject> indexInserts = new LinkedHashMap<IndexEntry, DBObject>();
+
+		public RowUpdate update(byte[] rowKey) {
+			ByteArray key = new ByteArray(rowKey);
+			RowUpdate update = rows.get(key);
+			if(update == null) {
+				update = new RowUpdate(rowKey);
+				rows.put(key, update);
+			}
+			return update;
+		}
+	}
+
+	private static class RowUpdate {
+		private byte[] rowKey;
+		private boolean create;
+		private BasicDBObject set = new BasicDBObject();
+		private BasicDBObject unset = new BasicDBObject();
+
+		public RowUpdate(byte[] rowKey) {
+			this.rowKey = rowKey;
+		}
+	}
+
+	private static class IndexEntry {
+		private String indexRow;
+		private Object indexedValue;
+		private ByteArray pk;
+
+		public IndexEntry(String indexRow, Object indexedValue, byte[] pk) {
+			this.indexRow = indexRow;
+			this.indexedValue = indexedValue;
+			this.pk = new ByteArray(pk);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = indexRow.hashCode();
+			result = 31 * result + (indexedValue == null ? 0 : indexedValue.hashCode());
+			return 31 * result + pk.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof IndexEntry))
+				return false;
+			IndexEntry other = (IndexEntry) obj;
+			if(indexedValue == null) {
+				if(other.indexedValue != null)
+					return false;
+			} else if(!indexedValue.equals(other.indexedValue))
+				return false;
+			return indexRow.equals(other.indexRow) && pk.equals(other.pk);
+		}
+	}
+}
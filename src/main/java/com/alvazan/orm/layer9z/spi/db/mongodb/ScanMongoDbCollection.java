@@ -4,10 +4,19 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.alvazan.orm.api.z8spi.BatchListener;
 import com.alvazan.orm.api.z8spi.action.IndexColumn;
 import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan.Sink;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan.Split;
+import com.alvazan.orm.api.z8spi.iter.ScanSettings;
 import com.alvazan.orm.api.z8spi.iter.StringLocal;
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DB;
@@ -15,15 +24,21 @@ import com.mongodb.DBObject;
 
 public class ScanMongoDbCollection extends AbstractCursor<IndexColumn> {
 
+    private static final Logger log = LoggerFactory.getLogger(ScanMongoDbCollection.class);
+    // only the _id is used
+    private static final DBObject ID_ONLY = new BasicDBObject("_id", 1);
+
     private Integer batchSize;
     private BatchListener batchListener;
     private DB db;
     private ListIterator<DBObject> cachedRows;
     private String indTable;
     private boolean needToGetBatch;
+    private ScanSettings scanSettings;
 
-    public ScanMongoDbCollection(Integer batchSize, BatchListener list, String dbCollection, DB keyspace) {
+    public ScanMongoDbCollection(Integer batchSize, BatchListener list, String dbCollection, DB keyspace, ScanSettings scanSettings) {
         this.batchSize = batchSize;
+        this.scanSettings = scanSettings;
         this.batchListener = list;
         this.indTable = dbCollection;
         this.needToGetBatch = true;
@@ -86,16 +101,22 @@ public class ScanMongoDbCollection extends AbstractCursor<IndexColumn> {
         if (needToGetBatch) {
             if (batchListener != null)
                 batchListener.beforeFetchingNextBatch();
-            if (batchSize != null)
-                cursor = dbCollection.find().batchSize(batchSize);
-            else
-                cursor = dbCollection.find();
-
-            if (batchListener != null)
-                batchListener.afterFetchingNextBatch(cursor.count());
-
             List<DBObject> finalRes = new ArrayList<DBObject>();
-            fillinCache(finalRes, cursor);
+            if (scanSettings.isParallel()) {
+                scanIdRanges(dbCollection, finalRes);
+                cachedRows = finalRes.listIterator();
+                if (batchListener != null)
+                    batchListener.afterFetchingNextBatch(finalRes.size());
+            } else {
+                cursor = dbCollection.find(new BasicDBObject(), ID_ONLY);
+                if (batchSize != null)
+                    cursor = cursor.batchSize(batchSize);
+
+                if (batchListener != null)
+                    batchListener.afterFetchingNextBatch(cursor.count());
+
+                fillinCache(finalRes, cursor);
+            }
             needToGetBatch = false;
             if (reverse) {
                 while (cachedRows.hasNext())
@@ -116,6 +137,80 @@ public class ScanMongoDbCollection extends AbstractCursor<IndexColumn> {
         }
     }
 
+    private void scanIdRanges(DBCollection dbCollection, List<DBObject> finalRes) {
+        List<Object> bounds = findSplitKeys(dbCollection);
+        List<Split<DBObject>> splits = new ArrayList<Split<DBObject>>();
+        for (int i = 0; i < bounds.size() - 1; i++) {
+            splits.add(new IdRangeSplit(dbCollection, bounds.get(i), bounds.get(i + 1)));
+        }
+        int queueSize = (batchSize == null ? 500 : batchSize) * scanSettings.getParallelism();
+        ParallelScan<DBObject> scan = new ParallelScan<DBObject>(splits, scanSettings, queueSize);
+        scan.start();
+        for (DBObject row = scan.next(); row != null; row = scan.next()) {
+            finalRes.add(row);
+        }
+    }
+
+    /**
+     * @return null(the start), the _id values splitting the collection into about 4 ranges per thread and
+     * null(the end) or just the start and end if mongodb would not split the collection
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> findSplitKeys(DBCollection dbCollection) {
+        List<Object> bounds = new ArrayList<Object>();
+        bounds.add(null);
+        long perSplit = Math.max(1000, dbCollection.count() / (scanSettings.getParallelism() * 4));
+        DBObject cmd = new BasicDBObject("splitVector", dbCollection.getFullName())
+                .append("keyPattern", new BasicDBObject("_id", 1))
+                .append("maxChunkSize", 1024)
+                .append("maxChunkObjects", perSplit);
+        CommandResult result = db.command(cmd);
+        if (result.ok()) {
+            for (Object splitKey : (List<Object>) result.get("splitKeys")) {
+                bounds.add(((DBObject) splitKey).get("_id"));
+            }
+        } else if (log.isInfoEnabled()) {
+            log.info("could not split collection=" + indTable + " so scanning it on one thread.  reason=" + result.getErrorMessage());
+        }
+        bounds.add(null);
+        return bounds;
+    }
+
+    private class IdRangeSplit implements Split<DBObject> {
+        private DBCollection dbCollection;
+        private Object from;
+        private Object to;
+
+        private IdRangeSplit(DBCollection dbCollection, Object from, Object to) {
+            this.dbCollection = dbCollection;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void scan(Sink<DBObject> sink) {
+            BasicDBObject range = new BasicDBObject();
+            if (from != null)
+                range.append("$gte", from);
+            if (to != null)
+                range.append("$lt", to);
+            DBObject query = new BasicDBObject();
+            if (!range.isEmpty())
+                query.put("_id", range);
+            DBCursor cursor = dbCollection.find(query, ID_ONLY);
+            if (batchSize != null)
+                cursor = cursor.batchSize(batchSize);
+            try {
+                while (cursor.hasNext()) {
+                    if (!sink.add(cursor.next()))
+                        return;
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
     private IndexColumn convertToIndexColFromId(DBObject col) {
         Object pk = col.get("_id");
         IndexColumn c = new IndexColumn();
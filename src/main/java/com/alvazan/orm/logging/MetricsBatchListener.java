@@ -0,0 +1,43 @@
+package com.alvazan.orm.logging;
+
+import com.alvazan.orm.api.z8spi.BatchListener;
+import com.alvazan.orm.api.z8spi.metrics.ColumnFamilyMetrics;
+import com.alvazan.orm.api.z8spi.metrics.Operation;
+
+/**
+ * Times each batch a cursor fetches since the fetch happens as the cursor is read, not when the cursor
+ * is handed back.  The shards of a sharded index share one listener and fetch their first batch on
+ * different threads at once so the start time is kept per thread(a fetch starts and ends on one thread).
+ */
+public class MetricsBatchListener implements BatchListener {
+
+	private BatchListener listener;
+	private ColumnFamilyMetrics metrics;
+	private Operation op;
+	private ThreadLocal<Long> startTime = new ThreadLocal<Long>();
+
+	public MetricsBatchListener(BatchListener l, ColumnFamilyMetrics metrics, Operation op) {
+		this.listener = l;
+		this.metrics = metrics;
+		this.op = op;
+	}
+
+	@Override
+	public void beforeFetchingNextBatch() {
+		if(listener != null)
+			listener.beforeFetchingNextBatch();
+		startTime.set(System.nanoTime());
+	}
+
+	@Override
+	public void afterFetchingNextBatch(int numFetched) {
+		Long start = startTime.get();
+		if(start != null) {
+			metrics.recordLatency(op, System.nanoTime() - start);
+			startTime.remove();
+		}
+		metrics.recordFetch(numFetched);
+		if(listener != null)
+			listener.afterFetchingNextBatch(numFetched);
+	}
+}
@@ -0,0 +1,36 @@
+package com.alvazan.orm.logging;
+
+import com.alvazan.orm.api.z8spi.Cache;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.RowHolder;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.api.z8spi.metrics.ColumnFamilyMetrics;
+
+/**
+ * Counts the rows a find got from the session or second level cache instead of the database
+ */
+public class MetricsCache implements Cache {
+
+	private Cache cache;
+	private ColumnFamilyMetrics metrics;
+
+	public MetricsCache(Cache cache, ColumnFamilyMetrics metrics) {
+		this.cache = cache;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public RowHolder<Row> fromCache(DboTableMeta colFamily, byte[] key) {
+		RowHolder<Row> holder = cache.fromCache(colFamily, key);
+		if(holder == null)
+			metrics.recordCacheMiss();
+		else
+			metrics.recordCacheHit();
+		return holder;
+	}
+
+	@Override
+	public void cacheRow(DboTableMeta colFamily, byte[] b, Row value) {
+		cache.cacheRow(colFamily, b, value);
+	}
+}
@@ -0,0 +1,57 @@
+package com.alvazan.orm.logging;
+
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.StringLocal;
+import com.alvazan.orm.api.z8spi.metrics.ColumnFamilyMetrics;
+import com.alvazan.orm.api.z8spi.metrics.Operation;
+
+/**
+ * For the calls that take no BatchListener, times each step of the cursor instead(most steps read
+ * from a batch already in memory, the ones that fetch the next batch show up as the slow tail)
+ */
+public class MetricsCursor<T> extends AbstractCursor<T> {
+
+	private AbstractCursor<T> cursor;
+	private ColumnFamilyMetrics metrics;
+	private Operation op;
+
+	public MetricsCursor(AbstractCursor<T> cursor, ColumnFamilyMetrics metrics, Operation op) {
+		this.cursor = cursor;
+		this.metrics = metrics;
+		this.op = op;
+	}
+
+	@Override
+	public String toString() {
+		String tabs = StringLocal.getAndAdd();
+		String retVal = "MetricsCursor["+tabs+cursor+tabs+"]";
+		StringLocal.set(tabs.length());
+		return retVal;
+	}
+
+	@Override
+	public void beforeFirst() {
+		cursor.beforeFirst();
+	}
+
+	@Override
+	public void afterLast() {
+		cursor.afterLast();
+	}
+
+	@Override
+	public Holder<T> nextImpl() {
+		long start = System.nanoTime();
+		Holder<T> next = cursor.nextImpl();
+		metrics.recordLatency(op, System.nanoTime() - start);
+		return next;
+	}
+
+	@Override
+	public Holder<T> previousImpl() {
+		long start = System.nanoTime();
+		Holder<T> previous = cursor.previousImpl();
+		metrics.recordLatency(op, System.nanoTime() - start);
+		return previous;
+	}
+}
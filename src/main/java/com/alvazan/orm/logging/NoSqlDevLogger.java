@@ -7,6 +7,7 @@ import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import com.alvazan.orm.api.z5api.FlushFuture;
 import com.alvazan.orm.api.z5api.NoSqlSession;
 import com.alvazan.orm.api.z8spi.Key;
 import com.alvazan.orm.api.z8spi.KeyValue;
@@ -82,6 +83,16 @@ public class NoSqlDevLogger implements NoSqlSession {
 		session.flush();
 	}
 
+	@Override
+	public boolean isFlushDue() {
+		return session.isFlushDue();
+	}
+
+	@Override
+	public FlushFuture flushAsync() {
+		return session.flushAsync();
+	}
+
 	@Override
 	public void clearDb() {
 		session.clearDb();
@@ -37,13 +37,13 @@ public class NoSqlRawLogger implements NoSqlRawSession {
 
 	private static final Logger log = LoggerFactory.getLogger(NoSqlRawLogger.class);
 	@Inject
-	@Named("main")
+	@Named("metrics")
 	private NoSqlRawSession session;
 	
 	@Override
 	public void sendChanges(List<Action> actions, MetaLookup ormFromAbove) {
 		if(actions.size() > 10000 && log.isWarnEnabled())
-			log.warn("You sure you want to send 10,000 actions in one flush....consider doing and batches and calling mgr.clear to clear out the cache every batch");
+			log.warn("You sure you want to send 10,000 actions in one flush....consider doing and batches and calling mgr.clear to clear out the cache every batch or setting nosql.writeCache.flushChunkSize");
 		long time = 0;
 		if(log.isInfoEnabled()) {
 			logInformation(actions);
@@ -331,6 +331,11 @@ public class NoSqlRawLogger implements NoSqlRawSession {
 	public Object getDriverHelper() {
 		return session.getDriverHelper();
 	}
+
+	@Override
+	public boolean isIndexPkOrdered() {
+		return session.isIndexPkOrdered();
+	}
 	
 //	@Override
 //	public AbstractCursor<KeyValue<Row>> find(String colFamily,
@@ -0,0 +1,142 @@
+package com.alvazan.orm.logging;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.alvazan.orm.api.z8spi.BatchListener;
+import com.alvazan.orm.api.z8spi.Cache;
+import com.alvazan.orm.api.z8spi.ColumnSliceInfo;
+import com.alvazan.orm.api.z8spi.Key;
+import com.alvazan.orm.api.z8spi.KeyValue;
+import com.alvazan.orm.api.z8spi.MetaLookup;
+import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.ScanInfo;
+import com.alvazan.orm.api.z8spi.action.Action;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.api.z8spi.metrics.ColumnFamilyMetrics;
+import com.alvazan.orm.api.z8spi.metrics.NoSqlMetrics;
+import com.alvazan.orm.api.z8spi.metrics.Operation;
+
+/**
+ * Sits between the NoSqlRawLogger and the provider recording NoSqlMetrics.  Only bound when
+ * Bootstrap.METRICS_ENABLED is on.
+ */
+public class NoSqlRawMetrics implements NoSqlRawSession {
+
+	@Inject
+	@Named("main")
+	private NoSqlRawSession session;
+	@Inject
+	private NoSqlMetrics metrics;
+
+	@Override
+	public void sendChanges(List<Action> actions, MetaLookup ormFromAbove) {
+		long start = System.nanoTime();
+		try {
+			session.sendChanges(actions, ormFromAbove);
+		} finally {
+			metrics.recordFlush(actions.size(), System.nanoTime() - start);
+			recordActions(actions);
+		}
+	}
+
+	private void recordActions(List<Action> actions) {
+		DboTableMeta last = null;
+		ColumnFamilyMetrics cfMetrics = null;
+		for(Action action : actions) {
+			DboTableMeta cf = action.getColFamily();
+			if(cf == null)
+				continue;
+			//actions of one entity come together so skip looking up the same column family again
+			if(cf != last) {
+				cfMetrics = metrics.forColumnFamily(cf.getColumnFamily());
+				last = cf;
+			}
+			cfMetrics.recordActionSent();
+		}
+	}
+
+	@Override
+	public AbstractCursor<Column> columnSlice(ColumnSliceInfo sliceInfo, Integer batchSize, BatchListener l, MetaLookup mgr) {
+		ColumnFamilyMetrics cfMetrics = metrics.forColumnFamily(sliceInfo.getColFamily().getColumnFamily());
+		BatchListener list = new MetricsBatchListener(l, cfMetrics, Operation.COLUMN_SLICE);
+		return session.columnSlice(sliceInfo, batchSize, list, mgr);
+	}
+
+	@Override
+	public AbstractCursor<IndexColumn> scanIndex(ScanInfo info, Key from, Key to, Integer batchSize, BatchListener l, MetaLookup mgr) {
+		BatchListener list = new MetricsBatchListener(l, forScan(info), Operation.SCAN_INDEX);
+		return session.scanIndex(info, from, to, batchSize, list, mgr);
+	}
+
+	@Override
+	public AbstractCursor<IndexColumn> scanIndex(ScanInfo scanInfo, List<byte[]> values, BatchListener l, MetaLookup mgr) {
+		BatchListener list = new MetricsBatchListener(l, forScan(scanInfo), Operation.SCAN_INDEX);
+		return session.scanIndex(scanInfo, values, list, mgr);
+	}
+
+	private ColumnFamilyMetrics forScan(ScanInfo info) {
+		DboTableMeta entityCf = info.getEntityColFamily();
+		if(entityCf != null)
+			return metrics.forColumnFamily(entityCf.getColumnFamily());
+		return metrics.forColumnFamily(info.getIndexColFamily());
+	}
+
+	@Override
+	public AbstractCursor<KeyValue<Row>> find(DboTableMeta colFamily, DirectCursor<byte[]> rowKeys, Cache cache, int batchSize,
+			BatchListener l, MetaLookup mgr) {
+		ColumnFamilyMetrics cfMetrics = metrics.forColumnFamily(colFamily.getColumnFamily());
+		BatchListener list = new MetricsBatchListener(l, cfMetrics, Operation.FIND);
+		Cache countingCache = cache;
+		if(cache != null)
+			countingCache = new MetricsCache(cache, cfMetrics);
+		return session.find(colFamily, rowKeys, countingCache, batchSize, list, mgr);
+	}
+
+	@Override
+	public AbstractCursor<Row> allRows(DboTableMeta colFamily, MetaLookup ormSession, int batchSize) {
+		ColumnFamilyMetrics cfMetrics = metrics.forColumnFamily(colFamily.getColumnFamily());
+		AbstractCursor<Row> cursor = session.allRows(colFamily, ormSession, batchSize);
+		return new MetricsCursor<Row>(cursor, cfMetrics, Operation.ALL_ROWS);
+	}
+
+	@Override
+	public void clearDatabase() {
+		session.clearDatabase();
+	}
+
+	@Override
+	public void start(Map<String, Object> properties) {
+		session.start(properties);
+		metrics.start();
+	}
+
+	@Override
+	public void close() {
+		metrics.close();
+		session.close();
+	}
+
+	@Override
+	public void readMetaAndCreateTable(MetaLookup ormSession, String colFamily) {
+		session.readMetaAndCreateTable(ormSession, colFamily);
+	}
+
+	@Override
+	public Object getDriverHelper() {
+		return session.getDriverHelper();
+	}
+
+	@Override
+	public boolean isIndexPkOrdered() {
+		return session.isIndexPkOrdered();
+	}
+}
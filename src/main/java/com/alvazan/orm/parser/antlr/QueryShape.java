@@ -0,0 +1,155 @@
+package com.alvazan.orm.parser.antlr;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.Token;
+
+import com.alvazan.orm.api.z8spi.conv.StorageTypeEnum;
+
+/**
+ * An ad-hoc query with the number and string literals of the where clause swapped for parameters so
+ * "select * from Account where name='dean'" and "... where name='bob'" compile to the same plan.  The
+ * literals are turned into the same BigInteger, BigDecimal or String objects ScannerSql would have put in
+ * the tree.  Literals before the where clause(partitions, update set) and in IN lists stay in the
+ * query as those places don't take parameters, null/true/false stay as well.
+ */
+public class QueryShape {
+
+	public static final String PARAM_PREFIX = "__literal";
+
+	private String key;
+	private List<String> parameterNames = new ArrayList<String>();
+	private List<Object> values = new ArrayList<Object>();
+	private List<StorageTypeEnum> types = new ArrayList<StorageTypeEnum>();
+
+	private QueryShape() {
+	}
+
+	/**
+	 * @return the shape or null if the query does not lex or already uses one of our parameter names in which
+	 * case the caller should compile it as is
+	 */
+	public static QueryShape parse(String query) {
+		try {
+			return parseImpl(query);
+		} catch(ParseQueryException e) {
+			return null;
+		}
+	}
+
+	private static QueryShape parseImpl(String query) {
+		NoSqlLexer lexer = new NoSqlLexer(new ANTLRStringStream(query));
+		QueryShape shape = new QueryShape();
+		StringBuilder key = new StringBuilder(query.length() + 16);
+		boolean inWhere = false;
+		boolean afterIn = false;
+		boolean inValueList = false;
+		String minus = null;
+		Token token = lexer.nextToken();
+		while(token.getType() != Token.EOF) {
+			if(token.getChannel() == Token.HIDDEN_CHANNEL) {
+				token = lexer.nextToken();
+				continue;
+			}
+
+			int type = token.getType();
+			String text = token.getText();
+			if(minus != null && type != NoSqlLexer.INTEGER && type != NoSqlLexer.DECIMAL) {
+				//a minus not in front of a number, the parser will complain about it
+				append(key, minus);
+				minus = null;
+			}
+
+			if(type == NoSqlLexer.WHERE) {
+				inWhere = true;
+			} else if(type == NoSqlLexer.IN) {
+				afterIn = true;
+			} else if(type == NoSqlLexer.LPAREN && afterIn) {
+				inValueList = true;
+			} else if(type == NoSqlLexer.RPAREN) {
+				inValueList = false;
+			} else if(type == NoSqlLexer.ID && text.startsWith(PARAM_PREFIX)) {
+				return null;
+			}
+			if(type != NoSqlLexer.IN)
+				afterIn = false;
+
+			if(!inWhere || inValueList) {
+				append(key, text);
+			} else if(type == NoSqlLexer.MINUS) {
+				minus = text;
+			} else if(type == NoSqlLexer.INTEGER) {
+				shape.addLiteral(key, new BigInteger(sign(minus)+text), StorageTypeEnum.INTEGER);
+				minus = null;
+			} else if(type == NoSqlLexer.DECIMAL) {
+				shape.addLiteral(key, new BigDecimal(sign(minus)+text), StorageTypeEnum.DECIMAL);
+				minus = null;
+			} else if(type == NoSqlLexer.STRINGA || type == NoSqlLexer.STRINGB) {
+				shape.addLiteral(key, text.substring(1, text.length()-1), StorageTypeEnum.STRING);
+			} else {
+				append(key, text);
+			}
+			token = lexer.nextToken();
+		}
+		if(minus != null)
+			append(key, minus);
+
+		shape.key = key.toString();
+		return shape;
+	}
+
+	private static String sign(String minus) {
+		if(minus == null)
+			return "";
+		return minus;
+	}
+
+	private static void append(StringBuilder key, String text) {
+		if(key.length() > 0)
+			key.append(' ');
+		key.append(text);
+	}
+
+	private void addLiteral(StringBuilder key, Object value, StorageTypeEnum type) {
+		String name = PARAM_PREFIX+values.size();
+		append(key, ":"+name);
+		parameterNames.add(name);
+		values.add(value);
+		types.add(type);
+	}
+
+	/**
+	 * @return the query with whitespace collapsed and the literals replaced by :__literal0, :__literal1...
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	public int getLiteralCount() {
+		return values.size();
+	}
+
+	public String getParameterName(int i) {
+		return parameterNames.get(i);
+	}
+
+	/**
+	 * @return a BigInteger, BigDecimal or String just like ExpressionNode.getState() of a constant
+	 */
+	public Object getValue(int i) {
+		return values.get(i);
+	}
+
+	public StorageTypeEnum getType(int i) {
+		return types.get(i);
+	}
+
+	@Override
+	public String toString() {
+		return "QueryShape["+key+" values="+values+"]";
+	}
+}
@@ -609,12 +609,22 @@ public class ScannerSql {
 		DboColumnMeta info = typeInfo.getColumnInfo();
 		if(info instanceof DboColumnToManyMeta)
 			throw new IllegalArgumentException("Cannot use column="+info.getColumnName()+" since that is a toMany relationship");
+		else if(!isAssignable(constantType, info))
+			throw new IllegalArgumentException("Types do not match in namedquery="+wiring.getQuery()+" for column="+info.getColumnName()+" type1="+constantType+" type2="+info.getStorageType());
+	}
+
+	/**
+	 * @return true if a constant of this type can be compared to the column(the rule compiling uses so
+	 * the plan cache can check literals it moved into parameters)
+	 */
+	public static boolean isAssignable(StorageTypeEnum constantType, DboColumnMeta info) {
+		if(info instanceof DboColumnToManyMeta)
+			return false;
 		else if(constantType == StorageTypeEnum.NULL)
-			return; //null is any type so no need to match
+			return true; //null is any type so no need to match
 		else if(info.isJodaType())
-			return;
-		else if(constantType != info.getStorageType())
-			throw new IllegalArgumentException("Types do not match in namedquery="+wiring.getQuery()+" for column="+info.getColumnName()+" type1="+constantType+" type2="+info.getStorageType());
+			return true;
+		return constantType == info.getStorageType();
 	}
 	
 
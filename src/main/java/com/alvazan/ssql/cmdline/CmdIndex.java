@@ -46,7 +46,11 @@ public class CmdIndex {
             ScanInfo info = ScanInfo.createScanInfo(colMeta, by, id);
             DboTableMeta indexTableMeta = mgr.find(DboTableMeta.class, info.getIndexColFamily());
             System.out.println("Wait...we are checking if it was indexed earlier and removing all its old indexes.");
-            mgr.getSession().remove(indexTableMeta, info.getRowKey());
+            if (info.isSharded()) {
+                for (byte[] shardRowKey : info.getShardRowKeys())
+                    mgr.getSession().remove(indexTableMeta, shardRowKey);
+            } else
+                mgr.getSession().remove(indexTableMeta, info.getRowKey());
             s.flush();
             return;
         }
@@ -19,6 +19,14 @@ public class CronProdBindings implements Module {
 	public static final String SCHEDULER = "org.playorm.monitor.scheduler";
 	public static final String HASH_GENERATOR = "org.playorm.monitor.hashGenerator";
 	public static final String CURRENT_TIME = "org.playorm.monitor.currentTime";
+	/**
+	 * Number of tokens each web node gets on the consistent hash ring(more spreads monitors more evenly)
+	 */
+	public static final String VIRTUAL_NODES = "org.playorm.monitor.virtualNodes";
+	/**
+	 * Every this many runs a node reloads the ring ranges it owns to pick up monitors saved by other nodes
+	 */
+	public static final String RESYNC_TICKS = "org.playorm.monitor.resyncTicks";
 	
 	private ScheduledExecutorService svc;
 	private long rate;
@@ -47,11 +55,24 @@ public class CronProdBindings implements Module {
 		
 		String host = (String) properties.get(CronServiceFactory.HOST_UNIQUE_NAME);
 		
-		config = new Config(rate, host);
-		
 		generator = (HashGenerator)properties.get(HASH_GENERATOR);
+		//a supplied HashGenerator decides placement itself so only use the ring when there is none
+		boolean useHashRing = generator == null;
 		if(generator == null)
 			generator = new HashGeneratorImpl();
+		
+		int virtualNodes = parseInt(properties, VIRTUAL_NODES, 64);
+		int resyncTicks = parseInt(properties, RESYNC_TICKS, 10);
+		config = new Config(rate, host, useHashRing, virtualNodes, resyncTicks);
+	}
+
+	private int parseInt(Map<String, Object> properties, String key, int defaultValue) {
+		Object obj = properties.get(key);
+		if(obj == null)
+			return defaultValue;
+		else if(!(obj instanceof String))
+			throw new IllegalArgumentException(key+" must be an int as a String");
+		return Integer.parseInt((String) obj);
 	}
 
 	@Override
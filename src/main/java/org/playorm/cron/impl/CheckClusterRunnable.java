@@ -34,6 +34,10 @@ public class CheckClusterRunnable implements Runnable {
 
 	private CronListener listener;
 
+	private ConsistentHashRing ring;
+	private TimingWheel wheel;
+	private int ticksSinceResync = 0;
+
 	@Override
 	public void run() {
 		try {
@@ -92,7 +96,10 @@ public class CheckClusterRunnable implements Runnable {
 		} else if(serverNumber == -1)
 			throw new IllegalStateException("serverNumber not found in list of servers="+all+" config hostname='"+config.getHostName()+"' serverslist="+servers);
 		
-		runOurMonitors(mgr, servers.size(), serverNumber);
+		if(config.isUseHashRing())
+			runOwnedMonitors(mgr, servers);
+		else
+			runOurMonitors(mgr, servers.size(), serverNumber);
 	}
 
 	private void saveNodeIsUp(NoSqlEntityManager mgr, WebNodeDbo val) {
@@ -121,8 +128,140 @@ public class CheckClusterRunnable implements Runnable {
 		}
 	}
 
+	/**
+	 * Only touches the monitors this node owns on the ring that are due according to the timing wheel.
+	 * The wheel is filled from the ring ranges we own when we start, topped up from the ranges we gain
+	 * when nodes join or leave and refreshed every few runs to pick up monitors saved on other nodes.
+	 */
+	private void runOwnedMonitors(NoSqlEntityManager mgr, List<WebNodeDbo> servers) {
+		DateTime now = time.currentTime();
+		List<String> names = new ArrayList<String>();
+		for(WebNodeDbo node : servers) {
+			names.add(node.getWebServerName());
+		}
+
+		if(ring == null) {
+			backfillRingTokens(mgr);
+			ring = new ConsistentHashRing(names, config.getVirtualNodes());
+			wheel = new TimingWheel(config.getRate(), 64, 4, now.getMillis());
+			loadRanges(mgr, ring.rangesOwnedBy(config.getHostName()), now);
+		} else if(!ring.getNodes().equals(names)) {
+			rebalance(mgr, new ConsistentHashRing(names, config.getVirtualNodes()), now);
+		} else if(++ticksSinceResync >= config.getResyncTicks()) {
+			ticksSinceResync = 0;
+			loadRanges(mgr, ring.rangesOwnedBy(config.getHostName()), now);
+		}
+
+		List<String> due = wheel.advance(now.getMillis());
+		if (log.isInfoEnabled())
+			log.info("nodes="+names+" monitors held="+(wheel.size()+due.size())+" due="+due.size());
+		if(due.size() == 0)
+			return;
+
+		Cursor<KeyValue<MonitorDbo>> cursor = mgr.findAll(MonitorDbo.class, due);
+		while(cursor.next()) {
+			KeyValue<MonitorDbo> kv = cursor.getCurrent();
+			MonitorDbo val = kv.getValue();
+			if (val == null)
+				continue; //deleted so it just drops out of the wheel
+			else if(!isOwned(val))
+				continue;
+			processMonitor(mgr, val, now);
+			wheel.schedule(val.getId(), nextDue(val, now));
+		}
+	}
+
+	private void rebalance(NoSqlEntityManager mgr, ConsistentHashRing newRing, DateTime now) {
+		ConsistentHashRing old = ring;
+		ring = newRing;
+		for(String id : wheel.getIds()) {
+			if(!config.getHostName().equals(ring.ownerOf(id)))
+				wheel.remove(id);
+		}
+
+		List<ConsistentHashRing.TokenRange> gained = ring.rangesGainedFrom(old, config.getHostName());
+		if (log.isInfoEnabled())
+			log.info("nodes changed from="+old.getNodes()+" to="+ring.getNodes()+" loading gained ranges="+gained.size()+" still holding="+wheel.size());
+		loadRanges(mgr, gained, now);
+	}
+
+	/**
+	 * Monitors saved before they had a ring token have no entry in the ringToken index so no range
+	 * query finds them.  Once on startup we read every monitor and save the ones missing their token
+	 * or holding a token of an older version of ConsistentHashRing.tokenFor.
+	 */
+	private void backfillRingTokens(NoSqlEntityManager mgr) {
+		int fixed = 0;
+		Cursor<KeyValue<MonitorDbo>> cursor = MonitorDbo.findAll(mgr);
+		while(cursor.next()) {
+			MonitorDbo val = cursor.getCurrent().getValue();
+			if(val == null)
+				continue;
+			int token = ConsistentHashRing.tokenFor(val.getId());
+			if(val.getRingToken() == token)
+				continue;
+			val.setRingToken(token);
+			mgr.put(val);
+			if(++fixed % 500 == 0)
+				mgr.flush();
+		}
+
+		mgr.flush();
+		mgr.clear();
+		if (log.isInfoEnabled() && fixed > 0)
+			log.info("saved ring tokens for monitors that had none or an old one, count="+fixed);
+	}
+
+	private void loadRanges(NoSqlEntityManager mgr, List<ConsistentHashRing.TokenRange> ranges, DateTime now) {
+		for(ConsistentHashRing.TokenRange range : ranges) {
+			Cursor<KeyValue<MonitorDbo>> cursor = MonitorDbo.findByTokenRange(mgr, range.getFrom(), range.getTo());
+			while(cursor.next()) {
+				MonitorDbo val = cursor.getCurrent().getValue();
+				if(val == null || wheel.contains(val.getId()))
+					continue;
+				if(isOwned(val))
+					wheel.schedule(val.getId(), nextDue(val, now));
+			}
+		}
+		mgr.clear();
+	}
+
+	private boolean isOwned(MonitorDbo monitor) {
+		return config.getHostName().equals(ring.ownerOf(monitor.getId()));
+	}
+
+	/**
+	 * When calculateShouldRun will next return true, or close to it.  Getting this early only costs a
+	 * reload of the monitor on that tick and it goes back in the wheel.
+	 */
+	private long nextDue(MonitorDbo monitor, DateTime now) {
+		long period = monitor.getTimePeriodMillis();
+		long nowMillis = now.getMillis();
+		if(monitor.getEpochOffset() == null) {
+			if(monitor.getLastRun() == null)
+				return nowMillis;
+			return monitor.getLastRun().getMillis() + period - 1000;
+		} else if(monitor.getLastShouldHaveRun() != null) {
+			return monitor.getLastShouldHaveRun().getMillis() + period - 1000;
+		} else if(period <= 0) {
+			return nowMillis;
+		}
+
+		//never run so it is due in the window around the next offset + n*period(see isInRunWindow)
+		long half = config.getRate() / 2;
+		long offset = monitor.getEpochOffset();
+		long point = offset + ((nowMillis - offset) / period) * period;
+		if(nowMillis - point < half)
+			return nowMillis;
+		return point + period - half;
+	}
+
 	private void processMonitor(NoSqlEntityManager mgr, MonitorDbo monitor) {
 		DateTime now = time.currentTime();
+		processMonitor(mgr, monitor, now);
+	}
+
+	private void processMonitor(NoSqlEntityManager mgr, MonitorDbo monitor, DateTime now) {
 		boolean shouldRun = calculateShouldRun(mgr, monitor, now);
 		if(shouldRun) 
 			runMonitor(mgr, monitor, now);
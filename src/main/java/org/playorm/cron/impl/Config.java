@@ -4,10 +4,20 @@ public class Config {
 
 	private long rate;
 	private String hostName;
+	private boolean useHashRing;
+	private int virtualNodes;
+	private int resyncTicks;
 
 	public Config(long rate, String host) {
+		this(rate, host, false, 0, 0);
+	}
+
+	public Config(long rate, String host, boolean useHashRing, int virtualNodes, int resyncTicks) {
 		this.rate = rate;
 		this.hostName = host;
+		this.useHashRing = useHashRing;
+		this.virtualNodes = virtualNodes;
+		this.resyncTicks = resyncTicks;
 	}
 
 	public long getRate() {
@@ -17,5 +27,17 @@ public class Config {
 	public String getHostName() {
 		return hostName;
 	}
+
+	public boolean isUseHashRing() {
+		return useHashRing;
+	}
+
+	public int getVirtualNodes() {
+		return virtualNodes;
+	}
+
+	public int getResyncTicks() {
+		return resyncTicks;
+	}
 	
 }
@@ -0,0 +1,159 @@
+package org.playorm.cron.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+
+/**
+ * Maps monitors to web nodes.  Every node is placed on the ring at several tokens(virtual nodes) and a
+ * monitor belongs to the node with the first token at or after the monitor's token, wrapping around.
+ * When a node joins or leaves only the ranges next to that node's tokens change owner, so unlike
+ * hash % numNodes almost every monitor stays where it was.
+ */
+public class ConsistentHashRing {
+
+	private TreeMap<Integer, String> tokenToNode = new TreeMap<Integer, String>();
+	private List<String> nodes;
+
+	public ConsistentHashRing(Collection<String> nodeNames, int virtualNodes) {
+		List<String> sorted = new ArrayList<String>(nodeNames);
+		Collections.sort(sorted);
+		this.nodes = Collections.unmodifiableList(sorted);
+		for(String node : sorted) {
+			for(int i = 0; i < virtualNodes; i++) {
+				int token = tokenFor(node+"#"+i);
+				//on the rare collision the lowest name keeps the token so every node agrees
+				if(!tokenToNode.containsKey(token))
+					tokenToNode.put(token, node);
+			}
+		}
+	}
+
+	/**
+	 * NOTE: tokens are saved in the indexed MonitorDbo.ringToken so this must never change without a new
+	 * version(and ByteArray.hashOf is in memory only so it can't be used).  Version 2 is FNV-1a over the
+	 * key bytes(like DboColumnMeta.shardFor) finished with murmur3's fmix32 so keys that only differ in the
+	 * last character like host#1 and host#2 still land all over the ring.  Version 1 was ByteArray.hashOf.
+	 * The startup backfill re-saves every monitor whose token is not this version's.
+	 */
+	public static int tokenFor(String key) {
+		byte[] bytes = StandardConverters.convertToBytes(key);
+		int h = 0x811c9dc5;
+		for(int i = 0; i < bytes.length; i++) {
+			h ^= bytes[i] & 0xff;
+			h *= 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	public List<String> getNodes() {
+		return nodes;
+	}
+
+	public String ownerOf(String monitorId) {
+		return ownerOfToken(tokenFor(monitorId));
+	}
+
+	public String ownerOfToken(int token) {
+		if(tokenToNode.isEmpty())
+			return null;
+		Map.Entry<Integer, String> entry = tokenToNode.ceilingEntry(token);
+		if(entry == null)
+			entry = tokenToNode.firstEntry();
+		return entry.getValue();
+	}
+
+	/**
+	 * @return the inclusive token ranges this node owns, merged where adjacent
+	 */
+	public List<TokenRange> rangesOwnedBy(String node) {
+		return changedRanges(null, node);
+	}
+
+	/**
+	 * @return the inclusive token ranges the node owns in this ring but did not own in the old ring
+	 */
+	public List<TokenRange> rangesGainedFrom(ConsistentHashRing old, String node) {
+		return changedRanges(old, node);
+	}
+
+	private List<TokenRange> changedRanges(ConsistentHashRing old, String node) {
+		List<TokenRange> ranges = new ArrayList<TokenRange>();
+		if(tokenToNode.isEmpty())
+			return ranges;
+
+		//between two consecutive tokens of either ring the owner in both rings is constant so we
+		//only need to look at the owner of each segment's end token
+		SortedSet<Integer> boundaries = new TreeSet<Integer>(tokenToNode.keySet());
+		if(old != null)
+			boundaries.addAll(old.tokenToNode.keySet());
+
+		long start = Integer.MIN_VALUE;
+		for(Integer end : boundaries) {
+			if(isGained(old, node, end))
+				addRange(ranges, (int) start, end);
+			start = (long) end + 1;
+		}
+		//the last segment wraps around to the first token so it is owned like the first token
+		if(start <= Integer.MAX_VALUE && isGained(old, node, boundaries.first()))
+			addRange(ranges, (int) start, Integer.MAX_VALUE);
+		return ranges;
+	}
+
+	private boolean isGained(ConsistentHashRing old, String node, int token) {
+		if(!node.equals(ownerOfToken(token)))
+			return false;
+		return old == null || !node.equals(old.ownerOfToken(token));
+	}
+
+	private void addRange(List<TokenRange> ranges, int from, int to) {
+		if(ranges.size() > 0) {
+			TokenRange last = ranges.get(ranges.size()-1);
+			if((long) last.getTo() + 1 == from) {
+				ranges.set(ranges.size()-1, new TokenRange(last.getFrom(), to));
+				return;
+			}
+		}
+		ranges.add(new TokenRange(from, to));
+	}
+
+	@Override
+	public String toString() {
+		return "ConsistentHashRing[nodes="+nodes+" tokens="+tokenToNode.size()+"]";
+	}
+
+	public static class TokenRange {
+		private int from;
+		private int to;
+
+		public TokenRange(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		public int getFrom() {
+			return from;
+		}
+
+		public int getTo() {
+			return to;
+		}
+
+		@Override
+		public String toString() {
+			return "["+from+","+to+"]";
+		}
+	}
+}
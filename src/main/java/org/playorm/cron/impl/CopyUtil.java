@@ -10,6 +10,7 @@ public class CopyUtil {
 			return null;
 		MonitorDbo m = new MonitorDbo();
 		m.setId(monitor.getId());
+		m.setRingToken(ConsistentHashRing.tokenFor(monitor.getId()));
 		m.setTimePeriodMillis(monitor.getTimePeriodMillis());
 		m.setEpochOffset(monitor.getEpochOffset());
 		m.setType(monitor.getType());
@@ -0,0 +1,188 @@
+package org.playorm.cron.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel holding the ids of the monitors this node owns keyed by when they are next
+ * due.  Level 0 has one slot per tick, each level above has slots as wide as the whole level below and
+ * entries move down a level when the wheel reaches their slot.  Scheduling, removing and finding what
+ * is due are all proportional to the number of entries involved, not the number of entries held, so a
+ * node can hold tens of thousands of monitors and only touch the few that are due on each tick.
+ *
+ * Not thread safe, it is only used from the CheckClusterRunnable.
+ */
+public class TimingWheel {
+
+	private long tickMillis;
+	private int slotsPerLevel;
+	private List<List<Set<String>>> levels = new ArrayList<List<Set<String>>>();
+	private long[] levelWidths;
+	private Set<String> overflow = new HashSet<String>();
+	private Set<String> ready = new LinkedHashSet<String>();
+	private Map<String, Long> dueTimes = new HashMap<String, Long>();
+	private Map<String, Set<String>> idToSlot = new HashMap<String, Set<String>>();
+	private long currentTime;
+
+	public TimingWheel(long tickMillis, int slotsPerLevel, int numLevels, long startMillis) {
+		if(tickMillis <= 0)
+			throw new IllegalArgumentException("tickMillis must be positive");
+		this.tickMillis = tickMillis;
+		this.currentTime = truncate(startMillis, tickMillis);
+		this.slotsPerLevel = slotsPerLevel;
+		this.levelWidths = new long[numLevels];
+		long width = tickMillis;
+		for(int i = 0; i < numLevels; i++) {
+			levelWidths[i] = width;
+			List<Set<String>> slots = new ArrayList<Set<String>>(slotsPerLevel);
+			for(int j = 0; j < slotsPerLevel; j++)
+				slots.add(new HashSet<String>());
+			levels.add(slots);
+			width *= slotsPerLevel;
+		}
+	}
+
+	public int size() {
+		return dueTimes.size();
+	}
+
+	public boolean contains(String id) {
+		return dueTimes.containsKey(id);
+	}
+
+	public Set<String> getIds() {
+		return new HashSet<String>(dueTimes.keySet());
+	}
+
+	public void schedule(String id, long dueMillis) {
+		remove(id);
+		dueTimes.put(id, dueMillis);
+		place(id, dueMillis);
+	}
+
+	public void remove(String id) {
+		if(dueTimes.remove(id) == null)
+			return;
+		Set<String> slot = idToSlot.remove(id);
+		if(slot != null)
+			slot.remove(id);
+		ready.remove(id);
+		overflow.remove(id);
+	}
+
+	/**
+	 * Moves the wheel forward to now
+	 * @return the ids that are due at or before now, which are no longer held by the wheel
+	 */
+	public List<String> advance(long now) {
+		long topSpan = levelWidths[levelWidths.length-1] * slotsPerLevel;
+		if(now - currentTime >= topSpan) {
+			//we were not called for longer than the wheel covers so just start over
+			currentTime = truncate(now, tickMillis);
+			rebuild();
+		}
+
+		while(currentTime + tickMillis <= now) {
+			//everything in the current level 0 slot is due before the next tick
+			drain(levels.get(0).get(slotIndex(0, currentTime)));
+			currentTime += tickMillis;
+			cascade();
+		}
+
+		//the current slot may also have entries that are already due
+		Set<String> current = levels.get(0).get(slotIndex(0, currentTime));
+		List<String> dueNow = new ArrayList<String>();
+		for(String id : current) {
+			if(dueTimes.get(id) <= now)
+				dueNow.add(id);
+		}
+		for(String id : dueNow) {
+			current.remove(id);
+			idToSlot.remove(id);
+			ready.add(id);
+		}
+
+		List<String> result = new ArrayList<String>(ready);
+		for(String id : result)
+			dueTimes.remove(id);
+		ready.clear();
+		return result;
+	}
+
+	private void drain(Set<String> slot) {
+		for(String id : slot) {
+			idToSlot.remove(id);
+			ready.add(id);
+		}
+		slot.clear();
+	}
+
+	private void cascade() {
+		for(int level = levelWidths.length - 1; level >= 1; level--) {
+			if(currentTime % levelWidths[level] != 0)
+				continue;
+			if(level == levelWidths.length - 1 && overflow.size() > 0)
+				replace(overflow);
+			replace(levels.get(level).get(slotIndex(level, currentTime)));
+		}
+	}
+
+	private void replace(Set<String> slot) {
+		List<String> ids = new ArrayList<String>(slot);
+		slot.clear();
+		for(String id : ids) {
+			idToSlot.remove(id);
+			place(id, dueTimes.get(id));
+		}
+	}
+
+	private void rebuild() {
+		for(List<Set<String>> slots : levels) {
+			for(Set<String> slot : slots)
+				slot.clear();
+		}
+		overflow.clear();
+		idToSlot.clear();
+		for(Map.Entry<String, Long> entry : dueTimes.entrySet()) {
+			if(!ready.contains(entry.getKey()))
+				place(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private void place(String id, long due) {
+		if(due < currentTime) {
+			ready.add(id);
+			return;
+		}
+		for(int level = 0; level < levelWidths.length; level++) {
+			long width = levelWidths[level];
+			long levelStart = truncate(currentTime, width);
+			if(due < levelStart + width * slotsPerLevel) {
+				Set<String> slot = levels.get(level).get(slotIndex(level, due));
+				slot.add(id);
+				idToSlot.put(id, slot);
+				return;
+			}
+		}
+		overflow.add(id);
+		idToSlot.put(id, overflow);
+	}
+
+	private int slotIndex(int level, long time) {
+		return (int) ((time / levelWidths[level]) % slotsPerLevel);
+	}
+
+	private static long truncate(long time, long width) {
+		return time - (time % width);
+	}
+
+	@Override
+	public String toString() {
+		return "TimingWheel[size="+dueTimes.size()+" tick="+tickMillis+"]";
+	}
+}
@@ -11,12 +11,16 @@ import com.alvazan.orm.api.base.anno.NoSqlEmbedded;
 import com.alvazan.orm.api.base.anno.NoSqlEntity;
 import com.alvazan.orm.api.base.anno.NoSqlId;
 import com.alvazan.orm.api.base.anno.NoSqlIndexed;
+import com.alvazan.orm.api.base.anno.NoSqlQueries;
 import com.alvazan.orm.api.base.anno.NoSqlQuery;
 import com.alvazan.orm.api.z8spi.KeyValue;
 import com.alvazan.orm.api.z8spi.iter.Cursor;
 
 @NoSqlEntity
-@NoSqlQuery(name="all", query="select m from TABLE as m")
+@NoSqlQueries({
+	@NoSqlQuery(name="all", query="select m from TABLE as m"),
+	@NoSqlQuery(name="findByTokenRange", query="select m from TABLE as m where m.ringToken >= :fromToken and m.ringToken <= :toToken")
+})
 public class MonitorDbo {
 
 	@NoSqlId(usegenerator=false)
@@ -42,6 +46,12 @@ public class MonitorDbo {
 	private DateTime lastShouldHaveRun;
 
 	private Long epochOffset;
+
+	/**
+	 * Position of this monitor on the consistent hash ring so a node can load just the ranges it owns
+	 */
+	@NoSqlIndexed
+	private int ringToken;
 	
 	public String getId() {
 		return id;
@@ -77,6 +87,14 @@ public class MonitorDbo {
 
 	public static Cursor<KeyValue<MonitorDbo>> findAll(NoSqlEntityManager mgr) {
 		Query<MonitorDbo> query = mgr.createNamedQuery(MonitorDbo.class, "all");
+		//every monitor is in this index, monitors saved before ringToken existed are not in that one
+		return query.getResults("timePeriodMillis");
+	}
+
+	public static Cursor<KeyValue<MonitorDbo>> findByTokenRange(NoSqlEntityManager mgr, int from, int to) {
+		Query<MonitorDbo> query = mgr.createNamedQuery(MonitorDbo.class, "findByTokenRange");
+		query.setParameter("fromToken", from);
+		query.setParameter("toToken", to);
 		return query.getResults();
 	}
 
@@ -96,6 +114,14 @@ public class MonitorDbo {
 		this.epochOffset = epochOffset;
 	}
 
+	public int getRingToken() {
+		return ringToken;
+	}
+
+	public void setRingToken(int ringToken) {
+		this.ringToken = ringToken;
+	}
+
 	public String getType() {
 		return type;
 	}
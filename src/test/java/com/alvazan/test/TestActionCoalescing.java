@@ -0,0 +1,147 @@
+package com.alvazan.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.DbTypeEnum;
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z8spi.action.Action;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.action.Persist;
+import com.alvazan.orm.api.z8spi.action.PersistIndex;
+import com.alvazan.orm.api.z8spi.action.Remove;
+import com.alvazan.orm.api.z8spi.action.RemoveIndex;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.layer5.nosql.cache.CoalescingActionLog;
+import com.alvazan.test.db.Activity;
+
+public class TestActionCoalescing {
+
+	private NoSqlEntityManagerFactory factory;
+
+	@After
+	public void close() {
+		if(factory != null)
+			factory.close();
+	}
+
+	@Test
+	public void testPutsOfOneRowAreMerged() {
+		DboTableMeta cf = table("Activity");
+		CoalescingActionLog log = new CoalescingActionLog();
+		log.put(persist(cf, "row1", "name", "dean", "age", "20"));
+		log.put(persist(cf, "row2", "name", "bob"));
+		log.put(persist(cf, "row1", "age", "21"));
+
+		Assert.assertEquals(2, log.size());
+		Assert.assertEquals(1, log.getCoalesced());
+		List<Action> actions = log.drain();
+		Persist row1 = (Persist) actions.get(0);
+		Assert.assertEquals(2, row1.getColumns().size());
+		Assert.assertEquals("21", StandardConverters.convertFromBytes(String.class, row1.getColumns().get(1).getValue()));
+		Assert.assertEquals(0, log.size());
+	}
+
+	@Test
+	public void testRemoveStopsTheMerge() {
+		DboTableMeta cf = table("Activity");
+		CoalescingActionLog log = new CoalescingActionLog();
+		log.put(persist(cf, "row1", "name", "dean"));
+		Remove remove = new Remove();
+		remove.setColFamily(cf);
+		remove.setRowKey(key("row1"));
+		log.remove(remove, cf, key("row1"));
+		log.put(persist(cf, "row1", "name", "bob"));
+
+		List<Action> actions = log.drain();
+		Assert.assertEquals(3, actions.size());
+		Assert.assertTrue(actions.get(1) instanceof Remove);
+	}
+
+	@Test
+	public void testOnlyTheLastIndexChangeIsSent() {
+		DboTableMeta cf = table("Activity");
+		CoalescingActionLog log = new CoalescingActionLog();
+		IndexColumn col = indexColumn("dean", "row1");
+		PersistIndex add = new PersistIndex();
+		log.index(add, "StringIndice", key("/Activity/name"), col);
+		RemoveIndex remove = new RemoveIndex();
+		log.index(remove, "StringIndice", key("/Activity/name"), indexColumn("dean", "row1"));
+		//a different primary key is a different index column
+		log.index(new PersistIndex(), "StringIndice", key("/Activity/name"), indexColumn("dean", "row2"));
+		log.put(persist(cf, "row1", "name", "bob"));
+
+		List<Action> actions = log.drain();
+		Assert.assertEquals(3, actions.size());
+		Assert.assertSame(remove, actions.get(0));
+	}
+
+	@Test
+	public void testBulkUpdateFlushesInChunks() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.FLUSH_CHUNK_SIZE, 10);
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		factory = FactorySingleton.createFactory(config, props);
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		for(int i = 0; i < 50; i++) {
+			Activity act = new Activity("act"+i);
+			act.setName("before");
+			act.setNumTimes(i);
+			mgr.put(act);
+		}
+		mgr.flush();
+
+		NoSqlEntityManager bulk = factory.createEntityManager();
+		int count = bulk.getTypedSession().executeQuery("update Activity as e set (e.name=\"after\") where e.numTimes >= 0");
+		Assert.assertEquals(50, count);
+
+		//most of it is already written though no one called flush
+		NoSqlEntityManager other = factory.createEntityManager();
+		int written = Activity.findByName(other, "after").size();
+		Assert.assertTrue("written="+written, written >= 40);
+
+		bulk.flush();
+		other.clear();
+		Assert.assertEquals(50, Activity.findByName(other, "after").size());
+		Assert.assertEquals(0, Activity.findByName(other, "before").size());
+	}
+
+	private DboTableMeta table(String name) {
+		DboTableMeta cf = new DboTableMeta();
+		cf.setup(null, name, false, false);
+		return cf;
+	}
+
+	private Persist persist(DboTableMeta cf, String row, String... namesAndValues) {
+		List<Column> columns = new ArrayList<Column>();
+		for(int i = 0; i < namesAndValues.length; i += 2) {
+			columns.add(new Column(key(namesAndValues[i]), key(namesAndValues[i+1])));
+		}
+		Persist persist = new Persist();
+		persist.setColFamily(cf);
+		persist.setRowKey(key(row));
+		persist.setColumns(columns);
+		return persist;
+	}
+
+	private IndexColumn indexColumn(String value, String primaryKey) {
+		IndexColumn col = new IndexColumn();
+		col.setIndexedValue(key(value));
+		col.setPrimaryKey(key(primaryKey));
+		return col;
+	}
+
+	private byte[] key(String val) {
+		return StandardConverters.convertToBytes(val);
+	}
+}
@@ -0,0 +1,54 @@
+package com.alvazan.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.conv.ByteArrayMap;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+
+public class TestByteArrayMap {
+
+	@Test
+	public void testPermutedKeysDoNotCollide() {
+		byte[] key1 = new byte[] { 1, 2, 3, 4 };
+		byte[] key2 = new byte[] { 4, 3, 2, 1 };
+		Assert.assertFalse(new ByteArray(key1).hashCode() == new ByteArray(key2).hashCode());
+		Assert.assertEquals(new ByteArray(key1).hashCode(), new ByteArray(new byte[] { 1, 2, 3, 4 }).hashCode());
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		ByteArrayMap<Integer> map = new ByteArrayMap<Integer>();
+		Map<ByteArray, Integer> expected = new HashMap<ByteArray, Integer>();
+		Random r = new Random(42);
+		for(int i = 0; i < 20000; i++) {
+			byte[] key = StandardConverters.convertToBytes((long)r.nextInt(5000));
+			int op = r.nextInt(3);
+			if(op == 0) {
+				Assert.assertEquals(expected.remove(new ByteArray(key)), map.remove(key));
+			} else {
+				Assert.assertEquals(expected.put(new ByteArray(key), i), map.put(key, i));
+			}
+			Assert.assertEquals(expected.size(), map.size());
+		}
+
+		for(ByteArray key : expected.keySet()) {
+			Assert.assertEquals(expected.get(key), map.get(key.getKey()));
+		}
+		Assert.assertEquals(expected.size(), map.keys().size());
+	}
+
+	@Test
+	public void testPutIfAbsentKeepsFirst() {
+		ByteArrayMap<String> map = new ByteArrayMap<String>();
+		byte[] key = StandardConverters.convertToBytes("dean");
+		Assert.assertNull(map.putIfAbsent(key, "first"));
+		Assert.assertEquals("first", map.putIfAbsent(StandardConverters.convertToBytes("dean"), "second"));
+		Assert.assertEquals("first", map.get(key));
+	}
+}
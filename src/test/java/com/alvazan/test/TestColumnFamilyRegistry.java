@@ -0,0 +1,61 @@
+package com.alvazan.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alvazan.orm.api.z8spi.ColumnFamilyListener;
+import com.alvazan.orm.api.z8spi.ColumnFamilyRegistry;
+
+public class TestColumnFamilyRegistry {
+
+	private List<String> added = new ArrayList<String>();
+
+	@Test
+	public void testLookups() {
+		ColumnFamilyRegistry<String> registry = new ColumnFamilyRegistry<String>();
+		registry.add(null, "stringindice", "indexInfo", false);
+		registry.add("Activity", "activity", "activityInfo", true);
+		registry.addVirtual("/Account/name", "stringindice");
+
+		Assert.assertEquals("activityInfo", registry.lookupVirtual("Activity"));
+		Assert.assertEquals("indexInfo", registry.lookupVirtual("/Account/name"));
+		Assert.assertEquals("stringindice", registry.lookupRealName("/Account/name"));
+		Assert.assertEquals("indexInfo", registry.lookupReal("stringindice"));
+		Assert.assertNull(registry.lookupVirtual("Account"));
+		Assert.assertEquals(2, registry.getRealColumnFamilies().size());
+	}
+
+	@Test
+	public void testVirtualResolvesOnceRealIsAdded() {
+		ColumnFamilyRegistry<String> registry = new ColumnFamilyRegistry<String>();
+		registry.addVirtual("/Account/name", "stringindice");
+		Assert.assertNull(registry.lookupVirtual("/Account/name"));
+
+		registry.add(null, "stringindice", "indexInfo", false);
+		Assert.assertEquals("indexInfo", registry.lookupVirtual("/Account/name"));
+	}
+
+	@Test
+	public void testListenerGetsVersions() {
+		ColumnFamilyRegistry<String> registry = new ColumnFamilyRegistry<String>();
+		registry.addListener(new ColumnFamilyListener<String>() {
+			@Override
+			public void columnFamilyAdded(String virtualCf, String realCf, String info, boolean createdHere, long version) {
+				added.add(virtualCf+"/"+realCf+"/"+createdHere+"/"+version);
+			}
+		});
+		long start = registry.getVersion();
+		registry.add("Activity", "activity", "activityInfo", true);
+		registry.addVirtual("Other", "activity");
+		registry.add("Account", "account", "accountInfo", false);
+
+		Assert.assertEquals(start+3, registry.getVersion());
+		List<String> expected = new ArrayList<String>();
+		expected.add("Activity/activity/true/"+(start+1));
+		expected.add("Account/account/false/"+(start+3));
+		Assert.assertEquals(expected, added);
+	}
+}
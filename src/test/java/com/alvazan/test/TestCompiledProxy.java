@@ -0,0 +1,63 @@
+package com.alvazan.test;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.exc.RowNotFoundException;
+import com.alvazan.orm.impl.meta.data.NoSqlProxy;
+import com.alvazan.test.db.PackageFieldEntity;
+
+public class TestCompiledProxy {
+
+	private static NoSqlEntityManagerFactory factory;
+	private NoSqlEntityManager mgr;
+
+	@BeforeClass
+	public static void setup() {
+		factory = FactorySingleton.createFactoryOnce();
+	}
+	
+	@Before
+	public void createEntityManager() {
+		mgr = factory.createEntityManager();
+	}
+	@After
+	public void clearDatabase() {
+		NoSqlEntityManager other = factory.createEntityManager();
+		other.clearDatabase(true);
+	}
+
+	@Test
+	public void testReferenceLoadsOnFirstCall() {
+		PackageFieldEntity entity = new PackageFieldEntity();
+		entity.setName("dean");
+		entity.setCount(7);
+		mgr.put(entity);
+		mgr.flush();
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		PackageFieldEntity reference = mgr2.getReference(PackageFieldEntity.class, entity.getId());
+		Assert.assertTrue(reference instanceof NoSqlProxy);
+		Assert.assertTrue(reference.getClass().getName().contains("$$PlayOrmProxy"));
+
+		Assert.assertEquals("dean", reference.getName());
+		Assert.assertEquals(7, reference.getCount());
+	}
+
+	@Test
+	public void testIdDoesNotHitDatabase() {
+		PackageFieldEntity reference = mgr.getReference(PackageFieldEntity.class, "doesNotExist");
+		//the id comes from the proxy so this works even though there is no row
+		Assert.assertEquals("doesNotExist", reference.getId());
+		try {
+			reference.getName();
+			Assert.fail("should have tried to load the row");
+		} catch(RowNotFoundException e) {
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.alvazan.test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alvazan.orm.api.z8spi.MetaLookup;
+import com.alvazan.orm.api.z8spi.action.Action;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.action.Persist;
+import com.alvazan.orm.api.z8spi.action.RemoveColumn;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.layer9z.spi.db.cassandracql3.CqlBatchWriter;
+import com.alvazan.orm.layer9z.spi.db.cassandracql3.CqlSession;
+import com.datastax.driver.core.MockSession;
+
+public class TestCqlWriteBatch {
+
+	private static final Pattern TIMESTAMP = Pattern.compile("USING TIMESTAMP (\\d+)");
+
+	private List<String> queries = new ArrayList<String>();
+	private CqlSession session;
+	private DboTableMeta table;
+
+	@Before
+	public void setup() throws Exception {
+		session = new KnownTablesSession();
+		Field field = CqlSession.class.getDeclaredField("session");
+		field.setAccessible(true);
+		field.set(session, new MockSession(queries));
+
+		table = new DboTableMeta();
+		table.setup(null, "Activity", false, false);
+	}
+
+	@Test
+	public void testDeleteThenInsertOfSameColumnKeepsOrder() {
+		List<Action> actions = new ArrayList<Action>();
+		RemoveColumn remove = new RemoveColumn();
+		remove.setColFamily(table);
+		remove.setRowKey(key("act1"));
+		remove.setColumn(key("name"));
+		actions.add(remove);
+		actions.add(persist("act1", 1));
+		session.sendChanges(actions, null);
+
+		Assert.assertEquals(1, queries.size());
+		String batch = queries.get(0);
+		Assert.assertTrue(batch, batch.startsWith("BEGIN UNLOGGED BATCH"));
+		//the removal, the blind delete of the put and then the insert
+		int firstDelete = batch.indexOf("DELETE");
+		int secondDelete = batch.indexOf("DELETE", firstDelete+1);
+		int insert = batch.indexOf("INSERT");
+		Assert.assertTrue(batch, firstDelete >= 0 && firstDelete < secondDelete && secondDelete < insert);
+
+		//a batch gives every statement the same timestamp unless they have their own, the insert must be last
+		List<Long> timestamps = timestamps(batch);
+		Assert.assertEquals(3, timestamps.size());
+		Assert.assertTrue(""+timestamps, timestamps.get(0) < timestamps.get(1));
+		Assert.assertTrue(""+timestamps, timestamps.get(1) < timestamps.get(2));
+	}
+
+	@Test
+	public void testBatchesPerFlush() {
+		List<Action> actions = new ArrayList<Action>();
+		int numColumns = CqlBatchWriter.MAX_STATEMENTS_PER_BATCH + 100;
+		actions.add(persist("act1", numColumns));
+		session.sendChanges(actions, null);
+
+		//a delete and an insert per column
+		Assert.assertEquals(3, queries.size());
+		int statements = 0;
+		for(String batch : queries) {
+			int count = timestamps(batch).size();
+			Assert.assertTrue(""+count, count <= CqlBatchWriter.MAX_STATEMENTS_PER_BATCH);
+			statements += count;
+		}
+		Assert.assertEquals(2*numColumns, statements);
+	}
+
+	@Test
+	public void testEmptyFlushSendsNothing() {
+		session.sendChanges(new ArrayList<Action>(), null);
+		Assert.assertEquals(0, queries.size());
+	}
+
+	private Persist persist(String rowKey, int numColumns) {
+		List<Column> columns = new ArrayList<Column>();
+		for(int i = 0; i < numColumns; i++) {
+			Column col = new Column();
+			String name = "name";
+			if(i > 0)
+				name = "name"+i;
+			col.setName(key(name));
+			col.setValue(key("value"+i));
+			columns.add(col);
+		}
+		Persist persist = new Persist();
+		persist.setColFamily(table);
+		persist.setRowKey(key(rowKey));
+		persist.setColumns(columns);
+		return persist;
+	}
+
+	private List<Long> timestamps(String batch) {
+		List<Long> timestamps = new ArrayList<Long>();
+		Matcher matcher = TIMESTAMP.matcher(batch);
+		while(matcher.find()) {
+			timestamps.add(Long.parseLong(matcher.group(1)));
+		}
+		return timestamps;
+	}
+
+	private byte[] key(String val) {
+		return StandardConverters.convertToBytes(val);
+	}
+
+	/**
+	 * Every table already exists so no cluster is needed to write
+	 */
+	private static class KnownTablesSession extends CqlSession {
+		@Override
+		protected String lookupOrCreate(String colFamily, MetaLookup ormSession) {
+			return colFamily;
+		}
+	}
+}
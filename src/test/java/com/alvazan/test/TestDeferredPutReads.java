@@ -0,0 +1,197 @@
+package com.alvazan.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.DbTypeEnum;
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.test.db.Account;
+import com.alvazan.test.db.ForSet;
+
+public class TestDeferredPutReads {
+
+	private NoSqlEntityManagerFactory factory;
+
+	@Before
+	public void setup() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.DEFER_PUT_READS, "true");
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		factory = FactorySingleton.createFactory(config, props);
+	}
+
+	@After
+	public void close() {
+		factory.close();
+	}
+
+	@Test
+	public void testIndexesFixedUpOnFlush() {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		String[] ids = new String[10];
+		for(int i = 0; i < ids.length; i++) {
+			Account acc = new Account();
+			acc.setName("before");
+			acc.setIsActive(true);
+			mgr.put(acc);
+			ids[i] = acc.getId();
+		}
+		mgr.flush();
+
+		//none of these were read in by this manager so put needs the rows to remove the old index entries
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		for(String id : ids) {
+			Account acc = new Account(id);
+			acc.setName("after");
+			acc.setIsActive(true);
+			mgr2.put(acc);
+		}
+		NoSqlEntityManager other = factory.createEntityManager();
+		Assert.assertEquals(10, Account.findAnd(other, "before", true).size());
+
+		mgr2.flush();
+
+		other.clear();
+		Assert.assertEquals(0, Account.findAnd(other, "before", true).size());
+		Assert.assertEquals(10, Account.findAnd(other, "after", true).size());
+	}
+
+	@Test
+	public void testFindSeesDeferredPut() {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Account acc = new Account();
+		acc.setName("dean");
+		acc.setIsActive(true);
+		mgr.put(acc);
+		mgr.flush();
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		Account detached = new Account(acc.getId());
+		detached.setName("joe");
+		detached.setIsActive(true);
+		mgr2.put(detached);
+
+		Assert.assertEquals("joe", mgr2.find(Account.class, acc.getId()).getName());
+		mgr2.flush();
+
+		NoSqlEntityManager other = factory.createEntityManager();
+		Assert.assertEquals(0, Account.findAnd(other, "dean", true).size());
+		Assert.assertEquals(1, Account.findAnd(other, "joe", true).size());
+	}
+
+	@Test
+	public void testChangeAfterDeferredPutNotWritten() {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Account acc = new Account();
+		acc.setName("dean");
+		acc.setIsActive(true);
+		mgr.put(acc);
+		mgr.flush();
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		Account detached = new Account(acc.getId());
+		detached.setName("joe");
+		detached.setIsActive(true);
+		mgr2.put(detached);
+		//without a second put this change is never written, same as when put reads the row right away
+		detached.setName("changed");
+		mgr2.flush();
+
+		NoSqlEntityManager other = factory.createEntityManager();
+		Assert.assertEquals("joe", other.find(Account.class, acc.getId()).getName());
+		Assert.assertEquals(1, Account.findAnd(other, "joe", true).size());
+		Assert.assertEquals(0, Account.findAnd(other, "changed", true).size());
+	}
+
+	@Test
+	public void testDeferredPutsCountTowardFlushChunk() {
+		factory.close();
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.DEFER_PUT_READS, "true");
+		props.put(Bootstrap.FLUSH_CHUNK_SIZE, "5");
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		factory = FactorySingleton.createFactory(config, props);
+
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		String[] ids = new String[10];
+		for(int i = 0; i < ids.length; i++) {
+			Account acc = new Account();
+			acc.setName("before");
+			acc.setIsActive(true);
+			mgr.put(acc);
+			ids[i] = acc.getId();
+		}
+		mgr.flush();
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		for(String id : ids) {
+			Account acc = new Account(id);
+			acc.setName("after");
+			acc.setIsActive(true);
+			mgr2.put(acc);
+		}
+
+		//no flush yet but the chunks went out as the puts piled up
+		NoSqlEntityManager other = factory.createEntityManager();
+		Assert.assertEquals(10, Account.findAnd(other, "after", true).size());
+		Assert.assertEquals(0, Account.findAnd(other, "before", true).size());
+	}
+
+	@Test
+	public void testRemoveAfterDeferredPut() {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Account acc = new Account();
+		acc.setName("dean");
+		acc.setIsActive(true);
+		mgr.put(acc);
+		mgr.flush();
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		Account detached = new Account(acc.getId());
+		detached.setName("joe");
+		detached.setIsActive(true);
+		mgr2.put(detached);
+		mgr2.remove(detached);
+		mgr2.flush();
+
+		NoSqlEntityManager other = factory.createEntityManager();
+		Assert.assertNull(other.find(Account.class, acc.getId()));
+		Assert.assertEquals(0, Account.findAnd(other, "dean", true).size());
+		Assert.assertEquals(0, Account.findAnd(other, "joe", true).size());
+	}
+
+	@Test
+	public void testUpsert() {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		ForSet set = new ForSet();
+		set.setName("first");
+		mgr.upsert(set);
+		mgr.flush();
+
+		ForSet detached = new ForSet();
+		detached.setId(set.getId());
+		detached.setName("second");
+		mgr.upsert(detached);
+		mgr.flush();
+
+		NoSqlEntityManager other = factory.createEntityManager();
+		Assert.assertEquals("second", other.find(ForSet.class, set.getId()).getName());
+	}
+
+	@Test
+	public void testUpsertOfIndexedEntityFails() {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		try {
+			mgr.upsert(new Account());
+			Assert.fail("Account has indexed fields so the old index entries would be left behind");
+		} catch(IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.alvazan.test;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.test.db.PackageFieldEntity;
+import com.alvazan.test.db.PrivateFieldEntity;
+
+public class TestFieldAccessor {
+
+	private static NoSqlEntityManagerFactory factory;
+	private NoSqlEntityManager mgr;
+
+	@BeforeClass
+	public static void setup() {
+		factory = FactorySingleton.createFactoryOnce();
+	}
+	
+	@Before
+	public void createEntityManager() {
+		mgr = factory.createEntityManager();
+	}
+	@After
+	public void clearDatabase() {
+		NoSqlEntityManager other = factory.createEntityManager();
+		other.clearDatabase(true);
+	}
+
+	@Test
+	public void testRoundTripThroughGeneratedAccessor() {
+		PackageFieldEntity entity = new PackageFieldEntity();
+		entity.setCount(5);
+		entity.setTotal(12345678901L);
+		entity.setActive(true);
+		entity.setRatio(0.25);
+		entity.setName("dean");
+		entity.setSecret("hidden");
+		mgr.put(entity);
+		mgr.flush();
+		Assert.assertNotNull(entity.getId());
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		PackageFieldEntity loaded = mgr2.find(PackageFieldEntity.class, entity.getId());
+		Assert.assertEquals(entity.getId(), loaded.getId());
+		Assert.assertEquals(5, loaded.getCount());
+		Assert.assertEquals(12345678901L, loaded.getTotal());
+		Assert.assertTrue(loaded.isActive());
+		Assert.assertEquals(0.25, loaded.getRatio(), 0.0);
+		Assert.assertEquals("dean", loaded.getName());
+		Assert.assertEquals("hidden", loaded.getSecret());
+	}
+
+	@Test
+	public void testNullsAndIndexUpdates() {
+		PackageFieldEntity entity = new PackageFieldEntity();
+		entity.setCount(1);
+		mgr.put(entity);
+		mgr.flush();
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		PackageFieldEntity loaded = mgr2.find(PackageFieldEntity.class, entity.getId());
+		Assert.assertNull(loaded.getRatio());
+		Assert.assertNull(loaded.getName());
+		Assert.assertFalse(loaded.isActive());
+
+		//changing an indexed field on the proxy must move it in the index
+		loaded.setCount(2);
+		mgr2.put(loaded);
+		mgr2.flush();
+
+		List<PackageFieldEntity> old = PackageFieldEntity.findByCount(mgr2, 1);
+		Assert.assertEquals(0, old.size());
+		List<PackageFieldEntity> moved = PackageFieldEntity.findByCount(mgr2, 2);
+		Assert.assertEquals(1, moved.size());
+		Assert.assertEquals(entity.getId(), moved.get(0).getId());
+	}
+
+	@Test
+	public void testPrivateFieldsThroughGeneratedAccessor() {
+		PrivateFieldEntity entity = new PrivateFieldEntity();
+		entity.setCount(7);
+		entity.setTotal(-12345678901L);
+		entity.setActive(true);
+		entity.setRatio(0.75);
+		entity.setWeight(1.5f);
+		entity.setLevel((short) 300);
+		entity.setFlags((byte) -3);
+		entity.setBigTotal(99L);
+		entity.setName("dean");
+		mgr.put(entity);
+		mgr.flush();
+		Assert.assertNotNull(entity.getId());
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		PrivateFieldEntity loaded = mgr2.find(PrivateFieldEntity.class, entity.getId());
+		Assert.assertEquals(entity.getId(), loaded.getId());
+		Assert.assertEquals(7, loaded.getCount());
+		Assert.assertEquals(-12345678901L, loaded.getTotal());
+		Assert.assertTrue(loaded.isActive());
+		Assert.assertEquals(0.75, loaded.getRatio(), 0.0);
+		Assert.assertEquals(1.5f, loaded.getWeight(), 0.0f);
+		Assert.assertEquals(300, loaded.getLevel());
+		Assert.assertEquals(-3, loaded.getFlags());
+		Assert.assertEquals(Long.valueOf(99), loaded.getBigTotal());
+		Assert.assertEquals("dean", loaded.getName());
+
+		//changing an indexed private field on the proxy must move it in the index
+		loaded.setCount(8);
+		loaded.setBigTotal(null);
+		mgr2.put(loaded);
+		mgr2.flush();
+
+		Assert.assertEquals(0, PrivateFieldEntity.findByCount(mgr2, 7).size());
+		List<PrivateFieldEntity> moved = PrivateFieldEntity.findByCount(mgr2, 8);
+		Assert.assertEquals(1, moved.size());
+		Assert.assertNull(moved.get(0).getBigTotal());
+		Assert.assertEquals("dean", moved.get(0).getName());
+	}
+}
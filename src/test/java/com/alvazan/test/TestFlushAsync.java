@@ -0,0 +1,184 @@
+package com.alvazan.test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z5api.FlushFuture;
+import com.alvazan.orm.api.z8spi.MetaLookup;
+import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.action.Action;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.action.Persist;
+import com.alvazan.orm.api.z8spi.action.Remove;
+import com.alvazan.orm.api.z8spi.action.RemoveEnum;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.layer5.nosql.cache.WriteBehindPipeline;
+import com.alvazan.test.db.Activity;
+
+public class TestFlushAsync {
+
+	private static NoSqlEntityManagerFactory factory;
+
+	@BeforeClass
+	public static void setup() {
+		factory = FactorySingleton.createFactoryOnce();
+	}
+
+	@After
+	public void clearDatabase() {
+		NoSqlEntityManager other = factory.createEntityManager();
+		other.clearDatabase(true);
+	}
+
+	@Test
+	public void testFlushesOfManyManagers() throws Exception {
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for(int i = 0; i < 20; i++) {
+			NoSqlEntityManager mgr = factory.createEntityManager();
+			Activity act = new Activity("async"+i);
+			act.setName("async");
+			act.setNumTimes(i);
+			mgr.put(act);
+			futures.add(mgr.flushAsync());
+		}
+		for(Future<Void> future : futures) {
+			Assert.assertNull(future.get(10, TimeUnit.SECONDS));
+			Assert.assertTrue(future.isDone());
+		}
+
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Assert.assertEquals(20, Activity.findByName(mgr, "async").size());
+		Assert.assertEquals(1, Activity.findNumTimes(mgr, 13).size());
+	}
+
+	@Test
+	public void testFlushDoesNotOvertakeFlushAsync() throws Exception {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Activity act = new Activity("ordered");
+		act.setName("first");
+		mgr.put(act);
+		mgr.flushAsync();
+
+		act.setName("second");
+		mgr.put(act);
+		mgr.flush();
+
+		NoSqlEntityManager other = factory.createEntityManager();
+		Assert.assertEquals("second", other.find(Activity.class, "ordered").getName());
+	}
+
+	@Test
+	public void testNothingToFlush() throws Exception {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Future<Void> future = mgr.flushAsync();
+		Assert.assertTrue(future.isDone());
+		future.get();
+	}
+
+	@Test
+	public void testFailureReachesTheFuture() throws Exception {
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		DboTableMeta missing = new DboTableMeta();
+		missing.setup(null, "NoSuchTable", false, false);
+		byte[] key = StandardConverters.convertToBytes("key");
+		mgr.getSession().put(missing, key, new ArrayList<Column>());
+
+		Future<Void> future = mgr.flushAsync();
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			Assert.fail("the table does not exist so the write should have failed");
+		} catch(ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testDisjointFlushesOfManySessionsShareABatch() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<List<Action>> sent = new ArrayList<List<Action>>();
+		final List<MetaLookup> lookups = new ArrayList<MetaLookup>();
+		InvocationHandler handler = new InvocationHandler() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(!"sendChanges".equals(method.getName()))
+					return null;
+				sent.add(new ArrayList<Action>((List<Action>) args[0]));
+				lookups.add((MetaLookup) args[1]);
+				//hold the first write so everything else is queued behind it
+				release.await();
+				return null;
+			}
+		};
+		WriteBehindPipeline pipeline = new WriteBehindPipeline(1000, 1000, 10);
+		Field field = WriteBehindPipeline.class.getDeclaredField("rawSession");
+		field.setAccessible(true);
+		field.set(pipeline, Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { NoSqlRawSession.class }, handler));
+		pipeline.setFactory(factory);
+
+		DboTableMeta table = new DboTableMeta();
+		table.setup(null, "Table", false, false);
+		Action removeA = remove(table, "a");
+		Action putA = persist(table, "a");
+		Action putB = persist(table, "b");
+		Action putC = persist(table, "c");
+
+		List<FlushFuture> futures = new ArrayList<FlushFuture>();
+		//as if from four different entity managers
+		futures.add(pipeline.submit(actions(removeA)));
+		futures.add(pipeline.submit(actions(putA)));
+		futures.add(pipeline.submit(actions(putB)));
+		futures.add(pipeline.submit(actions(putC)));
+		release.countDown();
+		for(FlushFuture future : futures) {
+			Assert.assertNull(future.get(10, TimeUnit.SECONDS));
+		}
+		pipeline.close();
+
+		//the put of row a can't share a timestamp with its remove, the other rows join it whoever flushed them
+		Assert.assertEquals(Arrays.asList(Arrays.asList(removeA), Arrays.asList(putA, putB, putC)), sent);
+		//the meta data is always looked up through the writer's own entity manager
+		Assert.assertEquals(2, lookups.size());
+		Assert.assertNotNull(lookups.get(0));
+		Assert.assertSame(lookups.get(0), lookups.get(1));
+	}
+
+	private List<Action> actions(Action action) {
+		List<Action> actions = new ArrayList<Action>();
+		actions.add(action);
+		return actions;
+	}
+
+	private Action persist(DboTableMeta table, String key) {
+		Persist persist = new Persist();
+		persist.setColFamily(table);
+		persist.setRowKey(StandardConverters.convertToBytes(key));
+		persist.setColumns(new ArrayList<Column>());
+		return persist;
+	}
+
+	private Action remove(DboTableMeta table, String key) {
+		Remove remove = new Remove();
+		remove.setColFamily(table);
+		remove.setRowKey(StandardConverters.convertToBytes(key));
+		remove.setAction(RemoveEnum.REMOVE_ENTIRE_ROW);
+		return remove;
+	}
+}
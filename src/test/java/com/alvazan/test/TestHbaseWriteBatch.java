@@ -0,0 +1,84 @@
+package com.alvazan.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alvazan.orm.layer9z.spi.db.hbase.HbaseWriteBatch;
+
+public class TestHbaseWriteBatch {
+
+	private static final byte[] INDEX_FAMILY = Bytes.toBytes("stringindice");
+	private static final byte[] FAMILY = Bytes.toBytes("activity");
+
+	private List<String> calls = new ArrayList<String>();
+
+	@Test
+	public void testFlushOfManyEntitiesIsTwoRoundTrips() throws Exception {
+		HbaseWriteBatch batch = new HbaseWriteBatch(mockTable());
+		byte[] indexRow = Bytes.toBytes("/Activity/name");
+		for(int i = 0; i < 100; i++) {
+			byte[] pk = Bytes.toBytes("act"+i);
+			Delete removeIndex = new Delete(indexRow);
+			removeIndex.deleteColumn(INDEX_FAMILY, pk);
+			batch.delete(removeIndex);
+
+			Put addIndex = new Put(indexRow);
+			addIndex.add(INDEX_FAMILY, pk, Bytes.toBytes("newName"));
+			batch.put(addIndex);
+
+			Put row = new Put(pk);
+			row.add(FAMILY, Bytes.toBytes("name"), Bytes.toBytes("newName"));
+			batch.put(row);
+		}
+		batch.send();
+
+		Assert.assertEquals(2, batch.getRoundTrips());
+		Assert.assertEquals("[delete(100), put(200), flushCommits]", calls.toString());
+	}
+
+	@Test
+	public void testDeleteAfterPutOfSameCellKeepsOrder() throws Exception {
+		HbaseWriteBatch batch = new HbaseWriteBatch(mockTable());
+		byte[] row = Bytes.toBytes("act1");
+		Put put = new Put(row);
+		put.add(FAMILY, Bytes.toBytes("name"), Bytes.toBytes("dean"));
+		batch.put(put);
+		//a different column of the same row does not need the put sent first
+		Delete other = new Delete(row);
+		other.deleteColumns(FAMILY, Bytes.toBytes("age"));
+		batch.delete(other);
+		Delete delete = new Delete(row);
+		delete.deleteColumns(FAMILY, Bytes.toBytes("name"));
+		batch.delete(delete);
+		batch.send();
+
+		Assert.assertEquals(3, batch.getRoundTrips());
+		Assert.assertEquals("[delete(1), put(1), flushCommits, delete(1)]", calls.toString());
+	}
+
+	private HTableInterface mockTable() {
+		InvocationHandler handler = new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(args != null && args.length == 1 && args[0] instanceof List) {
+					List<?> list = (List<?>) args[0];
+					calls.add(method.getName()+"("+list.size()+")");
+				} else {
+					calls.add(method.getName());
+				}
+				return null;
+			}
+		};
+		return (HTableInterface) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { HTableInterface.class }, handler);
+	}
+}
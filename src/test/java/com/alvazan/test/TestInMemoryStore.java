@@ -0,0 +1,196 @@
+package com.alvazan.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.DbTypeEnum;
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.conv.ByteArray;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.alvazan.orm.layer9z.spi.db.inmemory.DecimalComparator;
+import com.alvazan.orm.layer9z.spi.db.inmemory.IntegerComparator;
+import com.alvazan.orm.layer9z.spi.db.inmemory.SortType;
+import com.alvazan.orm.layer9z.spi.db.inmemory.Table;
+import com.alvazan.test.db.Account;
+
+public class TestInMemoryStore {
+
+	private File dataDir;
+
+	@Before
+	public void createDataDir() throws IOException {
+		dataDir = File.createTempFile("playorm", "store");
+		dataDir.delete();
+	}
+	@After
+	public void deleteDataDir() {
+		if(dataDir.exists()) {
+			for(File f : dataDir.listFiles()) {
+				f.delete();
+			}
+			dataDir.delete();
+		}
+	}
+
+	@Test
+	public void testIntegerComparatorMatchesBigInteger() {
+		IntegerComparator comparator = new IntegerComparator();
+		List<BigInteger> values = new ArrayList<BigInteger>();
+		Random r = new Random(5);
+		for(int i = 0; i < 300; i++) {
+			values.add(new BigInteger(r.nextInt(100)+1, r).multiply(BigInteger.valueOf(r.nextBoolean() ? 1 : -1)));
+		}
+		values.add(BigInteger.ZERO);
+		values.add(BigInteger.valueOf(255));
+		values.add(BigInteger.valueOf(-256));
+		values.add(BigInteger.valueOf(Long.MIN_VALUE));
+
+		for(BigInteger left : values) {
+			for(BigInteger right : values) {
+				ByteArray l = new ByteArray(StandardConverters.convertToBytes(left));
+				ByteArray rt = new ByteArray(StandardConverters.convertToBytes(right));
+				Assert.assertEquals(left+" vs "+right, Integer.signum(left.compareTo(right)), Integer.signum(comparator.compare(l, rt)));
+			}
+		}
+	}
+
+	@Test
+	public void testDecimalComparatorMatchesBigDecimal() {
+		DecimalComparator comparator = new DecimalComparator();
+		List<BigDecimal> values = new ArrayList<BigDecimal>();
+		Random r = new Random(7);
+		for(int i = 0; i < 300; i++) {
+			//mostly small values with mixed scales plus some too big for a long
+			int bits = i % 10 == 0 ? 90 : r.nextInt(50)+1;
+			BigInteger unscaled = new BigInteger(bits, r).multiply(BigInteger.valueOf(r.nextBoolean() ? 1 : -1));
+			values.add(new BigDecimal(unscaled, r.nextInt(30)-10));
+		}
+		values.add(new BigDecimal("1.0"));
+		values.add(new BigDecimal("1.00"));
+		values.add(new BigDecimal("-0.001"));
+		values.add(BigDecimal.ZERO);
+		values.add(new BigDecimal("0.000"));
+		values.add(new BigDecimal(Long.MAX_VALUE/10));
+
+		for(BigDecimal left : values) {
+			for(BigDecimal right : values) {
+				ByteArray l = new ByteArray(StandardConverters.convertToBytes(left));
+				ByteArray rt = new ByteArray(StandardConverters.convertToBytes(right));
+				Assert.assertEquals(left+" vs "+right, Integer.signum(left.compareTo(right)), Integer.signum(comparator.compare(l, rt)));
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentWritesToOneTable() throws InterruptedException {
+		final Table table = new Table("concurrent", SortType.INTEGER);
+		final int numThreads = 8;
+		final int perThread = 2000;
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int t = 0; t < numThreads; t++) {
+			final int threadNum = t;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for(int i = 0; i < perThread; i++) {
+							//every thread writes to the same 10 rows so rows are created and written concurrently
+							byte[] rowKey = StandardConverters.convertToBytes("row"+(i % 10));
+							byte[] name = StandardConverters.convertToBytes(threadNum * perThread + i);
+							Row row = table.findOrCreateRow(rowKey);
+							row.put(new Column(name, name));
+							row.getColumns().size();
+						}
+					} catch(Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		for(Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertNull(failure.get());
+		Assert.assertEquals(10, table.findAllKeys().size());
+		int total = 0;
+		for(byte[] key : table.findAllKeys()) {
+			List<Integer> names = new ArrayList<Integer>();
+			for(Column c : table.getRow(key).getColumns()) {
+				names.add(StandardConverters.convertFromBytes(Integer.class, c.getName()));
+			}
+			for(int i = 1; i < names.size(); i++) {
+				Assert.assertTrue(names.get(i-1) < names.get(i));
+			}
+			total += names.size();
+		}
+		Assert.assertEquals(numThreads * perThread, total);
+	}
+
+	@Test
+	public void testSurvivesRestart() {
+		//tiny snapshot size so we restart from a snapshot plus a log
+		NoSqlEntityManagerFactory factory = createPersistentFactory(200);
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Account dean = new Account("dean");
+		dean.setName("dean");
+		dean.setIsActive(true);
+		dean.setUsers(5f);
+		Account removed = new Account("removed");
+		removed.setName("dean");
+		removed.setIsActive(true);
+		mgr.put(dean);
+		mgr.put(removed);
+		mgr.flush();
+		mgr.remove(removed);
+		mgr.flush();
+		Account changed = mgr.find(Account.class, "dean");
+		changed.setUsers(7f);
+		mgr.put(changed);
+		mgr.flush();
+		factory.close();
+
+		factory = createPersistentFactory(0);
+		mgr = factory.createEntityManager();
+		Assert.assertNull(mgr.find(Account.class, "removed"));
+		Account found = mgr.find(Account.class, "dean");
+		Assert.assertEquals("dean", found.getName());
+		Assert.assertEquals(7f, found.getUsers(), 0.0001f);
+		List<Account> accounts = Account.findAnd(mgr, "dean", true);
+		Assert.assertEquals(1, accounts.size());
+		Assert.assertEquals("dean", accounts.get(0).getId());
+		factory.close();
+	}
+
+	private NoSqlEntityManagerFactory createPersistentFactory(long snapshotAfterBytes) {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.IN_MEMORY_DATA_DIR, dataDir.getAbsolutePath());
+		props.put(Bootstrap.IN_MEMORY_SNAPSHOT_AFTER_BYTES, snapshotAfterBytes);
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		return FactorySingleton.createFactory(config, props);
+	}
+}
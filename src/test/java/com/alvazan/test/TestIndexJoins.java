@@ -0,0 +1,257 @@
+package com.alvazan.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.DbTypeEnum;
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.base.Query;
+import com.alvazan.orm.api.z8spi.BatchListener;
+import com.alvazan.orm.api.z8spi.Cache;
+import com.alvazan.orm.api.z8spi.ColumnSliceInfo;
+import com.alvazan.orm.api.z8spi.Key;
+import com.alvazan.orm.api.z8spi.KeyValue;
+import com.alvazan.orm.api.z8spi.MetaLookup;
+import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.ScanInfo;
+import com.alvazan.orm.api.z8spi.action.Action;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder;
+import com.alvazan.orm.api.z8spi.iter.Cursor;
+import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.iter.ProxyTempCursor;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.test.db.Activity;
+
+public class TestIndexJoins {
+
+	private static final int NUM_ROWS = 60;
+	private static NoSqlEntityManagerFactory factory;
+	private NoSqlEntityManager mgr;
+
+	@BeforeClass
+	public static void setup() {
+		factory = FactorySingleton.createFactoryOnce();
+	}
+
+	@Before
+	public void createEntityManager() {
+		mgr = factory.createEntityManager();
+		putRows(mgr);
+	}
+
+	private void putRows(NoSqlEntityManager mgr) {
+		for(int i = 0; i < NUM_ROWS; i++) {
+			Activity act = new Activity(id(i));
+			if(i % 2 == 0)
+				act.setName("joe");
+			else
+				act.setName("bob");
+			if(i % 3 == 0)
+				act.setNumTimes(5);
+			else
+				act.setNumTimes(i);
+			act.setMyFloat(i);
+			mgr.put(act);
+		}
+		mgr.flush();
+	}
+
+	@After
+	public void clearDatabase() {
+		NoSqlEntityManager other = factory.createEntityManager();
+		other.clearDatabase(true);
+	}
+
+	@Test
+	public void testHashJoinInMemory() {
+		List<String> ids = findWithAnd(1000, false);
+		Assert.assertEquals(expectedEqIds(), ids);
+	}
+
+	@Test
+	public void testSortMergeJoin() {
+		//neither side of name=joe(30 rows) and numTimes=5(20 rows) fits so both pk ordered sides get merged
+		List<String> ids = findWithAnd(4, false);
+		Assert.assertEquals(expectedEqIds(), ids);
+
+		List<String> reversed = findWithAnd(4, true);
+		List<String> expected = expectedEqIds();
+		Collections.reverse(expected);
+		Assert.assertEquals(expected, reversed);
+	}
+
+	@Test
+	public void testSpilledHashJoin() {
+		//range scans are not in primary key order so with a tiny budget the right side spills to disk
+		Query<Activity> query = mgr.createNamedQuery(Activity.class, "findAboveWithFloatBelow");
+		query.setJoinMemoryBudget(7);
+		query.setParameter("begin", 10L);
+		query.setParameter("max", 50f);
+		List<Activity> results = query.getResultList(0, null);
+
+		int expected = 0;
+		for(int i = 0; i < NUM_ROWS; i++) {
+			if(i % 3 != 0 && i > 10 && i < 50)
+				expected++;
+		}
+		Assert.assertEquals(expected, results.size());
+		for(Activity act : results) {
+			Assert.assertTrue(act.getNumTimes() > 10 && act.getMyFloat() < 50);
+		}
+	}
+
+	@Test
+	public void testEqScansOutOfPkOrderAreNotMerged() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.SPI_IMPL, new UnorderedIndexSession());
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		NoSqlEntityManagerFactory unordered = FactorySingleton.createFactory(config, props);
+		try {
+			mgr = unordered.createEntityManager();
+			putRows(mgr);
+
+			//same budget as testSortMergeJoin but a merge of these sides would never match act00
+			List<String> ids = findWithAnd(4, false);
+			Collections.sort(ids);
+			Assert.assertEquals(expectedEqIds(), ids);
+		} finally {
+			unordered.close();
+		}
+	}
+
+	private List<String> findWithAnd(int budget, boolean backward) {
+		Query<Activity> query = mgr.createNamedQuery(Activity.class, "findWithAnd");
+		query.setJoinMemoryBudget(budget);
+		query.setParameter("name", "joe");
+		query.setParameter("numTimes", 5L);
+		Cursor<KeyValue<Activity>> results = query.getResults();
+		List<String> ids = new ArrayList<String>();
+		if(backward) {
+			results.afterLast();
+			while(results.previous()) {
+				ids.add(results.getCurrent().getValue().getId());
+			}
+		} else {
+			while(results.next()) {
+				ids.add(results.getCurrent().getValue().getId());
+			}
+		}
+		return ids;
+	}
+
+	private List<String> expectedEqIds() {
+		List<String> ids = new ArrayList<String>();
+		for(int i = 0; i < NUM_ROWS; i++) {
+			if(i % 2 == 0 && i % 3 == 0)
+				ids.add(id(i));
+		}
+		return ids;
+	}
+
+	private static String id(int i) {
+		if(i < 10)
+			return "act0"+i;
+		return "act"+i;
+	}
+
+	/**
+	 * Hands back the entries of an EQ index scan with the first one moved to the end like a store that keeps
+	 * index entries in natural order does once that entry is rewritten.  The read ahead of the planner only
+	 * sees the sorted front of it.
+	 */
+	private static class UnorderedIndexSession implements NoSqlRawSession {
+		@Inject
+		@Named("sub")
+		private NoSqlRawSession session;
+
+		@Override
+		public AbstractCursor<IndexColumn> scanIndex(ScanInfo scan, Key from, Key to, Integer batchSize, BatchListener l, MetaLookup mgr) {
+			AbstractCursor<IndexColumn> cursor = session.scanIndex(scan, from, to, batchSize, l, mgr);
+			if(from == null || to == null)
+				return cursor;
+			List<IndexColumn> entries = new ArrayList<IndexColumn>();
+			while(true) {
+				Holder<IndexColumn> holder = cursor.nextImpl();
+				if(holder == null)
+					break;
+				entries.add(holder.getValue());
+			}
+			if(entries.size() > 1)
+				entries.add(entries.remove(0));
+			return new ProxyTempCursor<IndexColumn>(entries);
+		}
+
+		@Override
+		public boolean isIndexPkOrdered() {
+			return false;
+		}
+
+		@Override
+		public void sendChanges(List<Action> actions, MetaLookup mgr) {
+			session.sendChanges(actions, mgr);
+		}
+
+		@Override
+		public void clearDatabase() {
+			session.clearDatabase();
+		}
+
+		@Override
+		public void start(Map<String, Object> properties) {
+			session.start(properties);
+		}
+
+		@Override
+		public void close() {
+			session.close();
+		}
+
+		@Override
+		public AbstractCursor<Column> columnSlice(ColumnSliceInfo sliceInfo, Integer batchSize, BatchListener l, MetaLookup mgr) {
+			return session.columnSlice(sliceInfo, batchSize, l, mgr);
+		}
+
+		@Override
+		public AbstractCursor<IndexColumn> scanIndex(ScanInfo scanInfo, List<byte[]> values, BatchListener l, MetaLookup mgr) {
+			return session.scanIndex(scanInfo, values, l, mgr);
+		}
+
+		@Override
+		public AbstractCursor<KeyValue<Row>> find(DboTableMeta colFamily, DirectCursor<byte[]> rowKeys, Cache cache, int batchSize, BatchListener l, MetaLookup mgr) {
+			return session.find(colFamily, rowKeys, cache, batchSize, l, mgr);
+		}
+
+		@Override
+		public void readMetaAndCreateTable(MetaLookup mgr, String colFamily) {
+			session.readMetaAndCreateTable(mgr, colFamily);
+		}
+
+		@Override
+		public AbstractCursor<Row> allRows(DboTableMeta colFamily, MetaLookup mgr, int batchSize) {
+			return session.allRows(colFamily, mgr, batchSize);
+		}
+
+		@Override
+		public Object getDriverHelper() {
+			return session.getDriverHelper();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.alvazan.test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z3api.NoSqlTypedSession;
+import com.alvazan.orm.api.z5api.IndexPoint;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.alvazan.orm.api.z8spi.meta.DboColumnIdMeta;
+import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.test.db.ShardedTrade;
+
+public class TestIndexShards {
+
+	private static NoSqlEntityManagerFactory factory;
+	private NoSqlEntityManager mgr;
+
+	@BeforeClass
+	public static void setup() {
+		factory = FactorySingleton.createFactoryOnce();
+	}
+	
+	@Before
+	public void createEntityManager() {
+		mgr = factory.createEntityManager();
+	}
+	@After
+	public void clearDatabase() {
+		NoSqlEntityManager other = factory.createEntityManager();
+		other.clearDatabase(true);
+	}
+
+	@Test
+	public void testEntriesSpreadAcrossShards() {
+		Set<Integer> shards = new HashSet<Integer>();
+		for(int i = 0; i < 40; i++) {
+			ShardedTrade trade = createTrade(i % 10, "sym"+(i % 4));
+			shards.add(DboColumnMeta.shardFor(trade.getId().getBytes(), 4));
+		}
+		mgr.flush();
+
+		//with 40 generated keys we should have hit more than one shard or the test below proves nothing
+		Assert.assertTrue(shards.size() > 1);
+
+		List<ShardedTrade> trades = ShardedTrade.findByNumber(mgr, 3);
+		Assert.assertEquals(4, trades.size());
+
+		List<ShardedTrade> bySymbol = ShardedTrade.findBySymbol(mgr, "sym2");
+		Assert.assertEquals(10, bySymbol.size());
+	}
+
+	@Test
+	public void testRangeScanIsMergedInOrder() {
+		for(int i = 0; i < 30; i++) {
+			createTrade(29 - i, "sym");
+		}
+		mgr.flush();
+
+		List<ShardedTrade> trades = ShardedTrade.findBetween(mgr, 5, 25);
+		Assert.assertEquals(20, trades.size());
+		int previous = Integer.MIN_VALUE;
+		for(ShardedTrade trade : trades) {
+			Assert.assertTrue("results out of order", trade.getNumber() >= previous);
+			previous = trade.getNumber();
+		}
+		Assert.assertEquals(5, trades.get(0).getNumber());
+		Assert.assertEquals(24, trades.get(19).getNumber());
+	}
+
+	@Test
+	public void testUpdateRemovesOldShardEntry() {
+		ShardedTrade trade = createTrade(7, "sym");
+		mgr.flush();
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		ShardedTrade existing = mgr2.find(ShardedTrade.class, trade.getId());
+		existing.setNumber(8);
+		mgr2.put(existing);
+		mgr2.flush();
+
+		NoSqlEntityManager mgr3 = factory.createEntityManager();
+		Assert.assertEquals(0, ShardedTrade.findByNumber(mgr3, 7).size());
+		Assert.assertEquals(1, ShardedTrade.findByNumber(mgr3, 8).size());
+
+		ShardedTrade updated = mgr3.find(ShardedTrade.class, trade.getId());
+		mgr3.remove(updated);
+		mgr3.flush();
+		NoSqlEntityManager mgr4 = factory.createEntityManager();
+		Assert.assertEquals(0, ShardedTrade.findByNumber(mgr4, 8).size());
+	}
+
+	@Test
+	public void testReindexUsesShardOfKey() {
+		ShardedTrade trade = createTrade(7, "sym");
+		mgr.flush();
+
+		//what CmdIndex does when an index point has the wrong value
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		DboTableMeta table = mgr2.find(DboTableMeta.class, "ShardedTrade");
+		DboColumnIdMeta idMeta = table.getIdColumnMeta();
+		DboColumnMeta colMeta = table.getColumnMeta("number");
+		byte[] pk = idMeta.convertToStorage2(trade.getId());
+		NoSqlTypedSession s = mgr2.getTypedSession();
+		s.removeIndexPoint(indexPoint(idMeta, colMeta, pk, 7), null, null);
+		s.addIndexPoint(indexPoint(idMeta, colMeta, pk, 9), null, null);
+		s.flush();
+
+		NoSqlEntityManager mgr3 = factory.createEntityManager();
+		Assert.assertEquals(0, ShardedTrade.findByNumber(mgr3, 7).size());
+		List<ShardedTrade> trades = ShardedTrade.findByNumber(mgr3, 9);
+		Assert.assertEquals(1, trades.size());
+		Assert.assertEquals(trade.getId(), trades.get(0).getId());
+	}
+
+	private IndexPoint indexPoint(DboColumnIdMeta idMeta, DboColumnMeta colMeta, byte[] pk, int value) {
+		IndexColumn col = new IndexColumn();
+		col.setColumnName(colMeta.getColumnName());
+		col.setPrimaryKey(pk);
+		col.setIndexedValue(StandardConverters.convertToBytes(value));
+		return new IndexPoint(idMeta, col, colMeta);
+	}
+
+	private ShardedTrade createTrade(int number, String symbol) {
+		ShardedTrade trade = new ShardedTrade();
+		trade.setNumber(number);
+		trade.setSymbol(symbol);
+		mgr.put(trade);
+		return trade;
+	}
+}
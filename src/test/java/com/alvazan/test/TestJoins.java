@@ -14,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import com.alvazan.orm.api.base.DbTypeEnum;
 import com.alvazan.orm.api.base.NoSqlEntityManager;
 import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.base.Query;
 import com.alvazan.orm.api.z3api.NoSqlTypedSession;
 import com.alvazan.orm.api.z3api.QueryResult;
 import com.alvazan.orm.api.z5api.IndexColumnInfo;
@@ -163,6 +164,32 @@ public class TestJoins {
 		Assert.assertEquals("anemail1", myRow.getColumn("name").getValue());
 	}
 	
+	@Test
+	public void testPrefetchJoinedAccounts() {
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		Query<Activity> query = mgr2.createNamedQuery(Activity.class, "findJoinOnAccount");
+		query.setParameter("max", 15L);
+		query.setParameter("active", false);
+		query.prefetch("a");
+		List<Activity> activities = query.getResultList(0, null);
+		Assert.assertEquals(2, activities.size());
+
+		//the accounts were read with the activities so removing them now doesn't matter to mgr2
+		NoSqlEntityManager other = factory.createEntityManager();
+		other.remove(other.find(Account.class, "acc1"));
+		other.flush();
+
+		for(Activity act : activities) {
+			Assert.assertFalse(act.getAccount().getIsActive());
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testPrefetchUnknownAlias() {
+		Query<Activity> query = mgr.createNamedQuery(Activity.class, "findJoinOnAccount");
+		query.prefetch("b");
+	}
+
 	@Test
 	public void testInnerJoin() throws InterruptedException {
 		NoSqlTypedSession s = mgr.getTypedSession();
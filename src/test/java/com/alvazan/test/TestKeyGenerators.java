@@ -0,0 +1,78 @@
+package com.alvazan.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.spi.CompactKeyGenerator;
+import com.alvazan.orm.api.base.spi.UniqueKeyGenerator;
+
+public class TestKeyGenerators {
+
+	private static final int THREADS = 16;
+	private static final int KEYS_PER_THREAD = 5000;
+
+	@Test
+	public void testUniqueKeysFromManyThreads() throws InterruptedException {
+		List<Object> keys = generateFromManyThreads(false);
+		Assert.assertEquals(keys.size(), new HashSet<Object>(keys).size());
+	}
+
+	@Test
+	public void testCompactKeysFromManyThreads() throws InterruptedException {
+		List<Object> keys = generateFromManyThreads(true);
+		Assert.assertEquals(keys.size(), new HashSet<Object>(keys).size());
+	}
+
+	@Test
+	public void testCompactKeysInTimeOrder() {
+		long last = CompactKeyGenerator.generateKey();
+		//more than the 4096 of the sequence so we go past the end of a milli
+		for(int i = 0; i < 10000; i++) {
+			long key = CompactKeyGenerator.generateKey();
+			Assert.assertTrue(key > last);
+			Assert.assertEquals(CompactKeyGenerator.getNodeId(), (key >>> 12) & 1023);
+			last = key;
+		}
+	}
+
+	private List<Object> generateFromManyThreads(final boolean compact) throws InterruptedException {
+		final List<Object> keys = Collections.synchronizedList(new ArrayList<Object>());
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		for(int i = 0; i < THREADS; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					List<Object> generated = new ArrayList<Object>();
+					try {
+						start.await();
+						for(int n = 0; n < KEYS_PER_THREAD; n++) {
+							if(compact)
+								generated.add(CompactKeyGenerator.generateKey());
+							else
+								generated.add(UniqueKeyGenerator.generateKey());
+						}
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					} finally {
+						keys.addAll(generated);
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+		start.countDown();
+		done.await();
+		Set<Object> unique = new HashSet<Object>(keys);
+		Assert.assertEquals(THREADS * KEYS_PER_THREAD, keys.size());
+		Assert.assertEquals(keys.size(), unique.size());
+		return keys;
+	}
+}
@@ -11,6 +11,7 @@ import org.junit.Test;
 
 import com.alvazan.orm.api.base.NoSqlEntityManager;
 import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.test.db.EntityWithCompactKey;
 import com.alvazan.test.db.EntityWithDateTimeKey;
 import com.alvazan.test.db.EntityWithIntKey;
 import com.alvazan.test.db.EntityWithUUIDKey;
@@ -64,6 +65,20 @@ public class TestKeysAndBasic {
 		Assert.assertEquals(k.getSomething(), entity.getSomething());
 	}
 	
+	@Test
+	public void testCompactGeneratedKey() {
+		EntityWithCompactKey k = new EntityWithCompactKey();
+		k.setSomething("compact");
+		
+		mgr.put(k);
+		mgr.flush();
+		Assert.assertNotNull(k.getId());
+		
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		EntityWithCompactKey entity = mgr2.find(EntityWithCompactKey.class, k.getId());
+		Assert.assertEquals(k.getSomething(), entity.getSomething());
+	}
+	
 	@Test
 	public void testUUIDKey() {
 		EntityWithUUIDKey enUID = new EntityWithUUIDKey();
@@ -1,6 +1,13 @@
 package com.alvazan.test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -10,10 +17,29 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.DbTypeEnum;
 import com.alvazan.orm.api.base.NoSqlEntityManager;
 import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
 import com.alvazan.orm.api.exc.ChildWithNoPkException;
 import com.alvazan.orm.api.exc.RowNotFoundException;
+import com.alvazan.orm.api.z8spi.BatchListener;
+import com.alvazan.orm.api.z8spi.Cache;
+import com.alvazan.orm.api.z8spi.ColumnSliceInfo;
+import com.alvazan.orm.api.z8spi.Key;
+import com.alvazan.orm.api.z8spi.KeyValue;
+import com.alvazan.orm.api.z8spi.MetaLookup;
+import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.ScanInfo;
+import com.alvazan.orm.api.z8spi.action.Action;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder;
+import com.alvazan.orm.api.z8spi.iter.DirectCursor;
+import com.alvazan.orm.api.z8spi.iter.ProxyTempCursor;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
 import com.alvazan.test.db.Account;
 import com.alvazan.test.db.Activity;
 import com.alvazan.test.db.EntityWithUUIDKey;
@@ -213,6 +239,67 @@ public class TestManyToOne {
 		Assert.assertEquals(entity.getId(), user2.getUuidEntity().getId());
 	}
 
+	@Test
+	public void testAccountsOfQueryResultLoadedTogether() {
+		for(int i = 0; i < 5; i++) {
+			Account acc = new Account("batchAcc"+i);
+			acc.setName("account"+i);
+			mgr.put(acc);
+			Activity act = new Activity("batchAct"+i);
+			act.setName("batch");
+			act.setAccount(acc);
+			mgr.put(act);
+		}
+		mgr.flush();
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		List<Activity> activities = Activity.findByName(mgr2, "batch");
+		Assert.assertEquals(5, activities.size());
+		Assert.assertEquals("account0", activities.get(0).getAccount().getName());
+
+		//the first getName read every account so removing them now doesn't matter to mgr2
+		NoSqlEntityManager other = factory.createEntityManager();
+		for(int i = 1; i < 5; i++) {
+			other.remove(other.find(Account.class, "batchAcc"+i));
+		}
+		other.flush();
+
+		for(Activity act : activities) {
+			Account acc = act.getAccount();
+			Assert.assertEquals("account"+act.getId().substring("batchAct".length()), acc.getName());
+		}
+	}
+
+	@Test
+	public void testBatchMatchesAccountsByKey() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.SPI_IMPL, new ReversedFindSession());
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		NoSqlEntityManagerFactory reversed = FactorySingleton.createFactory(config, props);
+		try {
+			NoSqlEntityManager mgr1 = reversed.createEntityManager();
+			for(int i = 0; i < 3; i++) {
+				Account acc = new Account("keyAcc"+i);
+				acc.setName("account"+i);
+				mgr1.put(acc);
+				Activity act = new Activity("keyAct"+i);
+				act.setName("bykey");
+				act.setAccount(acc);
+				mgr1.put(act);
+			}
+			mgr1.flush();
+
+			NoSqlEntityManager mgr2 = reversed.createEntityManager();
+			List<Activity> activities = Activity.findByName(mgr2, "bykey");
+			Assert.assertEquals(3, activities.size());
+			for(Activity act : activities) {
+				Assert.assertEquals("account"+act.getId().substring("keyAct".length()), act.getAccount().getName());
+			}
+		} finally {
+			reversed.close();
+		}
+	}
+
 	private Activity readWriteBasic(NoSqlEntityManager mgr) {
 		Account acc = new Account("acc1");
 		acc.setName(ACCOUNT_NAME);
@@ -240,4 +327,83 @@ public class TestManyToOne {
 		
 		return activityResult;
 	}
+
+	/**
+	 * Hands back the rows of a find of many keys in reverse like a provider that does not keep the order of the
+	 * keys(cassandra's multiget for one)
+	 */
+	private static class ReversedFindSession implements NoSqlRawSession {
+		@Inject
+		@Named("sub")
+		private NoSqlRawSession session;
+
+		@Override
+		public AbstractCursor<KeyValue<Row>> find(DboTableMeta colFamily, DirectCursor<byte[]> rowKeys, Cache cache, int batchSize, BatchListener l, MetaLookup mgr) {
+			AbstractCursor<KeyValue<Row>> cursor = session.find(colFamily, rowKeys, cache, batchSize, l, mgr);
+			List<KeyValue<Row>> rows = new ArrayList<KeyValue<Row>>();
+			while(true) {
+				Holder<KeyValue<Row>> holder = cursor.nextImpl();
+				if(holder == null)
+					break;
+				rows.add(holder.getValue());
+			}
+			Collections.reverse(rows);
+			return new ProxyTempCursor<KeyValue<Row>>(rows);
+		}
+
+		@Override
+		public void sendChanges(List<Action> actions, MetaLookup mgr) {
+			session.sendChanges(actions, mgr);
+		}
+
+		@Override
+		public void clearDatabase() {
+			session.clearDatabase();
+		}
+
+		@Override
+		public void start(Map<String, Object> properties) {
+			session.start(properties);
+		}
+
+		@Override
+		public void close() {
+			session.close();
+		}
+
+		@Override
+		public AbstractCursor<Column> columnSlice(ColumnSliceInfo sliceInfo, Integer batchSize, BatchListener l, MetaLookup mgr) {
+			return session.columnSlice(sliceInfo, batchSize, l, mgr);
+		}
+
+		@Override
+		public AbstractCursor<IndexColumn> scanIndex(ScanInfo scan, Key from, Key to, Integer batchSize, BatchListener l, MetaLookup mgr) {
+			return session.scanIndex(scan, from, to, batchSize, l, mgr);
+		}
+
+		@Override
+		public AbstractCursor<IndexColumn> scanIndex(ScanInfo scanInfo, List<byte[]> values, BatchListener l, MetaLookup mgr) {
+			return session.scanIndex(scanInfo, values, l, mgr);
+		}
+
+		@Override
+		public boolean isIndexPkOrdered() {
+			return session.isIndexPkOrdered();
+		}
+
+		@Override
+		public void readMetaAndCreateTable(MetaLookup mgr, String colFamily) {
+			session.readMetaAndCreateTable(mgr, colFamily);
+		}
+
+		@Override
+		public AbstractCursor<Row> allRows(DboTableMeta colFamily, MetaLookup mgr, int batchSize) {
+			return session.allRows(colFamily, mgr, batchSize);
+		}
+
+		@Override
+		public Object getDriverHelper() {
+			return session.getDriverHelper();
+		}
+	}
 }
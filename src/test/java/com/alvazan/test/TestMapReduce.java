@@ -0,0 +1,200 @@
+package com.alvazan.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z8spi.meta.TypedRow;
+import com.alvazan.orm.hadoop.FactoryProvider;
+import com.alvazan.orm.hadoop.PlayOrmConfig;
+import com.alvazan.orm.hadoop.PlayOrmInputFormat;
+import com.alvazan.orm.hadoop.PlayOrmInputSplit;
+import com.alvazan.orm.hadoop.PlayOrmOutputFormat;
+import com.alvazan.orm.hadoop.PlayOrmRecordReader;
+import com.alvazan.test.db.Activity;
+
+public class TestMapReduce {
+
+	private static NoSqlEntityManagerFactory factory;
+	private NoSqlEntityManager mgr;
+
+	@BeforeClass
+	public static void setup() {
+		factory = FactorySingleton.createFactoryOnce();
+	}
+
+	@Before
+	public void createEntityManager() {
+		mgr = factory.createEntityManager();
+		//put in reverse so the index order is not the order they went in
+		for(int i = 9; i >= 0; i--) {
+			Activity act = new Activity("act"+i);
+			act.setName("original");
+			act.setNumTimes(i);
+			mgr.put(act);
+		}
+		mgr.flush();
+	}
+
+	@After
+	public void clearDatabase() {
+		NoSqlEntityManager other = factory.createEntityManager();
+		other.clearDatabase(true);
+	}
+
+	@Test
+	public void testIntegerIndexSplitsAreValueRanges() throws Exception {
+		Configuration conf = createConf();
+		PlayOrmConfig.setInputIndex(conf, "numTimes", null, null);
+		PlayOrmConfig.setNumSplits(conf, 4);
+		List<InputSplit> splits = new PlayOrmInputFormat().getSplits(new Job(conf));
+		Assert.assertEquals(4, splits.size());
+
+		List<Object> ids = readSplits(conf, splits);
+		Assert.assertEquals(10, ids.size());
+		for(int i = 0; i < 10; i++) {
+			Assert.assertEquals("act"+i, ids.get(i));
+		}
+	}
+
+	@Test
+	public void testStringIndexSplitsKeepEqualValuesTogether() throws Exception {
+		for(int i = 0; i < 10; i++) {
+			Activity act = mgr.find(Activity.class, "act"+i);
+			act.setUniqueColumn("value"+(i/2));
+			mgr.put(act);
+		}
+		mgr.flush();
+
+		Configuration conf = createConf();
+		PlayOrmConfig.setInputIndex(conf, "uniqueColumn", null, null);
+		List<InputSplit> splits = new PlayOrmInputFormat().getSplits(new Job(conf));
+		//3 per split but a split never ends between two equal values so the first two hold 4
+		Assert.assertEquals(3, splits.size());
+		Assert.assertEquals(4, splits.get(0).getLength());
+		Assert.assertEquals(4, splits.get(1).getLength());
+		Assert.assertEquals(2, splits.get(2).getLength());
+
+		List<Object> ids = readSplits(conf, splits);
+		Assert.assertEquals(10, ids.size());
+		for(int i = 0; i < 10; i++) {
+			Assert.assertEquals("act"+i, ids.get(i));
+		}
+	}
+
+	@Test
+	public void testCopyEntities() throws Exception {
+		Configuration conf = createConf();
+		PlayOrmConfig.setInputEntity(conf, Activity.class);
+		runJob(conf, EntityCopyMapper.class);
+
+		mgr.clear();
+		List<Activity> copies = Activity.findByName(mgr, "copy");
+		Assert.assertEquals(10, copies.size());
+		//the numTimes index was written as well
+		Assert.assertEquals(1, Activity.findNumTimes(mgr, 105).size());
+		Assert.assertEquals(10, Activity.findByName(mgr, "original").size());
+	}
+
+	@Test
+	public void testCopyTypedRows() throws Exception {
+		Configuration conf = createConf();
+		PlayOrmConfig.setInputIndex(conf, "numTimes", null, null);
+		PlayOrmConfig.setOutputColumnFamily(conf, "Activity");
+		//every put is its own flush
+		PlayOrmConfig.setOutputBatchSize(conf, 1);
+		runJob(conf, TypedRowCopyMapper.class);
+
+		mgr.clear();
+		Assert.assertEquals(10, Activity.findByName(mgr, "typed").size());
+		Activity act = mgr.find(Activity.class, "typed-act7");
+		Assert.assertEquals(7, act.getNumTimes());
+	}
+
+	private List<Object> readSplits(Configuration conf, List<InputSplit> splits) throws Exception {
+		List<Object> ids = new ArrayList<Object>();
+		for(InputSplit split : splits) {
+			//the reader gets the split after it went over the wire
+			DataOutputBuffer out = new DataOutputBuffer();
+			((PlayOrmInputSplit) split).write(out);
+			DataInputBuffer in = new DataInputBuffer();
+			in.reset(out.getData(), out.getLength());
+			PlayOrmInputSplit copy = new PlayOrmInputSplit();
+			copy.readFields(in);
+
+			PlayOrmRecordReader reader = new PlayOrmRecordReader();
+			reader.initialize(copy, new TaskAttemptContext(conf, new TaskAttemptID()));
+			while(reader.nextKeyValue()) {
+				ids.add(reader.getCurrentKey());
+			}
+			reader.close();
+		}
+		return ids;
+	}
+
+	private Configuration createConf() {
+		Configuration conf = new Configuration();
+		conf.set("mapred.job.tracker", "local");
+		conf.set("fs.default.name", "file:///");
+		conf.set("hadoop.tmp.dir", new File(System.getProperty("java.io.tmpdir"), "playorm-mapreduce").getAbsolutePath());
+		PlayOrmConfig.setFactoryProvider(conf, TestProvider.class);
+		PlayOrmConfig.setInputColumnFamily(conf, "Activity");
+		PlayOrmConfig.setRowsPerSplit(conf, 3);
+		PlayOrmConfig.setInputBatchSize(conf, 2);
+		return conf;
+	}
+
+	private void runJob(Configuration conf, Class<? extends Mapper<Object, Object, Object, Object>> mapper) throws Exception {
+		Job job = new Job(conf, "copy");
+		job.setMapperClass(mapper);
+		job.setNumReduceTasks(0);
+		job.setInputFormatClass(PlayOrmInputFormat.class);
+		job.setOutputFormatClass(PlayOrmOutputFormat.class);
+		Assert.assertTrue(job.waitForCompletion(false));
+	}
+
+	public static class TestProvider implements FactoryProvider {
+		@Override
+		public NoSqlEntityManagerFactory getFactory(Configuration conf) {
+			return FactorySingleton.createFactoryOnce();
+		}
+	}
+
+	public static class EntityCopyMapper extends Mapper<Object, Object, Object, Object> {
+		@Override
+		protected void map(Object key, Object value, Context context) throws IOException, InterruptedException {
+			Activity act = (Activity) value;
+			Activity copy = new Activity("copy-"+key);
+			copy.setName("copy");
+			copy.setNumTimes(act.getNumTimes()+100);
+			context.write(copy.getId(), copy);
+		}
+	}
+
+	public static class TypedRowCopyMapper extends Mapper<Object, Object, Object, Object> {
+		@Override
+		protected void map(Object key, Object value, Context context) throws IOException, InterruptedException {
+			TypedRow row = (TypedRow) value;
+			row.setRowKey("typed-"+key);
+			row.addColumn("name", "typed");
+			context.write(row.getRowKey(), row);
+		}
+	}
+}
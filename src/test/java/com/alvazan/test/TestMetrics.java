@@ -0,0 +1,248 @@
+package com.alvazan.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.DbTypeEnum;
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z8spi.BatchListener;
+import com.alvazan.orm.api.z8spi.NoSqlRawSession;
+import com.alvazan.orm.api.z8spi.ScanInfo;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor;
+import com.alvazan.orm.api.z8spi.iter.CursorOfShards;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.api.z8spi.metrics.ColumnFamilyMetrics;
+import com.alvazan.orm.api.z8spi.metrics.Histogram;
+import com.alvazan.orm.api.z8spi.metrics.HistogramSnapshot;
+import com.alvazan.orm.api.z8spi.metrics.MetricsReporter;
+import com.alvazan.orm.api.z8spi.metrics.NoSqlMetrics;
+import com.alvazan.orm.api.z8spi.metrics.Operation;
+import com.alvazan.orm.logging.MetricsBatchListener;
+import com.alvazan.test.db.Account;
+import com.alvazan.test.db.ShardedTrade;
+
+public class TestMetrics {
+
+	private NoSqlEntityManagerFactory factory;
+
+	@After
+	public void close() {
+		if(factory != null)
+			factory.close();
+	}
+
+	private NoSqlEntityManagerFactory create(Map<String, Object> props) {
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		return FactorySingleton.createFactory(config, props);
+	}
+
+	@Test
+	public void testRecordedPerColumnFamily() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.METRICS_ENABLED, "true");
+		factory = create(props);
+		NoSqlMetrics metrics = factory.getMetrics();
+		Assert.assertTrue(metrics.isEnabled());
+		//setup already wrote the meta rows
+		long flushesBefore = metrics.getSendChangesLatency().getCount();
+
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		String[] ids = new String[5];
+		for(int i = 0; i < ids.length; i++) {
+			Account acc = new Account();
+			acc.setName("dean");
+			acc.setIsActive(true);
+			mgr.put(acc);
+			ids[i] = acc.getId();
+		}
+		mgr.flush();
+
+		Assert.assertEquals(flushesBefore+1, metrics.getSendChangesLatency().getCount());
+		Assert.assertTrue(metrics.getActionsPerFlush().getMax() >= ids.length);
+		ColumnFamilyMetrics accounts = metrics.getColumnFamilyMetrics().get("Account");
+		Assert.assertNotNull(accounts);
+		//the puts plus the index entries of each row
+		Assert.assertTrue(accounts.getActionsSent() > ids.length);
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		for(String id : ids) {
+			Account acc = mgr2.find(Account.class, id);
+			Assert.assertNotNull(acc);
+		}
+		HistogramSnapshot finds = accounts.getFindLatency();
+		Assert.assertTrue(finds.getCount() >= ids.length);
+		Assert.assertTrue(accounts.getRowsPerFetch().getSum() >= ids.length);
+		Assert.assertEquals(ids.length, accounts.getCacheHits() + accounts.getCacheMisses());
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		factory = create(new HashMap<String, Object>());
+		NoSqlMetrics metrics = factory.getMetrics();
+		Assert.assertFalse(metrics.isEnabled());
+
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Account acc = new Account();
+		acc.setName("dean");
+		mgr.put(acc);
+		mgr.flush();
+		mgr.find(Account.class, acc.getId());
+
+		//the metrics layer is not even in the chain so nothing shows up
+		Assert.assertEquals(0, metrics.getSendChangesLatency().getCount());
+		Assert.assertEquals(0, metrics.getColumnFamilyMetrics().size());
+	}
+
+	@Test
+	public void testJmxAndReporter() throws Exception {
+		final int[] reports = new int[1];
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.METRICS_JMX, "true");
+		props.put(Bootstrap.METRICS_REPORTER, new MetricsReporter() {
+			@Override
+			public void report(NoSqlMetrics metrics) {
+				synchronized(reports) {
+					reports[0]++;
+				}
+			}
+		});
+		factory = create(props);
+		Assert.assertTrue(factory.getMetrics().isEnabled());
+
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Account acc = new Account();
+		acc.setName("dean");
+		mgr.put(acc);
+		mgr.flush();
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		Set<ObjectName> names = server.queryNames(new ObjectName("com.alvazan.orm:type=NoSqlMetrics,*"), null);
+		boolean foundCf = false;
+		for(ObjectName name : names) {
+			if("\"Account\"".equals(name.getKeyProperty("cf"))) {
+				foundCf = true;
+				Assert.assertTrue((Long) server.getAttribute(name, "ActionsSent") > 0);
+			}
+		}
+		Assert.assertTrue(foundCf);
+
+		factory.close();
+		factory = null;
+		//close does a last report and takes the beans back out
+		synchronized(reports) {
+			Assert.assertEquals(1, reports[0]);
+		}
+		Assert.assertEquals(0, server.queryNames(new ObjectName("com.alvazan.orm:type=NoSqlMetrics,*"), null).size());
+	}
+
+	@Test
+	public void testShardedIndexScanTimesEachShard() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.METRICS_ENABLED, "true");
+		factory = create(props);
+
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		mgr.put(new ShardedTrade());
+		mgr.flush();
+		DboTableMeta table = mgr.find(DboTableMeta.class, "ShardedTrade");
+		ScanInfo info = ScanInfo.createScanInfo(table.getColumnMeta("number"), null, null);
+		Assert.assertEquals(4, info.getShardRowKeys().size());
+
+		//the first shard's fetch takes 100ms and the other shards start theirs while it is in flight
+		final AtomicInteger shardCount = new AtomicInteger();
+		InvocationHandler handler = new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(!"scanIndex".equals(method.getName()))
+					return null;
+				int shard = shardCount.getAndIncrement();
+				return new TimedShard((BatchListener) args[4], shard == 0 ? 0 : 50, shard == 0 ? 100 : 0);
+			}
+		};
+		NoSqlRawSession session = (NoSqlRawSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { NoSqlRawSession.class }, handler);
+
+		ColumnFamilyMetrics cfMetrics = factory.getMetrics().forColumnFamily("ShardedTrade");
+		long before = cfMetrics.getScanIndexLatency().getCount();
+		BatchListener listener = new MetricsBatchListener(null, cfMetrics, Operation.SCAN_INDEX);
+		AbstractCursor<IndexColumn> cursor = CursorOfShards.scanIndex(session, info, null, null, null, listener, null);
+		Assert.assertNull(cursor.nextImpl());
+
+		HistogramSnapshot scans = cfMetrics.getScanIndexLatency();
+		Assert.assertEquals(4, scans.getCount() - before);
+		Assert.assertTrue("max="+scans.getMax(), scans.getMax() >= 90*1000*1000L);
+	}
+
+	private static class TimedShard extends AbstractCursor<IndexColumn> {
+		private BatchListener listener;
+		private long waitMillis;
+		private long fetchMillis;
+
+		public TimedShard(BatchListener listener, long waitMillis, long fetchMillis) {
+			this.listener = listener;
+			this.waitMillis = waitMillis;
+			this.fetchMillis = fetchMillis;
+		}
+		@Override
+		public void beforeFirst() {
+		}
+		@Override
+		public void afterLast() {
+		}
+		@Override
+		public Holder<IndexColumn> nextImpl() {
+			sleep(waitMillis);
+			listener.beforeFetchingNextBatch();
+			sleep(fetchMillis);
+			listener.afterFetchingNextBatch(0);
+			return null;
+		}
+		@Override
+		public Holder<IndexColumn> previousImpl() {
+			return null;
+		}
+		private void sleep(long millis) {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	@Test
+	public void testHistogramPercentiles() {
+		Histogram histogram = new Histogram();
+		for(long i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		HistogramSnapshot snapshot = histogram.getSnapshot();
+		Assert.assertEquals(1000, snapshot.getCount());
+		Assert.assertEquals(500500, snapshot.getSum());
+		Assert.assertEquals(1000, snapshot.getMax());
+		//buckets are within 12.5% of the value
+		assertNear(500, snapshot.getMedian());
+		assertNear(900, snapshot.getPercentile90());
+		assertNear(990, snapshot.getPercentile99());
+		assertNear(999, snapshot.getPercentile999());
+	}
+
+	private void assertNear(long expected, long actual) {
+		Assert.assertTrue("expected="+expected+" actual="+actual, Math.abs(expected - actual) <= expected / 8);
+	}
+}
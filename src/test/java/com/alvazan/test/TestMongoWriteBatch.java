@@ -0,0 +1,135 @@
+package com.alvazan.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.alvazan.orm.layer9z.spi.db.mongodb.MongoWriteBatch;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MockDBCollection;
+import com.mongodb.MongoClient;
+
+public class TestMongoWriteBatch {
+
+	private List<String> calls = new ArrayList<String>();
+	private MongoClient client;
+	private MockDBCollection indexes;
+	private MockDBCollection activities;
+
+	@Before
+	public void setup() throws Exception {
+		//never connects since the collections below never send anything
+		client = new MongoClient("localhost");
+		DB db = client.getDB("test");
+		indexes = new MockDBCollection(db, "StringIndice", calls);
+		activities = new MockDBCollection(db, "Activity", calls);
+	}
+
+	@After
+	public void close() {
+		client.close();
+	}
+
+	@Test
+	public void testFlushOfManyEntities() {
+		MongoWriteBatch batch = new MongoWriteBatch();
+		for(int i = 0; i < 100; i++) {
+			byte[] pk = StandardConverters.convertToBytes("act"+i);
+			batch.removeIndex(indexes, "/Activity/name", "oldName", pk);
+			batch.insertIndex(indexes, "/Activity/name", "newName", pk);
+			batch.setColumns(activities, pk, columns("name", "newName"));
+		}
+		batch.send();
+
+		//was a read and a write for each index entry and a read, an insert and an update per row
+		Assert.assertEquals(102, batch.getRoundTrips());
+		Assert.assertEquals("StringIndice.remove(100)", calls.get(0));
+		Assert.assertEquals("StringIndice.insert(100)", calls.get(1));
+		Assert.assertEquals(Collections.nCopies(100, "Activity.update(upsert=true)"), calls.subList(2, calls.size()));
+	}
+
+	@Test
+	public void testSetAndUnsetOfRowIsOneUpdate() {
+		MongoWriteBatch batch = new MongoWriteBatch();
+		byte[] pk = StandardConverters.convertToBytes("act1");
+		batch.setColumns(activities, pk, columns("name", "dean"));
+		List<String> removed = new ArrayList<String>();
+		removed.add("age");
+		batch.unsetColumns(activities, pk, removed);
+		batch.send();
+
+		Assert.assertEquals("[Activity.update(upsert=true)]", calls.toString());
+		DBObject update = activities.getLastUpdate().get(1);
+		Assert.assertTrue(((DBObject)update.get("$set")).containsField("name"));
+		Assert.assertEquals(1, ((DBObject)update.get("$unset")).get("age"));
+	}
+
+	@Test
+	public void testUnsetOnlyDoesNotCreateRow() {
+		MongoWriteBatch batch = new MongoWriteBatch();
+		List<String> removed = new ArrayList<String>();
+		removed.add("age");
+		batch.unsetColumns(activities, StandardConverters.convertToBytes("act1"), removed);
+		batch.send();
+
+		Assert.assertEquals("[Activity.update(upsert=false)]", calls.toString());
+	}
+
+	@Test
+	public void testRemoveCancelsWaitingPut() {
+		MongoWriteBatch batch = new MongoWriteBatch();
+		byte[] pk = StandardConverters.convertToBytes("act1");
+		batch.insertIndex(indexes, "/Activity/name", "dean", pk);
+		batch.setColumns(activities, pk, columns("name", "dean"));
+		batch.removeIndex(indexes, "/Activity/name", "dean", pk);
+		batch.removeRow(activities, pk);
+		batch.send();
+
+		Assert.assertEquals("[StringIndice.remove(1), Activity.remove(1)]", calls.toString());
+	}
+
+	@Test
+	public void testIndexEntryAlreadyThere() {
+		indexes.setFailInsertWithDuplicate(true);
+		MongoWriteBatch batch = new MongoWriteBatch();
+		batch.insertIndex(indexes, "/Activity/name", "dean", StandardConverters.convertToBytes("act1"));
+		batch.send();
+
+		Assert.assertEquals("[StringIndice.insert(1)]", calls.toString());
+	}
+
+	@Test
+	public void testUniqueIndexDropsDuplicates() {
+		MongoWriteBatch.ensureUniqueIndex(indexes);
+
+		Assert.assertEquals("[StringIndice.createIndex]", calls.toString());
+		Assert.assertEquals(true, indexes.getLastIndexOptions().get("unique"));
+		Assert.assertEquals(true, indexes.getLastIndexOptions().get("dropDups"));
+	}
+
+	@Test
+	public void testUniqueIndexOnDuplicatesFailsLoudly() {
+		indexes.setFailIndexWithDuplicate(true);
+		try {
+			MongoWriteBatch.ensureUniqueIndex(indexes);
+			Assert.fail("an index collection we can't make unique should not be written to");
+		} catch(RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("StringIndice"));
+		}
+	}
+
+	private Map<String, Object> columns(String name, String value) {
+		Map<String, Object> columns = new HashMap<String, Object>();
+		columns.put(name, StandardConverters.convertToBytes(value));
+		return columns;
+	}
+}
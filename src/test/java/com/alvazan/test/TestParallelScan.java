@@ -0,0 +1,89 @@
+package com.alvazan.test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alvazan.orm.api.z8spi.iter.ParallelScan;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan.Sink;
+import com.alvazan.orm.api.z8spi.iter.ParallelScan.Split;
+import com.alvazan.orm.api.z8spi.iter.ScanSettings;
+
+public class TestParallelScan {
+
+	private ScanSettings settings = new ScanSettings(4);
+
+	@After
+	public void close() {
+		settings.close();
+	}
+
+	@Test
+	public void testEverySplitIsScanned() {
+		List<Split<Integer>> splits = new ArrayList<Split<Integer>>();
+		for(int i = 0; i < 10; i++) {
+			splits.add(new RangeSplit(i * 1000, (i+1) * 1000));
+		}
+		//a tiny queue so the splits have to wait on the caller
+		ParallelScan<Integer> scan = new ParallelScan<Integer>(splits, settings, 16);
+		scan.start();
+
+		Set<Integer> found = new HashSet<Integer>();
+		for(Integer val = scan.next(); val != null; val = scan.next()) {
+			Assert.assertTrue("duplicate="+val, found.add(val));
+		}
+		Assert.assertEquals(10000, found.size());
+		Assert.assertNull(scan.next());
+	}
+
+	@Test
+	public void testNoSplits() {
+		ParallelScan<Integer> scan = new ParallelScan<Integer>(new ArrayList<Split<Integer>>(), settings, 16);
+		scan.start();
+		Assert.assertNull(scan.next());
+	}
+
+	@Test
+	public void testFailedSplitFailsTheScan() {
+		List<Split<Integer>> splits = new ArrayList<Split<Integer>>();
+		splits.add(new RangeSplit(0, 100000));
+		splits.add(new Split<Integer>() {
+			@Override
+			public void scan(Sink<Integer> sink) {
+				throw new IllegalStateException("region server went away");
+			}
+		});
+		ParallelScan<Integer> scan = new ParallelScan<Integer>(splits, settings, 16);
+		scan.start();
+		try {
+			while(scan.next() != null) {
+			}
+			Assert.fail("should have failed");
+		} catch(IllegalStateException e) {
+			Assert.assertEquals("region server went away", e.getMessage());
+		}
+	}
+
+	private static class RangeSplit implements Split<Integer> {
+		private int from;
+		private int to;
+
+		private RangeSplit(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public void scan(Sink<Integer> sink) {
+			for(int i = from; i < to; i++) {
+				if(!sink.add(i))
+					return;
+			}
+		}
+	}
+}
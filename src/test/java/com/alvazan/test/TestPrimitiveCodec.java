@@ -0,0 +1,189 @@
+package com.alvazan.test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alvazan.orm.api.z8spi.conv.Converters;
+import com.alvazan.orm.api.z8spi.conv.PrimitiveCodec;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.eaio.uuid.UUID;
+
+/**
+ * Checks the converters still write and read exactly what they did when everything went through
+ * BigInteger/BigDecimal(the old code is inlined below) since stored data and index order depend on it
+ */
+public class TestPrimitiveCodec {
+
+	private static final int COUNT = 200000;
+
+	@Test
+	public void testIntegersMatchBigInteger() {
+		Random r = new Random(11);
+		long[] edges = new long[] { 0, 1, -1, 127, 128, -128, -129, 255, 256, 32767, -32768,
+				Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+		for(long val : edges) {
+			assertLong(val);
+		}
+		for(int i = 0; i < COUNT; i++) {
+			//spread across every byte length
+			long val = r.nextLong() >> r.nextInt(64);
+			assertLong(val);
+			assertInt((int) val);
+			assertShort((short) val);
+			assertByte((byte) val);
+		}
+	}
+
+	@Test
+	public void testLongerStoredIntegersTruncateLikeBigInteger() {
+		Random r = new Random(12);
+		for(int i = 0; i < 1000; i++) {
+			byte[] data = new BigInteger(70 + r.nextInt(60), r).negate().toByteArray();
+			long old = new BigInteger(data).longValue();
+			Assert.assertEquals(old, StandardConverters.convertFromBytes(Long.class, data).longValue());
+			Assert.assertEquals((int) old, StandardConverters.convertFromBytes(Integer.class, data).intValue());
+		}
+	}
+
+	@Test
+	public void testDoublesMatchBigDecimal() {
+		Random r = new Random(13);
+		double[] edges = new double[] { 0.0, -0.0, 1.0, -1.0, 0.1, 0.001, 0.00099999, 9999999.999999, 1e7, -1e7,
+				2.33, 1.005, 123456.789, Double.MIN_VALUE, Double.MAX_VALUE, Math.PI, 1e-10, 1e22, 0.3 };
+		for(double val : edges) {
+			assertDouble(val);
+		}
+		for(int i = 0; i < COUNT; i++) {
+			//values typed in as decimals, which are what hits the fast path
+			long unscaled = r.nextLong() % 100000000000L;
+			double val = unscaled / Math.pow(10, r.nextInt(12));
+			assertDouble(val);
+			//and any double at all
+			assertDouble(Double.longBitsToDouble(r.nextLong()));
+			assertDouble(r.nextDouble() * 1000);
+		}
+	}
+
+	@Test
+	public void testFloatsMatchBigDecimal() {
+		Random r = new Random(14);
+		float[] edges = new float[] { 0f, -0f, 1f, 0.1f, 2.33f, 0.001f, 9999999f, 1e7f, 16777216f, 3.4028235e38f, Float.MIN_VALUE };
+		for(float val : edges) {
+			assertFloat(val);
+		}
+		for(int i = 0; i < COUNT; i++) {
+			long unscaled = r.nextLong() % 100000000L;
+			float val = (float) (unscaled / Math.pow(10, r.nextInt(9)));
+			assertFloat(val);
+			assertFloat(Float.intBitsToFloat(r.nextInt()));
+			assertFloat(r.nextFloat() * 100);
+		}
+	}
+
+	@Test
+	public void testDecodeAnyStoredDecimal() {
+		Random r = new Random(15);
+		for(int i = 0; i < COUNT; i++) {
+			BigDecimal dec = new BigDecimal(new BigInteger(1 + r.nextInt(70), r).multiply(BigInteger.valueOf(r.nextBoolean() ? 1 : -1)), r.nextInt(60) - 30);
+			byte[] data = Converters.BIGDECIMAL_CONVERTER.convertToNoSql(dec);
+			double d = StandardConverters.convertFromBytes(Double.class, data);
+			Assert.assertEquals(dec.toString(), Double.doubleToLongBits(dec.doubleValue()), Double.doubleToLongBits(d));
+			float f = StandardConverters.convertFromBytes(Float.class, data);
+			Assert.assertEquals(dec.toString(), Float.floatToIntBits(dec.floatValue()), Float.floatToIntBits(f));
+		}
+	}
+
+	@Test
+	public void testTimesUuidsAndBooleans() {
+		Random r = new Random(16);
+		for(int i = 0; i < 1000; i++) {
+			long millis = r.nextLong() >> 20;
+			DateTime time = new DateTime(millis);
+			byte[] data = StandardConverters.convertToBytes(time);
+			Assert.assertArrayEquals(BigInteger.valueOf(millis).toByteArray(), data);
+			Assert.assertEquals(time, StandardConverters.convertFromBytes(DateTime.class, data));
+		}
+
+		UUID uuid = new UUID();
+		byte[] data = StandardConverters.convertToBytes(uuid);
+		byte[] old = concat(BigInteger.valueOf(uuid.getTime()).toByteArray(), BigInteger.valueOf(uuid.getClockSeqAndNode()).toByteArray());
+		Assert.assertArrayEquals(old, data);
+		Assert.assertEquals(uuid, StandardConverters.convertFromBytes(UUID.class, data));
+
+		Assert.assertArrayEquals(BigInteger.ONE.toByteArray(), StandardConverters.convertToBytes(true));
+		Assert.assertEquals(Boolean.FALSE, StandardConverters.convertFromBytes(Boolean.class, BigInteger.ZERO.toByteArray()));
+	}
+
+	@Test
+	public void testWriteIntoCallerBuffer() {
+		byte[] buf = new byte[PrimitiveCodec.MAX_LENGTH + 3];
+		int len = PrimitiveCodec.writeLong(-300, buf, 3);
+		Assert.assertArrayEquals(BigInteger.valueOf(-300).toByteArray(), Arrays.copyOfRange(buf, 3, 3 + len));
+		len = PrimitiveCodec.writeDouble(19.99, buf, 1);
+		Assert.assertArrayEquals(oldDecimal(new BigDecimal("19.99")), Arrays.copyOfRange(buf, 1, 1 + len));
+		Assert.assertEquals(-1, PrimitiveCodec.writeDouble(1e300, buf, 0));
+	}
+
+	private void assertLong(long val) {
+		byte[] old = BigInteger.valueOf(val).toByteArray();
+		byte[] data = StandardConverters.convertToBytes(val);
+		Assert.assertArrayEquals("value="+val, old, data);
+		Assert.assertEquals(val, StandardConverters.convertFromBytes(Long.class, data).longValue());
+	}
+
+	private void assertInt(int val) {
+		byte[] data = StandardConverters.convertToBytes(val);
+		Assert.assertArrayEquals("value="+val, BigInteger.valueOf(val).toByteArray(), data);
+		Assert.assertEquals(val, StandardConverters.convertFromBytes(Integer.class, data).intValue());
+	}
+
+	private void assertShort(short val) {
+		byte[] data = StandardConverters.convertToBytes(val);
+		Assert.assertArrayEquals("value="+val, BigInteger.valueOf(val).toByteArray(), data);
+		Assert.assertEquals(val, StandardConverters.convertFromBytes(Short.class, data).shortValue());
+	}
+
+	private void assertByte(byte val) {
+		byte[] data = StandardConverters.convertToBytes(val);
+		Assert.assertArrayEquals("value="+val, BigInteger.valueOf(val).toByteArray(), data);
+		Assert.assertEquals(val, StandardConverters.convertFromBytes(Byte.class, data).byteValue());
+	}
+
+	private void assertDouble(double val) {
+		if(Double.isNaN(val) || Double.isInfinite(val))
+			return; //BigDecimal never supported these
+		byte[] old = oldDecimal(new BigDecimal(""+val));
+		byte[] data = StandardConverters.convertToBytes(val);
+		Assert.assertArrayEquals("value="+val, old, data);
+		double back = StandardConverters.convertFromBytes(Double.class, data);
+		Assert.assertEquals("value="+val, Double.doubleToLongBits(new BigDecimal(""+val).doubleValue()), Double.doubleToLongBits(back));
+	}
+
+	private void assertFloat(float val) {
+		if(Float.isNaN(val) || Float.isInfinite(val))
+			return;
+		byte[] old = oldDecimal(new BigDecimal(val+""));
+		byte[] data = StandardConverters.convertToBytes(val);
+		Assert.assertArrayEquals("value="+val, old, data);
+		float back = StandardConverters.convertFromBytes(Float.class, data);
+		Assert.assertEquals("value="+val, Float.floatToIntBits(new BigDecimal(val+"").floatValue()), Float.floatToIntBits(back));
+	}
+
+	private byte[] oldDecimal(BigDecimal value) {
+		byte[] scale = new byte[] { (byte) (value.scale() >>> 24), (byte) (value.scale() >>> 16), (byte) (value.scale() >>> 8), (byte) value.scale() };
+		return concat(scale, value.unscaledValue().toByteArray());
+	}
+
+	private byte[] concat(byte[] a, byte[] b) {
+		byte[] result = new byte[a.length + b.length];
+		System.arraycopy(a, 0, result, 0, a.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+}
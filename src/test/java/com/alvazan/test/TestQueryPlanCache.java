@@ -0,0 +1,130 @@
+package com.alvazan.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.DbTypeEnum;
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.exc.ParseException;
+import com.alvazan.orm.api.z3api.NoSqlTypedSession;
+import com.alvazan.orm.api.z3api.QueryResult;
+import com.alvazan.orm.api.z5api.QueryPlanStats;
+import com.alvazan.orm.api.z8spi.KeyValue;
+import com.alvazan.orm.api.z8spi.iter.Cursor;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.api.z8spi.meta.TypedRow;
+import com.alvazan.orm.parser.antlr.QueryShape;
+import com.alvazan.test.db.Activity;
+
+public class TestQueryPlanCache {
+
+	private NoSqlEntityManagerFactory factory;
+	private NoSqlEntityManager mgr;
+
+	@Before
+	public void setup() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.QUERY_PLAN_CACHE_SIZE, 2);
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		factory = FactorySingleton.createFactory(config, props);
+		mgr = factory.createEntityManager();
+		put("act1", "dean", 5, new LocalDate(2012, 1, 1));
+		put("act2", "dean", 10, new LocalDate(2012, 1, 2));
+		put("act3", "bob", -15, new LocalDate(2012, 1, 1));
+		mgr.flush();
+	}
+	@After
+	public void close() {
+		factory.close();
+	}
+
+	@Test
+	public void testShapeIgnoresLiteralsAndWhitespace() {
+		QueryShape one = QueryShape.parse("select * from Activity as e where e.name='dean' and e.numTimes > 5");
+		QueryShape two = QueryShape.parse("select *  from Activity as e\n where e.name = \"bob\" and e.numTimes>-7.5");
+		Assert.assertEquals(one.getKey(), two.getKey());
+		Assert.assertEquals(2, two.getLiteralCount());
+		Assert.assertEquals("bob", two.getValue(0));
+		Assert.assertEquals("-7.5", two.getValue(1).toString());
+
+		//IN lists and anything before the where clause stay as they are
+		QueryShape in = QueryShape.parse("PARTITIONS e('a') select * from Activity as e where e.numTimes in (1, 2)");
+		Assert.assertEquals(0, in.getLiteralCount());
+	}
+
+	@Test
+	public void testSamePlanForDifferentLiterals() {
+		Assert.assertEquals(2, count("select * from Activity as e where e.name='dean'"));
+		Assert.assertEquals(1, count("select * from Activity as e where e.name='bob'"));
+		Assert.assertEquals(0, count("select * from Activity as e where e.name='nobody'"));
+		Assert.assertEquals(1, count("select * from Activity as e where e.numTimes < -10"));
+		Assert.assertEquals(2, count("select * from Activity as e where e.numTimes < 7"));
+		Assert.assertEquals(2, count("select * from Activity as e where e.localDate = '2012-01-01'"));
+
+		QueryPlanStats stats = factory.getQueryPlanStats();
+		Assert.assertEquals(3, stats.getCompiles());
+		Assert.assertEquals(3, stats.getHits());
+		Assert.assertEquals(3, stats.getMisses());
+		Assert.assertEquals(0.5, stats.getHitRatio(), 0.0001);
+		//max of 2 plans so the first one went
+		Assert.assertEquals(1, stats.getEvictions());
+		Assert.assertEquals(2, stats.getSize());
+	}
+
+	@Test
+	public void testWrongLiteralTypeStillFails() {
+		Assert.assertEquals(1, count("select * from Activity as e where e.numTimes = 10"));
+		try {
+			count("select * from Activity as e where e.numTimes = 'ten'");
+			Assert.fail("should have failed as numTimes is not a string");
+		} catch(ParseException e) {
+			Assert.assertTrue(e.getMessage().contains("'ten'"));
+		}
+	}
+
+	@Test
+	public void testPuttingTableMetaThrowsOutItsPlans() {
+		Assert.assertEquals(2, count("select * from Activity as e where e.name='dean'"));
+		Assert.assertEquals(1, factory.getQueryPlanStats().getSize());
+
+		//the ad-hoc tool puts the table meta whenever it changes the schema
+		DboTableMeta meta = mgr.find(DboTableMeta.class, "Activity");
+		mgr.put(meta);
+		mgr.flush();
+
+		QueryPlanStats stats = factory.getQueryPlanStats();
+		Assert.assertEquals(1, stats.getInvalidations());
+		Assert.assertEquals(0, stats.getSize());
+		Assert.assertEquals(1, count("select * from Activity as e where e.name='bob'"));
+		Assert.assertEquals(2, factory.getQueryPlanStats().getCompiles());
+	}
+
+	private int count(String sql) {
+		NoSqlTypedSession s = mgr.getTypedSession();
+		QueryResult result = s.createQueryCursor(sql, 50);
+		Cursor<KeyValue<TypedRow>> cursor = result.getPrimaryViewCursor();
+		List<Object> keys = new ArrayList<Object>();
+		while(cursor.next()) {
+			keys.add(cursor.getCurrent().getKey());
+		}
+		return keys.size();
+	}
+
+	private void put(String id, String name, long numTimes, LocalDate date) {
+		Activity act = new Activity(id);
+		act.setName(name);
+		act.setNumTimes(numTimes);
+		act.setLocalDate(date);
+		mgr.put(act);
+	}
+}
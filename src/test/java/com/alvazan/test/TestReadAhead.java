@@ -0,0 +1,171 @@
+package com.alvazan.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.alvazan.orm.api.z8spi.iter.AbstractCursor.Holder;
+import com.alvazan.orm.api.z8spi.iter.ListWrappingCursor;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue.Batch;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadQueue.Fetcher;
+import com.alvazan.orm.api.z8spi.iter.ReadAheadSettings;
+
+public class TestReadAhead {
+
+	private ExecutorService executor;
+	private CountingFetcher fetcher;
+
+	@Before
+	public void setup() {
+		executor = Executors.newFixedThreadPool(4);
+		fetcher = new CountingFetcher();
+	}
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testNoReadAheadLoadsOnDemand() {
+		ReadAheadQueue<List<String>> queue = new ReadAheadQueue<List<String>>(keys(10), 4, new ReadAheadSettings(0, 0), fetcher);
+		Batch<List<String>> batch = queue.nextBatch();
+		Assert.assertEquals(0, fetcher.asyncCalls.get());
+
+		List<String> rows = batch.fetch(batch.getKeys(), null);
+		Assert.assertEquals(list("k0", "k1", "k2", "k3"), rows);
+		Assert.assertEquals(1, fetcher.syncCalls.get());
+	}
+
+	@Test
+	public void testBatchesLoadAheadInOrder() {
+		ReadAheadSettings settings = new ReadAheadSettings(2, 10);
+		ReadAheadQueue<List<String>> queue = new ReadAheadQueue<List<String>>(keys(10), 3, settings, fetcher);
+
+		List<String> all = new ArrayList<String>();
+		Batch<List<String>> batch = queue.nextBatch();
+		//the next two batches are already loading while we read the first
+		Assert.assertEquals(2, fetcher.asyncCalls.get());
+		while(batch.getKeys().size() > 0) {
+			all.addAll(batch.fetch(batch.getKeys(), null));
+			batch = queue.nextBatch();
+		}
+
+		Assert.assertEquals(10, all.size());
+		for(int i = 0; i < 10; i++) {
+			Assert.assertEquals("k"+i, all.get(i));
+		}
+		//only the first batch was loaded on our thread
+		Assert.assertEquals(1, fetcher.syncCalls.get());
+		Assert.assertEquals(10, settings.getAvailablePermits());
+	}
+
+	@Test
+	public void testPermitsLimitReadAhead() {
+		ReadAheadSettings settings = new ReadAheadSettings(3, 2);
+		ReadAheadQueue<List<String>> first = new ReadAheadQueue<List<String>>(keys(20), 2, settings, fetcher);
+		ReadAheadQueue<List<String>> second = new ReadAheadQueue<List<String>>(keys(20), 2, settings, fetcher);
+
+		//the loads of the first cursor are still running while the second starts
+		fetcher.gate = new CountDownLatch(1);
+		first.nextBatch();
+		Assert.assertEquals(2, fetcher.asyncCalls.get());
+		//the first cursor holds every permit so the second only loads what it needs
+		Batch<List<String>> batch = second.nextBatch();
+		Assert.assertEquals(2, fetcher.asyncCalls.get());
+		Assert.assertEquals(list("k0", "k1"), batch.fetch(batch.getKeys(), null));
+
+		first.cancel();
+		Assert.assertEquals(2, settings.getAvailablePermits());
+		fetcher.gate.countDown();
+	}
+
+	@Test
+	public void testDroppedCursorsGiveBackPermits() throws Exception {
+		ReadAheadSettings settings = new ReadAheadSettings(2, 2);
+		for(int i = 0; i < 5; i++) {
+			//read one batch and drop the cursor like a caller that stops early
+			ReadAheadQueue<List<String>> queue = new ReadAheadQueue<List<String>>(keys(20), 2, settings, fetcher);
+			queue.nextBatch();
+			Assert.assertEquals(2*(i+1), fetcher.asyncCalls.get());
+			for(Future<List<String>> future : fetcher.futures) {
+				future.get();
+			}
+		}
+	}
+
+	@Test
+	public void testRewindRestoresKeyPosition() {
+		ListWrappingCursor<byte[]> rowKeys = keys(10);
+		ReadAheadQueue<List<String>> queue = new ReadAheadQueue<List<String>>(rowKeys, 3, new ReadAheadSettings(2, 10), fetcher);
+		queue.nextBatch();
+		queue.rewind();
+
+		//we handed out k0 to k2 so the row keys go backward from k2
+		Holder<byte[]> previous = rowKeys.previousImpl();
+		Assert.assertEquals("k2", StandardConverters.convertFromBytes(String.class, previous.getValue()));
+	}
+
+	private ListWrappingCursor<byte[]> keys(int count) {
+		List<byte[]> keys = new ArrayList<byte[]>();
+		for(int i = 0; i < count; i++) {
+			keys.add(StandardConverters.convertToBytes("k"+i));
+		}
+		return new ListWrappingCursor<byte[]>(keys);
+	}
+
+	private List<String> list(String... values) {
+		List<String> result = new ArrayList<String>();
+		for(String v : values) {
+			result.add(v);
+		}
+		return result;
+	}
+
+	private class CountingFetcher implements Fetcher<List<String>> {
+		private AtomicInteger syncCalls = new AtomicInteger();
+		private AtomicInteger asyncCalls = new AtomicInteger();
+		private List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+		private volatile CountDownLatch gate = new CountDownLatch(0);
+
+		@Override
+		public List<String> fetch(List<byte[]> keys) {
+			syncCalls.incrementAndGet();
+			return toStrings(keys);
+		}
+
+		@Override
+		public Future<List<String>> fetchAsync(final List<byte[]> keys) {
+			asyncCalls.incrementAndGet();
+			final CountDownLatch waitFor = gate;
+			Future<List<String>> future = executor.submit(new Callable<List<String>>() {
+				@Override
+				public List<String> call() throws InterruptedException {
+					waitFor.await();
+					return toStrings(keys);
+				}
+			});
+			futures.add(future);
+			return future;
+		}
+
+		private List<String> toStrings(List<byte[]> keys) {
+			List<String> result = new ArrayList<String>();
+			for(byte[] k : keys) {
+				result.add(StandardConverters.convertFromBytes(String.class, k));
+			}
+			return result;
+		}
+	}
+}
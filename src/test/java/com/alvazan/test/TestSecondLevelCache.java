@@ -0,0 +1,255 @@
+package com.alvazan.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alvazan.orm.api.base.Bootstrap;
+import com.alvazan.orm.api.base.DbTypeEnum;
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z8spi.CacheStats;
+import com.alvazan.orm.api.z8spi.Row;
+import com.alvazan.orm.api.z8spi.action.Column;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.orm.layer5.nosql.cache.BoundedRowCache;
+import com.alvazan.orm.layer5.nosql.cache.BoundedRowCache.Policy;
+import com.alvazan.orm.layer9z.spi.db.inmemory.RowImpl;
+import com.alvazan.test.db.Currency;
+import com.alvazan.test.db.PackageFieldEntity;
+
+public class TestSecondLevelCache {
+
+	private static NoSqlEntityManagerFactory factory;
+	private NoSqlEntityManager mgr;
+
+	@Before
+	public void createEntityManager() {
+		factory = FactorySingleton.createFactoryOnce();
+		mgr = factory.createEntityManager();
+	}
+	@After
+	public void clearDatabase() {
+		NoSqlEntityManager other = factory.createEntityManager();
+		other.clearDatabase(true);
+	}
+
+	@Test
+	public void testSharedAcrossManagers() {
+		Currency usd = new Currency();
+		usd.setCode("USD");
+		usd.setName("dollar");
+		usd.setRate(1.0);
+		mgr.put(usd);
+		mgr.flush();
+
+		CacheStats before = factory.getCacheStats();
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		Assert.assertEquals("dollar", mgr2.find(Currency.class, "USD").getName());
+		NoSqlEntityManager mgr3 = factory.createEntityManager();
+		Assert.assertEquals("dollar", mgr3.find(Currency.class, "USD").getName());
+		CacheStats after = factory.getCacheStats();
+
+		Assert.assertEquals(before.getMisses()+1, after.getMisses());
+		Assert.assertEquals(before.getHits()+1, after.getHits());
+
+		//a write through any manager invalidates the shared row
+		Currency changed = mgr3.find(Currency.class, "USD");
+		changed.setName("us dollar");
+		mgr3.put(changed);
+		mgr3.flush();
+
+		NoSqlEntityManager mgr4 = factory.createEntityManager();
+		Assert.assertEquals("us dollar", mgr4.find(Currency.class, "USD").getName());
+
+		mgr4.remove(mgr4.find(Currency.class, "USD"));
+		mgr4.flush();
+		NoSqlEntityManager mgr5 = factory.createEntityManager();
+		Assert.assertNull(mgr5.find(Currency.class, "USD"));
+	}
+
+	@Test
+	public void testUnflushedWriteNotShared() {
+		Currency eur = new Currency();
+		eur.setCode("EUR");
+		eur.setName("euro");
+		mgr.put(eur);
+		mgr.flush();
+
+		NoSqlEntityManager writer = factory.createEntityManager();
+		Currency changed = writer.find(Currency.class, "EUR");
+		changed.setName("changed");
+		writer.put(changed);
+
+		//other managers keep seeing the database until the writer flushes
+		NoSqlEntityManager reader = factory.createEntityManager();
+		Assert.assertEquals("euro", reader.find(Currency.class, "EUR").getName());
+		writer.flush();
+		NoSqlEntityManager reader2 = factory.createEntityManager();
+		Assert.assertEquals("changed", reader2.find(Currency.class, "EUR").getName());
+	}
+
+	@Test
+	public void testChunkFlushInvalidatesShared() {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(Bootstrap.FLUSH_CHUNK_SIZE, 5);
+		Config config = new Config(DbTypeEnum.IN_MEMORY, "PlayCluster", "localhost:9160");
+		NoSqlEntityManagerFactory chunked = FactorySingleton.createFactory(config, props);
+		try {
+			NoSqlEntityManager setup = chunked.createEntityManager();
+			Currency gbp = new Currency();
+			gbp.setCode("GBP");
+			gbp.setName("pound");
+			setup.put(gbp);
+			setup.flush();
+
+			NoSqlEntityManager writer = chunked.createEntityManager();
+			Currency changed = writer.find(Currency.class, "GBP");
+			changed.setName("sterling");
+			writer.put(changed);
+
+			//another manager caches the old row after the put invalidated it but before it is written
+			NoSqlEntityManager reader = chunked.createEntityManager();
+			Assert.assertEquals("pound", reader.find(Currency.class, "GBP").getName());
+
+			//enough writes that the chunk goes out though the writer never calls flush
+			for(int i = 0; i < 5; i++) {
+				Currency other = new Currency();
+				other.setCode("C"+i);
+				other.setName("other"+i);
+				writer.put(other);
+			}
+
+			NoSqlEntityManager reader2 = chunked.createEntityManager();
+			Assert.assertEquals("sterling", reader2.find(Currency.class, "GBP").getName());
+		} finally {
+			chunked.close();
+		}
+	}
+
+	@Test
+	public void testNotCacheableSkipsSharedCache() {
+		PackageFieldEntity entity = new PackageFieldEntity();
+		entity.setName("notcached");
+		mgr.put(entity);
+		mgr.flush();
+
+		CacheStats before = factory.getCacheStats();
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		Assert.assertEquals("notcached", mgr2.find(PackageFieldEntity.class, entity.getId()).getName());
+		CacheStats after = factory.getCacheStats();
+		Assert.assertEquals(before.getMisses(), after.getMisses());
+		Assert.assertEquals(before.getSize(), after.getSize());
+	}
+
+	@Test
+	public void testLruEviction() {
+		BoundedRowCache cache = new BoundedRowCache(2, 0, Policy.LRU);
+		DboTableMeta meta = createMeta(0);
+		cache.put(meta, key("a"), row("a"), cache.generation());
+		cache.put(meta, key("b"), row("b"), cache.generation());
+		Assert.assertNotNull(cache.get(meta, key("a")));
+		cache.put(meta, key("c"), row("c"), cache.generation());
+
+		//b was used least recently
+		Assert.assertNull(cache.get(meta, key("b")));
+		Assert.assertNotNull(cache.get(meta, key("a")));
+		Assert.assertNotNull(cache.get(meta, key("c")));
+		Assert.assertEquals(1, cache.getStats().getEvictions());
+	}
+
+	@Test
+	public void testLfuEviction() {
+		BoundedRowCache cache = new BoundedRowCache(2, 0, Policy.LFU);
+		DboTableMeta meta = createMeta(0);
+		cache.put(meta, key("a"), row("a"), cache.generation());
+		cache.put(meta, key("b"), row("b"), cache.generation());
+		cache.get(meta, key("a"));
+		cache.get(meta, key("a"));
+		cache.get(meta, key("b"));
+		cache.put(meta, key("c"), row("c"), cache.generation());
+		//c is the least frequently used so it goes next even though a was read first
+		cache.put(meta, key("d"), row("d"), cache.generation());
+
+		Assert.assertNotNull(cache.get(meta, key("a")));
+		Assert.assertNotNull(cache.get(meta, key("d")));
+		Assert.assertNull(cache.get(meta, key("c")));
+	}
+
+	@Test
+	public void testByteLimitAndTtl() {
+		final long[] now = new long[] {1000};
+		BoundedRowCache cache = new BoundedRowCache(0, 400, Policy.LRU) {
+			@Override
+			protected long currentTimeMillis() {
+				return now[0];
+			}
+		};
+		DboTableMeta meta = createMeta(5);
+		for(int i = 0; i < 10; i++) {
+			cache.put(meta, key("k"+i), row("value"+i), cache.generation());
+		}
+		CacheStats stats = cache.getStats();
+		Assert.assertTrue(stats.getWeight() <= 400);
+		Assert.assertTrue(stats.getEvictions() > 0);
+		Assert.assertNotNull(cache.get(meta, key("k9")));
+
+		now[0] += 5000;
+		Assert.assertNull(cache.get(meta, key("k9")));
+		Assert.assertEquals(1, cache.getStats().getExpirations());
+	}
+
+	@Test
+	public void testRowReadBeforeInvalidateNotCached() {
+		BoundedRowCache cache = new BoundedRowCache(10, 0, Policy.LRU);
+		DboTableMeta meta = createMeta(0);
+
+		//a session starts reading the old row, another session writes it and invalidates, then the read finishes
+		long generation = cache.generation();
+		cache.invalidate(meta, key("a"));
+		cache.put(meta, key("a"), row("old"), generation);
+		Assert.assertNull(cache.get(meta, key("a")));
+
+		//other keys and reads that started after the invalidate are cached as usual
+		cache.put(meta, key("b"), row("b"), generation);
+		Assert.assertNotNull(cache.get(meta, key("b")));
+		cache.put(meta, key("a"), row("new"), cache.generation());
+		Assert.assertNotNull(cache.get(meta, key("a")));
+	}
+
+	@Test
+	public void testClearRefusesReadsInFlight() {
+		BoundedRowCache cache = new BoundedRowCache(10, 0, Policy.LRU);
+		DboTableMeta meta = createMeta(0);
+		long generation = cache.generation();
+		cache.clear();
+		cache.put(meta, key("a"), row("a"), generation);
+		Assert.assertNull(cache.get(meta, key("a")));
+	}
+
+	private DboTableMeta createMeta(int ttlSeconds) {
+		DboTableMeta meta = new DboTableMeta();
+		meta.setup(null, "CachedCf", false, false);
+		meta.setCacheable(true);
+		meta.setCacheTtlSeconds(ttlSeconds);
+		return meta;
+	}
+
+	private byte[] key(String key) {
+		return StandardConverters.convertToBytes(key);
+	}
+
+	private Row row(String value) {
+		Column col = new Column();
+		col.setName(StandardConverters.convertToBytes("name"));
+		col.setValue(StandardConverters.convertToBytes(value));
+		RowImpl row = new RowImpl();
+		row.put(col);
+		return row;
+	}
+}
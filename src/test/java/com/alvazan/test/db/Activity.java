@@ -32,6 +32,7 @@ import com.eaio.uuid.UUID;
 			" e.name=:name and (e.numTimes = :numTimes or e.myFloat = :myFloat)"),	
 	@NoSqlQuery(name="findWithoutParens", query="select * FROM TABLE as e WHERE" +
 			" e.name=:name and e.numTimes = :numTimes or e.myFloat = :myFloat"),
+	@NoSqlQuery(name="findAboveWithFloatBelow", query="select * FROM TABLE as e WHERE e.numTimes > :begin and e.myFloat < :max"),
 	@NoSqlQuery(name="findWithAnd", query="select * FROM TABLE as e WHERE e.name=:name and e.numTimes = :numTimes"),
 	@NoSqlQuery(name="findWithOr", query="select * FROM TABLE as e WHERE e.name=:name or e.numTimes = :numTimes"),
 	@NoSqlQuery(name="findByName", query="select * FROM TABLE as e WHERE e.name=:name"),
@@ -42,14 +43,15 @@ import com.eaio.uuid.UUID;
 	@NoSqlQuery(name="findAll", query="select * FROM TABLE as e"),
 	@NoSqlQuery(name="findByLocalDateTime", query="select * from TABLE as e where e.date = :date"),
 	@NoSqlQuery(name="findByBigInt", query="select * from TABLE as e where e.bigInt = :bigInt"),
-	@NoSqlQuery(name="findByAccount", query="select * from TABLE as e where e.account = :account")
+	@NoSqlQuery(name="findByAccount", query="select * from TABLE as e where e.account = :account"),
+	@NoSqlQuery(name="findJoinOnAccount", query="select * FROM TABLE as e INNER JOIN e.account as a WHERE e.numTimes < :max and a.isActive = :active")
 })
 public class Activity {
 
 	@NoSqlId(usegenerator=false)
 	private String id;
 	
-	@NoSqlManyToOne
+	@NoSqlManyToOne(batchSize=50)
 	@NoSqlIndexed
 	private Account account;
 
@@ -0,0 +1,44 @@
+package com.alvazan.test.db;
+
+import com.alvazan.orm.api.base.anno.NoSqlCacheable;
+import com.alvazan.orm.api.base.anno.NoSqlEntity;
+import com.alvazan.orm.api.base.anno.NoSqlId;
+
+/**
+ * Reference data read by every request so it is kept in the second level cache
+ */
+@NoSqlEntity
+@NoSqlCacheable(ttlSeconds=600)
+public class Currency {
+
+	@NoSqlId(usegenerator=false)
+	private String code;
+
+	private String name;
+
+	private double rate;
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+}
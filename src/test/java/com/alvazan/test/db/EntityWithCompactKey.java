@@ -0,0 +1,31 @@
+package com.alvazan.test.db;
+
+import com.alvazan.orm.api.base.anno.NoSqlEntity;
+import com.alvazan.orm.api.base.anno.NoSqlId;
+import com.alvazan.orm.api.base.spi.CompactKeyGenerator;
+
+@NoSqlEntity
+public class EntityWithCompactKey {
+
+	@NoSqlId(generation=CompactKeyGenerator.class)
+	private Long id;
+	
+	private String something;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getSomething() {
+		return something;
+	}
+
+	public void setSomething(String something) {
+		this.something = something;
+	}
+	
+}
@@ -0,0 +1,99 @@
+package com.alvazan.test.db;
+
+import java.util.List;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.Query;
+import com.alvazan.orm.api.base.anno.NoSqlEntity;
+import com.alvazan.orm.api.base.anno.NoSqlId;
+import com.alvazan.orm.api.base.anno.NoSqlIndexed;
+import com.alvazan.orm.api.base.anno.NoSqlQueries;
+import com.alvazan.orm.api.base.anno.NoSqlQuery;
+
+/**
+ * Fields are package private(except one) so the generated accessor reads and writes them directly
+ */
+@NoSqlEntity
+@NoSqlQueries({
+	@NoSqlQuery(name="findByCount", query="select * FROM TABLE as e WHERE e.count = :count")
+})
+public class PackageFieldEntity {
+
+	@NoSqlId
+	String id;
+
+	@NoSqlIndexed
+	int count;
+
+	long total;
+
+	boolean active;
+
+	Double ratio;
+
+	String name;
+
+	private String secret;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public void setCount(int count) {
+		this.count = count;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+
+	public void setActive(boolean active) {
+		this.active = active;
+	}
+
+	public Double getRatio() {
+		return ratio;
+	}
+
+	public void setRatio(Double ratio) {
+		this.ratio = ratio;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getSecret() {
+		return secret;
+	}
+
+	public void setSecret(String secret) {
+		this.secret = secret;
+	}
+
+	public static List<PackageFieldEntity> findByCount(NoSqlEntityManager mgr, int count) {
+		Query<PackageFieldEntity> query = mgr.createNamedQuery(PackageFieldEntity.class, "findByCount");
+		query.setParameter("count", count);
+		return query.getResultList(0, null);
+	}
+}
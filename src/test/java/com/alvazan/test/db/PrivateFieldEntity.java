@@ -0,0 +1,129 @@
+package com.alvazan.test.db;
+
+import java.util.List;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.Query;
+import com.alvazan.orm.api.base.anno.NoSqlEntity;
+import com.alvazan.orm.api.base.anno.NoSqlId;
+import com.alvazan.orm.api.base.anno.NoSqlIndexed;
+import com.alvazan.orm.api.base.anno.NoSqlQueries;
+import com.alvazan.orm.api.base.anno.NoSqlQuery;
+
+/**
+ * Fields are all private like most entities so the generated accessor goes through Unsafe for every one
+ */
+@NoSqlEntity
+@NoSqlQueries({
+	@NoSqlQuery(name="findByCount", query="select * FROM TABLE as e WHERE e.count = :count")
+})
+public class PrivateFieldEntity {
+
+	@NoSqlId
+	private String id;
+
+	@NoSqlIndexed
+	private int count;
+
+	private long total;
+
+	private boolean active;
+
+	private double ratio;
+
+	private float weight;
+
+	private short level;
+
+	private byte flags;
+
+	private Long bigTotal;
+
+	private String name;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public void setCount(int count) {
+		this.count = count;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+
+	public void setActive(boolean active) {
+		this.active = active;
+	}
+
+	public double getRatio() {
+		return ratio;
+	}
+
+	public void setRatio(double ratio) {
+		this.ratio = ratio;
+	}
+
+	public float getWeight() {
+		return weight;
+	}
+
+	public void setWeight(float weight) {
+		this.weight = weight;
+	}
+
+	public short getLevel() {
+		return level;
+	}
+
+	public void setLevel(short level) {
+		this.level = level;
+	}
+
+	public byte getFlags() {
+		return flags;
+	}
+
+	public void setFlags(byte flags) {
+		this.flags = flags;
+	}
+
+	public Long getBigTotal() {
+		return bigTotal;
+	}
+
+	public void setBigTotal(Long bigTotal) {
+		this.bigTotal = bigTotal;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public static List<PrivateFieldEntity> findByCount(NoSqlEntityManager mgr, int count) {
+		Query<PrivateFieldEntity> query = mgr.createNamedQuery(PrivateFieldEntity.class, "findByCount");
+		query.setParameter("count", count);
+		return query.getResultList(0, null);
+	}
+}
@@ -0,0 +1,72 @@
+package com.alvazan.test.db;
+
+import java.util.List;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.Query;
+import com.alvazan.orm.api.base.anno.NoSqlEntity;
+import com.alvazan.orm.api.base.anno.NoSqlId;
+import com.alvazan.orm.api.base.anno.NoSqlIndexed;
+import com.alvazan.orm.api.base.anno.NoSqlQueries;
+import com.alvazan.orm.api.base.anno.NoSqlQuery;
+
+@NoSqlEntity
+@NoSqlQueries({
+	@NoSqlQuery(name="findByNumber", query="select * FROM TABLE as e WHERE e.number = :number"),
+	@NoSqlQuery(name="findBetween", query="select * FROM TABLE as e WHERE e.number >= :begin and e.number < :to"),
+	@NoSqlQuery(name="findBySymbol", query="select * FROM TABLE as e WHERE e.symbol = :symbol")
+})
+public class ShardedTrade {
+
+	@NoSqlId
+	private String id;
+
+	@NoSqlIndexed(shards=4)
+	private int number;
+
+	@NoSqlIndexed(shards=3)
+	private String symbol;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public int getNumber() {
+		return number;
+	}
+
+	public void setNumber(int number) {
+		this.number = number;
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	public void setSymbol(String symbol) {
+		this.symbol = symbol;
+	}
+
+	public static List<ShardedTrade> findByNumber(NoSqlEntityManager mgr, int number) {
+		Query<ShardedTrade> query = mgr.createNamedQuery(ShardedTrade.class, "findByNumber");
+		query.setParameter("number", number);
+		return query.getResultList(0, null);
+	}
+
+	public static List<ShardedTrade> findBetween(NoSqlEntityManager mgr, int begin, int to) {
+		Query<ShardedTrade> query = mgr.createNamedQuery(ShardedTrade.class, "findBetween");
+		query.setParameter("begin", begin);
+		query.setParameter("to", to);
+		return query.getResultList(0, null);
+	}
+
+	public static List<ShardedTrade> findBySymbol(NoSqlEntityManager mgr, String symbol) {
+		Query<ShardedTrade> query = mgr.createNamedQuery(ShardedTrade.class, "findBySymbol");
+		query.setParameter("symbol", symbol);
+		return query.getResultList(0, null);
+	}
+}
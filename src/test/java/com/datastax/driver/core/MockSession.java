@@ -0,0 +1,49 @@
+package com.datastax.driver.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Session that talks to no cassandra node, it just records the query of each call that would have been a
+ * round trip.  It lives in com.datastax.driver.core because Session and ResultSetFuture only have package
+ * private constructors.
+ */
+public class MockSession extends Session {
+
+	private List<String> queries;
+
+	public MockSession(List<String> queries) {
+		super(null, new ArrayList<Host>());
+		this.queries = queries;
+	}
+
+	@Override
+	public ResultSet execute(String query) {
+		queries.add(query);
+		return null;
+	}
+
+	@Override
+	public ResultSet execute(Query query) {
+		queries.add(query.toString());
+		return null;
+	}
+
+	@Override
+	public ResultSetFuture executeAsync(String query) {
+		queries.add(query);
+		return completed();
+	}
+
+	@Override
+	public ResultSetFuture executeAsync(Query query) {
+		queries.add(query.toString());
+		return completed();
+	}
+
+	private ResultSetFuture completed() {
+		ResultSetFuture future = new ResultSetFuture(null, null);
+		future.set(null);
+		return future;
+	}
+}
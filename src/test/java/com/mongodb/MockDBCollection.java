@@ -0,0 +1,91 @@
+package com.mongodb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A DBCollection that talks to no mongo server, it just records each call that would have been a round
+ * trip.  It lives in com.mongodb because DBCollection has package private abstract methods.
+ */
+public class MockDBCollection extends DBCollection {
+
+	private List<String> calls;
+	private boolean failInsertWithDuplicate;
+	private boolean failIndexWithDuplicate;
+	private DBObject lastIndexOptions;
+	private List<DBObject> lastUpdate;
+
+	public MockDBCollection(DB db, String name, List<String> calls) {
+		super(db, name);
+		this.calls = calls;
+	}
+
+	public void setFailInsertWithDuplicate(boolean failInsertWithDuplicate) {
+		this.failInsertWithDuplicate = failInsertWithDuplicate;
+	}
+
+	public void setFailIndexWithDuplicate(boolean failIndexWithDuplicate) {
+		this.failIndexWithDuplicate = failIndexWithDuplicate;
+	}
+
+	public DBObject getLastIndexOptions() {
+		return lastIndexOptions;
+	}
+
+	public List<DBObject> getLastUpdate() {
+		return lastUpdate;
+	}
+
+	@Override
+	public WriteResult insert(List<DBObject> list, WriteConcern concern, DBEncoder encoder) {
+		calls.add(getName()+".insert("+list.size()+")");
+		if(failInsertWithDuplicate)
+			throw new MongoException.DuplicateKey(11000, "E11000 duplicate key error");
+		return null;
+	}
+
+	@Override
+	public WriteResult update(DBObject q, DBObject o, boolean upsert, boolean multi, WriteConcern concern, DBEncoder encoder) {
+		calls.add(getName()+".update(upsert="+upsert+")");
+		lastUpdate = new ArrayList<DBObject>();
+		lastUpdate.add(q);
+		lastUpdate.add(o);
+		return null;
+	}
+
+	@Override
+	public WriteResult remove(DBObject o, WriteConcern concern, DBEncoder encoder) {
+		int size = 1;
+		if(o.get("$or") != null)
+			size = ((List<?>) o.get("$or")).size();
+		else if(o.get("_id") instanceof DBObject)
+			size = ((List<?>) ((DBObject) o.get("_id")).get("$in")).size();
+		calls.add(getName()+".remove("+size+")");
+		return null;
+	}
+
+	@Override
+	protected void doapply(DBObject o) {
+	}
+
+	@Override
+	Iterator<DBObject> __find(DBObject ref, DBObject fields, int numToSkip, int batchSize, int limit, int options,
+			ReadPreference readPref, DBDecoder decoder) {
+		throw new UnsupportedOperationException("reads should not be needed to write");
+	}
+
+	@Override
+	Iterator<DBObject> __find(DBObject ref, DBObject fields, int numToSkip, int batchSize, int limit, int options,
+			ReadPreference readPref, DBDecoder decoder, DBEncoder encoder) {
+		throw new UnsupportedOperationException("reads should not be needed to write");
+	}
+
+	@Override
+	public void createIndex(DBObject keys, DBObject options, DBEncoder encoder) {
+		calls.add(getName()+".createIndex");
+		lastIndexOptions = options;
+		if(failIndexWithDuplicate)
+			throw new MongoException.DuplicateKey(11000, "E11000 duplicate key error index");
+	}
+}
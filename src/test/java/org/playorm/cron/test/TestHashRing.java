@@ -0,0 +1,240 @@
+package org.playorm.cron.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.playorm.cron.api.CronListener;
+import org.playorm.cron.api.CronService;
+import org.playorm.cron.api.CronServiceFactory;
+import org.playorm.cron.api.PlayOrmCronJob;
+import org.playorm.cron.bindings.CronProdBindings;
+import org.playorm.cron.impl.ConsistentHashRing;
+import org.playorm.cron.impl.ConsistentHashRing.TokenRange;
+import org.playorm.cron.impl.TimingWheel;
+import org.playorm.cron.impl.db.MonitorDbo;
+
+import com.alvazan.orm.api.base.NoSqlEntityManager;
+import com.alvazan.orm.api.base.NoSqlEntityManagerFactory;
+import com.alvazan.orm.api.z3api.NoSqlTypedSession;
+import com.alvazan.orm.api.z5api.IndexPoint;
+import com.alvazan.orm.api.z8spi.action.IndexColumn;
+import com.alvazan.orm.api.z8spi.conv.StandardConverters;
+import com.alvazan.orm.api.z8spi.meta.DboColumnIdMeta;
+import com.alvazan.orm.api.z8spi.meta.DboColumnMeta;
+import com.alvazan.orm.api.z8spi.meta.DboTableMeta;
+import com.alvazan.test.FactorySingleton;
+
+public class TestHashRing {
+
+	private NoSqlEntityManagerFactory factory;
+
+	@After
+	public void clearDatabase() {
+		if(factory == null)
+			return;
+		NoSqlEntityManager other = factory.createEntityManager();
+		other.clearDatabase(true);
+	}
+
+	@Test
+	public void testJoinMovesFewMonitors() {
+		ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("host1", "host2", "host3"), 64);
+		ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("host1", "host2", "host3", "host4"), 64);
+
+		int moved = 0;
+		int total = 10000;
+		for(int i = 0; i < total; i++) {
+			String id = "monitor"+i;
+			String oldOwner = before.ownerOf(id);
+			String newOwner = after.ownerOf(id);
+			if(!oldOwner.equals(newOwner)) {
+				moved++;
+				//the only moves are to the new node
+				Assert.assertEquals("host4", newOwner);
+			}
+		}
+		//ideally a quarter move, hash % n would move about three quarters
+		Assert.assertTrue("moved="+moved, moved > total / 8 && moved < total / 2);
+	}
+
+	@Test
+	public void testTokensNeverChange() {
+		//tokens are saved with the monitors so if this fails the token hash needs a new version instead
+		Assert.assertEquals(-1421968373, ConsistentHashRing.tokenFor(""));
+		Assert.assertEquals(1584857840, ConsistentHashRing.tokenFor("monitor1"));
+		Assert.assertEquals(37548318, ConsistentHashRing.tokenFor("host1#0"));
+	}
+
+	@Test
+	public void testGainedRangesMatchOwnership() {
+		ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("host1", "host2"), 16);
+		ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("host1"), 16);
+
+		List<TokenRange> gained = after.rangesGainedFrom(before, "host1");
+		List<TokenRange> owned = after.rangesOwnedBy("host1");
+		Assert.assertEquals(1, owned.size());
+		Assert.assertEquals(Integer.MIN_VALUE, owned.get(0).getFrom());
+		Assert.assertEquals(Integer.MAX_VALUE, owned.get(0).getTo());
+
+		for(int i = 0; i < 5000; i++) {
+			int token = ConsistentHashRing.tokenFor("m"+i);
+			boolean wasOurs = "host1".equals(before.ownerOfToken(token));
+			Assert.assertEquals("token="+token, !wasOurs, inRanges(gained, token));
+		}
+	}
+
+	@Test
+	public void testWheelReturnsOnlyDue() {
+		TimingWheel wheel = new TimingWheel(1000, 8, 3, 0);
+		wheel.schedule("a", 500);
+		wheel.schedule("b", 2500);
+		wheel.schedule("c", 70000);
+		wheel.schedule("d", 10000000);
+
+		Assert.assertEquals(Arrays.asList("a"), wheel.advance(999));
+		Assert.assertEquals(0, wheel.advance(2000).size());
+		Assert.assertEquals(Arrays.asList("b"), wheel.advance(3000));
+		wheel.remove("c");
+		Assert.assertEquals(0, wheel.advance(100000).size());
+		Assert.assertEquals(1, wheel.size());
+		Assert.assertEquals(Arrays.asList("d"), wheel.advance(10000000));
+		Assert.assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testEachMonitorRunsOnOneNode() {
+		factory = FactorySingleton.createFactoryOnce();
+		MockScheduler mock = new MockScheduler();
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(CronServiceFactory.NOSQL_MGR_FACTORY, factory);
+		props.put(CronProdBindings.SCHEDULER, mock);
+		props.put(CronServiceFactory.SCAN_RATE_MILLIS, ""+(5*60*1000));
+
+		props.put(CronServiceFactory.HOST_UNIQUE_NAME, "host1");
+		CronService server1 = CronServiceFactory.create(props);
+		CollectingListener listener1 = new CollectingListener();
+		server1.addListener(listener1);
+		server1.start();
+		Runnable checker1 = mock.getLastRunnable();
+
+		props.put(CronServiceFactory.HOST_UNIQUE_NAME, "host2");
+		CronService server2 = CronServiceFactory.create(props);
+		CollectingListener listener2 = new CollectingListener();
+		server2.addListener(listener2);
+		server2.start();
+		Runnable checker2 = mock.getLastRunnable();
+
+		Set<String> ids = new HashSet<String>();
+		for(int i = 0; i < 30; i++) {
+			PlayOrmCronJob monitor = new PlayOrmCronJob();
+			monitor.setId("mon"+i);
+			monitor.setTimePeriodMillis(60*60*1000);
+			monitor.addProperty("email", "dean@xsoftware");
+			server1.saveMonitor(monitor);
+			ids.add(monitor.getId());
+		}
+
+		checker1.run();
+		checker2.run();
+
+		Set<String> fired = new HashSet<String>(listener1.ids);
+		fired.addAll(listener2.ids);
+		Assert.assertEquals(ids, fired);
+		Assert.assertEquals(ids.size(), listener1.ids.size() + listener2.ids.size());
+		Assert.assertTrue(listener1.ids.size() > 0);
+		Assert.assertTrue(listener2.ids.size() > 0);
+
+		//the period is an hour so running again fires nothing
+		checker1.run();
+		checker2.run();
+		Assert.assertEquals(ids.size(), listener1.ids.size() + listener2.ids.size());
+	}
+
+	@Test
+	public void testMonitorsWithoutRingTokenStillRun() {
+		factory = FactorySingleton.createFactoryOnce();
+		NoSqlEntityManager mgr = factory.createEntityManager();
+		Set<String> ids = new HashSet<String>();
+		for(int i = 0; i < 30; i++) {
+			MonitorDbo monitor = new MonitorDbo();
+			monitor.setId("old"+i);
+			monitor.setTimePeriodMillis(60*60*1000);
+			monitor.setRawProperties("email=dean@xsoftware");
+			mgr.put(monitor);
+			ids.add(monitor.getId());
+		}
+		mgr.flush();
+
+		//rows saved before monitors had a ring token have no ringToken index entry at all
+		DboTableMeta table = mgr.find(DboTableMeta.class, "MonitorDbo");
+		DboColumnIdMeta idMeta = table.getIdColumnMeta();
+		DboColumnMeta colMeta = table.getColumnMeta("ringToken");
+		NoSqlTypedSession s = mgr.getTypedSession();
+		for(String id : ids) {
+			IndexColumn col = new IndexColumn();
+			col.setColumnName(colMeta.getColumnName());
+			col.setPrimaryKey(idMeta.convertToStorage2(id));
+			col.setIndexedValue(StandardConverters.convertToBytes(0));
+			s.removeIndexPoint(new IndexPoint(idMeta, col, colMeta), null, null);
+		}
+		s.flush();
+
+		MockScheduler mock = new MockScheduler();
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(CronServiceFactory.NOSQL_MGR_FACTORY, factory);
+		props.put(CronProdBindings.SCHEDULER, mock);
+		props.put(CronServiceFactory.SCAN_RATE_MILLIS, ""+(5*60*1000));
+		props.put(CronServiceFactory.HOST_UNIQUE_NAME, "host1");
+		CronService server1 = CronServiceFactory.create(props);
+		CollectingListener listener1 = new CollectingListener();
+		server1.addListener(listener1);
+		server1.start();
+		Runnable checker1 = mock.getLastRunnable();
+
+		props.put(CronServiceFactory.HOST_UNIQUE_NAME, "host2");
+		CronService server2 = CronServiceFactory.create(props);
+		CollectingListener listener2 = new CollectingListener();
+		server2.addListener(listener2);
+		server2.start();
+		Runnable checker2 = mock.getLastRunnable();
+
+		checker1.run();
+		checker2.run();
+
+		Set<String> fired = new HashSet<String>(listener1.ids);
+		fired.addAll(listener2.ids);
+		Assert.assertEquals(ids, fired);
+		Assert.assertEquals(ids.size(), listener1.ids.size() + listener2.ids.size());
+
+		NoSqlEntityManager mgr2 = factory.createEntityManager();
+		for(String id : ids) {
+			MonitorDbo monitor = mgr2.find(MonitorDbo.class, id);
+			Assert.assertEquals(ConsistentHashRing.tokenFor(id), monitor.getRingToken());
+		}
+	}
+
+	private boolean inRanges(List<TokenRange> ranges, int token) {
+		for(TokenRange range : ranges) {
+			if(token >= range.getFrom() && token <= range.getTo())
+				return true;
+		}
+		return false;
+	}
+
+	private static class CollectingListener implements CronListener {
+		private List<String> ids = new ArrayList<String>();
+
+		@Override
+		public void monitorFired(PlayOrmCronJob m) {
+			ids.add(m.getId());
+		}
+	}
+}